@@ -18,6 +18,7 @@ package ch.systemsx.cisd.openbis.generic.client.web.client;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.AttachmentVersions;
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.DataSetUploadParameters;
@@ -47,6 +48,7 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetRelationshipRole
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataStoreServiceKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatastoreServiceDescription;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DetailedSearchCriteria;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityKind;
@@ -603,6 +605,18 @@ public interface ICommonClientService extends IClientService
      */
     public LastModificationState getLastModificationState() throws UserFailureException;
 
+    /**
+     * Waits until one of given <var>relevantModifications</var> has happened after
+     * <var>lastSeenStateOrNull</var> or a server-side timeout expires. Returns immediately if
+     * <var>lastSeenStateOrNull</var> is <code>null</code>.
+     * 
+     * @return the current modification state, <code>null</code> if too many clients are waiting
+     *         already. In this case the client should ask again later.
+     */
+    public LastModificationState waitForModifications(
+            Set<DatabaseModificationKind> relevantModifications,
+            LastModificationState lastSeenStateOrNull) throws UserFailureException;
+
     /**
      * For given {@link TechId} returns corresponding {@link Project}.
      */
@@ -18,6 +18,7 @@ package ch.systemsx.cisd.openbis.generic.client.web.client;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 import com.google.gwt.user.client.rpc.AsyncCallback;
 
@@ -49,6 +50,7 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetRelationshipRole
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataStoreServiceKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatastoreServiceDescription;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DetailedSearchCriteria;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityKind;
@@ -518,6 +520,11 @@ public interface ICommonClientServiceAsync extends IClientServiceAsync
     /** @see ICommonClientService#getLastModificationState() */
     public void getLastModificationState(AsyncCallback<LastModificationState> asyncCallback);
 
+    /** @see ICommonClientService#waitForModifications(Set, LastModificationState) */
+    public void waitForModifications(Set<DatabaseModificationKind> relevantModifications,
+            LastModificationState lastSeenStateOrNull,
+            AsyncCallback<LastModificationState> asyncCallback);
+
     /**
      * @see ICommonClientService#getProjectInfo(TechId)
      */
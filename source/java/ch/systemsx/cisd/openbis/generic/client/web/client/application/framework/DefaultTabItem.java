@@ -156,6 +156,10 @@ public class DefaultTabItem implements ITabItem
 
     public void onClose()
     {
+        if (lastModificationStateUpdaterOrNull != null)
+        {
+            lastModificationStateUpdaterOrNull.dispose();
+        }
         if (disposerActionOrNull != null)
         {
             disposerActionOrNull.execute();
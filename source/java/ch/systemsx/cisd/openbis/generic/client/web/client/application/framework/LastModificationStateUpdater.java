@@ -19,21 +19,20 @@ package ch.systemsx.cisd.openbis.generic.client.web.client.application.framework
 import java.util.HashSet;
 import java.util.Set;
 
-import ch.systemsx.cisd.openbis.generic.client.web.client.ICommonClientServiceAsync;
-import ch.systemsx.cisd.openbis.generic.client.web.client.application.AbstractAsyncCallback;
 import ch.systemsx.cisd.openbis.generic.client.web.client.application.IViewContext;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
 
 /**
- * Stores last database modification state and provides a method to update the state from the
- * server. Informs a specified modification observer about relevant modifications.
+ * Stores last database modification state seen by one tab and updates it with the state known by
+ * the {@link LastModificationStateWatcher} of the window. Informs a specified modification
+ * observer about relevant modifications.
  * 
  * @author Tomasz Pylak
  */
-class LastModificationStateUpdater extends AbstractAsyncCallback<LastModificationState>
+class LastModificationStateUpdater
 {
-    private final ICommonClientServiceAsync commonService;
+    private final LastModificationStateWatcher watcher;
 
     /*
      * The last database objects modification state seen by this tab. Can be null only for a short
@@ -46,19 +45,29 @@ class LastModificationStateUpdater extends AbstractAsyncCallback<LastModificatio
     public LastModificationStateUpdater(IViewContext<?> viewContext,
             IDatabaseModificationObserver modificationObserver)
     {
-        super(viewContext, false);
-        this.commonService = viewContext.getCommonService();
+        this.watcher = LastModificationStateWatcher.getInstance(viewContext.getCommonService());
         this.modificationObserver = modificationObserver;
         this.lastSeenModificationStateOrNull = null;
     }
 
+    /** Called when the tab is activated. */
     public void update()
     {
-        commonService.getLastModificationState(this);
+        watcher.activate(this);
     }
 
-    @Override
-    protected void process(LastModificationState freshState)
+    /** Called when the tab is closed. */
+    public void dispose()
+    {
+        watcher.unregister(this);
+    }
+
+    DatabaseModificationKind[] getRelevantModifications()
+    {
+        return modificationObserver.getRelevantModifications();
+    }
+
+    void process(LastModificationState freshState)
     {
         refreshIfNecessary(freshState);
         updateState(freshState);
@@ -90,9 +99,11 @@ class LastModificationStateUpdater extends AbstractAsyncCallback<LastModificatio
         Set<DatabaseModificationKind> unseenModifications = new HashSet<DatabaseModificationKind>();
         for (DatabaseModificationKind modification : relevantModifications)
         {
-            long lastSeen = lastSeenModificationState.getLastModificationTime(modification);
-            long lastModification = freshState.getLastModificationTime(modification);
-            if (lastSeen < lastModification)
+            // A modification registered after commit may have an older timestamp than the last
+            // seen one, but it always has another version.
+            long lastSeen = lastSeenModificationState.getVersion(modification);
+            long lastModification = freshState.getVersion(modification);
+            if (lastSeen != lastModification)
             {
                 unseenModifications.add(modification);
             }
@@ -104,4 +115,4 @@ class LastModificationStateUpdater extends AbstractAsyncCallback<LastModificatio
     {
         this.lastSeenModificationStateOrNull = freshState;
     }
-}
+}
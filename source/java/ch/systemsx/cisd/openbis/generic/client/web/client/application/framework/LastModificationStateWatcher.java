@@ -0,0 +1,217 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.client.application.framework;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+import ch.systemsx.cisd.openbis.generic.client.web.client.ICommonClientServiceAsync;
+import ch.systemsx.cisd.openbis.generic.client.web.client.exception.InvalidSessionException;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+
+/**
+ * Keeps the database modification state of the whole window up to date. There is at most one
+ * pending request at any time: it waits on the server for a modification which is relevant for
+ * one of the registered tabs (long polling). The tab which is currently active is informed at once,
+ * the other tabs compare the state when they are activated.
+ * <p>
+ * Polling stops when no relevant modification has happened for a while, so that an unattended
+ * window does not keep its session alive. It is resumed by the next tab activation.
+ * </p>
+ *
+ * @author agent
+ */
+final class LastModificationStateWatcher implements AsyncCallback<LastModificationState>
+{
+    /** The number of answers in a row without relevant modifications after which polling stops. */
+    private static final int MAX_IDLE_ANSWERS = 20;
+
+    private static final int RETRY_DELAY_MILLIS = 10000;
+
+    // one instance per window
+    private static LastModificationStateWatcher instance;
+
+    static LastModificationStateWatcher getInstance(final ICommonClientServiceAsync commonService)
+    {
+        if (instance == null)
+        {
+            instance = new LastModificationStateWatcher(commonService);
+        }
+        return instance;
+    }
+
+    private final ICommonClientServiceAsync commonService;
+
+    private final List<LastModificationStateUpdater> updaters =
+            new ArrayList<LastModificationStateUpdater>();
+
+    private LastModificationStateUpdater activeUpdaterOrNull;
+
+    // the last state received from the server, null before the first answer
+    private LastModificationState lastStateOrNull;
+
+    private boolean polling;
+
+    private int idleAnswers;
+
+    private LastModificationStateWatcher(final ICommonClientServiceAsync commonService)
+    {
+        this.commonService = commonService;
+    }
+
+    /**
+     * Makes given <var>updater</var> the active one. It is informed about the current state
+     * immediately if the state is known to be up to date, otherwise as soon as it is fetched.
+     */
+    void activate(final LastModificationStateUpdater updater)
+    {
+        if (updaters.contains(updater) == false)
+        {
+            updaters.add(updater);
+        }
+        activeUpdaterOrNull = updater;
+        idleAnswers = 0;
+        if (polling)
+        {
+            if (lastStateOrNull != null)
+            {
+                updater.process(lastStateOrNull);
+            }
+        } else
+        {
+            // the last state might be out of date, fetch the current one
+            lastStateOrNull = null;
+            poll();
+        }
+    }
+
+    /**
+     * Stops informing given <var>updater</var> and waiting for the modifications relevant for it.
+     */
+    void unregister(final LastModificationStateUpdater updater)
+    {
+        updaters.remove(updater);
+        if (activeUpdaterOrNull == updater)
+        {
+            activeUpdaterOrNull = null;
+        }
+    }
+
+    private void poll()
+    {
+        if (updaters.isEmpty())
+        {
+            polling = false;
+            return;
+        }
+        polling = true;
+        commonService.waitForModifications(getRelevantModifications(), lastStateOrNull, this);
+    }
+
+    private Set<DatabaseModificationKind> getRelevantModifications()
+    {
+        final Set<DatabaseModificationKind> modifications =
+                new HashSet<DatabaseModificationKind>();
+        for (final LastModificationStateUpdater updater : updaters)
+        {
+            for (final DatabaseModificationKind modification : updater.getRelevantModifications())
+            {
+                modifications.add(modification);
+            }
+        }
+        return modifications;
+    }
+
+    private boolean isModified(final LastModificationState freshState)
+    {
+        if (lastStateOrNull == null)
+        {
+            return true;
+        }
+        for (final DatabaseModificationKind modification : getRelevantModifications())
+        {
+            // The versions differ also if the server has been restarted meanwhile.
+            if (lastStateOrNull.getVersion(modification) != freshState.getVersion(modification))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //
+    // AsyncCallback
+    //
+
+    public void onSuccess(final LastModificationState freshState)
+    {
+        if (freshState == null)
+        {
+            // too many clients are waiting on the server
+            pollLater();
+            return;
+        }
+        if (isModified(freshState))
+        {
+            idleAnswers = 0;
+        } else
+        {
+            idleAnswers++;
+        }
+        lastStateOrNull = freshState;
+        if (activeUpdaterOrNull != null)
+        {
+            activeUpdaterOrNull.process(freshState);
+        }
+        if (idleAnswers < MAX_IDLE_ANSWERS)
+        {
+            poll();
+        } else
+        {
+            polling = false;
+        }
+    }
+
+    public void onFailure(final Throwable caught)
+    {
+        if (caught instanceof InvalidSessionException)
+        {
+            // the session is gone, the next user action will show it
+            polling = false;
+            return;
+        }
+        pollLater();
+    }
+
+    private void pollLater()
+    {
+        new Timer()
+            {
+                @Override
+                public void run()
+                {
+                    poll();
+                }
+            }.schedule(RETRY_DELAY_MILLIS);
+    }
+}
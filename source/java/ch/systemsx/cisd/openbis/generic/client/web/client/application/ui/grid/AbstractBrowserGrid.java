@@ -487,7 +487,7 @@ public abstract class AbstractBrowserGrid<T/* Entity */, M extends BaseEntityMod
                     List<GridFilterInfo<T>> appliedFilters = getAppliedFilters();
                     DefaultResultSetConfig<String, T> resultSetConfig =
                             createPagingConfig(loadConfig, columnDefinitions, appliedFilters,
-                                    resultSetKey, getCustomFilter());
+                                    resultSetKey, getCustomFilter(), getRelevantModifications());
                     ListEntitiesCallback listCallback =
                             new ListEntitiesCallback(viewContext, callback, resultSetConfig);
                     listEntities(resultSetConfig, listCallback);
@@ -537,7 +537,7 @@ public abstract class AbstractBrowserGrid<T/* Entity */, M extends BaseEntityMod
     private static <T> DefaultResultSetConfig<String, T> createPagingConfig(
             PagingLoadConfig loadConfig, Set<IColumnDefinition<T>> availableColumns,
             List<GridFilterInfo<T>> appliedFilters, String resultSetKey,
-            CustomFilterInfo<T> customFilterInfo)
+            CustomFilterInfo<T> customFilterInfo, DatabaseModificationKind[] relevantModifications)
     {
         int limit = loadConfig.getLimit();
         int offset = loadConfig.getOffset();
@@ -551,6 +551,13 @@ public abstract class AbstractBrowserGrid<T/* Entity */, M extends BaseEntityMod
         resultSetConfig.setFilterInfos(appliedFilters);
         resultSetConfig.setResultSetKey(resultSetKey);
         resultSetConfig.setCustomFilterInfo(customFilterInfo);
+        // lets the server refresh a cached result set if it has been modified in the meantime
+        Set<DatabaseModificationKind> modifications = new HashSet<DatabaseModificationKind>();
+        for (DatabaseModificationKind modification : relevantModifications)
+        {
+            modifications.add(modification);
+        }
+        resultSetConfig.setRelevantModifications(modifications);
         return resultSetConfig;
     }
 
@@ -18,9 +18,11 @@ package ch.systemsx.cisd.openbis.generic.client.web.client.dto;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import com.google.gwt.user.client.rpc.IsSerializable;
 
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.GridFilterInfo;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SortInfo;
 
@@ -49,6 +51,8 @@ public class DefaultResultSetConfig<K, T> implements IResultSetConfig<K, T>, IsS
 
     private CustomFilterInfo<T> customFilterInfo;
 
+    private Set<DatabaseModificationKind> relevantModificationsOrNull;
+
     public static <K, T> DefaultResultSetConfig<K, T> createFetchAll()
     {
         return new DefaultResultSetConfig<K, T>();
@@ -87,6 +91,7 @@ public class DefaultResultSetConfig<K, T> implements IResultSetConfig<K, T>, IsS
         setFilterInfos(resultSetConfig.getFilterInfos());
         setResultSetKey(resultSetConfig.getResultSetKey());
         setCustomFilterInfo(resultSetConfig.tryGetCustomFilterInfo());
+        setRelevantModifications(resultSetConfig.tryGetRelevantModifications());
     }
 
     //
@@ -129,4 +134,14 @@ public class DefaultResultSetConfig<K, T> implements IResultSetConfig<K, T>, IsS
         this.customFilterInfo = customFilterInfo;
     }
 
+    public Set<DatabaseModificationKind> tryGetRelevantModifications()
+    {
+        return relevantModificationsOrNull;
+    }
+
+    public void setRelevantModifications(Set<DatabaseModificationKind> relevantModifications)
+    {
+        this.relevantModificationsOrNull = relevantModifications;
+    }
+
 }
@@ -17,8 +17,10 @@
 package ch.systemsx.cisd.openbis.generic.client.web.client.dto;
 
 import java.util.List;
+import java.util.Set;
 
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.IResultSet;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.GridFilterInfo;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SortInfo;
 
@@ -59,4 +61,11 @@ public interface IResultSetConfig<K, T> extends IResultSetKeyHolder<K>
      */
     public CustomFilterInfo<T> tryGetCustomFilterInfo();
 
+    /**
+     * Returns the kinds of database modifications which make the result set out of date.
+     * 
+     * @return <code>null</code> if cached data should be used regardless of any modification.
+     */
+    public Set<DatabaseModificationKind> tryGetRelevantModifications();
+
 }
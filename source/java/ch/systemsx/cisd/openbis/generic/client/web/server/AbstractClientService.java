@@ -44,6 +44,7 @@ import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.CachedResult
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.IOriginalDataProvider;
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.IResultSet;
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.IResultSetManager;
+import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.ResultSetCache;
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.CacheManager.TokenBasedResultSetKeyGenerator;
 import ch.systemsx.cisd.openbis.generic.client.web.server.translator.ResultSetTranslator;
 import ch.systemsx.cisd.openbis.generic.client.web.server.translator.UserFailureExceptionTranslator;
@@ -74,6 +75,9 @@ public abstract class AbstractClientService implements IClientService
     @Resource(name = "common-service")
     protected IDataStoreBaseURLProvider dataStoreBaseURLProvider;
 
+    @Resource(name = "result-set-cache")
+    private ResultSetCache<String> resultSetCache = new ResultSetCache<String>();
+
     private String cifexURL;
 
     private String cifexRecipient;
@@ -250,9 +254,10 @@ public abstract class AbstractClientService implements IClientService
         }
     }
 
-    private CachedResultSetManager<String> createCachedResultSetManager()
+    private CachedResultSetManager<String> createCachedResultSetManager(final Session session)
     {
-        return new CachedResultSetManager<String>(new TokenBasedResultSetKeyGenerator());
+        return new CachedResultSetManager<String>(new TokenBasedResultSetKeyGenerator(),
+                resultSetCache, session.getUserName());
     }
 
     /** Returns the {@link IServer} implementation for this client service. */
@@ -314,7 +319,7 @@ public abstract class AbstractClientService implements IClientService
             httpSession.setAttribute(SessionConstants.OPENBIS_SESSION_ATTRIBUTE_KEY, session);
             httpSession.setAttribute(SessionConstants.OPENBIS_SERVER_ATTRIBUTE_KEY, getServer());
             httpSession.setAttribute(SessionConstants.OPENBIS_RESULT_SET_MANAGER,
-                    createCachedResultSetManager());
+                    createCachedResultSetManager(session));
             httpSession.setAttribute(SessionConstants.OPENBIS_EXPORT_MANAGER, CacheManager
                     .createCacheManager());
             return createSessionContext(session);
@@ -17,7 +17,9 @@
 package ch.systemsx.cisd.openbis.generic.client.web.server;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -33,6 +35,11 @@ import ch.systemsx.cisd.openbis.generic.shared.dto.Session;
 
 /**
  * Superclass for servlets supporting file download.
+ * <p>
+ * The content of a file is either given as a whole or streamed by an {@link IContentWriter}.
+ * Streamed content is sent without a content length (that is, chunked) and gzip-compressed if the
+ * client accepts it.
+ * </p>
  * 
  * @author Tomasz Pylak
  */
@@ -78,13 +85,19 @@ abstract public class AbstractFileDownloadServlet extends AbstractController
             FileContent fileContent = getFileContent(request);
             if (fileContent != null)
             {
-                response.setContentLength(fileContent.getContent().length);
                 response.setHeader("Content-Disposition", "attachment; filename=\""
                         + fileContent.getFileName() + "\"");
-                final ServletOutputStream outputStream = response.getOutputStream();
-                outputStream.write(fileContent.getContent());
-                outputStream.flush();
-                outputStream.close();
+                if (fileContent.isStreamed())
+                {
+                    writeStreamedContent(request, response, fileContent.getContentWriter());
+                } else
+                {
+                    response.setContentLength(fileContent.getContent().length);
+                    final ServletOutputStream outputStream = response.getOutputStream();
+                    outputStream.write(fileContent.getContent());
+                    outputStream.flush();
+                    outputStream.close();
+                }
             }
         } catch (final UserFailureException ex)
         {
@@ -93,27 +106,92 @@ abstract public class AbstractFileDownloadServlet extends AbstractController
         return null;
     }
 
+    private final static void writeStreamedContent(final HttpServletRequest request,
+            final HttpServletResponse response, final IContentWriter contentWriter)
+            throws IOException
+    {
+        OutputStream outputStream = response.getOutputStream();
+        if (acceptsGzip(request))
+        {
+            response.setHeader("Content-Encoding", "gzip");
+            outputStream = new GZIPOutputStream(outputStream);
+        }
+        try
+        {
+            contentWriter.write(outputStream);
+            outputStream.flush();
+        } finally
+        {
+            outputStream.close();
+        }
+    }
+
+    private final static boolean acceptsGzip(final HttpServletRequest request)
+    {
+        final String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.indexOf("gzip") != -1;
+    }
+
     //
     // Helper classes
     //
 
+    /**
+     * Writes the content of a file which is streamed to the client.
+     */
+    public static interface IContentWriter
+    {
+        /**
+         * Writes the content to given <var>outputStream</var>. The stream is closed by the caller.
+         */
+        public void write(OutputStream outputStream) throws IOException;
+    }
+
     public final static class FileContent
     {
         private final byte[] content;
 
+        private final IContentWriter contentWriter;
+
         private final String fileName;
 
         public FileContent(final byte[] content, final String fileName)
         {
             this.content = content;
+            this.contentWriter = null;
+            this.fileName = fileName;
+        }
+
+        /**
+         * Creates a file content which is streamed to the client by given <var>contentWriter</var>.
+         */
+        public FileContent(final IContentWriter contentWriter, final String fileName)
+        {
+            assert contentWriter != null : "Unspecified content writer.";
+            this.content = null;
+            this.contentWriter = contentWriter;
             this.fileName = fileName;
         }
 
+        public final boolean isStreamed()
+        {
+            return contentWriter != null;
+        }
+
+        /**
+         * Returns the whole content. Must not be called for streamed content.
+         */
         public final byte[] getContent()
         {
+            assert isStreamed() == false : "Streamed content.";
             return content;
         }
 
+        public final IContentWriter getContentWriter()
+        {
+            return contentWriter;
+        }
+
         public final String getFileName()
         {
             return fileName;
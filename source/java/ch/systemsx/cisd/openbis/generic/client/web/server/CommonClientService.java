@@ -18,7 +18,12 @@ package ch.systemsx.cisd.openbis.generic.client.web.server;
 
 import static ch.systemsx.cisd.openbis.generic.shared.GenericSharedConstants.DATA_STORE_SERVER_WEB_APPLICATION_NAME;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -30,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Resource;
 import javax.servlet.http.HttpSession;
 
 import ch.systemsx.cisd.common.exceptions.UserFailureException;
@@ -60,6 +66,7 @@ import ch.systemsx.cisd.openbis.generic.client.web.client.dto.SearchableEntity;
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.TableExportCriteria;
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.TableModelReference;
 import ch.systemsx.cisd.openbis.generic.client.web.client.exception.InvalidSessionException;
+import ch.systemsx.cisd.openbis.generic.client.web.server.AbstractFileDownloadServlet.IContentWriter;
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.CacheManager;
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.IOriginalDataProvider;
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.IResultSet;
@@ -68,6 +75,7 @@ import ch.systemsx.cisd.openbis.generic.client.web.server.translator.RoleCodeTra
 import ch.systemsx.cisd.openbis.generic.client.web.server.translator.SearchableEntityTranslator;
 import ch.systemsx.cisd.openbis.generic.client.web.server.translator.UserFailureExceptionTranslator;
 import ch.systemsx.cisd.openbis.generic.client.web.server.util.TSVRenderer;
+import ch.systemsx.cisd.openbis.generic.server.DatabaseModificationNotifier;
 import ch.systemsx.cisd.openbis.generic.shared.ICommonServer;
 import ch.systemsx.cisd.openbis.generic.shared.IServer;
 import ch.systemsx.cisd.openbis.generic.shared.basic.IDataStoreBaseURLProvider;
@@ -85,6 +93,7 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetTypePropertyType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataStoreServiceKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatastoreServiceDescription;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DetailedSearchCriteria;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityKind;
@@ -140,10 +149,16 @@ import ch.systemsx.cisd.openbis.generic.shared.translator.VocabularyTermTranslat
  * @author    Franz-Josef Elmer
  */
 public final class CommonClientService extends AbstractClientService implements
-        ICommonClientService, IDataStoreBaseURLProvider
+        ICommonClientService, IDataStoreBaseURLProvider, IExportTableWriterProvider
 {
+    /** The time after which a client waiting for database modifications gets an answer. */
+    private static final long MODIFICATION_WAIT_TIMEOUT_MILLIS = 30000;
+
     private final ICommonServer commonServer;
 
+    @Resource(name = "database-modification-notifier")
+    private DatabaseModificationNotifier modificationNotifier;
+
     private String dataStoreBaseURL;
 
     public CommonClientService(final ICommonServer commonServer,
@@ -241,6 +256,38 @@ public final class CommonClientService extends AbstractClientService implements
         }
     }
 
+    /**
+     * Streaming variant of {@link #getExportTable(String, String)} used by the export servlet. The
+     * export criteria and the cached entities are resolved immediately, so failures are reported
+     * before anything has been written. The returned writer renders the table row by row.
+     */
+    public final IContentWriter createExportTableWriter(final String exportDataKey,
+            final String lineSeparator)
+    {
+        // NOTE: no generics in GWT
+        return createGenericExportTableWriter(exportDataKey, lineSeparator);
+    }
+
+    private final <T> IContentWriter createGenericExportTableWriter(final String exportDataKey,
+            final String lineSeparator)
+    {
+        // Not directly needed but this refreshes the session.
+        getSessionToken();
+        final TableExportCriteria<T> exportCriteria = getAndRemoveExportCriteria(exportDataKey);
+        final List<T> entities = fetchCachedEntities(exportCriteria);
+        return new IContentWriter()
+            {
+                public void write(OutputStream outputStream) throws IOException
+                {
+                    final Writer writer =
+                            new BufferedWriter(new OutputStreamWriter(outputStream));
+                    TSVRenderer.writeTable(entities, exportCriteria.getColumnDefs(),
+                            lineSeparator, writer);
+                    writer.flush();
+                }
+            };
+    }
+
     public final void removeResultSet(final String resultSetKey)
             throws ch.systemsx.cisd.openbis.generic.client.web.client.exception.UserFailureException
     {
@@ -1662,6 +1709,24 @@ public final class CommonClientService extends AbstractClientService implements
         }
     }
 
+    public LastModificationState waitForModifications(
+            Set<DatabaseModificationKind> relevantModifications,
+            LastModificationState lastSeenStateOrNull)
+    {
+        // Only the HTTP session is checked: the call does not touch the database and blocks for
+        // a while, so it is not routed through the server and its interceptors.
+        getSessionToken();
+        try
+        {
+            return modificationNotifier.waitForModification(relevantModifications,
+                    lastSeenStateOrNull, MODIFICATION_WAIT_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            return modificationNotifier.getLastModificationState().createSnapshot();
+        }
+    }
+
     public Project getProjectInfo(TechId projectId)
             throws ch.systemsx.cisd.openbis.generic.client.web.client.exception.UserFailureException
     {
@@ -24,7 +24,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 
 import ch.systemsx.cisd.common.utilities.OSKind;
-import ch.systemsx.cisd.openbis.generic.client.web.client.ICommonClientService;
 import ch.systemsx.cisd.openbis.generic.client.web.client.application.GenericConstants;
 import ch.systemsx.cisd.openbis.generic.client.web.server.util.HttpUtils;
 import ch.systemsx.cisd.openbis.generic.shared.ResourceNames;
@@ -38,7 +37,7 @@ import ch.systemsx.cisd.openbis.generic.shared.ResourceNames;
 public class FileExportServiceServlet extends AbstractFileDownloadServlet
 {
     @Resource(name = ResourceNames.COMMON_SERVICE)
-    private ICommonClientService service;
+    private IExportTableWriterProvider service;
 
     @Override
     protected FileContent getFileContent(final HttpServletRequest request) throws Exception
@@ -50,10 +49,10 @@ public class FileExportServiceServlet extends AbstractFileDownloadServlet
         {
             OSKind osKind = HttpUtils.figureOperatingSystemKind(request);
             String lineSeparator = osKind.getLineSeparator();
-            String fileContent = service.getExportTable(exportDataKey, lineSeparator);
-            byte[] value = fileContent.getBytes();
+            IContentWriter contentWriter =
+                    service.createExportTableWriter(exportDataKey, lineSeparator);
             String fileName = "exportedData.txt";
-            return new FileContent(value, fileName);
+            return new FileContent(contentWriter, fileName);
         } else
         {
             return null;
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ch.systemsx.cisd.openbis.generic.client.web.server;
+
+import ch.systemsx.cisd.openbis.generic.client.web.server.AbstractFileDownloadServlet.IContentWriter;
+
+/**
+ * Implementation of this interface provides the exported tables as streams for the export servlet.
+ * <p>
+ * It is not part of the <code>ICommonClientService</code> because that interface is exposed to the
+ * GWT client, which can not transfer an {@link IContentWriter}.
+ * </p>
+ * 
+ * @author agent
+ */
+public interface IExportTableWriterProvider
+{
+    /**
+     * Returns the writer of the table prepared for export with given <var>exportDataKey</var>.
+     */
+    public IContentWriter createExportTableWriter(String exportDataKey, String lineSeparator);
+}
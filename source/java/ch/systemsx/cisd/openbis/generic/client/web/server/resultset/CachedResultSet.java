@@ -0,0 +1,282 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.IColumnDefinition;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+
+/**
+ * The full data of one result set together with the views derived from them.
+ * <p>
+ * A view is the ordered index of the rows which remain after filtering and sorting. Views are
+ * cached, so that paging through (or exporting) the same filtered and sorted data does not filter
+ * and sort them again. As the views belong to the data they have been derived from, they are
+ * dropped together with them when the result set is replaced or removed.
+ * </p>
+ * <p>
+ * Filtering and sorting do not call back into the row objects. The values of a column are
+ * extracted once, the first time the column is filtered or sorted, and stored column-wise: the
+ * lower-cased values for filtering and the {@link ColumnSortKeys} for sorting.
+ * </p>
+ * <p>
+ * The cached views and column values take memory in proportion to the number of rows. They are
+ * counted as derived values (see {@link #getWeight()}), so that the {@link ResultSetCache} can
+ * charge them to its budget.
+ * </p>
+ * <p>
+ * A result set remembers the versions of the kinds of database modifications its rows depend on,
+ * as they were before the rows have been loaded, so that it can tell whether it is out of date (see
+ * {@link #isStale(LastModificationState)}).
+ * </p>
+ *
+ * @author agent
+ */
+public final class CachedResultSet<T> implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** The maximum number of views cached for one result set. */
+    private static final int MAX_VIEWS = 8;
+
+    private static final class ViewMap extends LinkedHashMap<Object, int[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        /** The number of row indices of all views in this map. */
+        private long valueCount;
+
+        ViewMap()
+        {
+            super(MAX_VIEWS, 0.75f, true);
+        }
+
+        final void putView(final Object viewKey, final int[] view)
+        {
+            final int[] previousView = put(viewKey, view);
+            valueCount += view.length - (previousView == null ? 0 : previousView.length);
+        }
+
+        final long getValueCount()
+        {
+            return valueCount;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Object, int[]> eldest)
+        {
+            if (size() > MAX_VIEWS)
+            {
+                valueCount -= eldest.getValue().length;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final List<T> rows;
+
+    private final Map<DatabaseModificationKind, Long> modificationVersionsOrNull;
+
+    private final ViewMap views = new ViewMap();
+
+    /** The lower-cased values of the filtered columns, by column identifier. */
+    private final ConcurrentMap<String, String[]> lowerCaseValues =
+            new ConcurrentHashMap<String, String[]>();
+
+    /** The sort keys of the sorted columns, by column identifier. */
+    private final ConcurrentMap<String, ColumnSortKeys> sortKeys =
+            new ConcurrentHashMap<String, ColumnSortKeys>();
+
+    /** The number of lower-cased values and sort keys of all columns. */
+    private final AtomicLong columnValueCount = new AtomicLong();
+
+    public CachedResultSet(final List<T> rows)
+    {
+        this(rows, null);
+    }
+
+    /**
+     * @param modificationVersionsOrNull the versions of the kinds of database modifications which
+     *            make given <var>rows</var> out of date, taken before the rows have been loaded
+     *            (see {@link #tryGetModificationVersions(Set, LastModificationState)}).
+     *            <code>null</code> if the rows never become out of date.
+     */
+    public CachedResultSet(final List<T> rows,
+            final Map<DatabaseModificationKind, Long> modificationVersionsOrNull)
+    {
+        assert rows != null : "Unspecified rows.";
+        // Views access the rows by index.
+        this.rows = rows instanceof RandomAccess ? rows : new ArrayList<T>(rows);
+        this.modificationVersionsOrNull = modificationVersionsOrNull;
+    }
+
+    /**
+     * Returns the current versions of given <var>relevantModificationsOrNull</var> in given
+     * <var>modificationStateOrNull</var>.
+     * 
+     * @return <code>null</code> if one of the arguments is <code>null</code>.
+     */
+    public static Map<DatabaseModificationKind, Long> tryGetModificationVersions(
+            final Set<DatabaseModificationKind> relevantModificationsOrNull,
+            final LastModificationState modificationStateOrNull)
+    {
+        if (relevantModificationsOrNull == null || modificationStateOrNull == null)
+        {
+            return null;
+        }
+        final Map<DatabaseModificationKind, Long> versions =
+                new HashMap<DatabaseModificationKind, Long>();
+        for (final DatabaseModificationKind modification : relevantModificationsOrNull)
+        {
+            versions.put(modification, modificationStateOrNull.getVersion(modification));
+        }
+        return versions;
+    }
+
+    /** Returns the unfiltered and unsorted rows. */
+    public final List<T> getRows()
+    {
+        return rows;
+    }
+
+    public final int size()
+    {
+        return rows.size();
+    }
+
+    /**
+     * Returns the number of rows plus the number of values derived from them: the row indices of
+     * the cached views and the extracted values of the filtered and sorted columns.
+     */
+    public final long getWeight()
+    {
+        synchronized (views)
+        {
+            return rows.size() + views.getValueCount() + columnValueCount.get();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if one of the relevant kinds of database modifications has been
+     * registered in given <var>modificationState</var> since the rows have been loaded.
+     */
+    public final boolean isStale(final LastModificationState modificationState)
+    {
+        assert modificationState != null : "Unspecified modification state.";
+        if (modificationVersionsOrNull == null)
+        {
+            return false;
+        }
+        for (final Map.Entry<DatabaseModificationKind, Long> entry : modificationVersionsOrNull
+                .entrySet())
+        {
+            if (modificationState.getVersion(entry.getKey()) != entry.getValue())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the view cached for given <var>viewKey</var> or <code>null</code>.
+     */
+    final int[] tryGetView(final Object viewKey)
+    {
+        synchronized (views)
+        {
+            return views.get(viewKey);
+        }
+    }
+
+    /**
+     * Caches given <var>view</var>, the indices of the rows in display order, for given
+     * <var>viewKey</var>.
+     */
+    final void putView(final Object viewKey, final int[] view)
+    {
+        synchronized (views)
+        {
+            views.putView(viewKey, view);
+        }
+    }
+
+    /**
+     * Returns the lower-cased values of given <var>column</var> for all rows, extracting them with
+     * {@link IColumnDefinition#getValue(Object)} if this has not been done before.
+     */
+    final String[] getLowerCaseValues(final IColumnDefinition<T> column)
+    {
+        final String columnId = column.getIdentifier();
+        String[] values = lowerCaseValues.get(columnId);
+        if (values == null)
+        {
+            values = new String[rows.size()];
+            final Map<String, String> canonicalValues = new HashMap<String, String>();
+            for (int i = 0; i < values.length; i++)
+            {
+                final String value = column.getValue(rows.get(i)).toLowerCase();
+                values[i] = ColumnSortKeys.canonicalize(value, canonicalValues);
+            }
+            final String[] concurrentValues = lowerCaseValues.putIfAbsent(columnId, values);
+            if (concurrentValues != null)
+            {
+                values = concurrentValues;
+            } else
+            {
+                columnValueCount.addAndGet(values.length);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the sort keys of given <var>column</var> for all rows, extracting them if this has
+     * not been done before.
+     */
+    final ColumnSortKeys getSortKeys(final IColumnDefinition<T> column)
+    {
+        final String columnId = column.getIdentifier();
+        ColumnSortKeys keys = sortKeys.get(columnId);
+        if (keys == null)
+        {
+            keys = ColumnSortKeys.create(rows, column);
+            final ColumnSortKeys concurrentKeys = sortKeys.putIfAbsent(columnId, keys);
+            if (concurrentKeys != null)
+            {
+                keys = concurrentKeys;
+            } else
+            {
+                columnValueCount.addAndGet(rows.size());
+            }
+        }
+        return keys;
+    }
+}
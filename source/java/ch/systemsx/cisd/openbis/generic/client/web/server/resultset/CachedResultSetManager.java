@@ -16,59 +16,137 @@
 
 package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
 
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
 
-import org.apache.commons.collections.comparators.ReverseComparator;
 import org.apache.commons.lang.text.StrMatcher;
 import org.apache.commons.lang.text.StrTokenizer;
 import org.apache.log4j.Logger;
 
 import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.base.exceptions.CheckedExceptionTunnel;
 import ch.systemsx.cisd.common.evaluator.EvaluatorException;
 import ch.systemsx.cisd.common.logging.LogCategory;
 import ch.systemsx.cisd.common.logging.LogFactory;
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.CustomFilterInfo;
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.IResultSetConfig;
+import ch.systemsx.cisd.openbis.generic.client.web.client.dto.ParameterWithValue;
 import ch.systemsx.cisd.openbis.generic.client.web.client.exception.UserFailureException;
 import ch.systemsx.cisd.openbis.generic.client.web.server.util.FilterUtils;
 import ch.systemsx.cisd.openbis.generic.shared.basic.IColumnDefinition;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.GridFilterInfo;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SortInfo;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SortInfo.SortDir;
 
 /**
  * A {@link IResultSetManager} implementation which caches the full data retrieved using
  * {@link IOriginalDataProvider}.
+ * <p>
+ * The data are stored in a {@link ResultSetCache} which may be shared with the managers of other
+ * sessions. If the data of a known result set key have been evicted from the cache, they are
+ * retrieved again from the {@link IOriginalDataProvider}. When the manager is unbound from its HTTP
+ * session, all the result sets it has created are released.
+ * </p>
+ * <p>
+ * Only result sets created by the manager itself can be accessed or removed with their keys. A key
+ * created by the manager of another session is treated like an unknown key. The shared cache is
+ * not serialized with the HTTP session: a deserialized manager stores its result sets in a new
+ * cache of its own.
+ * </p>
+ * <p>
+ * The manager does not lock while filtering, sorting and paging, so requests for different result
+ * sets run in parallel. Concurrent requests which need the original data of the same key wait for
+ * one single retrieval.
+ * </p>
+ * <p>
+ * Filtered and sorted views of a result set are cached with it (see {@link CachedResultSet}), so
+ * paging through the same view only slices the cached index. Filtering and sorting run over the
+ * column values extracted once per result set. A first page of a large view is answered without
+ * sorting all rows.
+ * </p>
+ * <p>
+ * A request stating the kinds of database modifications it depends on gets freshly retrieved data
+ * if such a modification has happened since its result set has been cached.
+ * </p>
  * 
  * @author Christian Ribeaud
  */
-public final class CachedResultSetManager<K> implements IResultSetManager<K>, Serializable
+public final class CachedResultSetManager<K> implements IResultSetManager<K>, Serializable,
+        HttpSessionBindingListener
 {
     private static final long serialVersionUID = 1L;
 
+    private static final String DEFAULT_OWNER_ID = "";
+
+    /**
+     * A sort request is answered by selecting only the requested rows if they belong to the first
+     * <code>1/SMALL_WINDOW_FRACTION</code> of the view.
+     */
+    private static final int SMALL_WINDOW_FRACTION = 16;
+
     private final IResultSetKeyGenerator<K> resultSetKeyProvider;
 
     private static final Logger operationLog =
             LogFactory.getLogger(LogCategory.OPERATION, CachedResultSetManager.class);
 
     @Private
-    final Map<K, List<?>> results = new HashMap<K, List<?>>();
+    transient ResultSetCache<K> results;
 
+    private final String ownerId;
+
+    private final ConcurrentMap<K, Boolean> ownKeys = new ConcurrentHashMap<K, Boolean>();
+
+    /** The retrievals of original data which are currently running. */
+    private transient ConcurrentMap<K, FutureTask<CachedResultSet<?>>> pendingRetrievals =
+            new ConcurrentHashMap<K, FutureTask<CachedResultSet<?>>>();
+
+    /**
+     * Creates a manager with its own unbounded cache.
+     */
     public CachedResultSetManager(final IResultSetKeyGenerator<K> resultSetKeyProvider)
     {
+        this(resultSetKeyProvider, new ResultSetCache<K>(), DEFAULT_OWNER_ID);
+    }
+
+    /**
+     * Creates a manager storing its result sets in given <var>cache</var> on behalf of given
+     * <var>ownerId</var> (typically the user id).
+     */
+    public CachedResultSetManager(final IResultSetKeyGenerator<K> resultSetKeyProvider,
+            final ResultSetCache<K> cache, final String ownerId)
+    {
+        assert resultSetKeyProvider != null : "Unspecified key provider.";
+        assert cache != null : "Unspecified cache.";
+        assert ownerId != null : "Unspecified owner.";
         this.resultSetKeyProvider = resultSetKeyProvider;
+        this.results = cache;
+        this.ownerId = ownerId;
     }
 
     @SuppressWarnings("unchecked")
-    private final <T> List<T> cast(final List<?> list)
+    private final <T> CachedResultSet<T> cast(final CachedResultSet<?> resultSet)
     {
-        return (List<T>) list;
+        return (CachedResultSet<T>) resultSet;
     }
 
     /**
@@ -110,12 +188,154 @@ public final class CachedResultSetManager<K> implements IResultSetManager<K>, Se
         }
     }
 
-    private static final <T> List<T> filterData(final List<T> rows,
+    /**
+     * Creates the key of the view defined by given filters and sort information.
+     * 
+     * @return <code>null</code> if the view contains all rows in their original order.
+     */
+    @Private
+    final static <T> List<String> tryCreateViewKey(final List<GridFilterInfo<T>> filterInfos,
+            final CustomFilterInfo<T> customFilterInfoOrNull, final SortInfo<T> sortInfo)
+    {
+        final List<String> viewKey = createFilterKey(filterInfos, customFilterInfoOrNull);
+        if (isSorted(sortInfo))
+        {
+            viewKey.add("sort");
+            viewKey.add(sortInfo.getSortField().getIdentifier());
+            viewKey.add(sortInfo.getSortDir().name());
+        }
+        return viewKey.isEmpty() ? null : viewKey;
+    }
+
+    /**
+     * Creates the key of the unsorted rows matching given filters. The key is empty if there are
+     * no filters.
+     */
+    private final static <T> List<String> createFilterKey(
+            final List<GridFilterInfo<T>> filterInfos,
+            final CustomFilterInfo<T> customFilterInfoOrNull)
+    {
+        final List<String> viewKey = new ArrayList<String>();
+        if (customFilterInfoOrNull != null)
+        {
+            viewKey.add("custom-filter");
+            viewKey.add(customFilterInfoOrNull.getExpression());
+            final List<String> parameters = new ArrayList<String>();
+            for (ParameterWithValue parameter : customFilterInfoOrNull.getParameters())
+            {
+                parameters.add(parameter.getParameter() + "=" + parameter.getValue());
+            }
+            Collections.sort(parameters);
+            viewKey.addAll(parameters);
+            for (IColumnDefinition<T> column : customFilterInfoOrNull.getColumns())
+            {
+                viewKey.add(column.getIdentifier());
+            }
+        } else
+        {
+            for (GridFilterInfo<T> filterInfo : filterInfos)
+            {
+                viewKey.add("filter");
+                viewKey.add(filterInfo.getFilteredField().getIdentifier());
+                viewKey.add(filterInfo.getFilterPattern());
+            }
+        }
+        return viewKey;
+    }
+
+    private static final boolean isSorted(final SortInfo<?> sortInfo)
+    {
+        assert sortInfo != null : "Unspecified sort information.";
+        return sortInfo.getSortDir() != SortDir.NONE && sortInfo.getSortField() != null;
+    }
+
+    /**
+     * Returns the indices of the rows of given <var>resultSet</var> in display order, using the
+     * cached view if there is one.
+     * <p>
+     * If only a window at the beginning of a large view is requested, just the rows up to the end
+     * of the window are selected (see {@link PartialSorter}). The complete order is established
+     * once a window further down the view is requested.
+     * </p>
+     * 
+     * @param filteredRowsOrNull the filtered rows, <code>null</code> if there are no filters.
+     * @param windowEnd the index after the last row which is needed.
+     * @return <code>null</code> if all rows should be displayed in their original order.
+     *         Otherwise the returned array contains at least the first <var>windowEnd</var> rows.
+     */
+    private final <T> int[] tryGetSortedView(final CachedResultSet<T> resultSet,
+            final int[] filteredRowsOrNull, final List<String> viewKeyOrNull,
+            final SortInfo<T> sortInfo, final int windowEnd)
+    {
+        if (isSorted(sortInfo) == false)
+        {
+            return filteredRowsOrNull;
+        }
+        int[] view = resultSet.tryGetView(viewKeyOrNull);
+        if (view != null)
+        {
+            return view;
+        }
+        final int[] rowsToSort =
+                filteredRowsOrNull == null ? createIdentityView(resultSet.size())
+                        : filteredRowsOrNull;
+        if (isSmallWindow(windowEnd, rowsToSort.length))
+        {
+            final List<String> partialViewKey = new ArrayList<String>(viewKeyOrNull);
+            partialViewKey.add("first-rows");
+            view = resultSet.tryGetView(partialViewKey);
+            if (view == null || view.length < windowEnd)
+            {
+                view = PartialSorter.selectFirst(rowsToSort, windowEnd, createComparator(resultSet,
+                        sortInfo));
+                resultSet.putView(partialViewKey, view);
+            }
+            return view;
+        }
+        view = rowsToSort == filteredRowsOrNull ? rowsToSort.clone() : rowsToSort;
+        sortData(resultSet, view, sortInfo);
+        resultSet.putView(viewKeyOrNull, view);
+        return view;
+    }
+
+    @Private
+    final static boolean isSmallWindow(final int windowEnd, final int size)
+    {
+        return windowEnd * SMALL_WINDOW_FRACTION <= size;
+    }
+
+    /**
+     * Returns the indices of the rows of given <var>resultSet</var> matching given filters, in
+     * their original order. The indices are cached, so that sorting the same filtered rows
+     * differently does not evaluate (possibly expensive custom) filters again.
+     * 
+     * @return <code>null</code> if there are no filters.
+     */
+    private static final <T> int[] tryGetFilteredRows(final CachedResultSet<T> resultSet,
+            final List<GridFilterInfo<T>> filterInfos,
+            final CustomFilterInfo<T> customFilterInfoOrNull)
+    {
+        final List<String> filterKey = createFilterKey(filterInfos, customFilterInfoOrNull);
+        if (filterKey.isEmpty())
+        {
+            return null;
+        }
+        int[] filteredRows = resultSet.tryGetView(filterKey);
+        if (filteredRows == null)
+        {
+            filteredRows = filterData(resultSet, filterInfos, customFilterInfoOrNull);
+            resultSet.putView(filterKey, filteredRows);
+        }
+        return filteredRows;
+    }
+
+    private static final <T> int[] filterData(final CachedResultSet<T> resultSet,
             final List<GridFilterInfo<T>> filterInfos, CustomFilterInfo<T> customFilterInfo)
     {
-        List<T> filtered = new ArrayList<T>();
+        final List<T> rows = resultSet.getRows();
         if (customFilterInfo != null)
         {
+            IntArrayList filtered = new IntArrayList();
             try
             {
                 FilterUtils.applyCustomFilter(rows, customFilterInfo, filtered);
@@ -135,32 +355,47 @@ public final class CachedResultSetManager<K> implements IResultSetManager<K>, Se
                 }
                 throw new UserFailureException(msg);
             }
+            return filtered.toIntArray();
         } else
         {
-            List<FilterInfo<T>> serverFilterInfos =
-                    new ArrayList<FilterInfo<T>>(filterInfos.size());
-            for (GridFilterInfo<T> info : filterInfos)
+            final int filterCount = filterInfos.size();
+            final String[][] columnValues = new String[filterCount][];
+            final String[][] patternAlternatives = new String[filterCount][];
+            for (int f = 0; f < filterCount; f++)
             {
-                serverFilterInfos.add(FilterInfo.create(info));
-
+                FilterInfo<T> info = FilterInfo.create(filterInfos.get(f));
+                columnValues[f] = resultSet.getLowerCaseValues(info.getFilteredField());
+                patternAlternatives[f] = info.getFilterExpressionAlternatives();
             }
-            for (T row : rows)
+            IntArrayList filtered = new IntArrayList();
+            for (int i = 0; i < rows.size(); i++)
             {
-                if (isMatching(row, serverFilterInfos))
+                if (isMatching(i, columnValues, patternAlternatives))
                 {
-                    filtered.add(row);
+                    filtered.add(i);
                 }
             }
+            return filtered.toIntArray();
+        }
+    }
+
+    private static final int[] createIdentityView(final int size)
+    {
+        final int[] view = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            view[i] = i;
         }
-        return filtered;
+        return view;
     }
 
-    // returns true if a row matches all the filters
-    private static final <T> boolean isMatching(final T row, final List<FilterInfo<T>> filterInfos)
+    // returns true if the row with given index matches all the filters
+    private static final boolean isMatching(final int rowIndex, final String[][] columnValues,
+            final String[][] patternAlternatives)
     {
-        for (FilterInfo<T> filter : filterInfos)
+        for (int f = 0; f < columnValues.length; f++)
         {
-            if (isMatching(row, filter) == false)
+            if (isMatching(columnValues[f][rowIndex], patternAlternatives[f]) == false)
             {
                 return false;
             }
@@ -168,13 +403,6 @@ public final class CachedResultSetManager<K> implements IResultSetManager<K>, Se
         return true;
     }
 
-    private static final <T> boolean isMatching(final T row, final FilterInfo<T> filterInfo)
-    {
-        IColumnDefinition<T> filteredField = filterInfo.getFilteredField();
-        String value = filteredField.getValue(row).toLowerCase();
-        return isMatching(value, filterInfo.getFilterExpressionAlternatives());
-    }
-
     private static boolean isMatching(String value, String[] filterPatternAlternatives)
     {
         for (String pattern : filterPatternAlternatives)
@@ -187,51 +415,35 @@ public final class CachedResultSetManager<K> implements IResultSetManager<K>, Se
         return false;
     }
 
-    private final <T> void sortData(final List<T> data, final SortInfo<T> sortInfo)
+    /**
+     * Sorts given <var>view</var> (indices of the rows of given <var>resultSet</var>). The sort is
+     * stable, so rows with equal values keep their original order. Large views are sorted in
+     * parallel (see {@link ResultSetCache#setParallelSortThreshold(int)}).
+     */
+    private final <T> void sortData(final CachedResultSet<T> resultSet, final int[] view,
+            final SortInfo<T> sortInfo)
     {
-        assert data != null : "Unspecified data.";
-        assert sortInfo != null : "Unspecified sort information.";
-        if (data.size() == 0)
+        assert resultSet != null : "Unspecified data.";
+        if (view.length == 0 || isSorted(sortInfo) == false)
         {
             return;
         }
-        final SortDir sortDir = sortInfo.getSortDir();
-        final IColumnDefinition<T> sortField = sortInfo.getSortField();
-        if (sortDir == SortDir.NONE || sortField == null)
-        {
-            return;
-        }
-        Comparator<T> comparator = createComparator(sortDir, sortField);
-        Collections.sort(data, comparator);
+        ParallelSorter.sort(view, createComparator(resultSet, sortInfo), results
+                .getParallelSortThreshold());
     }
 
-    private static <T> Comparator<T> createComparator(final SortDir sortDir,
-            final IColumnDefinition<T> sortField)
+    private static <T> IntComparator createComparator(final CachedResultSet<T> resultSet,
+            final SortInfo<T> sortInfo)
     {
-        Comparator<T> comparator = new Comparator<T>()
+        final ColumnSortKeys sortKeys = resultSet.getSortKeys(sortInfo.getSortField());
+        final boolean descending = sortInfo.getSortDir() == SortDir.DESC;
+        return new AbstractIntComparator()
             {
-
-                @SuppressWarnings("unchecked")
-                public int compare(T o1, T o2)
+                public int compare(int i1, int i2)
                 {
-                    Comparable v1 = sortField.getComparableValue(o1);
-                    Comparable v2 = sortField.getComparableValue(o2);
-                    return v1.compareTo(v2);
+                    return descending ? sortKeys.compare(i2, i1) : sortKeys.compare(i1, i2);
                 }
             };
-        return applySortDir(sortDir, comparator);
-    }
-
-    @SuppressWarnings("unchecked")
-    private static <T> Comparator<T> applySortDir(final SortDir sortDir, Comparator<T> comparator)
-    {
-        if (sortDir == SortDir.DESC)
-        {
-            return new ReverseComparator(comparator);
-        } else
-        {
-            return comparator;
-        }
     }
 
     @Private
@@ -266,49 +478,173 @@ public final class CachedResultSetManager<K> implements IResultSetManager<K>, Se
         return new ArrayList<T>(data.subList(offset, toIndex));
     }
 
+    /**
+     * Returns the rows of given <var>view</var> slice.
+     */
+    private final static <T> List<T> subList(final List<T> rows, final int[] view,
+            final int offset, final int limit)
+    {
+        final List<T> list = new ArrayList<T>(limit);
+        for (int i = offset; i < offset + limit; i++)
+        {
+            list.add(rows.get(view[i]));
+        }
+        return list;
+    }
+
     //
     // IDataManager
     //
 
-    public final synchronized <T> IResultSet<K, T> getResultSet(
+    public final <T> IResultSet<K, T> getResultSet(
             final IResultSetConfig<K, T> resultConfig, final IOriginalDataProvider<T> dataProvider)
     {
         assert resultConfig != null : "Unspecified result configuration";
         assert dataProvider != null : "Unspecified data retriever";
-        List<T> data;
+        final Set<DatabaseModificationKind> relevantModificationsOrNull =
+                resultConfig.tryGetRelevantModifications();
+        CachedResultSet<T> resultSet;
         K dataKey = resultConfig.getResultSetKey();
+        if (dataKey != null && ownKeys.containsKey(dataKey) == false)
+        {
+            debug(String.format("Result set key '%s' has not been created by this manager: "
+                    + "treating it as unknown.", dataKey));
+            dataKey = null;
+        }
         if (dataKey == null)
         {
             debug("Unknown result set key: retrieving the data.");
             dataKey = resultSetKeyProvider.createKey();
-            data = dataProvider.getOriginalData();
-            results.put(dataKey, data);
+            resultSet = retrieveData(dataKey, dataProvider, relevantModificationsOrNull);
         } else
         {
-            debug(String.format("Data for result set key '%s' already cached.", dataKey));
-            data = cast(results.get(dataKey));
-            if (data == null)
+            resultSet = cast(results.tryGet(dataKey));
+            if (resultSet == null)
+            {
+                debug(String.format("No data cached for result set key '%s' "
+                        + "(probably evicted): retrieving the data again.", dataKey));
+                resultSet = retrieveData(dataKey, dataProvider, relevantModificationsOrNull);
+            } else if (relevantModificationsOrNull != null && isStale(resultSet))
             {
-                debug(String.format("Invalid result set key '%s'.", dataKey));
+                debug(String.format("Data cached for result set key '%s' are out of date: "
+                        + "retrieving the data again.", dataKey));
+                resultSet = retrieveData(dataKey, dataProvider, relevantModificationsOrNull);
+            } else
+            {
+                debug(String.format("Data for result set key '%s' already cached.", dataKey));
             }
         }
-        assert data != null : "Unspecified data";
-        data =
-                filterData(data, resultConfig.getFilterInfos(), resultConfig
-                        .tryGetCustomFilterInfo());
-        final int size = data.size();
+        assert resultSet != null : "Unspecified data";
+        final List<GridFilterInfo<T>> filterInfos = resultConfig.getFilterInfos();
+        final CustomFilterInfo<T> customFilterInfoOrNull = resultConfig.tryGetCustomFilterInfo();
+        final SortInfo<T> sortInfo = resultConfig.getSortInfo();
+        final int[] filteredRowsOrNull =
+                tryGetFilteredRows(resultSet, filterInfos, customFilterInfoOrNull);
+        final List<T> rows = resultSet.getRows();
+        final int size = filteredRowsOrNull == null ? rows.size() : filteredRowsOrNull.length;
         final int offset = getOffset(size, resultConfig.getOffset());
         final int limit = getLimit(size, resultConfig.getLimit(), offset);
-        final SortInfo<T> sortInfo = resultConfig.getSortInfo();
-        sortData(data, sortInfo);
-        final List<T> list = subList(data, offset, limit);
+        final int[] viewOrNull =
+                tryGetSortedView(resultSet, filteredRowsOrNull, tryCreateViewKey(filterInfos,
+                        customFilterInfoOrNull, sortInfo), sortInfo, offset + limit);
+        results.updateWeight(dataKey, resultSet);
+        final List<T> list =
+                viewOrNull == null ? subList(rows, offset, limit) : subList(rows, viewOrNull,
+                        offset, limit);
         return new DefaultResultSet<K, T>(dataKey, list, size);
     }
 
-    public final synchronized void removeResultSet(final K resultSetKey)
+    /**
+     * Retrieves the original data for given <var>dataKey</var> and caches them. If a retrieval for
+     * the same key is already running, waits for its result instead of starting a new one.
+     */
+    private final <T> CachedResultSet<T> retrieveData(final K dataKey,
+            final IOriginalDataProvider<T> dataProvider,
+            final Set<DatabaseModificationKind> relevantModificationsOrNull)
+    {
+        final FutureTask<CachedResultSet<?>> retrieval =
+                new FutureTask<CachedResultSet<?>>(new Callable<CachedResultSet<?>>()
+                    {
+                        public CachedResultSet<?> call() throws Exception
+                        {
+                            // Modifications committed during the retrieval make the data out
+                            // of date.
+                            final Map<DatabaseModificationKind, Long> versions =
+                                    CachedResultSet.tryGetModificationVersions(
+                                            relevantModificationsOrNull, results
+                                                    .tryGetLastModificationState());
+                            final CachedResultSet<T> resultSet =
+                                    new CachedResultSet<T>(dataProvider.getOriginalData(),
+                                            versions);
+                            putResultSet(dataKey, resultSet);
+                            return resultSet;
+                        }
+                    });
+        FutureTask<CachedResultSet<?>> pendingRetrieval =
+                pendingRetrievals.putIfAbsent(dataKey, retrieval);
+        if (pendingRetrieval == null)
+        {
+            pendingRetrieval = retrieval;
+            try
+            {
+                retrieval.run();
+            } finally
+            {
+                pendingRetrievals.remove(dataKey, retrieval);
+            }
+        } else
+        {
+            debug(String.format("Waiting for the running retrieval of result set '%s'.", dataKey));
+        }
+        return cast(getRetrievedData(pendingRetrieval));
+    }
+
+    /**
+     * Caches given <var>resultSet</var> as one created by this manager.
+     */
+    @Private
+    final void putResultSet(final K dataKey, final CachedResultSet<?> resultSet)
+    {
+        results.put(dataKey, ownerId, resultSet);
+        ownKeys.put(dataKey, Boolean.TRUE);
+    }
+
+    private final boolean isStale(final CachedResultSet<?> resultSet)
+    {
+        final LastModificationState modificationStateOrNull =
+                results.tryGetLastModificationState();
+        return modificationStateOrNull != null && resultSet.isStale(modificationStateOrNull);
+    }
+
+    private final static CachedResultSet<?> getRetrievedData(
+            final FutureTask<CachedResultSet<?>> retrieval)
+    {
+        try
+        {
+            return retrieval.get();
+        } catch (final ExecutionException ex)
+        {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw CheckedExceptionTunnel.wrapIfNecessary((Exception) cause);
+        } catch (final InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw CheckedExceptionTunnel.wrapIfNecessary(ex);
+        }
+    }
+
+    public final void removeResultSet(final K resultSetKey)
     {
         assert resultSetKey != null : "Unspecified data key holder.";
-        if (results.remove(resultSetKey) != null)
+        if (ownKeys.remove(resultSetKey) != null && results.remove(resultSetKey))
         {
             debug(String.format("Result set for key '%s' has been removed.", resultSetKey));
         } else
@@ -317,6 +653,48 @@ public final class CachedResultSetManager<K> implements IResultSetManager<K>, Se
         }
     }
 
+    /**
+     * Removes all result sets created by this manager from the cache.
+     */
+    public final void removeAllResultSets()
+    {
+        int count = 0;
+        for (final K key : ownKeys.keySet())
+        {
+            if (ownKeys.remove(key) != null)
+            {
+                results.remove(key);
+                count++;
+            }
+        }
+        debug(String.format("%d result sets of user '%s' have been removed.", count, ownerId));
+    }
+
+    //
+    // HttpSessionBindingListener
+    //
+
+    public final void valueBound(final HttpSessionBindingEvent event)
+    {
+    }
+
+    public final void valueUnbound(final HttpSessionBindingEvent event)
+    {
+        removeAllResultSets();
+    }
+
+    //
+    // Serializable
+    //
+
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException
+    {
+        in.defaultReadObject();
+        results = new ResultSetCache<K>();
+        pendingRetrievals = new ConcurrentHashMap<K, FutureTask<CachedResultSet<?>>>();
+    }
+
     private void debug(String msg)
     {
         operationLog.debug(msg);
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.IColumnDefinition;
+
+/**
+ * The sort keys of all rows of a result set for one column, extracted once with
+ * {@link IColumnDefinition#getComparableValue(Object)}.
+ * <p>
+ * Depending on the kind of values the keys are stored as primitive <code>long</code>s (integral
+ * numbers and dates), <code>double</code>s (floating point numbers) or canonical strings.
+ * Comparing two rows gives the same result as comparing their comparable values.
+ * </p>
+ *
+ * @author agent
+ */
+abstract class ColumnSortKeys implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Compares the keys of the rows with given indices.
+     */
+    abstract int compare(int row1, int row2);
+
+    /**
+     * Extracts the sort keys of given <var>column</var> for all given <var>rows</var>.
+     */
+    static <T> ColumnSortKeys create(final List<T> rows, final IColumnDefinition<T> column)
+    {
+        final int size = rows.size();
+        final Comparable<?>[] values = new Comparable<?>[size];
+        boolean allIntegral = true;
+        boolean allNumbers = true;
+        boolean allDates = true;
+        boolean allStrings = true;
+        for (int i = 0; i < size; i++)
+        {
+            final Comparable<?> value = column.getComparableValue(rows.get(i));
+            values[i] = value;
+            allIntegral &= isIntegral(value);
+            allNumbers &= isIntegral(value) || value instanceof Double || value instanceof Float;
+            allDates &= value instanceof Date;
+            allStrings &= value instanceof String;
+        }
+        if (allIntegral || allDates)
+        {
+            return new LongSortKeys(values);
+        } else if (allNumbers)
+        {
+            return new DoubleSortKeys(values);
+        } else if (allStrings)
+        {
+            return new StringSortKeys(values);
+        } else
+        {
+            return new ComparableSortKeys(values);
+        }
+    }
+
+    private static boolean isIntegral(final Comparable<?> value)
+    {
+        return value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte;
+    }
+
+    private static final class LongSortKeys extends ColumnSortKeys
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] keys;
+
+        LongSortKeys(final Comparable<?>[] values)
+        {
+            keys = new long[values.length];
+            for (int i = 0; i < values.length; i++)
+            {
+                final Object value = values[i];
+                keys[i] =
+                        value instanceof Date ? ((Date) value).getTime() : ((Number) value)
+                                .longValue();
+            }
+        }
+
+        @Override
+        int compare(final int row1, final int row2)
+        {
+            final long key1 = keys[row1];
+            final long key2 = keys[row2];
+            return key1 < key2 ? -1 : (key1 == key2 ? 0 : 1);
+        }
+    }
+
+    private static final class DoubleSortKeys extends ColumnSortKeys
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] keys;
+
+        DoubleSortKeys(final Comparable<?>[] values)
+        {
+            keys = new double[values.length];
+            for (int i = 0; i < values.length; i++)
+            {
+                keys[i] = ((Number) values[i]).doubleValue();
+            }
+        }
+
+        @Override
+        int compare(final int row1, final int row2)
+        {
+            // Same semantics as Double.compareTo()
+            return Double.compare(keys[row1], keys[row2]);
+        }
+    }
+
+    private static final class StringSortKeys extends ColumnSortKeys
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] keys;
+
+        StringSortKeys(final Comparable<?>[] values)
+        {
+            keys = new String[values.length];
+            // Columns like vocabulary terms or types have only a few distinct values.
+            final Map<String, String> canonicalValues = new HashMap<String, String>();
+            for (int i = 0; i < values.length; i++)
+            {
+                keys[i] = canonicalize((String) values[i], canonicalValues);
+            }
+        }
+
+        @Override
+        int compare(final int row1, final int row2)
+        {
+            final String key1 = keys[row1];
+            final String key2 = keys[row2];
+            return key1 == key2 ? 0 : key1.compareTo(key2);
+        }
+    }
+
+    private static final class ComparableSortKeys extends ColumnSortKeys
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Comparable<?>[] keys;
+
+        ComparableSortKeys(final Comparable<?>[] values)
+        {
+            keys = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        int compare(final int row1, final int row2)
+        {
+            return ((Comparable) keys[row1]).compareTo(keys[row2]);
+        }
+    }
+
+    /**
+     * Returns the instance equal to given <var>value</var> which has been registered in given
+     * <var>canonicalValues</var> first.
+     */
+    static String canonicalize(final String value, final Map<String, String> canonicalValues)
+    {
+        final String canonicalValue = canonicalValues.get(value);
+        if (canonicalValue != null)
+        {
+            return canonicalValue;
+        }
+        canonicalValues.put(value, value);
+        return value;
+    }
+}
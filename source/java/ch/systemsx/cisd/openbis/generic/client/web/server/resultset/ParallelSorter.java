@@ -0,0 +1,208 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.base.exceptions.CheckedExceptionTunnel;
+import ch.systemsx.cisd.openbis.generic.shared.util.WorkerThreadPools;
+
+/**
+ * A stable merge sort of row indices which uses all processors for large arrays.
+ * <p>
+ * The array is split into one run per worker thread. The runs are sorted in parallel and then
+ * merged pairwise, again in parallel, until one run is left. Merging takes the row of the left run
+ * if two rows compare equal, so the result is the same as the one of a sequential merge sort.
+ * </p>
+ *
+ * @author agent
+ */
+final class ParallelSorter
+{
+    private static final int WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService workers =
+            WorkerThreadPools.create("grid-sort", WORKER_COUNT);
+
+    private ParallelSorter()
+    {
+        // Can not be instantiated.
+    }
+
+    /**
+     * Sorts given <var>rows</var> stably. Arrays with at least <var>parallelThreshold</var>
+     * elements are sorted in parallel, smaller arrays (or all arrays if the threshold is negative)
+     * in the calling thread.
+     */
+    static void sort(final int[] rows, final IntComparator comparator, final int parallelThreshold)
+    {
+        final int runCount = Math.min(WORKER_COUNT, rows.length / 2);
+        if (parallelThreshold < 0 || rows.length < parallelThreshold || runCount < 2)
+        {
+            IntArrays.mergeSort(rows, comparator);
+            return;
+        }
+        sortInParallel(rows, comparator, runCount);
+    }
+
+    @Private
+    static void sortInParallel(final int[] rows, final IntComparator comparator,
+            final int runCount)
+    {
+        // runStarts[i] is the start of run i, runStarts[runCount] the end of the last run
+        int[] runStarts = new int[runCount + 1];
+        for (int i = 0; i <= runCount; i++)
+        {
+            runStarts[i] = (int) ((long) rows.length * i / runCount);
+        }
+        final List<Callable<Void>> sortTasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < runCount; i++)
+        {
+            final int from = runStarts[i];
+            final int to = runStarts[i + 1];
+            sortTasks.add(new Callable<Void>()
+                {
+                    public Void call()
+                    {
+                        IntArrays.mergeSort(rows, from, to, comparator);
+                        return null;
+                    }
+                });
+        }
+        execute(sortTasks);
+
+        int[] source = rows;
+        int[] target = new int[rows.length];
+        while (runStarts.length > 2)
+        {
+            final int currentRunCount = runStarts.length - 1;
+            final int mergedRunCount = (currentRunCount + 1) / 2;
+            final int[] mergedRunStarts = new int[mergedRunCount + 1];
+            final List<Callable<Void>> mergeTasks = new ArrayList<Callable<Void>>();
+            for (int i = 0; i < mergedRunCount; i++)
+            {
+                final int from = runStarts[2 * i];
+                final int middle = runStarts[Math.min(2 * i + 1, currentRunCount)];
+                final int to = runStarts[Math.min(2 * i + 2, currentRunCount)];
+                mergedRunStarts[i] = from;
+                final int[] mergeSource = source;
+                final int[] mergeTarget = target;
+                mergeTasks.add(new Callable<Void>()
+                    {
+                        public Void call()
+                        {
+                            merge(mergeSource, from, middle, to, mergeTarget, comparator);
+                            return null;
+                        }
+                    });
+            }
+            mergedRunStarts[mergedRunCount] = rows.length;
+            execute(mergeTasks);
+            runStarts = mergedRunStarts;
+            final int[] tmp = source;
+            source = target;
+            target = tmp;
+        }
+        if (source != rows)
+        {
+            System.arraycopy(source, 0, rows, 0, rows.length);
+        }
+    }
+
+    /**
+     * Merges the sorted runs <code>source[from..middle)</code> and
+     * <code>source[middle..to)</code> into <code>target[from..to)</code>.
+     */
+    private static void merge(final int[] source, final int from, final int middle, final int to,
+            final int[] target, final IntComparator comparator)
+    {
+        int left = from;
+        int right = middle;
+        int index = from;
+        while (left < middle && right < to)
+        {
+            if (comparator.compare(source[left], source[right]) <= 0)
+            {
+                target[index++] = source[left++];
+            } else
+            {
+                target[index++] = source[right++];
+            }
+        }
+        System.arraycopy(source, left, target, index, middle - left);
+        index += middle - left;
+        System.arraycopy(source, right, target, index, to - right);
+    }
+
+    /**
+     * Runs given tasks, all but the first one on the worker threads, and waits until all of them
+     * are finished.
+     */
+    private static void execute(final List<Callable<Void>> tasks)
+    {
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        try
+        {
+            for (int i = 1; i < tasks.size(); i++)
+            {
+                futures.add(workers.submit(tasks.get(i)));
+            }
+            tasks.get(0).call();
+            for (final Future<Void> future : futures)
+            {
+                future.get();
+            }
+        } catch (final ExecutionException ex)
+        {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw CheckedExceptionTunnel.wrapIfNecessary((Exception) cause);
+        } catch (final InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw CheckedExceptionTunnel.wrapIfNecessary(ex);
+        } catch (final RuntimeException ex)
+        {
+            throw ex;
+        } catch (final Exception ex)
+        {
+            throw CheckedExceptionTunnel.wrapIfNecessary(ex);
+        } finally
+        {
+            for (final Future<Void> future : futures)
+            {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+/**
+ * Selects the first rows of a sort order without sorting all rows.
+ * <p>
+ * A bounded max-heap keeps the <var>k</var> smallest rows seen so far, so selecting them takes
+ * <code>O(n log k)</code> instead of <code>O(n log n)</code>. Rows which compare equal are
+ * ordered by their index, hence the result is the same as the prefix of a stable sort.
+ * </p>
+ *
+ * @author agent
+ */
+final class PartialSorter
+{
+    private final int[] rows;
+
+    private final IntComparator comparator;
+
+    /** The heap of selected rows, the greatest one at position 0. */
+    private final int[] heap;
+
+    private int heapSize;
+
+    private PartialSorter(final int[] rows, final int count, final IntComparator comparator)
+    {
+        this.rows = rows;
+        this.comparator = comparator;
+        this.heap = new int[count];
+    }
+
+    /**
+     * Returns the first <var>count</var> of given <var>rows</var> in the order defined by given
+     * <var>comparator</var>. Given <var>rows</var> are expected in increasing order and are not
+     * modified.
+     */
+    static int[] selectFirst(final int[] rows, final int count, final IntComparator comparator)
+    {
+        assert rows != null : "Unspecified rows.";
+        assert comparator != null : "Unspecified comparator.";
+        final PartialSorter sorter =
+                new PartialSorter(rows, Math.max(0, Math.min(count, rows.length)), comparator);
+        return sorter.selectFirst();
+    }
+
+    private int[] selectFirst()
+    {
+        if (heap.length == 0)
+        {
+            return heap;
+        }
+        for (final int row : rows)
+        {
+            if (heapSize < heap.length)
+            {
+                heap[heapSize] = row;
+                siftUp(heapSize++);
+            } else if (compare(row, heap[0]) < 0)
+            {
+                heap[0] = row;
+                siftDown(0, heapSize);
+            }
+        }
+        // Heap sort: repeatedly moves the greatest remaining row to the end.
+        for (int end = heapSize - 1; end > 0; end--)
+        {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        return heap;
+    }
+
+    /** Compares rows, ordering equal rows by their index. */
+    private int compare(final int row1, final int row2)
+    {
+        final int result = comparator.compare(row1, row2);
+        if (result != 0)
+        {
+            return result;
+        }
+        return row1 < row2 ? -1 : (row1 == row2 ? 0 : 1);
+    }
+
+    private void siftUp(final int position)
+    {
+        int child = position;
+        while (child > 0)
+        {
+            final int parent = (child - 1) / 2;
+            if (compare(heap[child], heap[parent]) <= 0)
+            {
+                return;
+            }
+            swap(child, parent);
+            child = parent;
+        }
+    }
+
+    private void siftDown(final int position, final int size)
+    {
+        int parent = position;
+        while (true)
+        {
+            int greatest = parent;
+            final int left = 2 * parent + 1;
+            final int right = left + 1;
+            if (left < size && compare(heap[left], heap[greatest]) > 0)
+            {
+                greatest = left;
+            }
+            if (right < size && compare(heap[right], heap[greatest]) > 0)
+            {
+                greatest = right;
+            }
+            if (greatest == parent)
+            {
+                return;
+            }
+            swap(parent, greatest);
+            parent = greatest;
+        }
+    }
+
+    private void swap(final int i, final int j)
+    {
+        final int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
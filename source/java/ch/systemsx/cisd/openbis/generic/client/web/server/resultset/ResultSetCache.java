@@ -0,0 +1,465 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import ch.systemsx.cisd.common.logging.LogCategory;
+import ch.systemsx.cisd.common.logging.LogFactory;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+
+/**
+ * A server-wide, bounded cache of full result sets shared by all {@link CachedResultSetManager}s.
+ * <p>
+ * The memory budget is expressed as a number of cached rows, both in total and per user. The
+ * views and column values derived from the rows by filtering and sorting are charged as well, one
+ * row per derived value (see {@link CachedResultSet#getWeight()}). When a budget is exceeded,
+ * entries are evicted following the configured {@link EvictionPolicy}. Entries which have not been
+ * accessed for longer than the idle timeout are dropped as well. An evicted result set is
+ * transparently re-fetched by the {@link CachedResultSetManager} the next time it is
+ * requested. The same happens to a result set which is out of date according to the
+ * {@link LastModificationState} of the server.
+ * </p>
+ * <p>
+ * Lookups do not lock. Modifications of the cache and the book-keeping of the budgets are
+ * serialized, but never include the loading of the data.
+ * </p>
+ *
+ * @author agent
+ */
+public final class ResultSetCache<K> implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger operationLog =
+            LogFactory.getLogger(LogCategory.OPERATION, ResultSetCache.class);
+
+    /** Value of a limit meaning that no limit should be applied. */
+    public static final int UNLIMITED = -1;
+
+    /** The default number of rows from which on a result set is sorted in parallel. */
+    public static final int DEFAULT_PARALLEL_SORT_THRESHOLD = 100000;
+
+    /**
+     * The strategy to choose the entry which is evicted when a budget is exceeded.
+     */
+    public static enum EvictionPolicy
+    {
+        /** Evicts the entry which has been accessed least recently. */
+        LRU,
+
+        /** Evicts the entry which has been accessed least frequently. */
+        LFU;
+    }
+
+    private static final class Entry implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String ownerId;
+
+        private final CachedResultSet<?> resultSet;
+
+        private volatile long lastAccessTime;
+
+        /** The weight charged to the budgets. Guarded by the budget lock. */
+        private long chargedWeight;
+
+        private final AtomicLong accessCount = new AtomicLong();
+
+        Entry(final String ownerId, final CachedResultSet<?> resultSet, final long now)
+        {
+            this.ownerId = ownerId;
+            this.resultSet = resultSet;
+            this.lastAccessTime = now;
+        }
+
+        final void touch(final long now)
+        {
+            lastAccessTime = now;
+            accessCount.incrementAndGet();
+        }
+    }
+
+    private final ConcurrentMap<K, Entry> entries = new ConcurrentHashMap<K, Entry>();
+
+    /** Guards the row counters and all structural modifications of {@link #entries}. */
+    private final Object budgetLock = new Object();
+
+    private final Map<String, Long> rowsPerOwner = new HashMap<String, Long>();
+
+    private long cachedRows;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private volatile int maxRows = UNLIMITED;
+
+    private volatile int maxRowsPerUser = UNLIMITED;
+
+    private volatile long idleTimeoutMillis = UNLIMITED;
+
+    private volatile EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+
+    private volatile int parallelSortThreshold = DEFAULT_PARALLEL_SORT_THRESHOLD;
+
+    private volatile LastModificationState lastModificationStateOrNull;
+
+    /**
+     * Sets the maximum number of rows cached for all users together.
+     */
+    public final void setMaxRows(final int maxRows)
+    {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Sets the maximum number of rows cached for one user.
+     */
+    public final void setMaxRowsPerUser(final int maxRowsPerUser)
+    {
+        this.maxRowsPerUser = maxRowsPerUser;
+    }
+
+    /**
+     * Sets the time after which a result set which has not been accessed is dropped.
+     */
+    public final void setIdleTimeoutMinutes(final int idleTimeoutMinutes)
+    {
+        this.idleTimeoutMillis = idleTimeoutMinutes < 0 ? UNLIMITED : idleTimeoutMinutes * 60000L;
+    }
+
+    final void setIdleTimeoutMillis(final long idleTimeoutMillis)
+    {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public final void setEvictionPolicy(final EvictionPolicy evictionPolicy)
+    {
+        assert evictionPolicy != null : "Unspecified eviction policy.";
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    /**
+     * Sets the number of rows from which on the cached result sets are sorted using all
+     * processors. A negative value means that result sets are never sorted in parallel.
+     */
+    public final void setParallelSortThreshold(final int parallelSortThreshold)
+    {
+        this.parallelSortThreshold = parallelSortThreshold;
+    }
+
+    public final int getParallelSortThreshold()
+    {
+        return parallelSortThreshold;
+    }
+
+    /**
+     * Sets the state of the last database modifications against which cached result sets are
+     * checked for being out of date.
+     */
+    public final void setLastModificationState(final LastModificationState lastModificationState)
+    {
+        this.lastModificationStateOrNull = lastModificationState;
+    }
+
+    /**
+     * @return <code>null</code> if cached result sets are never out of date.
+     */
+    public final LastModificationState tryGetLastModificationState()
+    {
+        return lastModificationStateOrNull;
+    }
+
+    /**
+     * Returns the result set cached for given <var>key</var> or <code>null</code> if there is none
+     * (or it has been evicted in the meantime).
+     */
+    public final CachedResultSet<?> tryGet(final K key)
+    {
+        assert key != null : "Unspecified key.";
+        final Entry entry = entries.get(key);
+        final long now = System.currentTimeMillis();
+        if (entry == null)
+        {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (isExpired(entry, now))
+        {
+            synchronized (budgetLock)
+            {
+                evict(key, entry, "idle timeout");
+            }
+            missCount.incrementAndGet();
+            return null;
+        }
+        entry.touch(now);
+        hitCount.incrementAndGet();
+        return entry.resultSet;
+    }
+
+    /**
+     * Caches given <var>resultSet</var> at given <var>key</var> on behalf of given
+     * <var>ownerId</var>, replacing any result set which has been cached for the same key.
+     * <p>
+     * Afterwards the budgets are enforced. The just added entry is never evicted by this call.
+     * </p>
+     */
+    public final void put(final K key, final String ownerId, final CachedResultSet<?> resultSet)
+    {
+        assert key != null : "Unspecified key.";
+        assert ownerId != null : "Unspecified owner.";
+        assert resultSet != null : "Unspecified result set.";
+        final long now = System.currentTimeMillis();
+        final Entry entry = new Entry(ownerId, resultSet, now);
+        synchronized (budgetLock)
+        {
+            final Entry previous = entries.put(key, entry);
+            if (previous != null)
+            {
+                release(previous);
+            }
+            acquire(entry);
+            evictExpired(now);
+            enforceUserQuota(key, ownerId);
+            enforceGlobalBudget(key);
+        }
+    }
+
+    /**
+     * Charges the current weight of given <var>resultSet</var> cached at given <var>key</var> to
+     * the budgets, as it grows when views and column values are derived from its rows. Afterwards
+     * the budgets are enforced. The entry at given <var>key</var> is never evicted by this call.
+     */
+    public final void updateWeight(final K key, final CachedResultSet<?> resultSet)
+    {
+        assert key != null : "Unspecified key.";
+        assert resultSet != null : "Unspecified result set.";
+        synchronized (budgetLock)
+        {
+            final Entry entry = entries.get(key);
+            // The result set might have been evicted or replaced in the meantime.
+            if (entry == null || entry.resultSet != resultSet
+                    || entry.chargedWeight == resultSet.getWeight())
+            {
+                return;
+            }
+            release(entry);
+            acquire(entry);
+            enforceUserQuota(key, entry.ownerId);
+            enforceGlobalBudget(key);
+        }
+    }
+
+    /**
+     * Removes the data cached at given <var>key</var>.
+     *
+     * @return <code>true</code> if there were data cached at given <var>key</var>.
+     */
+    public final boolean remove(final K key)
+    {
+        assert key != null : "Unspecified key.";
+        synchronized (budgetLock)
+        {
+            final Entry entry = entries.remove(key);
+            if (entry != null)
+            {
+                release(entry);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /** Returns the number of lookups which could be answered from the cache. */
+    public final long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /** Returns the number of lookups which could not be answered from the cache. */
+    public final long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /** Returns the number of entries which have been evicted because of a budget or a timeout. */
+    public final long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /** Returns the number of rows currently cached, including the values derived from them. */
+    public final long getCachedRowCount()
+    {
+        synchronized (budgetLock)
+        {
+            return cachedRows;
+        }
+    }
+
+    /** Returns the number of result sets currently cached. */
+    public final int getCachedResultSetCount()
+    {
+        return entries.size();
+    }
+
+    //
+    // Helper methods. Have to be called while holding the budget lock.
+    //
+
+    private boolean isExpired(final Entry entry, final long now)
+    {
+        final long timeout = idleTimeoutMillis;
+        return timeout >= 0 && now - entry.lastAccessTime > timeout;
+    }
+
+    private void acquire(final Entry entry)
+    {
+        entry.chargedWeight = entry.resultSet.getWeight();
+        cachedRows += entry.chargedWeight;
+        rowsPerOwner.put(entry.ownerId, getRowsOf(entry.ownerId) + entry.chargedWeight);
+    }
+
+    private void release(final Entry entry)
+    {
+        cachedRows -= entry.chargedWeight;
+        final long remaining = getRowsOf(entry.ownerId) - entry.chargedWeight;
+        if (remaining > 0)
+        {
+            rowsPerOwner.put(entry.ownerId, remaining);
+        } else
+        {
+            rowsPerOwner.remove(entry.ownerId);
+        }
+    }
+
+    private long getRowsOf(final String ownerId)
+    {
+        final Long rows = rowsPerOwner.get(ownerId);
+        return rows == null ? 0 : rows;
+    }
+
+    private void evict(final K key, final Entry entry, final String reason)
+    {
+        // Another thread might have replaced or removed the entry in the meantime.
+        if (entries.remove(key, entry))
+        {
+            release(entry);
+            evictionCount.incrementAndGet();
+            if (operationLog.isDebugEnabled())
+            {
+                operationLog.debug(String.format(
+                        "Result set '%s' of user '%s' (%d rows) evicted: %s.", key, entry.ownerId,
+                        entry.chargedWeight, reason));
+            }
+        }
+    }
+
+    private void evictExpired(final long now)
+    {
+        for (final Map.Entry<K, Entry> mapEntry : entries.entrySet())
+        {
+            if (isExpired(mapEntry.getValue(), now))
+            {
+                evict(mapEntry.getKey(), mapEntry.getValue(), "idle timeout");
+            }
+        }
+    }
+
+    private void enforceUserQuota(final K protectedKey, final String ownerId)
+    {
+        final int limit = maxRowsPerUser;
+        while (limit >= 0 && getRowsOf(ownerId) > limit)
+        {
+            final K victim = tryFindVictim(protectedKey, ownerId);
+            if (victim == null)
+            {
+                return;
+            }
+            evict(victim, entries.get(victim), "user quota exceeded");
+        }
+    }
+
+    private void enforceGlobalBudget(final K protectedKey)
+    {
+        final int limit = maxRows;
+        while (limit >= 0 && cachedRows > limit)
+        {
+            final K victim = tryFindVictim(protectedKey, null);
+            if (victim == null)
+            {
+                return;
+            }
+            evict(victim, entries.get(victim), "memory budget exceeded");
+        }
+    }
+
+    /**
+     * Finds the entry to be evicted next according to the eviction policy.
+     *
+     * @param ownerIdOrNull if not <code>null</code> only entries of this owner are considered.
+     */
+    private K tryFindVictim(final K protectedKey, final String ownerIdOrNull)
+    {
+        final EvictionPolicy policy = evictionPolicy;
+        K victim = null;
+        Entry victimEntry = null;
+        for (final Map.Entry<K, Entry> mapEntry : entries.entrySet())
+        {
+            final K key = mapEntry.getKey();
+            final Entry entry = mapEntry.getValue();
+            if (key.equals(protectedKey)
+                    || (ownerIdOrNull != null && ownerIdOrNull.equals(entry.ownerId) == false))
+            {
+                continue;
+            }
+            if (victimEntry == null || isBetterVictim(policy, entry, victimEntry))
+            {
+                victim = key;
+                victimEntry = entry;
+            }
+        }
+        return victim;
+    }
+
+    private static boolean isBetterVictim(final EvictionPolicy policy, final Entry candidate,
+            final Entry current)
+    {
+        if (policy == EvictionPolicy.LFU)
+        {
+            final long candidateCount = candidate.accessCount.get();
+            final long currentCount = current.accessCount.get();
+            if (candidateCount != currentCount)
+            {
+                return candidateCount < currentCount;
+            }
+        }
+        return candidate.lastAccessTime < current.lastAccessTime;
+    }
+}
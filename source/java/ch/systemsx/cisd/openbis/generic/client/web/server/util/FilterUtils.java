@@ -16,94 +16,197 @@
 
 package ch.systemsx.cisd.openbis.generic.client.web.server.util;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.base.exceptions.CheckedExceptionTunnel;
 import ch.systemsx.cisd.common.evaluator.Evaluator;
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.CustomFilterInfo;
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.ParameterWithValue;
 import ch.systemsx.cisd.openbis.generic.shared.basic.IColumnDefinition;
+import ch.systemsx.cisd.openbis.generic.shared.util.WorkerThreadPools;
 
 /**
  * Utility class containing functions helpful with dealing with filters.
+ * <p>
+ * A custom filter expression is compiled once per application of the filter. Large row lists are
+ * split into chunks which are evaluated in parallel on a bounded pool of worker threads, each
+ * chunk with its own compiled {@link Evaluator} as evaluators are not thread-safe.
+ * </p>
  * 
  * @author Izabela Adamczyk
  */
 public class FilterUtils
 {
-    public static final class Row
+    /** The minimum number of rows evaluated by one worker thread. */
+    private static final int MIN_ROWS_PER_CHUNK = 5000;
+
+    private static final int WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService workers =
+            WorkerThreadPools.create("custom-filter", WORKER_COUNT);
+
+    /**
+     * The row as seen by a filter expression (<code>row.get('COLUMN_ID')</code>).
+     * <p>
+     * Column values are extracted on demand, so only the columns the expression actually refers
+     * to are accessed.
+     * </p>
+     */
+    public static final class Row<T>
     {
-        private final Map<String, String> map = new HashMap<String, String>();
-        
-        void put(String columnID, String value)
+        private final Map<String, IColumnDefinition<T>> columns;
+
+        private T rowData;
+
+        Row(Map<String, IColumnDefinition<T>> columns)
+        {
+            this.columns = columns;
+        }
+
+        void setRowData(T rowData)
         {
-            map.put(columnID, value);
+            this.rowData = rowData;
         }
-        
+
         public String get(String columnID)
         {
-            return map.get(columnID);
+            IColumnDefinition<T> column = columns.get(columnID);
+            return column == null ? null : column.getValue(rowData);
         }
 
         @Override
         public String toString()
         {
-            return map.toString();
+            Map<String, String> values = new HashMap<String, String>();
+            for (String columnID : columns.keySet())
+            {
+                values.put(columnID, get(columnID));
+            }
+            return values.toString();
         }
-        
     }
-    
+
     /**
      * Applies the filter described by <code>customFilterInfo</code> to
-     * <code>allRows<code> and adds the result to the
-     * <code>filterdRows<code>.
+     * <code>allRows<code> and adds the indices of the matching rows to
+     * <code>filteredRowIndices<code> (in increasing order).
      */
     public static <T> void applyCustomFilter(final List<T> allRows,
-            CustomFilterInfo<T> customFilterInfo, List<T> filterdRows)
+            CustomFilterInfo<T> customFilterInfo, IntArrayList filteredRowIndices)
     {
-        String expression = customFilterInfo.getExpression();
-        for (ParameterWithValue pw : customFilterInfo.getParameters())
+        applyCustomFilter(allRows, customFilterInfo, filteredRowIndices, MIN_ROWS_PER_CHUNK);
+    }
+
+    @Private
+    static <T> void applyCustomFilter(final List<T> allRows,
+            CustomFilterInfo<T> customFilterInfo, IntArrayList filteredRowIndices,
+            int minRowsPerChunk)
+    {
+        final String expression = createExpression(customFilterInfo);
+        final Map<String, IColumnDefinition<T>> columns =
+                new HashMap<String, IColumnDefinition<T>>();
+        for (IColumnDefinition<T> column : customFilterInfo.getColumns())
         {
-            expression = substituteParameter(expression, pw.getParameter(), pw.getValue());
+            columns.put(column.getIdentifier(), column);
+        }
+        // Compiling in the calling thread reports syntax errors before any worker is started.
+        final Evaluator firstEvaluator = new Evaluator(expression, Math.class, null);
+        final int size = allRows.size();
+        final int chunkCount =
+                Math.max(1, Math.min(WORKER_COUNT, size / Math.max(1, minRowsPerChunk)));
+        final int chunkSize = (size + chunkCount - 1) / chunkCount;
+        final List<Future<IntArrayList>> chunks = new ArrayList<Future<IntArrayList>>();
+        for (int chunk = 1; chunk < chunkCount; chunk++)
+        {
+            final int from = chunk * chunkSize;
+            final int to = Math.min(size, from + chunkSize);
+            chunks.add(workers.submit(new Callable<IntArrayList>()
+                {
+                    public IntArrayList call() throws Exception
+                    {
+                        Evaluator evaluator = new Evaluator(expression, Math.class, null);
+                        return evaluate(evaluator, allRows, columns, from, to);
+                    }
+                }));
         }
-        Map<String, String> columnVariables = new HashMap<String, String>();
-//        expression = substituteColumnsWithVariables(customFilterInfo, expression, columnVariables);
-        Evaluator e = new Evaluator(expression, Math.class, null);
-        Row row = new Row();
-        e.set("row", row);
-        for (T rowData : allRows)
+        try
         {
-            for (IColumnDefinition<T> col : customFilterInfo.getColumns())
+            filteredRowIndices.addAll(evaluate(firstEvaluator, allRows, columns, 0, Math.min(
+                    size, chunkSize)));
+            for (Future<IntArrayList> chunk : chunks)
             {
-                String value = col.getValue(rowData);
-                row.put(col.getIdentifier(), value);
+                filteredRowIndices.addAll(getResult(chunk));
             }
-            System.out.println(row);
-            if (e.evalToBoolean())
+        } finally
+        {
+            for (Future<IntArrayList> chunk : chunks)
+            {
+                chunk.cancel(true);
+            }
+        }
+    }
+
+    private static <T> IntArrayList evaluate(Evaluator evaluator, List<T> allRows,
+            Map<String, IColumnDefinition<T>> columns, int from, int to)
+    {
+        IntArrayList matchingRowIndices = new IntArrayList();
+        Row<T> row = new Row<T>(columns);
+        evaluator.set("row", row);
+        for (int i = from; i < to; i++)
+        {
+            row.setRowData(allRows.get(i));
+            if (evaluator.evalToBoolean())
+            {
+                matchingRowIndices.add(i);
+            }
+        }
+        return matchingRowIndices;
+    }
+
+    private static IntArrayList getResult(Future<IntArrayList> chunk)
+    {
+        try
+        {
+            return chunk.get();
+        } catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
             {
-                filterdRows.add(rowData);
+                throw (RuntimeException) cause;
             }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw CheckedExceptionTunnel.wrapIfNecessary((Exception) cause);
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw CheckedExceptionTunnel.wrapIfNecessary(ex);
         }
     }
 
-    private static <T> String substituteColumnsWithVariables(CustomFilterInfo<T> customFilterInfo,
-            String expression, Map<String, String> columnVariables)
+    private static <T> String createExpression(CustomFilterInfo<T> customFilterInfo)
     {
-        String result = expression;
-        int varCount = 0;
-        for (IColumnDefinition<T> col : customFilterInfo.getColumns())
+        String expression = customFilterInfo.getExpression();
+        for (ParameterWithValue pw : customFilterInfo.getParameters())
         {
-            String var = "var" + varCount;
-            varCount++;
-            columnVariables.put(col.getIdentifier(), var);
-            result =
-                    expression.replaceAll(Pattern.quote("col(" + col.getIdentifier() + ")"),
-                            Matcher.quoteReplacement(var));
+            expression = substituteParameter(expression, pw.getParameter(), pw.getValue());
         }
-        return result;
+        return expression;
     }
 
     private static String substituteParameter(String expression, String p, String value)
@@ -16,10 +16,13 @@
 
 package ch.systemsx.cisd.openbis.generic.client.web.server.util;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
 
+import ch.systemsx.cisd.base.exceptions.CheckedExceptionTunnel;
 import ch.systemsx.cisd.openbis.generic.shared.basic.IColumnDefinition;
 
 /**
@@ -42,18 +45,38 @@ public class TSVRenderer
     public static <T> String createTable(List<T> entities, List<IColumnDefinition<T>> columnDefs,
             String lineSeparator)
     {
-        return new TSVRenderer(lineSeparator).createTable(entities, columnDefs);
+        StringBuilder sb = new StringBuilder();
+        try
+        {
+            new TSVRenderer(lineSeparator).appendTable(entities, columnDefs, sb);
+        } catch (IOException ex)
+        {
+            // cannot happen with a StringBuilder
+            throw CheckedExceptionTunnel.wrapIfNecessary(ex);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the table row by row to given <var>writer</var>, so that the whole table is never
+     * kept in memory. The writer is neither flushed nor closed.
+     * 
+     * @see #createTable(List, List, String)
+     */
+    public static <T> void writeTable(List<T> entities, List<IColumnDefinition<T>> columnDefs,
+            String lineSeparator, Writer writer) throws IOException
+    {
+        new TSVRenderer(lineSeparator).appendTable(entities, columnDefs, writer);
     }
 
-    private <T> String createTable(List<T> entities, List<IColumnDefinition<T>> columnDefs)
+    private <T> void appendTable(List<T> entities, List<IColumnDefinition<T>> columnDefs,
+            Appendable out) throws IOException
     {
-        StringBuffer sb = new StringBuffer();
-        appendHeader(columnDefs, sb);
+        appendHeader(columnDefs, out);
         for (T entity : entities)
         {
-            appendEntity(entity, columnDefs, sb);
+            appendEntity(entity, columnDefs, out);
         }
-        return sb.toString();
     }
 
     private TSVRenderer(String lineSeparator)
@@ -61,7 +84,8 @@ public class TSVRenderer
         this.lineSeparator = lineSeparator;
     }
 
-    private <T> void appendEntity(T entity, List<IColumnDefinition<T>> columnDefs, StringBuffer sb)
+    private <T> void appendEntity(T entity, List<IColumnDefinition<T>> columnDefs,
+            Appendable sb) throws IOException
     {
         boolean isFirst = true;
         for (IColumnDefinition<T> column : columnDefs)
@@ -89,7 +113,8 @@ public class TSVRenderer
         return result;
     }
 
-    private <T> void appendHeader(List<IColumnDefinition<T>> columnDefs, StringBuffer sb)
+    private <T> void appendHeader(List<IColumnDefinition<T>> columnDefs, Appendable sb)
+            throws IOException
     {
         boolean isFirst = true;
         for (IColumnDefinition<T> column : columnDefs)
@@ -59,8 +59,13 @@ import ch.systemsx.cisd.openbis.generic.server.business.bo.SampleBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.SampleTable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.VocabularyBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.VocabularyTermBO;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ReferenceDataCache;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister.DatasetLister;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister.IDatasetLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister.ExperimentLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister.IExperimentLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister.IMaterialLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister.MaterialLister;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister.ISampleLister;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister.SampleLister;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
@@ -77,10 +82,14 @@ public final class CommonBusinessObjectFactory extends AbstractBusinessObjectFac
 {
     private final IDAOFactory daoFactory;
 
-    public CommonBusinessObjectFactory(IDAOFactory daoFactory, IDataStoreServiceFactory dssFactory)
+    private final ReferenceDataCache referenceDataCache;
+
+    public CommonBusinessObjectFactory(IDAOFactory daoFactory, IDataStoreServiceFactory dssFactory,
+            ReferenceDataCache referenceDataCache)
     {
         super(daoFactory, dssFactory);
         this.daoFactory = daoFactory;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public final IAttachmentBO createAttachmentBO(final Session session)
@@ -105,12 +114,24 @@ public final class CommonBusinessObjectFactory extends AbstractBusinessObjectFac
 
     public ISampleLister createSampleLister(Session session)
     {
-        return SampleLister.create(daoFactory, session.getBaseIndexURL());
+        return SampleLister.create(daoFactory, session.getBaseIndexURL(), referenceDataCache);
     }
 
     public IDatasetLister createDatasetLister(Session session, String defaultDataStoreBaseURL)
     {
-        return DatasetLister.create(daoFactory, session.getBaseIndexURL(), defaultDataStoreBaseURL);
+        return DatasetLister.create(daoFactory, session.getBaseIndexURL(), defaultDataStoreBaseURL,
+                referenceDataCache);
+    }
+
+    public IExperimentLister createExperimentLister(Session session)
+    {
+        return ExperimentLister.create(daoFactory, session.getBaseIndexURL(), session
+                .tryGetHomeGroupCode(), referenceDataCache);
+    }
+
+    public IMaterialLister createMaterialLister(Session session)
+    {
+        return MaterialLister.create(daoFactory, referenceDataCache);
     }
 
     public final ISampleBO createSampleBO(final Session session)
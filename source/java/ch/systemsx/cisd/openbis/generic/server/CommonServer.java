@@ -46,11 +46,9 @@ import ch.systemsx.cisd.openbis.generic.server.business.bo.ICommonBusinessObject
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IEntityTypeBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IEntityTypePropertyTypeBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IExperimentBO;
-import ch.systemsx.cisd.openbis.generic.server.business.bo.IExperimentTable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IExternalDataTable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IFilterBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IGroupBO;
-import ch.systemsx.cisd.openbis.generic.server.business.bo.IMaterialTable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IProjectBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IPropertyTypeBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IPropertyTypeTable;
@@ -58,7 +56,10 @@ import ch.systemsx.cisd.openbis.generic.server.business.bo.IRoleAssignmentTable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.ISampleBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IVocabularyBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IVocabularyTermBO;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VersionedCachedValue;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister.IDatasetLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister.IExperimentLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister.IMaterialLister;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister.ISampleLister;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IEntityTypeDAO;
@@ -82,6 +83,7 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetRelationshipRole
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataStoreServiceKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind.ObjectKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatastoreServiceDescription;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DeletedDataSet;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DetailedSearchCriteria;
@@ -130,14 +132,12 @@ import ch.systemsx.cisd.openbis.generic.shared.dto.DataStoreServicePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.DataTypePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.DatabaseInstancePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.EntityTypePE;
-import ch.systemsx.cisd.openbis.generic.shared.dto.ExperimentPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.ExperimentTypePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.ExternalDataPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.FileFormatTypePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.FilterPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.GroupPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.IEntityInformationHolderDTO;
-import ch.systemsx.cisd.openbis.generic.shared.dto.MaterialPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.MaterialTypePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.MaterialTypePropertyTypePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.NewRoleAssignment;
@@ -164,7 +164,6 @@ import ch.systemsx.cisd.openbis.generic.shared.translator.ExperimentTranslator;
 import ch.systemsx.cisd.openbis.generic.shared.translator.ExternalDataTranslator;
 import ch.systemsx.cisd.openbis.generic.shared.translator.FilterTranslator;
 import ch.systemsx.cisd.openbis.generic.shared.translator.GroupTranslator;
-import ch.systemsx.cisd.openbis.generic.shared.translator.MaterialTranslator;
 import ch.systemsx.cisd.openbis.generic.shared.translator.MaterialTypeTranslator;
 import ch.systemsx.cisd.openbis.generic.shared.translator.PersonTranslator;
 import ch.systemsx.cisd.openbis.generic.shared.translator.ProjectTranslator;
@@ -189,6 +188,8 @@ public final class CommonServer extends AbstractServer<ICommonServer> implements
 
     private final LastModificationState lastModificationState;
 
+    private final VersionedCachedValue<Map<String, Group>> searchGroupsById;
+
     public CommonServer(final IAuthenticationService authenticationService,
             final ISessionManager<Session> sessionManager, final IDAOFactory daoFactory,
             final ICommonBusinessObjectFactory businessObjectFactory,
@@ -198,6 +199,9 @@ public final class CommonServer extends AbstractServer<ICommonServer> implements
         this.authenticationService = authenticationService;
         this.businessObjectFactory = businessObjectFactory;
         this.lastModificationState = lastModificationState;
+        this.searchGroupsById =
+                new VersionedCachedValue<Map<String, Group>>(lastModificationState,
+                        ObjectKind.GROUP, ObjectKind.PERSON);
     }
 
     ICommonBusinessObjectFactory getBusinessObjectFactory()
@@ -530,7 +534,7 @@ public final class CommonServer extends AbstractServer<ICommonServer> implements
             for (final SearchableEntity searchableEntity : searchableEntities)
             {
                 HibernateSearchDataProvider dataProvider =
-                        new HibernateSearchDataProvider(getDAOFactory());
+                        new HibernateSearchDataProvider(getSearchGroupsById());
                 list.addAll(getDAOFactory().getHibernateSearchDAO().searchEntitiesByTerm(
                         searchableEntity, queryText, dataProvider));
             }
@@ -541,17 +545,24 @@ public final class CommonServer extends AbstractServer<ICommonServer> implements
         return list;
     }
 
+    private Map<String, Group> getSearchGroupsById()
+    {
+        return searchGroupsById.get(new VersionedCachedValue.ILoader<Map<String, Group>>()
+            {
+                public Map<String, Group> load()
+                {
+                    return HibernateSearchDataProvider.loadGroupsById(getDAOFactory());
+                }
+            });
+    }
+
     public final List<Experiment> listExperiments(final String sessionToken,
             final ExperimentType experimentType, final ProjectIdentifier projectIdentifier)
     {
         final Session session = getSessionManager().getSession(sessionToken);
-        final IExperimentTable experimentTable =
-                businessObjectFactory.createExperimentTable(session);
-        experimentTable.load(experimentType.getCode(), projectIdentifier);
-        final List<ExperimentPE> experiments = experimentTable.getExperiments();
-        Collections.sort(experiments);
-        return ExperimentTranslator.translate(experiments, session.getBaseIndexURL(),
-                ExperimentTranslator.LoadableFields.PROPERTIES);
+        final IExperimentLister experimentLister =
+                businessObjectFactory.createExperimentLister(session);
+        return experimentLister.list(experimentType.getCode(), projectIdentifier);
     }
 
     public final List<ExperimentType> listExperimentTypes(final String sessionToken)
@@ -864,11 +875,8 @@ public final class CommonServer extends AbstractServer<ICommonServer> implements
     public List<Material> listMaterials(String sessionToken, MaterialType materialType)
     {
         final Session session = getSessionManager().getSession(sessionToken);
-        final IMaterialTable materialTable = businessObjectFactory.createMaterialTable(session);
-        materialTable.load(materialType.getCode());
-        final List<MaterialPE> materials = materialTable.getMaterials();
-        Collections.sort(materials);
-        return MaterialTranslator.translate(materials);
+        final IMaterialLister materialLister = businessObjectFactory.createMaterialLister(session);
+        return materialLister.list(materialType.getCode());
     }
 
     public void registerSampleType(String sessionToken, SampleType entityType)
@@ -31,6 +31,8 @@ import org.springframework.aop.Pointcut;
 import org.springframework.aop.support.ComposablePointcut;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
 import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import ch.systemsx.cisd.common.logging.LogCategory;
 import ch.systemsx.cisd.common.logging.LogFactory;
@@ -38,10 +40,13 @@ import ch.systemsx.cisd.common.utilities.MethodUtils;
 import ch.systemsx.cisd.openbis.generic.shared.DatabaseCreateOrDeleteModification;
 import ch.systemsx.cisd.openbis.generic.shared.DatabaseUpdateModification;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
-import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind.ObjectKind;
 
 /**
+ * Registers the database modifications declared by the annotations of the invoked methods. If the
+ * method runs in a transaction, the modifications are registered after the transaction has been
+ * committed, so that whoever sees a registered modification also sees its data.
+ * 
  * @author Tomasz Pylak
  */
 public final class DatabaseLastModificationAdvisor extends DefaultPointcutAdvisor
@@ -51,14 +56,14 @@ public final class DatabaseLastModificationAdvisor extends DefaultPointcutAdviso
     private static final Logger modificationLog =
             LogFactory.getLogger(LogCategory.OPERATION, DatabaseLastModificationAdvisor.class);
 
-    public DatabaseLastModificationAdvisor(LastModificationState state)
+    public DatabaseLastModificationAdvisor(DatabaseModificationNotifier notifier)
     {
-        super(createPointcut(), createAdvice(state));
+        super(createPointcut(), createAdvice(notifier));
     }
 
-    private final static Advice createAdvice(LastModificationState state)
+    private final static Advice createAdvice(DatabaseModificationNotifier notifier)
     {
-        return new DatabaseLastModificationMethodInterceptor(state);
+        return new DatabaseLastModificationMethodInterceptor(notifier);
     }
 
     private final static Pointcut createPointcut()
@@ -76,22 +81,36 @@ public final class DatabaseLastModificationAdvisor extends DefaultPointcutAdviso
     private static final class DatabaseLastModificationMethodInterceptor implements
             MethodInterceptor
     {
-        private final LastModificationState state;
+        private final DatabaseModificationNotifier notifier;
 
         private final Map<Method, Set<DatabaseModificationKind>> annotationsCache;
 
-        public DatabaseLastModificationMethodInterceptor(LastModificationState state)
+        public DatabaseLastModificationMethodInterceptor(DatabaseModificationNotifier notifier)
         {
             this.annotationsCache = new HashMap<Method, Set<DatabaseModificationKind>>();
-            this.state = state;
+            this.notifier = notifier;
         }
 
         public final Object invoke(final MethodInvocation methodInvocation) throws Throwable
         {
-            long currentTimestamp = new Date().getTime();
+            final long currentTimestamp = new Date().getTime();
             final Method method = methodInvocation.getMethod();
             Object result = methodInvocation.proceed();
-            registerModification(method, currentTimestamp);
+            if (TransactionSynchronizationManager.isSynchronizationActive())
+            {
+                TransactionSynchronizationManager
+                        .registerSynchronization(new TransactionSynchronizationAdapter()
+                            {
+                                @Override
+                                public void afterCommit()
+                                {
+                                    registerModification(method, currentTimestamp);
+                                }
+                            });
+            } else
+            {
+                registerModification(method, currentTimestamp);
+            }
             return result;
         }
 
@@ -102,7 +121,7 @@ public final class DatabaseLastModificationAdvisor extends DefaultPointcutAdviso
             {
                 modificationLog.debug(String.format("Method '%s' registered at %s: %s", MethodUtils
                         .describeMethod(method), new Date(currentTimestamp), modification));
-                state.registerModification(modification, currentTimestamp);
+                notifier.registerModification(modification, currentTimestamp);
             }
         }
 
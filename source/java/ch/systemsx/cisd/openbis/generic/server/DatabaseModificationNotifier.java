@@ -0,0 +1,142 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server;
+
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+
+/**
+ * Registers database modifications in the {@link LastModificationState} of the server and wakes up
+ * the clients waiting for them.
+ * <p>
+ * A client long-polls with {@link #waitForModification(Set, LastModificationState, long)}: the call
+ * blocks until one of the modifications the client is interested in happens after the state it has
+ * seen last, or until the timeout expires.
+ * </p>
+ * <p>
+ * Each waiting client holds a request thread of the servlet container. Therefore the number of
+ * clients waiting at the same time is limited (see {@link #setMaxWaitingClients(int)}). A client
+ * exceeding the limit gets no answer and should ask again later.
+ * </p>
+ *
+ * @author agent
+ */
+public final class DatabaseModificationNotifier
+{
+    /** The default maximum number of clients waiting at the same time. */
+    public static final int DEFAULT_MAX_WAITING_CLIENTS = 50;
+
+    private final LastModificationState state;
+
+    private volatile Semaphore waitingClientPermits = new Semaphore(DEFAULT_MAX_WAITING_CLIENTS);
+
+    public DatabaseModificationNotifier(final LastModificationState state)
+    {
+        assert state != null : "Unspecified modification state.";
+        this.state = state;
+    }
+
+    public final LastModificationState getLastModificationState()
+    {
+        return state;
+    }
+
+    /**
+     * Sets the maximum number of clients waiting at the same time.
+     */
+    public final void setMaxWaitingClients(final int maxWaitingClients)
+    {
+        assert maxWaitingClients >= 0 : "Negative maximum number of waiting clients: "
+                + maxWaitingClients;
+        waitingClientPermits = new Semaphore(maxWaitingClients);
+    }
+
+    /**
+     * Registers given kind of modification and wakes up all clients waiting for modifications.
+     */
+    public final void registerModification(final DatabaseModificationKind kind,
+            final long timestamp)
+    {
+        state.registerModification(kind, timestamp);
+        synchronized (this)
+        {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until one of given <var>relevantModifications</var> has been registered after it has
+     * been registered in <var>lastSeenStateOrNull</var>, but not longer than given timeout.
+     *
+     * @param lastSeenStateOrNull the state last seen by the client, <code>null</code> if the
+     *            client has not seen any state yet. In this case the method returns immediately.
+     * @return a snapshot of the current modification state, <code>null</code> if the maximum
+     *         number of clients are waiting already.
+     */
+    public final LastModificationState waitForModification(
+            final Set<DatabaseModificationKind> relevantModifications,
+            final LastModificationState lastSeenStateOrNull, final long timeoutMillis)
+            throws InterruptedException
+    {
+        assert relevantModifications != null : "Unspecified modifications.";
+        if (lastSeenStateOrNull == null)
+        {
+            return state.createSnapshot();
+        }
+        final Semaphore permits = waitingClientPermits;
+        if (permits.tryAcquire() == false)
+        {
+            return null;
+        }
+        try
+        {
+            final long deadline = System.currentTimeMillis() + timeoutMillis;
+            synchronized (this)
+            {
+                long remaining = timeoutMillis;
+                while (remaining > 0
+                        && isModified(relevantModifications, lastSeenStateOrNull) == false)
+                {
+                    wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
+        } finally
+        {
+            permits.release();
+        }
+        return state.createSnapshot();
+    }
+
+    private boolean isModified(final Set<DatabaseModificationKind> relevantModifications,
+            final LastModificationState lastSeenState)
+    {
+        for (final DatabaseModificationKind modification : relevantModifications)
+        {
+            // The versions differ also if the server has been restarted since the client has
+            // seen its state.
+            if (state.getVersion(modification) != lastSeenState.getVersion(modification))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -18,6 +18,7 @@ package ch.systemsx.cisd.openbis.generic.server;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -33,6 +34,7 @@ import ch.systemsx.cisd.openbis.generic.server.business.bo.IExternalDataTable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.ISampleBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.ISampleTable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.SimpleDataSetHelper;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister.IDatasetLister;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDataSetTypeDAO;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDataStoreDAO;
@@ -424,15 +426,39 @@ public class ETLService extends AbstractServer<IETLService> implements IETLServi
             throws UserFailureException
     {
         Session session = sessionManager.getSession(sessionToken);
+        DataStorePE dataStore = loadDataStore(dataStoreCode);
+        IExternalDataTable dataSetTable = boFactory.createExternalDataTable(session);
+        dataSetTable.loadByDataStore(dataStore);
+        return SimpleDataSetHelper.translate(dataSetTable.getExternalData());
+    }
+
+    public List<SimpleDataSetInformationDTO> listDataSetsPage(String sessionToken,
+            String dataStoreCode, Long lastSeenDataSetIdOrNull, Date modifiedSinceOrNull,
+            int maxResults) throws UserFailureException
+    {
+        Session session = sessionManager.getSession(sessionToken);
+        if (maxResults <= 0)
+        {
+            throw new UserFailureException("Maximal number of results has to be positive: "
+                    + maxResults);
+        }
+        DataStorePE dataStore = loadDataStore(dataStoreCode);
+        IDatasetLister datasetLister =
+                boFactory.createDatasetLister(session, dataStoreBaseURLProvider
+                        .getDataStoreBaseURL());
+        return datasetLister.listByDataStore(dataStore.getId(), lastSeenDataSetIdOrNull,
+                modifiedSinceOrNull, maxResults);
+    }
+
+    private DataStorePE loadDataStore(String dataStoreCode)
+    {
         DataStorePE dataStore =
                 getDAOFactory().getDataStoreDAO().tryToFindDataStoreByCode(dataStoreCode);
         if (dataStore == null)
         {
             throw new UserFailureException(String.format("Unknown data store '%s'", dataStoreCode));
         }
-        IExternalDataTable dataSetTable = boFactory.createExternalDataTable(session);
-        dataSetTable.loadByDataStore(dataStore);
-        return SimpleDataSetHelper.translate(dataSetTable.getExternalData());
+        return dataStore;
     }
 
     public List<DeletedDataSet> listDeletedDataSets(String sessionToken,
@@ -16,6 +16,7 @@
 
 package ch.systemsx.cisd.openbis.generic.server;
 
+import java.util.Date;
 import java.util.List;
 
 import ch.systemsx.cisd.authentication.ISessionManager;
@@ -132,6 +133,16 @@ public class ETLServiceLogger extends AbstractServerLogger implements IETLServic
         return null;
     }
 
+    public List<SimpleDataSetInformationDTO> listDataSetsPage(String sessionToken,
+            String dataStore, Long lastSeenDataSetIdOrNull, Date modifiedSinceOrNull,
+            int maxResults) throws UserFailureException
+    {
+        logAccess(sessionToken, "listDataSetsPage",
+                "DATA_STORE(%s) LAST_SEEN_ID(%s) MODIFIED_SINCE(%s) MAX_RESULTS(%s)", dataStore,
+                lastSeenDataSetIdOrNull, modifiedSinceOrNull, maxResults);
+        return null;
+    }
+
     public SamplePE getSampleWithProperty(String sessionToken, String propertyTypeCode,
             GroupIdentifier groupIdentifier, String propertyValue)
     {
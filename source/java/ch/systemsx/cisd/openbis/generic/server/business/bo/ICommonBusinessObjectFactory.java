@@ -17,6 +17,8 @@
 package ch.systemsx.cisd.openbis.generic.server.business.bo;
 
 import ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister.IDatasetLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister.IExperimentLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister.IMaterialLister;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister.ISampleLister;
 import ch.systemsx.cisd.openbis.generic.shared.dto.Session;
 import ch.systemsx.cisd.openbis.generic.shared.dto.properties.EntityKind;
@@ -76,4 +78,8 @@ public interface ICommonBusinessObjectFactory
 
     public IDatasetLister createDatasetLister(Session session, String defaultDataStoreBaseURL);
 
+    public IExperimentLister createExperimentLister(Session session);
+
+    public IMaterialLister createMaterialLister(Session session);
+
 }
@@ -48,6 +48,7 @@ public class SimpleDataSetHelper
     private static SimpleDataSetInformationDTO translate(ExternalDataPE data)
     {
         SimpleDataSetInformationDTO result = new SimpleDataSetInformationDTO();
+        result.setDataSetId(data.getId());
         result.setDataSetCode(data.getCode());
         result.setDataSetLocation(data.getLocation());
         result.setDatabaseInstanceCode(data.getExperiment().getProject().getGroup()
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import java.sql.Connection;
+
+import net.lemnik.eodsql.BaseQuery;
+import net.lemnik.eodsql.QueryTool;
+
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.IEntitiesCountProvider;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
+
+/**
+ * Superclass of the DAOs of listers for one kind of entities with properties. Sets up the listing
+ * query on the connection of the session, the query of the properties and the factory of property
+ * queries on their own connections. Subclasses only provide the queries specific to their entities
+ * with an {@link EntityQueries} object.
+ * 
+ * @author agent
+ */
+public abstract class AbstractEntityListerDAO<Q extends BaseQuery> extends AbstractDAO
+{
+    /**
+     * The queries specific to one kind of entities. Implementations must not have state, so that
+     * one instance can be shared by all DAOs of the entities.
+     */
+    protected static abstract class EntityQueries<Q extends BaseQuery>
+    {
+        private final Class<Q> queryClass;
+
+        private final String tableName;
+
+        /**
+         * @param tableName The name of the table of the entities, under which the statistics of
+         *            the {@link QueryStrategyChooser} are kept.
+         */
+        protected EntityQueries(final Class<Q> queryClass, final String tableName)
+        {
+            assert queryClass != null : "Unspecified query class.";
+            assert tableName != null : "Unspecified table name.";
+            this.queryClass = queryClass;
+            this.tableName = tableName;
+        }
+
+        /**
+         * Counts the entities with given <var>query</var>.
+         */
+        protected abstract long count(Q query);
+
+        /**
+         * Returns given <var>query</var> as a query of the properties of single entities, used if
+         * the database engine does not support set queries.
+         */
+        protected abstract IEntityPropertyListingQuery asEntityPropertyListingQuery(Q query,
+                long databaseInstanceId);
+
+        /**
+         * Returns given <var>query</var> as a query of the properties of a set of entities.
+         */
+        protected abstract IEntityPropertySetListingQuery asEntityPropertySetListingQuery(Q query);
+    }
+
+    /**
+     * Creates the listing query of given <var>queries</var> on the connection of the session.
+     */
+    protected static <Q extends BaseQuery> Q createQuery(final IDAOFactory daoFactory,
+            final EntityQueries<Q> queries)
+    {
+        final Connection connection = DatabaseContextUtils.getConnection(daoFactory);
+        return QueryTool.getQuery(connection, queries.queryClass);
+    }
+
+    private final Q query;
+
+    private final IEntityPropertySetListingQuery propertySetQuery;
+
+    private final IEntityPropertySetListingQueryFactory propertySetQueryFactoryOrNull;
+
+    /**
+     * Creates an instance for the home database instance of given <var>daoFactory</var>.
+     * 
+     * @param fetchPropertiesConcurrently If <code>true</code> properties are fetched concurrently
+     *            on their own connections if the database engine supports set queries.
+     */
+    protected AbstractEntityListerDAO(final EntityQueries<Q> queries,
+            final IDAOFactory daoFactory, final Q query, final boolean fetchPropertiesConcurrently)
+    {
+        super(daoFactory.getHomeDatabaseInstance());
+        this.query = query;
+        if (DatabaseContextUtils.isSupportingSetQueries(daoFactory))
+        {
+            this.propertySetQuery = queries.asEntityPropertySetListingQuery(query);
+            // Properties are fetched concurrently only with set queries.
+            this.propertySetQueryFactoryOrNull =
+                    fetchPropertiesConcurrently ? createPropertySetQueryFactory(daoFactory,
+                            queries) : null;
+        } else
+        {
+            this.propertySetQuery =
+                    new PropertiesSetListingQueryFallback(queries.asEntityPropertyListingQuery(
+                            query, getDatabaseInstanceId()), new QueryStrategyChooser(
+                            queries.tableName, createCountProvider(daoFactory, queries)));
+            this.propertySetQueryFactoryOrNull = null;
+        }
+    }
+
+    /**
+     * Returns the listing query on the connection of the session.
+     */
+    protected final Q getFullQuery()
+    {
+        return query;
+    }
+
+    public final IEntityPropertySetListingQuery getPropertySetQuery()
+    {
+        return propertySetQuery;
+    }
+
+    /**
+     * Returns the factory of property set queries working on their own connections, or
+     * <code>null</code> if properties should not be fetched concurrently.
+     */
+    public final IEntityPropertySetListingQueryFactory tryGetPropertySetQueryFactory()
+    {
+        return propertySetQueryFactoryOrNull;
+    }
+
+    private static <Q extends BaseQuery> IEntitiesCountProvider createCountProvider(
+            final IDAOFactory daoFactory, final EntityQueries<Q> queries)
+    {
+        return new ConnectedEntitiesCountProvider<Q>(daoFactory, queries.queryClass)
+            {
+                @Override
+                protected long count(Q countQuery)
+                {
+                    return queries.count(countQuery);
+                }
+            };
+    }
+
+    private static <Q extends BaseQuery> IEntityPropertySetListingQueryFactory
+            createPropertySetQueryFactory(final IDAOFactory daoFactory,
+                    final EntityQueries<Q> queries)
+    {
+        return new IEntityPropertySetListingQueryFactory()
+            {
+                public ConnectedEntityPropertySetListingQuery createQuery()
+                {
+                    final Connection connection =
+                            DatabaseContextUtils.createReadOnlyConnection(daoFactory);
+                    final Q connectedQuery = QueryTool.getQuery(connection, queries.queryClass);
+                    return new ConnectedEntityPropertySetListingQuery(queries
+                            .asEntityPropertySetListingQuery(connectedQuery), connection);
+                }
+            };
+    }
+}
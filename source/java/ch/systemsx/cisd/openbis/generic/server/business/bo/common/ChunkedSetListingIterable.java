@@ -0,0 +1,151 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.commons.collections15.Predicate;
+import org.apache.commons.collections15.iterators.FilterIterator;
+
+import ch.rinn.restrictions.Private;
+
+/**
+ * An {@link Iterable} over the records of a set of identifiers which fetches the records in
+ * chunks: the sorted identifiers are split into chunks of at most <var>chunkSize</var> identifiers
+ * and the records of each chunk are fetched with one query for the identifier range of the chunk.
+ * Records in the range which have not been requested are filtered out.
+ * <p>
+ * A chunk is closed early if its range would become more than {@link #MAX_RANGE_TO_SIZE_RATIO}
+ * times larger than the number of its identifiers, so that a query never reads much more rows than
+ * requested. Thus sparse identifiers degrade to one query per identifier.
+ * </p>
+ * <p>
+ * The records of a chunk are fetched lazily when the iteration reaches the chunk.
+ * </p>
+ *
+ * @author agent
+ */
+public abstract class ChunkedSetListingIterable<T> implements Iterable<T>
+{
+    @Private
+    static final int MAX_RANGE_TO_SIZE_RATIO = 4;
+
+    private final LongSet ids;
+
+    private final int chunkSize;
+
+    protected ChunkedSetListingIterable(final LongSet ids, final int chunkSize)
+    {
+        assert ids != null : "Unspecified ids.";
+        assert chunkSize > 0 : "Chunk size has to be positive: " + chunkSize;
+        this.ids = ids;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns all records whose identifiers are between given bounds (inclusive).
+     */
+    protected abstract Iterator<T> getRecords(long fromId, long toId);
+
+    /**
+     * Returns the identifier of given <var>record</var>.
+     */
+    protected abstract long getId(T record);
+
+    public Iterator<T> iterator()
+    {
+        final long[] sortedIds = ids.toLongArray();
+        Arrays.sort(sortedIds);
+        final Predicate<T> requested = new Predicate<T>()
+            {
+                public boolean evaluate(T record)
+                {
+                    return ids.contains(getId(record));
+                }
+            };
+        return new Iterator<T>()
+            {
+                private int nextChunkStart = 0;
+
+                private Iterator<T> chunkIterator = Collections.<T> emptyList().iterator();
+
+                public boolean hasNext()
+                {
+                    while (chunkIterator.hasNext() == false && nextChunkStart < sortedIds.length)
+                    {
+                        final int chunkEnd = getChunkEnd(sortedIds, nextChunkStart, chunkSize);
+                        chunkIterator =
+                                new FilterIterator<T>(getRecords(sortedIds[nextChunkStart],
+                                        sortedIds[chunkEnd - 1]), requested);
+                        nextChunkStart = chunkEnd;
+                    }
+                    return chunkIterator.hasNext();
+                }
+
+                public T next()
+                {
+                    hasNext();
+                    return chunkIterator.next();
+                }
+
+                public void remove() throws UnsupportedOperationException
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+    }
+
+    /**
+     * Returns the number of chunks, and thus of queries, in which the records of given
+     * <var>ids</var> are fetched.
+     */
+    public static int countChunks(final LongSet ids, final int chunkSize)
+    {
+        final long[] sortedIds = ids.toLongArray();
+        Arrays.sort(sortedIds);
+        int chunks = 0;
+        int start = 0;
+        while (start < sortedIds.length)
+        {
+            start = getChunkEnd(sortedIds, start, chunkSize);
+            chunks++;
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the (exclusive) end index of the chunk of given <var>sortedIds</var> starting at
+     * <var>start</var>.
+     */
+    @Private
+    static int getChunkEnd(final long[] sortedIds, final int start, final int chunkSize)
+    {
+        final int maxEnd = Math.min(sortedIds.length, start + chunkSize);
+        int end = start + 1;
+        while (end < maxEnd
+                && sortedIds[end] - sortedIds[start] < (long) MAX_RANGE_TO_SIZE_RATIO
+                        * (end - start + 1))
+        {
+            end++;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import java.sql.Connection;
+
+import net.lemnik.eodsql.BaseQuery;
+import net.lemnik.eodsql.QueryTool;
+
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.IEntitiesCountProvider;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
+
+/**
+ * An {@link IEntitiesCountProvider} which counts the entities on its own read-only connection, so
+ * that it can be called by the background thread of the {@link QueryStrategyChooser} while the
+ * connection of the session is in use.
+ * 
+ * @author agent
+ */
+public abstract class ConnectedEntitiesCountProvider<T extends BaseQuery> implements
+        IEntitiesCountProvider
+{
+    private final IDAOFactory daoFactory;
+
+    private final Class<T> queryClass;
+
+    protected ConnectedEntitiesCountProvider(final IDAOFactory daoFactory,
+            final Class<T> queryClass)
+    {
+        assert daoFactory != null : "Unspecified DAO factory.";
+        assert queryClass != null : "Unspecified query class.";
+        this.daoFactory = daoFactory;
+        this.queryClass = queryClass;
+    }
+
+    /**
+     * Counts the entities with given <var>query</var>.
+     */
+    protected abstract long count(T query);
+
+    public final long count()
+    {
+        final Connection connection = DatabaseContextUtils.createReadOnlyConnection(daoFactory);
+        try
+        {
+            return count(QueryTool.getQuery(connection, queryClass));
+        } finally
+        {
+            DatabaseContextUtils.closeReadOnlyConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.sql.Connection;
+
+/**
+ * An {@link IEntityPropertySetListingQuery} which owns the database connection it works on.
+ * 
+ * @author agent
+ */
+public final class ConnectedEntityPropertySetListingQuery implements
+        IEntityPropertySetListingQuery
+{
+    private final IEntityPropertySetListingQuery query;
+
+    private final Connection connection;
+
+    public ConnectedEntityPropertySetListingQuery(final IEntityPropertySetListingQuery query,
+            final Connection connection)
+    {
+        assert query != null : "Unspecified query.";
+        assert connection != null : "Unspecified connection.";
+        this.query = query;
+        this.connection = connection;
+    }
+
+    public Iterable<GenericEntityPropertyRecord> getEntityPropertyGenericValues(LongSet entityIDs)
+    {
+        return query.getEntityPropertyGenericValues(entityIDs);
+    }
+
+    public Iterable<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(
+            LongSet entityIDs)
+    {
+        return query.getEntityPropertyMaterialValues(entityIDs);
+    }
+
+    public Iterable<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(
+            LongSet entityIDs)
+    {
+        return query.getEntityPropertyVocabularyTermValues(entityIDs);
+    }
+
+    /**
+     * Ends the (read-only) transaction of the connection and closes it.
+     */
+    public void close()
+    {
+        DatabaseContextUtils.closeReadOnlyConnection(connection);
+    }
+}
@@ -17,7 +17,9 @@
 package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
+import ch.systemsx.cisd.base.exceptions.CheckedExceptionTunnel;
 import ch.systemsx.cisd.common.exceptions.ConfigurationFailureException;
 import ch.systemsx.cisd.dbmigration.DatabaseConfigurationContext;
 import ch.systemsx.cisd.dbmigration.DatabaseEngine;
@@ -38,6 +40,49 @@ public class DatabaseContextUtils
         return daoFactory.getSessionFactory().getCurrentSession().connection();
     }
 
+    /**
+     * Returns a new connection from the connection pool of the database. In contrast to the
+     * connection returned by {@link #getConnection(IDAOFactory)} it does not belong to the current
+     * session and thus does not see uncommitted changes of the current transaction. The connection
+     * is read-only and not in auto-commit mode, so that large results can be fetched in chunks. It
+     * has to be closed by the caller.
+     */
+    public static Connection createReadOnlyConnection(IDAOFactory daoFactory)
+    {
+        DatabaseConfigurationContext context = DatabaseContextUtils.getDatabaseContext(daoFactory);
+        try
+        {
+            Connection connection = context.getDataSource().getConnection();
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            return connection;
+        } catch (SQLException ex)
+        {
+            throw CheckedExceptionTunnel.wrapIfNecessary(ex);
+        }
+    }
+
+    /**
+     * Ends the (read-only) transaction of given <var>connection</var> created by
+     * {@link #createReadOnlyConnection(IDAOFactory)} and closes it.
+     */
+    public static void closeReadOnlyConnection(Connection connection)
+    {
+        try
+        {
+            try
+            {
+                connection.rollback();
+            } finally
+            {
+                connection.close();
+            }
+        } catch (SQLException ex)
+        {
+            throw CheckedExceptionTunnel.wrapIfNecessary(ex);
+        }
+    }
+
     /**
      * @return true if the database supports set queries. <br>
      *         Note: H2 does not support set queries ("=ANY()" operator).
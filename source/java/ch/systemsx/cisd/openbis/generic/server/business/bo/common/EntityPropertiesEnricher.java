@@ -20,11 +20,23 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongSet;
 
-import org.apache.commons.lang.StringEscapeUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ch.systemsx.cisd.base.exceptions.CheckedExceptionTunnel;
 import ch.systemsx.cisd.openbis.generic.shared.basic.BasicConstant;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.GenericValueEntityProperty;
-import ch.systemsx.cisd.openbis.generic.shared.basic.dto.IEntityPropertiesHolder;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.IEntityProperty;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Material;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.MaterialType;
@@ -32,23 +44,88 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.MaterialValueEntityProp
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.PropertyType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.VocabularyTerm;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.VocabularyTermValueEntityProperty;
+import ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils;
+import ch.systemsx.cisd.openbis.generic.shared.util.WorkerThreadPools;
 
 /**
  * A class that can enrich a set of entities with its entity properties.
+ * <p>
+ * If a {@link IEntityPropertySetListingQueryFactory} is given, the vocabulary term and the material
+ * property values are fetched by worker threads on their own database connections while the
+ * calling thread fetches the generic property values. Each worker collects its properties per
+ * entity without locking. The calling thread adds them to the entities after it has added the
+ * generic properties, so the entities are only resolved and modified by the calling thread and the
+ * properties keep their order.
+ * </p>
+ * <p>
+ * The property values are fetched concurrently only if the current transaction (if any) is
+ * read-only, because the connections of the workers do not see uncommitted changes. The number of
+ * additional connections used by all enrichers of the server is bounded. If the connections can
+ * not be reserved within {@link #CONNECTION_WAIT_MILLIS}, the property values are fetched one
+ * after another on the connection of the session, so that an enricher never waits for the
+ * connection pool while holding the connection of its session.
+ * </p>
+ * <p>
+ * The property types, vocabulary URL templates and material types are taken from a
+ * {@link ReferenceDataCache}.
+ * </p>
  * 
  * @author Bernd Rinn
  */
 public final class EntityPropertiesEnricher implements IEntityPropertiesEnricher
 {
+    private static final int WORKER_COUNT = 4;
+
+    /** The number of additional connections used by one enricher. */
+    private static final int CONNECTIONS_PER_ENRICHER = 2;
+
+    /** The maximum time to wait for the reservation of the additional connections. */
+    private static final long CONNECTION_WAIT_MILLIS = 100;
+
+    /** Bounds the number of additional connections used by all enrichers. */
+    private static final Semaphore connectionPermits = new Semaphore(WORKER_COUNT);
+
+    private static final ExecutorService workers =
+            WorkerThreadPools.create("property-enricher", WORKER_COUNT);
+
     private final IPropertyListingQuery query;
 
     private final IEntityPropertySetListingQuery setQuery;
 
+    private final IEntityPropertySetListingQueryFactory setQueryFactoryOrNull;
+
+    private final ReferenceDataCache referenceDataCache;
+
     public EntityPropertiesEnricher(final IPropertyListingQuery query,
             final IEntityPropertySetListingQuery setQuery)
     {
+        this(query, setQuery, null);
+    }
+
+    public EntityPropertiesEnricher(final IPropertyListingQuery query,
+            final IEntityPropertySetListingQuery setQuery,
+            final IEntityPropertySetListingQueryFactory setQueryFactoryOrNull)
+    {
+        this(query, setQuery, setQueryFactoryOrNull, ReferenceDataCache.createUncached());
+    }
+
+    /**
+     * @param setQueryFactoryOrNull Factory of the queries used to fetch vocabulary term and
+     *            material property values concurrently. If <code>null</code> all property values
+     *            are fetched one after another with <var>setQuery</var>.
+     * @param referenceDataCache Cache of the property types, vocabulary URL templates and
+     *            material types which are loaded with <var>query</var> if outdated.
+     */
+    public EntityPropertiesEnricher(final IPropertyListingQuery query,
+            final IEntityPropertySetListingQuery setQuery,
+            final IEntityPropertySetListingQueryFactory setQueryFactoryOrNull,
+            final ReferenceDataCache referenceDataCache)
+    {
+        assert referenceDataCache != null : "Unspecified reference data cache.";
         this.query = query;
         this.setQuery = setQuery;
+        this.setQueryFactoryOrNull = setQueryFactoryOrNull;
+        this.referenceDataCache = referenceDataCache;
     }
 
     /**
@@ -57,71 +134,227 @@ public final class EntityPropertiesEnricher implements IEntityPropertiesEnricher
      */
     public void enrich(final LongSet entityIDs, final IEntityPropertiesHolderResolver entities)
     {
-        final Long2ObjectMap<PropertyType> propertyTypes = getPropertyTypes();
-        // Generic properties
-        for (GenericEntityPropertyRecord val : setQuery.getEntityPropertyGenericValues(entityIDs))
+        final ReferenceData referenceData = new ReferenceData();
+        final IPropertyCollector entityCollector = new IPropertyCollector()
+            {
+                public void add(long entityId, IEntityProperty property)
+                {
+                    entities.get(entityId).getProperties().add(property);
+                }
+            };
+        if (setQueryFactoryOrNull == null || isReadOnly() == false
+                || tryReserveConnections() == false)
         {
-            final IEntityPropertiesHolder entity = entities.get(val.entity_id);
-            final IEntityProperty property = new GenericValueEntityProperty();
-            property.setValue(StringEscapeUtils.escapeHtml(val.value));
-            property.setPropertyType(propertyTypes.get(val.prty_id));
-            entity.getProperties().add(property);
+            addGenericProperties(setQuery, entityIDs, referenceData, entityCollector);
+            addVocabularyTermProperties(setQuery, entityIDs, referenceData, entityCollector);
+            addMaterialProperties(setQuery, entityIDs, referenceData, entityCollector);
+            return;
         }
-        // Controlled vocabulary properties
-        Long2ObjectMap<String> vocabularyURLMap = null;
-        Long2ObjectMap<VocabularyTerm> terms = new Long2ObjectOpenHashMap<VocabularyTerm>();
-        for (VocabularyTermRecord val : setQuery.getEntityPropertyVocabularyTermValues(entityIDs))
+        enrichConcurrently(entityIDs, entities, referenceData, entityCollector);
+    }
+
+    /**
+     * Fetches the vocabulary term and material property values with workers. Takes over the
+     * reserved connection permits: each fetcher releases one of them when it closes its
+     * connection, which an abandoned fetcher might only do after this method has returned. The
+     * permits not handed over to a fetcher are released by this method.
+     */
+    private void enrichConcurrently(final LongSet entityIDs,
+            final IEntityPropertiesHolderResolver entities, final ReferenceData referenceData,
+            final IPropertyCollector entityCollector)
+    {
+        int unassignedPermits = CONNECTIONS_PER_ENRICHER;
+        PropertiesFetcher vocabularyTermFetcherOrNull = null;
+        PropertiesFetcher materialFetcherOrNull = null;
+        try
         {
-            if (vocabularyURLMap == null)
+            // The workers must not use the connection of the session, which is not thread-safe.
+            referenceData.loadAll();
+            vocabularyTermFetcherOrNull =
+                    new PropertiesFetcher(setQueryFactoryOrNull.createQuery())
+                        {
+                            @Override
+                            void fetch(IEntityPropertySetListingQuery connectedQuery,
+                                    PropertiesBuffer buffer)
+                            {
+                                addVocabularyTermProperties(connectedQuery, entityIDs,
+                                        referenceData, buffer);
+                            }
+                        };
+            unassignedPermits--;
+            materialFetcherOrNull = new PropertiesFetcher(setQueryFactoryOrNull.createQuery())
+                {
+                    @Override
+                    void fetch(IEntityPropertySetListingQuery connectedQuery,
+                            PropertiesBuffer buffer)
+                    {
+                        addMaterialProperties(connectedQuery, entityIDs, referenceData, buffer);
+                    }
+                };
+            unassignedPermits--;
+            final FutureTask<PropertiesBuffer> vocabularyTermTask =
+                    new FutureTask<PropertiesBuffer>(vocabularyTermFetcherOrNull);
+            workers.execute(vocabularyTermTask);
+            final FutureTask<PropertiesBuffer> materialTask =
+                    new FutureTask<PropertiesBuffer>(materialFetcherOrNull);
+            workers.execute(materialTask);
+            addGenericProperties(setQuery, entityIDs, referenceData, entityCollector);
+            getResult(vocabularyTermTask).addTo(entities);
+            getResult(materialTask).addTo(entities);
+        } finally
+        {
+            if (vocabularyTermFetcherOrNull != null)
+            {
+                vocabularyTermFetcherOrNull.abandon();
+            }
+            if (materialFetcherOrNull != null)
             {
-                vocabularyURLMap = getVocabularyURLs();
+                materialFetcherOrNull.abandon();
             }
-            final IEntityPropertiesHolder entity = entities.get(val.entity_id);
+            connectionPermits.release(unassignedPermits);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if there is no transaction or the current transaction is
+     * read-only.
+     */
+    private static boolean isReadOnly()
+    {
+        return TransactionSynchronizationManager.isActualTransactionActive() == false
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static boolean tryReserveConnections()
+    {
+        try
+        {
+            return connectionPermits.tryAcquire(CONNECTIONS_PER_ENRICHER, CONNECTION_WAIT_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the result of given <var>task</var>. Runs the task in the calling thread if no worker
+     * has started it yet.
+     */
+    private static PropertiesBuffer getResult(final FutureTask<PropertiesBuffer> task)
+    {
+        // Does nothing if the task has already been started.
+        task.run();
+        try
+        {
+            return task.get();
+        } catch (final ExecutionException ex)
+        {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw CheckedExceptionTunnel.wrapIfNecessary((Exception) cause);
+        } catch (final InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw CheckedExceptionTunnel.wrapIfNecessary(ex);
+        }
+    }
+
+    private void addGenericProperties(final IEntityPropertySetListingQuery propertyQuery,
+            final LongSet entityIDs, final ReferenceData referenceData,
+            final IPropertyCollector collector)
+    {
+        // Repeated values share one escaped string.
+        final Map<String, String> escapedValues = new HashMap<String, String>();
+        for (GenericEntityPropertyRecord val : propertyQuery
+                .getEntityPropertyGenericValues(entityIDs))
+        {
+            final IEntityProperty property = new GenericValueEntityProperty();
+            String escapedValue = escapedValues.get(val.value);
+            if (escapedValue == null)
+            {
+                escapedValue = HtmlEscapeUtils.escapeHtml(val.value);
+                escapedValues.put(val.value, escapedValue);
+            }
+            property.setValue(escapedValue);
+            property.setPropertyType(referenceData.getPropertyTypes().get(val.prty_id));
+            collector.add(val.entity_id, property);
+        }
+    }
+
+    private void addVocabularyTermProperties(final IEntityPropertySetListingQuery propertyQuery,
+            final LongSet entityIDs, final ReferenceData referenceData,
+            final IPropertyCollector collector)
+    {
+        Long2ObjectMap<VocabularyTerm> terms = new Long2ObjectOpenHashMap<VocabularyTerm>();
+        for (VocabularyTermRecord val : propertyQuery
+                .getEntityPropertyVocabularyTermValues(entityIDs))
+        {
             final IEntityProperty property = new VocabularyTermValueEntityProperty();
             VocabularyTerm vocabularyTerm = terms.get(val.id);
             if (vocabularyTerm == null)
             {
                 vocabularyTerm = new VocabularyTerm();
-                vocabularyTerm.setCode(StringEscapeUtils.escapeHtml(val.code));
-                vocabularyTerm.setLabel(StringEscapeUtils.escapeHtml(val.label));
-                final String template = vocabularyURLMap.get(val.covo_id);
+                vocabularyTerm.setCode(HtmlEscapeUtils.escapeHtml(val.code));
+                vocabularyTerm.setLabel(HtmlEscapeUtils.escapeHtml(val.label));
+                final String template = referenceData.getVocabularyURLs().get(val.covo_id);
                 if (template != null)
                 {
-                    vocabularyTerm.setUrl(StringEscapeUtils.escapeHtml(template.replaceAll(
+                    vocabularyTerm.setUrl(HtmlEscapeUtils.escapeHtml(template.replaceAll(
                             BasicConstant.VOCABULARY_URL_TEMPLATE_TERM_PATTERN, val.code)));
                 }
                 terms.put(val.id, vocabularyTerm);
             }
             property.setVocabularyTerm(vocabularyTerm);
-            property.setPropertyType(propertyTypes.get(val.prty_id));
-            entity.getProperties().add(property);
+            property.setPropertyType(referenceData.getPropertyTypes().get(val.prty_id));
+            collector.add(val.entity_id, property);
         }
-        // Material-type properties
-        Long2ObjectMap<MaterialType> materialTypes = null;
+    }
+
+    private void addMaterialProperties(final IEntityPropertySetListingQuery propertyQuery,
+            final LongSet entityIDs, final ReferenceData referenceData,
+            final IPropertyCollector collector)
+    {
         Long2ObjectMap<Material> materials = new Long2ObjectOpenHashMap<Material>();
-        for (MaterialEntityPropertyRecord val : setQuery.getEntityPropertyMaterialValues(entityIDs))
+        for (MaterialEntityPropertyRecord val : propertyQuery
+                .getEntityPropertyMaterialValues(entityIDs))
         {
-            if (materialTypes == null)
-            {
-                materialTypes = getMaterialTypes();
-            }
-            final IEntityPropertiesHolder entity = entities.get(val.entity_id);
             final IEntityProperty property = new MaterialValueEntityProperty();
             Material material = materials.get(val.id);
             if (material == null)
             {
                 material = new Material();
-                material.setCode(StringEscapeUtils.escapeHtml(val.code));
-                material.setMaterialType(materialTypes.get(val.maty_id));
+                material.setCode(HtmlEscapeUtils.escapeHtml(val.code));
+                material.setMaterialType(referenceData.getMaterialTypes().get(val.maty_id));
                 materials.put(val.id, material);
             }
             property.setMaterial(material);
-            property.setPropertyType(propertyTypes.get(val.prty_id));
-            entity.getProperties().add(property);
+            property.setPropertyType(referenceData.getPropertyTypes().get(val.prty_id));
+            collector.add(val.entity_id, property);
         }
     }
 
     private Long2ObjectMap<PropertyType> getPropertyTypes()
+    {
+        return referenceDataCache.getPropertyTypes().get(
+                new VersionedCachedValue.ILoader<Long2ObjectMap<PropertyType>>()
+                    {
+                        public Long2ObjectMap<PropertyType> load()
+                        {
+                            return loadPropertyTypes();
+                        }
+                    });
+    }
+
+    private Long2ObjectMap<PropertyType> loadPropertyTypes()
     {
         final PropertyType[] types = query.getPropertyTypes();
         final Long2ObjectOpenHashMap<PropertyType> propertyTypeMap =
@@ -135,6 +368,18 @@ public final class EntityPropertiesEnricher implements IEntityPropertiesEnricher
     }
 
     private Long2ObjectMap<String> getVocabularyURLs()
+    {
+        return referenceDataCache.getVocabularyURLs().get(
+                new VersionedCachedValue.ILoader<Long2ObjectMap<String>>()
+                    {
+                        public Long2ObjectMap<String> load()
+                        {
+                            return loadVocabularyURLs();
+                        }
+                    });
+    }
+
+    private Long2ObjectMap<String> loadVocabularyURLs()
     {
         final CodeRecord[] vocabURLs = query.getVocabularyURLTemplates();
         final Long2ObjectOpenHashMap<String> vocabularyURLMap =
@@ -148,6 +393,18 @@ public final class EntityPropertiesEnricher implements IEntityPropertiesEnricher
     }
 
     private Long2ObjectMap<MaterialType> getMaterialTypes()
+    {
+        return referenceDataCache.getMaterialTypes().get(
+                new VersionedCachedValue.ILoader<Long2ObjectMap<MaterialType>>()
+                    {
+                        public Long2ObjectMap<MaterialType> load()
+                        {
+                            return loadMaterialTypes();
+                        }
+                    });
+    }
+
+    private Long2ObjectMap<MaterialType> loadMaterialTypes()
     {
         final CodeRecord[] typeCodes = query.getMaterialTypes();
         final Long2ObjectOpenHashMap<MaterialType> materialTypeMap =
@@ -155,11 +412,161 @@ public final class EntityPropertiesEnricher implements IEntityPropertiesEnricher
         for (CodeRecord t : typeCodes)
         {
             final MaterialType type = new MaterialType();
-            type.setCode(StringEscapeUtils.escapeHtml(t.code));
+            type.setCode(HtmlEscapeUtils.escapeHtml(t.code));
             materialTypeMap.put(t.id, type);
         }
         materialTypeMap.trim();
         return materialTypeMap;
     }
 
+    //
+    // Helper classes
+    //
+
+    /**
+     * The property types, vocabulary URL templates and material types. They are taken from the
+     * {@link ReferenceDataCache} on first use, which loads them with the query of the session if
+     * they are outdated.
+     */
+    private final class ReferenceData
+    {
+        private Long2ObjectMap<PropertyType> propertyTypes;
+
+        private Long2ObjectMap<String> vocabularyURLs;
+
+        private Long2ObjectMap<MaterialType> materialTypes;
+
+        Long2ObjectMap<PropertyType> getPropertyTypes()
+        {
+            if (propertyTypes == null)
+            {
+                propertyTypes = EntityPropertiesEnricher.this.getPropertyTypes();
+            }
+            return propertyTypes;
+        }
+
+        Long2ObjectMap<String> getVocabularyURLs()
+        {
+            if (vocabularyURLs == null)
+            {
+                vocabularyURLs = EntityPropertiesEnricher.this.getVocabularyURLs();
+            }
+            return vocabularyURLs;
+        }
+
+        Long2ObjectMap<MaterialType> getMaterialTypes()
+        {
+            if (materialTypes == null)
+            {
+                materialTypes = EntityPropertiesEnricher.this.getMaterialTypes();
+            }
+            return materialTypes;
+        }
+
+        /**
+         * Loads all reference data, so that it can be used by other threads afterwards.
+         */
+        void loadAll()
+        {
+            getPropertyTypes();
+            getVocabularyURLs();
+            getMaterialTypes();
+        }
+    }
+
+    /**
+     * Receives the properties of entities.
+     */
+    private static interface IPropertyCollector
+    {
+        void add(long entityId, IEntityProperty property);
+    }
+
+    /**
+     * Collects the properties per entity in the order they have been added.
+     */
+    private static final class PropertiesBuffer implements IPropertyCollector
+    {
+        private final Long2ObjectMap<List<IEntityProperty>> properties =
+                new Long2ObjectOpenHashMap<List<IEntityProperty>>();
+
+        public void add(long entityId, IEntityProperty property)
+        {
+            List<IEntityProperty> entityProperties = properties.get(entityId);
+            if (entityProperties == null)
+            {
+                entityProperties = new ArrayList<IEntityProperty>();
+                properties.put(entityId, entityProperties);
+            }
+            entityProperties.add(property);
+        }
+
+        void addTo(final IEntityPropertiesHolderResolver entities)
+        {
+            for (Long2ObjectMap.Entry<List<IEntityProperty>> entry : properties
+                    .long2ObjectEntrySet())
+            {
+                entities.get(entry.getLongKey()).getProperties().addAll(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Fetches properties into a {@link PropertiesBuffer} with a query on its own connection and
+     * closes the query afterwards. A fetcher which is abandoned before it has been started closes
+     * the query without fetching. Closing the query releases the connection permit owned by the
+     * fetcher.
+     */
+    private static abstract class PropertiesFetcher implements Callable<PropertiesBuffer>
+    {
+        private final ConnectedEntityPropertySetListingQuery connectedQuery;
+
+        // set by the first of call() and abandon(), which is responsible for closing the query
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        PropertiesFetcher(final ConnectedEntityPropertySetListingQuery connectedQuery)
+        {
+            this.connectedQuery = connectedQuery;
+        }
+
+        abstract void fetch(IEntityPropertySetListingQuery propertyQuery, PropertiesBuffer buffer);
+
+        public PropertiesBuffer call()
+        {
+            if (claimed.compareAndSet(false, true) == false)
+            {
+                return null;
+            }
+            try
+            {
+                final PropertiesBuffer buffer = new PropertiesBuffer();
+                fetch(connectedQuery, buffer);
+                return buffer;
+            } finally
+            {
+                close();
+            }
+        }
+
+        /** Closes the query if the fetcher has not been started. */
+        void abandon()
+        {
+            if (claimed.compareAndSet(false, true))
+            {
+                close();
+            }
+        }
+
+        private void close()
+        {
+            try
+            {
+                connectedQuery.close();
+            } finally
+            {
+                connectionPermits.release();
+            }
+        }
+    }
+
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+/**
+ * A factory of {@link IEntityPropertySetListingQuery}s which work on their own database
+ * connection, so that they can be used concurrently to the queries of the current session.
+ * 
+ * @author agent
+ */
+public interface IEntityPropertySetListingQueryFactory
+{
+    /**
+     * Creates a query on a new database connection. The query has to be closed after use.
+     */
+    public ConnectedEntityPropertySetListingQuery createQuery();
+}
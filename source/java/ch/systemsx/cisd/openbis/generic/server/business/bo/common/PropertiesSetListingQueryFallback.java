@@ -19,10 +19,15 @@ package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
 import it.unimi.dsi.fastutil.longs.LongSet;
 
 import ch.rinn.restrictions.Friend;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.QueryStrategy;
 
 /**
  * A fallback implementation of {@link IEntityPropertySetListingQuery} for database engines who
  * don't support querying for identifier sets.
+ * <p>
+ * Each kind of property values has its own costs, which are learned separately from the costs of
+ * the query for the entities.
+ * </p>
  * 
  * @author Bernd Rinn
  */
@@ -33,49 +38,70 @@ public class PropertiesSetListingQueryFallback implements IEntityPropertySetList
 
     private final IEntityPropertySetListingQuery fullTableScanDelegate;
 
-    private final QueryStrategyChooser strategyChooser;
+    private final QueryStrategyChooser genericValuesStrategyChooser;
 
+    private final QueryStrategyChooser materialValuesStrategyChooser;
+
+    private final QueryStrategyChooser vocabularyTermValuesStrategyChooser;
+
+    /**
+     * @param entityStrategyChooser The chooser of the entities whose properties are fetched.
+     */
     public PropertiesSetListingQueryFallback(final IEntityPropertyListingQuery query,
-            QueryStrategyChooser strategyChooser)
+            QueryStrategyChooser entityStrategyChooser)
     {
         this.oneByOneDelegate = new PropertiesSetListingQueryOneByOne(query);
         this.fullTableScanDelegate = new PropertiesSetListingQueryFullTableScan(query);
-        this.strategyChooser = strategyChooser;
+        this.genericValuesStrategyChooser =
+                entityStrategyChooser.forQuery("generic_property_values");
+        this.materialValuesStrategyChooser =
+                entityStrategyChooser.forQuery("material_property_values");
+        this.vocabularyTermValuesStrategyChooser =
+                entityStrategyChooser.forQuery("vocabulary_term_property_values");
     }
 
     public Iterable<GenericEntityPropertyRecord> getEntityPropertyGenericValues(
             final LongSet entityIDs)
     {
+        final QueryStrategyChooser strategyChooser = genericValuesStrategyChooser;
         if (strategyChooser.useFullTableScan(entityIDs))
         {
-            return fullTableScanDelegate.getEntityPropertyGenericValues(entityIDs);
+            return strategyChooser.observe(QueryStrategy.FULL_TABLE_SCAN, entityIDs,
+                    fullTableScanDelegate.getEntityPropertyGenericValues(entityIDs));
         } else
         {
-            return oneByOneDelegate.getEntityPropertyGenericValues(entityIDs);
+            return strategyChooser.observe(QueryStrategy.ONE_BY_ONE, entityIDs,
+                    oneByOneDelegate.getEntityPropertyGenericValues(entityIDs));
         }
     }
 
     public Iterable<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(
             final LongSet entityIDs)
     {
+        final QueryStrategyChooser strategyChooser = materialValuesStrategyChooser;
         if (strategyChooser.useFullTableScan(entityIDs))
         {
-            return fullTableScanDelegate.getEntityPropertyMaterialValues(entityIDs);
+            return strategyChooser.observe(QueryStrategy.FULL_TABLE_SCAN, entityIDs,
+                    fullTableScanDelegate.getEntityPropertyMaterialValues(entityIDs));
         } else
         {
-            return oneByOneDelegate.getEntityPropertyMaterialValues(entityIDs);
+            return strategyChooser.observe(QueryStrategy.ONE_BY_ONE, entityIDs,
+                    oneByOneDelegate.getEntityPropertyMaterialValues(entityIDs));
         }
     }
 
     public Iterable<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(
             final LongSet entityIDs)
     {
+        final QueryStrategyChooser strategyChooser = vocabularyTermValuesStrategyChooser;
         if (strategyChooser.useFullTableScan(entityIDs))
         {
-            return fullTableScanDelegate.getEntityPropertyVocabularyTermValues(entityIDs);
+            return strategyChooser.observe(QueryStrategy.FULL_TABLE_SCAN, entityIDs,
+                    fullTableScanDelegate.getEntityPropertyVocabularyTermValues(entityIDs));
         } else
         {
-            return oneByOneDelegate.getEntityPropertyVocabularyTermValues(entityIDs);
+            return strategyChooser.observe(QueryStrategy.ONE_BY_ONE, entityIDs,
+                    oneByOneDelegate.getEntityPropertyVocabularyTermValues(entityIDs));
         }
     }
 }
@@ -6,12 +6,11 @@ import java.sql.SQLException;
 import net.lemnik.eodsql.EoDException;
 import net.lemnik.eodsql.spi.util.NonUpdateCapableDataObjectBinding;
 
-import org.apache.commons.lang.StringEscapeUtils;
-
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataTypeCode;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.PropertyType;
 import ch.systemsx.cisd.openbis.generic.shared.dto.CodeConverter;
+import ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils;
 
 /**
  * A binding for the {@link IPropertyListingQuery#getPropertyTypes()} query.
@@ -24,10 +23,10 @@ public class PropertyTypeDataObjectBinding extends
     {
         into.setId(row.getLong("pt_id"));
         into.setInternalNamespace(row.getBoolean("is_managed_internally"));
-        into.setSimpleCode(StringEscapeUtils.escapeHtml(row.getString("pt_code")));
-        into.setCode(StringEscapeUtils.escapeHtml(CodeConverter.tryToBusinessLayer(into
+        into.setSimpleCode(HtmlEscapeUtils.escapeHtml(row.getString("pt_code")));
+        into.setCode(HtmlEscapeUtils.escapeHtml(CodeConverter.tryToBusinessLayer(into
                 .getSimpleCode(), into.isInternalNamespace())));
-        into.setLabel(StringEscapeUtils.escapeHtml(row.getString("pt_label")));
+        into.setLabel(HtmlEscapeUtils.escapeHtml(row.getString("pt_label")));
         final DataType dataType = new DataType();
         dataType.setCode(DataTypeCode.valueOf(row.getString("dt_code")));
         into.setDataType(dataType);
@@ -18,47 +18,434 @@ package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
 
 import it.unimi.dsi.fastutil.longs.LongSet;
 
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.common.logging.LogCategory;
+import ch.systemsx.cisd.common.logging.LogFactory;
+import ch.systemsx.cisd.openbis.generic.shared.util.WorkerThreadPools;
+
 /**
- * Helps deciding what kind of sql query would be more efficient: full table scan with filtering or
- * querying about each single item separately. Decides on the basis of the number of items in the
- * whole table.
+ * Helps deciding what kind of sql query would be more efficient: full table scan with filtering,
+ * querying chunks of items with one range query each or querying about each single item
+ * separately.
+ * <p>
+ * Decides on the basis of a simple cost model: each query costs a fixed time and each row read by
+ * a chunked query or a full table scan costs a time specific to the strategy. Thus
+ * <ul>
+ * <li>querying one by one costs one query per requested item,</li>
+ * <li>querying in chunks costs one query per chunk plus the rows of the requested items, where the
+ * chunks are counted as {@link ChunkedSetListingIterable} forms them,</li>
+ * <li>a full table scan costs one query plus the rows of all items of the table.</li>
+ * </ul>
+ * The costs start with defaults and are learned from the observed times of the queries, which are
+ * measured by the iterables returned by {@link #observe(QueryStrategy, LongSet, Iterable)}. Only
+ * the time spent in the query is measured, not the time the consumer spends between fetching two
+ * records.
+ * </p>
+ * <p>
+ * The number of items is kept per table name and the costs are kept per table name and query name.
+ * They are shared by all choosers created with the same names, so that they survive the request.
+ * A chooser for another query on the items of the same table is created with
+ * {@link #forQuery(String)}. The number of items is counted again by a background thread if it is
+ * older than {@link #UPDATE_INTERVAL}, the request keeps using the old number meanwhile. As long
+ * as the number is unknown, no full table scan is chosen.
+ * </p>
  * 
  * @author Tomasz Pylak
  */
 public class QueryStrategyChooser
 {
-    private final long UPDATE_INTERVAL = 10 * 60 * 1000L; // 10 minutes
+    /** The default maximal number of items fetched by one query of the chunked strategy. */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /** The name of the query fetching the items of the table themselves. */
+    @Private
+    static final String ITEMS_QUERY_NAME = "items";
+
+    private static final Logger operationLog =
+            LogFactory.getLogger(LogCategory.OPERATION, QueryStrategyChooser.class);
+
+    @Private
+    static final long UPDATE_INTERVAL = 10 * 60 * 1000L; // 10 minutes
+
+    /** The weight of a new observation in the moving averages of the costs. */
+    @Private
+    static final double OBSERVATION_WEIGHT = 0.2;
+
+    // The default costs in milliseconds. They make a full table scan cheaper than chunked
+    // queries if at least 20% of the items of a large table are requested.
+
+    @Private
+    static final double DEFAULT_QUERY_COST = 1.0;
+
+    @Private
+    static final double DEFAULT_CHUNKED_ROW_COST = 0.01;
+
+    @Private
+    static final double DEFAULT_FULL_TABLE_SCAN_ROW_COST = 0.002;
+
+    /**
+     * The strategies for fetching a set of items.
+     */
+    public enum QueryStrategy
+    {
+        /** One query for each item. */
+        ONE_BY_ONE,
+
+        /** One range query for each chunk of items with close identifiers. */
+        CHUNKED,
 
-    private final float FULL_TABLE_SCAN_THRESHOLD = 0.2f;
+        /** One query for all items of the table, filtered afterwards. */
+        FULL_TABLE_SCAN
+    }
 
+    /**
+     * Counts the items of the table. Is called by a background thread, so it must not use the
+     * connection of the session.
+     */
     public interface IEntitiesCountProvider
     {
         long count();
     }
 
+    /**
+     * The number of items in one table and the statistics of the queries on its items.
+     */
+    @Private
+    static final class TableStatistics
+    {
+        private volatile long numberOfEntities = -1;
+
+        private volatile long numberOfEntitiesLastUpdatedTime;
+
+        private final AtomicBoolean updating = new AtomicBoolean();
+
+        private final ConcurrentMap<String, QueryStatistics> statisticsByQueryName =
+                new ConcurrentHashMap<String, QueryStatistics>();
+
+        QueryStatistics getQueryStatistics(final String queryName)
+        {
+            assert queryName != null : "Unspecified query name.";
+            return getOrCreate(statisticsByQueryName, queryName, new QueryStatistics());
+        }
+    }
+
+    /**
+     * The costs observed for one query on the items of one table.
+     */
+    @Private
+    static final class QueryStatistics
+    {
+        private double queryCost = DEFAULT_QUERY_COST;
+
+        private double chunkedRowCost = DEFAULT_CHUNKED_ROW_COST;
+
+        private double fullTableScanRowCost = DEFAULT_FULL_TABLE_SCAN_ROW_COST;
+
+        synchronized double getQueryCost()
+        {
+            return queryCost;
+        }
+
+        synchronized double getChunkedRowCost()
+        {
+            return chunkedRowCost;
+        }
+
+        synchronized double getFullTableScanRowCost()
+        {
+            return fullTableScanRowCost;
+        }
+
+        synchronized void observeOneByOne(final int size, final double millis)
+        {
+            queryCost = average(queryCost, millis / size);
+        }
+
+        synchronized void observeChunked(final int size, final int chunks, final double millis)
+        {
+            chunkedRowCost =
+                    average(chunkedRowCost, Math.max(0, millis - chunks * queryCost) / size);
+        }
+
+        synchronized void observeFullTableScan(final long tableSize, final double millis)
+        {
+            fullTableScanRowCost =
+                    average(fullTableScanRowCost, Math.max(0, millis - queryCost) / tableSize);
+        }
+
+        private static double average(final double average, final double observation)
+        {
+            return (1 - OBSERVATION_WEIGHT) * average + OBSERVATION_WEIGHT * observation;
+        }
+    }
+
+    private static final ConcurrentMap<String, TableStatistics> statisticsByTableName =
+            new ConcurrentHashMap<String, TableStatistics>();
+
+    private static final ExecutorService counter =
+            WorkerThreadPools.create("entities-counter", 1);
+
     private final IEntitiesCountProvider countProvider;
 
-    private long numberOfEntitiesLastUpdatedTime;
+    private final int chunkSize;
+
+    private final TableStatistics tableStatistics;
 
-    private long numberOfEntities;
+    private final QueryStatistics statistics;
 
-    public QueryStrategyChooser(IEntitiesCountProvider countProvider)
+    private final Executor countExecutor;
+
+    /**
+     * Creates a chooser for the query fetching the items of given table.
+     * 
+     * @param tableName The name of the table under which the number of items and the costs are
+     *            shared with other choosers.
+     */
+    public QueryStrategyChooser(String tableName, IEntitiesCountProvider countProvider)
     {
+        this(tableName, countProvider, DEFAULT_CHUNK_SIZE);
+    }
+
+    public QueryStrategyChooser(String tableName, IEntitiesCountProvider countProvider,
+            int chunkSize)
+    {
+        this(getTableStatistics(tableName), ITEMS_QUERY_NAME, countProvider, chunkSize, counter);
+    }
+
+    private QueryStrategyChooser(TableStatistics tableStatistics, String queryName,
+            IEntitiesCountProvider countProvider, int chunkSize, Executor countExecutor)
+    {
+        this(tableStatistics, tableStatistics.getQueryStatistics(queryName), countProvider,
+                chunkSize, countExecutor);
+    }
+
+    @Private
+    QueryStrategyChooser(TableStatistics tableStatistics, QueryStatistics statistics,
+            IEntitiesCountProvider countProvider, int chunkSize, Executor countExecutor)
+    {
+        assert tableStatistics != null : "Unspecified table statistics.";
+        assert statistics != null : "Unspecified statistics.";
+        assert countProvider != null : "Unspecified count provider.";
+        assert chunkSize > 0 : "Chunk size has to be positive: " + chunkSize;
+        this.tableStatistics = tableStatistics;
+        this.statistics = statistics;
         this.countProvider = countProvider;
+        this.chunkSize = chunkSize;
+        this.countExecutor = countExecutor;
+    }
+
+    private static TableStatistics getTableStatistics(final String tableName)
+    {
+        assert tableName != null : "Unspecified table name.";
+        return getOrCreate(statisticsByTableName, tableName, new TableStatistics());
+    }
+
+    private static <T> T getOrCreate(final ConcurrentMap<String, T> map, final String key,
+            final T newValue)
+    {
+        final T existingValueOrNull = map.putIfAbsent(key, newValue);
+        return existingValueOrNull != null ? existingValueOrNull : newValue;
+    }
+
+    /**
+     * Returns a chooser for the query with given name on the items of the same table. It shares
+     * the number of items with this chooser, but has the costs of its own query.
+     */
+    public QueryStrategyChooser forQuery(final String queryName)
+    {
+        return new QueryStrategyChooser(tableStatistics, queryName, countProvider, chunkSize,
+                countExecutor);
+    }
+
+    /**
+     * Returns the number of items in the table, or -1 if it is not known yet. Starts counting them
+     * in the background if the number is outdated.
+     */
+    private long tryGetNumberOfEntities()
+    {
+        final long age =
+                System.currentTimeMillis() - tableStatistics.numberOfEntitiesLastUpdatedTime;
+        if (age > UPDATE_INTERVAL && tableStatistics.updating.compareAndSet(false, true))
+        {
+            countExecutor.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        updateNumberOfEntities();
+                    }
+                });
+        }
+        return tableStatistics.numberOfEntities;
     }
 
-    private synchronized long getNumberOfEntities()
+    private void updateNumberOfEntities()
     {
-        if (System.currentTimeMillis() - numberOfEntitiesLastUpdatedTime > UPDATE_INTERVAL)
+        try
         {
-            numberOfEntities = countProvider.count();
-            numberOfEntitiesLastUpdatedTime = System.currentTimeMillis();
+            tableStatistics.numberOfEntities = countProvider.count();
+        } catch (final RuntimeException ex)
+        {
+            operationLog.error("Counting the entities failed.", ex);
+        } finally
+        {
+            // Also after a failure, so that counting is not retried on each request.
+            tableStatistics.numberOfEntitiesLastUpdatedTime = System.currentTimeMillis();
+            tableStatistics.updating.set(false);
         }
-        return numberOfEntities;
     }
 
+    /**
+     * Returns the maximal number of items which should be fetched by one query of the
+     * {@link QueryStrategy#CHUNKED} strategy.
+     */
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the cheapest strategy for fetching the items with given <var>entityIDs</var>.
+     */
+    public QueryStrategy chooseStrategy(final LongSet entityIDs)
+    {
+        final int size = entityIDs.size();
+        final double oneByOneCost = size * statistics.getQueryCost();
+        final double chunkedCost =
+                getNumberOfChunks(entityIDs) * statistics.getQueryCost() + size
+                        * statistics.getChunkedRowCost();
+        final double fullTableScanCost = getFullTableScanCost();
+        if (fullTableScanCost < Math.min(oneByOneCost, chunkedCost))
+        {
+            return QueryStrategy.FULL_TABLE_SCAN;
+        } else if (oneByOneCost <= chunkedCost)
+        {
+            return QueryStrategy.ONE_BY_ONE;
+        } else
+        {
+            return QueryStrategy.CHUNKED;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if a full table scan is cheaper than querying the items with given
+     * <var>entityIDs</var> one by one. For queries which do not support the
+     * {@link QueryStrategy#CHUNKED} strategy.
+     */
     public boolean useFullTableScan(final LongSet entityIDs)
     {
-        return entityIDs.size() >= getNumberOfEntities() * FULL_TABLE_SCAN_THRESHOLD;
+        return getFullTableScanCost() < entityIDs.size() * statistics.getQueryCost();
+    }
+
+    private double getFullTableScanCost()
+    {
+        final long numberOfEntities = tryGetNumberOfEntities();
+        if (numberOfEntities < 0)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return statistics.getQueryCost() + numberOfEntities * statistics.getFullTableScanRowCost();
+    }
+
+    private int getNumberOfChunks(final LongSet entityIDs)
+    {
+        return ChunkedSetListingIterable.countChunks(entityIDs, chunkSize);
+    }
+
+    /**
+     * Returns an iterable over given <var>records</var> which have been fetched for given
+     * <var>entityIDs</var> with given <var>strategy</var>. When an iteration over all records has
+     * finished, the time spent in the query is taken into account for the costs of the strategy.
+     */
+    public <T> Iterable<T> observe(final QueryStrategy strategy, final LongSet entityIDs,
+            final Iterable<T> records)
+    {
+        final int size = entityIDs.size();
+        final int numberOfChunks =
+                strategy == QueryStrategy.CHUNKED ? getNumberOfChunks(entityIDs) : 0;
+        return new Iterable<T>()
+            {
+                public Iterator<T> iterator()
+                {
+                    final long start = System.nanoTime();
+                    final Iterator<T> iterator = records.iterator();
+                    final long queryNanos = System.nanoTime() - start;
+                    return new Iterator<T>()
+                        {
+                            // the time spent in the query, without the time of the consumer
+                            private long nanos = queryNanos;
+
+                            private boolean observed;
+
+                            public boolean hasNext()
+                            {
+                                final long hasNextStart = System.nanoTime();
+                                final boolean hasNext = iterator.hasNext();
+                                nanos += System.nanoTime() - hasNextStart;
+                                if (hasNext == false && observed == false)
+                                {
+                                    observed = true;
+                                    observe(strategy, size, numberOfChunks, nanos / 1e6);
+                                }
+                                return hasNext;
+                            }
+
+                            public T next()
+                            {
+                                final long nextStart = System.nanoTime();
+                                try
+                                {
+                                    return iterator.next();
+                                } finally
+                                {
+                                    nanos += System.nanoTime() - nextStart;
+                                }
+                            }
+
+                            public void remove()
+                            {
+                                iterator.remove();
+                            }
+                        };
+                }
+            };
+    }
+
+    /**
+     * @param numberOfChunks The number of queries made by the {@link QueryStrategy#CHUNKED}
+     *            strategy.
+     */
+    @Private
+    void observe(final QueryStrategy strategy, final int size, final int numberOfChunks,
+            final double millis)
+    {
+        if (size == 0)
+        {
+            return;
+        }
+        switch (strategy)
+        {
+            case ONE_BY_ONE:
+                statistics.observeOneByOne(size, millis);
+                break;
+            case CHUNKED:
+                statistics.observeChunked(size, numberOfChunks, millis);
+                break;
+            case FULL_TABLE_SCAN:
+                final long numberOfEntities = tableStatistics.numberOfEntities;
+                if (numberOfEntities > 0)
+                {
+                    statistics.observeFullTableScan(numberOfEntities, millis);
+                }
+                break;
+        }
     }
-}
+}
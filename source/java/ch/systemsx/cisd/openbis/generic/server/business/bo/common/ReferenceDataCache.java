@@ -0,0 +1,154 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataSetType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ExperimentType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.FileFormatType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Group;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LocatorType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.MaterialType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.PropertyType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SampleType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind.ObjectKind;
+
+/**
+ * The small tables of the home database instance which are read by the fast listers on each
+ * request. Each table is cached across requests as a {@link VersionedCachedValue}, which is loaded
+ * again only after the corresponding kind of database object has been modified. The locator types
+ * cannot be modified by the server and are loaded only once.
+ * <p>
+ * The data stores are not cached because they are registered by the data store servers without
+ * notifying the {@link LastModificationState}.
+ * </p>
+ *
+ * @author agent
+ */
+public final class ReferenceDataCache
+{
+    private final VersionedCachedValue<SampleType[]> sampleTypes;
+
+    private final VersionedCachedValue<Long2ObjectMap<Group>> groups;
+
+    private final VersionedCachedValue<Long2ObjectMap<ExperimentType>> experimentTypes;
+
+    private final VersionedCachedValue<Long2ObjectMap<PropertyType>> propertyTypes;
+
+    private final VersionedCachedValue<Long2ObjectMap<String>> vocabularyURLs;
+
+    private final VersionedCachedValue<Long2ObjectMap<MaterialType>> materialTypes;
+
+    private final VersionedCachedValue<Long2ObjectMap<DataSetType>> dataSetTypes;
+
+    private final VersionedCachedValue<Long2ObjectMap<FileFormatType>> fileFormatTypes;
+
+    private final VersionedCachedValue<Long2ObjectMap<LocatorType>> locatorTypes;
+
+    /**
+     * Creates a cache which loads the tables on each request.
+     */
+    public static ReferenceDataCache createUncached()
+    {
+        return new ReferenceDataCache(null);
+    }
+
+    /**
+     * @param stateOrNull the modification state of the server, <code>null</code> if the tables
+     *            should be loaded on each request.
+     */
+    public ReferenceDataCache(final LastModificationState stateOrNull)
+    {
+        sampleTypes = new VersionedCachedValue<SampleType[]>(stateOrNull, ObjectKind.SAMPLE_TYPE);
+        groups = new VersionedCachedValue<Long2ObjectMap<Group>>(stateOrNull, ObjectKind.GROUP);
+        experimentTypes =
+                new VersionedCachedValue<Long2ObjectMap<ExperimentType>>(stateOrNull,
+                        ObjectKind.EXPERIMENT_TYPE);
+        propertyTypes =
+                new VersionedCachedValue<Long2ObjectMap<PropertyType>>(stateOrNull,
+                        ObjectKind.PROPERTY_TYPE);
+        vocabularyURLs =
+                new VersionedCachedValue<Long2ObjectMap<String>>(stateOrNull,
+                        ObjectKind.VOCABULARY);
+        materialTypes =
+                new VersionedCachedValue<Long2ObjectMap<MaterialType>>(stateOrNull,
+                        ObjectKind.MATERIAL_TYPE);
+        dataSetTypes =
+                new VersionedCachedValue<Long2ObjectMap<DataSetType>>(stateOrNull,
+                        ObjectKind.DATASET_TYPE);
+        fileFormatTypes =
+                new VersionedCachedValue<Long2ObjectMap<FileFormatType>>(stateOrNull,
+                        ObjectKind.FILE_FORMAT_TYPE);
+        locatorTypes = new VersionedCachedValue<Long2ObjectMap<LocatorType>>(stateOrNull);
+    }
+
+    /** Sample types including their hierarchy depths. */
+    public VersionedCachedValue<SampleType[]> getSampleTypes()
+    {
+        return sampleTypes;
+    }
+
+    /** Groups by id, connected to the home database instance. */
+    public VersionedCachedValue<Long2ObjectMap<Group>> getGroups()
+    {
+        return groups;
+    }
+
+    /** Experiment types by id, without their property type assignments. */
+    public VersionedCachedValue<Long2ObjectMap<ExperimentType>> getExperimentTypes()
+    {
+        return experimentTypes;
+    }
+
+    /** Property types by id. */
+    public VersionedCachedValue<Long2ObjectMap<PropertyType>> getPropertyTypes()
+    {
+        return propertyTypes;
+    }
+
+    /** URL templates by vocabulary id. */
+    public VersionedCachedValue<Long2ObjectMap<String>> getVocabularyURLs()
+    {
+        return vocabularyURLs;
+    }
+
+    /** Material types by id. */
+    public VersionedCachedValue<Long2ObjectMap<MaterialType>> getMaterialTypes()
+    {
+        return materialTypes;
+    }
+
+    /** Data set types by id. */
+    public VersionedCachedValue<Long2ObjectMap<DataSetType>> getDataSetTypes()
+    {
+        return dataSetTypes;
+    }
+
+    /** File format types by id. */
+    public VersionedCachedValue<Long2ObjectMap<FileFormatType>> getFileFormatTypes()
+    {
+        return fileFormatTypes;
+    }
+
+    /** Locator types by id. */
+    public VersionedCachedValue<Long2ObjectMap<LocatorType>> getLocatorTypes()
+    {
+        return locatorTypes;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind.ObjectKind;
+
+/**
+ * A value loaded from the database which is shared by all requests until one of the kinds of
+ * database objects it depends on is modified.
+ * <p>
+ * The version of the value is the list of the versions of these kinds as registered in the
+ * {@link LastModificationState}. Modifications are registered only after their transaction has
+ * been committed (see <code>DatabaseLastModificationAdvisor</code>). As the version is taken
+ * <em>before</em> the value is loaded, a modification whose registration is seen has been
+ * committed before loading, and a modification committed while loading makes the value outdated.
+ * Concurrent requests finding the value outdated may load it at the same time, the last one wins.
+ * </p>
+ * <p>
+ * The value is handed out to all requests and must not be modified.
+ * </p>
+ *
+ * @author agent
+ */
+public final class VersionedCachedValue<T>
+{
+    /**
+     * Loads the value from the database.
+     */
+    public static interface ILoader<T>
+    {
+        public T load();
+    }
+
+    private static final class Entry<T>
+    {
+        private final long[] version;
+
+        private final T value;
+
+        Entry(final long[] version, final T value)
+        {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private final LastModificationState stateOrNull;
+
+    private final DatabaseModificationKind[] dependencies;
+
+    private volatile Entry<T> entryOrNull;
+
+    /**
+     * Creates a value which is loaded again whenever one of given <var>objectKinds</var> has been
+     * created, deleted or updated. A value without object kinds is loaded only once.
+     *
+     * @param stateOrNull the modification state of the server, <code>null</code> if the value
+     *            should be loaded on each request.
+     */
+    public VersionedCachedValue(final LastModificationState stateOrNull,
+            final ObjectKind... objectKinds)
+    {
+        this.stateOrNull = stateOrNull;
+        final List<DatabaseModificationKind> kinds = new ArrayList<DatabaseModificationKind>();
+        for (final ObjectKind objectKind : objectKinds)
+        {
+            kinds.addAll(Arrays.asList(DatabaseModificationKind.any(objectKind)));
+        }
+        this.dependencies = kinds.toArray(DatabaseModificationKind.EMPTY_ARRAY);
+    }
+
+    /**
+     * Returns the cached value if it is up to date, otherwise loads it with given
+     * <var>loader</var>.
+     */
+    public T get(final ILoader<T> loader)
+    {
+        assert loader != null : "Unspecified loader.";
+        if (stateOrNull == null)
+        {
+            return loader.load();
+        }
+        final long[] currentVersion = getCurrentVersion();
+        final Entry<T> entry = entryOrNull;
+        if (entry != null && Arrays.equals(entry.version, currentVersion))
+        {
+            return entry.value;
+        }
+        final T value = loader.load();
+        entryOrNull = new Entry<T>(currentVersion, value);
+        return value;
+    }
+
+    private long[] getCurrentVersion()
+    {
+        final long[] version = new long[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++)
+        {
+            version[i] = stateOrNull.getVersion(dependencies[i]);
+        }
+        return version;
+    }
+}
@@ -8,6 +8,8 @@ import ch.rinn.restrictions.Private;
 @Private
 public class ExperimentProjectGroupCodeRecord
 {
+    public long id;
+
     public String e_code;
 
     public String et_code;
@@ -35,7 +35,7 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Person;
  */
 @Private
 @Friend(toClasses =
-    { SampleReferenceRecord.class })
+    { SampleReferenceRecord.class, ExperimentProjectGroupCodeRecord.class, PersonRecord.class })
 public interface ISecondaryEntityListingQuery extends TransactionQuery
 {
     public static final int FETCH_SIZE = 1000;
@@ -55,6 +55,26 @@ public interface ISecondaryEntityListingQuery extends TransactionQuery
     public ExperimentProjectGroupCodeRecord getExperimentAndProjectAndGroupCodeForId(
             long experimentId);
 
+    /**
+     * Returns the codes of the experiments with given <var>experimentIds</var> and their projects.
+     */
+    @Select(sql = "select e.id as id, e.code as e_code, et.code as et_code, p.code as p_code, g.code as g_code from experiments e "
+            + "join experiment_types et on e.exty_id=et.id join projects p on e.proj_id=p.id "
+            + "join groups g on p.grou_id=g.id where e.id = any(?{1})", parameterBindings =
+        { LongSetMapper.class }, fetchSize = FETCH_SIZE)
+    public DataIterator<ExperimentProjectGroupCodeRecord> getExperiments(
+            LongSet experimentIds);
+
+    /**
+     * Returns the codes of the experiments with ids between <var>fromExperimentId</var> and
+     * <var>toExperimentId</var> (inclusive) and their projects.
+     */
+    @Select(sql = "select e.id as id, e.code as e_code, et.code as et_code, p.code as p_code, g.code as g_code from experiments e "
+            + "join experiment_types et on e.exty_id=et.id join projects p on e.proj_id=p.id "
+            + "join groups g on p.grou_id=g.id where e.id between ?{1} and ?{2}", fetchSize = FETCH_SIZE)
+    public DataIterator<ExperimentProjectGroupCodeRecord> getExperimentsInIdRange(
+            long fromExperimentId, long toExperimentId);
+
     //
     // Samples
     //
@@ -81,6 +101,18 @@ public interface ISecondaryEntityListingQuery extends TransactionQuery
         { LongSetMapper.class }, fetchSize = FETCH_SIZE)
     public SampleReferenceRecord getSample(long sampleId);
 
+    /**
+     * Returns the samples with ids between <var>fromSampleId</var> and <var>toSampleId</var>
+     * (inclusive).
+     */
+    @Select(sql = "select s.id as id, s.perm_id as perm_id, s.code as s_code, s.inva_id as inva_id, "
+            + "           st.code as st_code, g.code as g_code"
+            + "   from samples s join sample_types st on s.saty_id=st.id"
+            + "                  join groups g on s.grou_id=g.id "
+            + "                  where s.id between ?{1} and ?{2}", fetchSize = FETCH_SIZE)
+    public DataIterator<SampleReferenceRecord> getSamplesInIdRange(long fromSampleId,
+            long toSampleId);
+
     /**
      * Returns all the samples.
      */
@@ -110,6 +142,20 @@ public interface ISecondaryEntityListingQuery extends TransactionQuery
     @Select("select first_name as firstName, last_name as lastName, email, user_id as userId from persons where id=?{1}")
     public Person getPersonById(long personId);
 
+    /**
+     * Returns the persons with given <var>personIds</var>.
+     */
+    @Select(sql = "select id, first_name, last_name, email, user_id from persons where id = any(?{1})", parameterBindings =
+        { LongSetMapper.class }, fetchSize = FETCH_SIZE)
+    public DataIterator<PersonRecord> getPersons(LongSet personIds);
+
+    /**
+     * Returns the persons with ids between <var>fromPersonId</var> and <var>toPersonId</var>
+     * (inclusive).
+     */
+    @Select(sql = "select id, first_name, last_name, email, user_id from persons where id between ?{1} and ?{2}", fetchSize = FETCH_SIZE)
+    public DataIterator<PersonRecord> getPersonsInIdRange(long fromPersonId, long toPersonId);
+
     /**
      * Returns all groups of this data base instance.
      * 
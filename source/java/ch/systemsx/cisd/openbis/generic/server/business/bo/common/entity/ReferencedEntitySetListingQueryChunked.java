@@ -0,0 +1,87 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.Iterator;
+
+import ch.rinn.restrictions.Friend;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ChunkedSetListingIterable;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO.IReferencedEntitySetListingQuery;
+
+/**
+ * A fallback implementation of {@link IReferencedEntitySetListingQuery} for database engines who
+ * don't support querying for identifier sets. The experiments and persons are fetched in chunks of
+ * identifier ranges.
+ * 
+ * @author agent
+ */
+@Friend(toClasses =
+    { ISecondaryEntityListingQuery.class, ExperimentProjectGroupCodeRecord.class,
+            PersonRecord.class })
+class ReferencedEntitySetListingQueryChunked implements IReferencedEntitySetListingQuery
+{
+    private final ISecondaryEntityListingQuery query;
+
+    private final int chunkSize;
+
+    public ReferencedEntitySetListingQueryChunked(final ISecondaryEntityListingQuery query,
+            final int chunkSize)
+    {
+        this.query = query;
+        this.chunkSize = chunkSize;
+    }
+
+    public Iterable<ExperimentProjectGroupCodeRecord> getExperiments(final LongSet experimentIds)
+    {
+        return new ChunkedSetListingIterable<ExperimentProjectGroupCodeRecord>(experimentIds,
+                chunkSize)
+            {
+                @Override
+                protected Iterator<ExperimentProjectGroupCodeRecord> getRecords(long fromId,
+                        long toId)
+                {
+                    return query.getExperimentsInIdRange(fromId, toId);
+                }
+
+                @Override
+                protected long getId(ExperimentProjectGroupCodeRecord experiment)
+                {
+                    return experiment.id;
+                }
+            };
+    }
+
+    public Iterable<PersonRecord> getPersons(final LongSet personIds)
+    {
+        return new ChunkedSetListingIterable<PersonRecord>(personIds, chunkSize)
+            {
+                @Override
+                protected Iterator<PersonRecord> getRecords(long fromId, long toId)
+                {
+                    return query.getPersonsInIdRange(fromId, toId);
+                }
+
+                @Override
+                protected long getId(PersonRecord person)
+                {
+                    return person.id;
+                }
+            };
+    }
+}
@@ -16,7 +16,7 @@
 
 package ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity;
 
-import static org.apache.commons.lang.StringEscapeUtils.escapeHtml;
+import static ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils.escapeHtml;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongSet;
@@ -29,6 +29,7 @@ import org.springframework.dao.EmptyResultDataAccessException;
 
 import ch.rinn.restrictions.Friend;
 import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ConnectedEntitiesCountProvider;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.DatabaseContextUtils;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.IEntitiesCountProvider;
@@ -54,7 +55,7 @@ import ch.systemsx.cisd.openbis.generic.shared.translator.DatabaseInstanceTransl
  * @author Tomasz Pylak
  */
 @Friend(toClasses =
-    { SampleReferenceRecord.class, ExperimentProjectGroupCodeRecord.class,
+    { SampleReferenceRecord.class, ExperimentProjectGroupCodeRecord.class, PersonRecord.class,
             ISecondaryEntityListingQuery.class })
 public class SecondaryEntityDAO
 {
@@ -63,6 +64,13 @@ public class SecondaryEntityDAO
         Iterable<SampleReferenceRecord> getSamples(LongSet sampleIds);
     }
 
+    interface IReferencedEntitySetListingQuery
+    {
+        Iterable<ExperimentProjectGroupCodeRecord> getExperiments(LongSet experimentIds);
+
+        Iterable<PersonRecord> getPersons(LongSet personIds);
+    }
+
     /**
      * Creates a new instance based on {@link PersistencyResources} and home
      * {@link DatabaseInstancePE} of specified DAO factory.
@@ -80,32 +88,40 @@ public class SecondaryEntityDAO
             ISecondaryEntityListingQuery query)
     {
         final boolean supportsSetQuery = DatabaseContextUtils.isSupportingSetQueries(daoFactory);
-        return new SecondaryEntityDAO(supportsSetQuery, query, daoFactory.getHomeDatabaseInstance());
+        DatabaseInstancePE homeDatabaseInstance = daoFactory.getHomeDatabaseInstance();
+        return new SecondaryEntityDAO(supportsSetQuery, query, homeDatabaseInstance,
+                createCountProvider(daoFactory, homeDatabaseInstance.getId()));
     }
 
     private final ISecondaryEntitySetListingQuery setQuery;
 
+    private final IReferencedEntitySetListingQuery referencedEntitySetQuery;
+
     private final ISecondaryEntityListingQuery query;
 
     private final DatabaseInstance databaseInstance;
 
     private SecondaryEntityDAO(boolean supportsSetQuery, final ISecondaryEntityListingQuery query,
-            final DatabaseInstancePE databaseInstancePE)
+            final DatabaseInstancePE databaseInstancePE, final IEntitiesCountProvider countProvider)
     {
         this.query = query;
-        this.setQuery = createSetQuery(supportsSetQuery, query, databaseInstancePE.getId());
+        this.setQuery =
+                createSetQuery(supportsSetQuery, query, countProvider, databaseInstancePE.getId());
+        this.referencedEntitySetQuery = createReferencedEntitySetQuery(supportsSetQuery, query);
         this.databaseInstance = DatabaseInstanceTranslator.translate(databaseInstancePE);
     }
 
     private static ISecondaryEntitySetListingQuery createSetQuery(boolean supportsSetQuery,
-            ISecondaryEntityListingQuery query, long databaseInstanceId)
+            ISecondaryEntityListingQuery query, IEntitiesCountProvider countProvider,
+            long databaseInstanceId)
     {
         if (supportsSetQuery)
         {
             return asDatasetSetListingQuery(query);
         } else
         {
-            QueryStrategyChooser strategyChooser = createStrategyChooser(query, databaseInstanceId);
+            QueryStrategyChooser strategyChooser =
+                    new QueryStrategyChooser("sample_references", countProvider);
             return new SecondaryEntitySetListingQueryFallback(query, strategyChooser,
                     databaseInstanceId);
         }
@@ -123,16 +139,43 @@ public class SecondaryEntityDAO
             };
     }
 
-    private static QueryStrategyChooser createStrategyChooser(
-            final ISecondaryEntityListingQuery query, final long databaseInstanceId)
+    private static IReferencedEntitySetListingQuery createReferencedEntitySetQuery(
+            boolean supportsSetQuery, final ISecondaryEntityListingQuery query)
     {
-        return new QueryStrategyChooser(new IEntitiesCountProvider()
+        if (supportsSetQuery)
+        {
+            return new IReferencedEntitySetListingQuery()
+                {
+                    public Iterable<ExperimentProjectGroupCodeRecord> getExperiments(
+                            LongSet experimentIds)
+                    {
+                        return query.getExperiments(experimentIds);
+                    }
+
+                    public Iterable<PersonRecord> getPersons(LongSet personIds)
+                    {
+                        return query.getPersons(personIds);
+                    }
+                };
+        } else
+        {
+            return new ReferencedEntitySetListingQueryChunked(query,
+                    QueryStrategyChooser.DEFAULT_CHUNK_SIZE);
+        }
+    }
+
+    private static IEntitiesCountProvider createCountProvider(final IDAOFactory daoFactory,
+            final long databaseInstanceId)
+    {
+        return new ConnectedEntitiesCountProvider<ISecondaryEntityListingQuery>(daoFactory,
+                ISecondaryEntityListingQuery.class)
             {
-                public long count()
+                @Override
+                protected long count(ISecondaryEntityListingQuery query)
                 {
                     return query.getSampleCount(databaseInstanceId);
                 }
-            });
+            };
     }
 
     public Experiment getExperiment(final long experimentId)
@@ -168,6 +211,25 @@ public class SecondaryEntityDAO
         return experiment;
     }
 
+    /**
+     * Returns the experiments with given <var>experimentIds</var> by their ids.
+     */
+    public Long2ObjectMap<Experiment> getExperiments(final LongSet experimentIds)
+    {
+        final Long2ObjectMap<Experiment> result =
+                new Long2ObjectOpenHashMap<Experiment>(experimentIds.size());
+        if (experimentIds.isEmpty() == false)
+        {
+            for (ExperimentProjectGroupCodeRecord record : referencedEntitySetQuery
+                    .getExperiments(experimentIds))
+            {
+                result.put(record.id, createExperiment(record.id, record));
+            }
+        }
+        checkAllFound(experimentIds, result);
+        return result;
+    }
+
     public Person getPerson(long personId)
     {
         Person registrator = query.getPersonById(personId);
@@ -182,6 +244,41 @@ public class SecondaryEntityDAO
         return registrator;
     }
 
+    /**
+     * Returns the persons with given <var>personIds</var> by their ids.
+     */
+    public Long2ObjectMap<Person> getPersons(final LongSet personIds)
+    {
+        final Long2ObjectMap<Person> result = new Long2ObjectOpenHashMap<Person>(personIds.size());
+        if (personIds.isEmpty() == false)
+        {
+            for (PersonRecord record : referencedEntitySetQuery.getPersons(personIds))
+            {
+                result.put(record.id, createPerson(record));
+            }
+        }
+        checkAllFound(personIds, result);
+        return result;
+    }
+
+    private static Person createPerson(PersonRecord record)
+    {
+        final Person person = new Person();
+        person.setUserId(escapeHtml(record.user_id));
+        person.setEmail(escapeHtml(record.email));
+        person.setFirstName(escapeHtml(record.first_name));
+        person.setLastName(escapeHtml(record.last_name));
+        return person;
+    }
+
+    private static void checkAllFound(LongSet ids, Long2ObjectMap<?> found)
+    {
+        if (found.size() != ids.size())
+        {
+            throw new EmptyResultDataAccessException(ids.size());
+        }
+    }
+
     public Group[] getAllGroups(long databaseInstanceId)
     {
         return query.getAllGroups(databaseInstanceId);
@@ -25,7 +25,9 @@ import org.apache.commons.collections15.Predicate;
 import org.apache.commons.collections15.iterators.FilterIterator;
 
 import ch.rinn.restrictions.Friend;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ChunkedSetListingIterable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.QueryStrategy;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO.ISecondaryEntitySetListingQuery;
 
 /**
@@ -40,6 +42,8 @@ class SecondaryEntitySetListingQueryFallback implements ISecondaryEntitySetListi
 {
     private final ISecondaryEntitySetListingQuery oneByOneDelegate;
 
+    private final ISecondaryEntitySetListingQuery chunkedDelegate;
+
     private final ISecondaryEntitySetListingQuery fullTableScanDelegate;
 
     private final QueryStrategyChooser strategyChooser;
@@ -49,18 +53,29 @@ class SecondaryEntitySetListingQueryFallback implements ISecondaryEntitySetListi
     {
         this.strategyChooser = strategyChooser;
         this.oneByOneDelegate = new SecondaryEntitySetListingQueryOneByOne(query);
+        this.chunkedDelegate =
+                new SecondaryEntitySetListingQueryChunked(query, strategyChooser.getChunkSize());
         this.fullTableScanDelegate =
                 new SecondaryEntitySetListingQueryFullTableScan(query, databaseInstanceId);
     }
 
     public Iterable<SampleReferenceRecord> getSamples(LongSet sampleIds)
     {
-        if (strategyChooser.useFullTableScan(sampleIds))
-        {
-            return fullTableScanDelegate.getSamples(sampleIds);
-        } else
+        final QueryStrategy strategy = strategyChooser.chooseStrategy(sampleIds);
+        return strategyChooser.observe(strategy, sampleIds, getSamples(strategy, sampleIds));
+    }
+
+    private Iterable<SampleReferenceRecord> getSamples(final QueryStrategy strategy,
+            final LongSet sampleIds)
+    {
+        switch (strategy)
         {
-            return oneByOneDelegate.getSamples(sampleIds);
+            case FULL_TABLE_SCAN:
+                return fullTableScanDelegate.getSamples(sampleIds);
+            case CHUNKED:
+                return chunkedDelegate.getSamples(sampleIds);
+            default:
+                return oneByOneDelegate.getSamples(sampleIds);
         }
     }
 
@@ -103,6 +118,39 @@ class SecondaryEntitySetListingQueryFallback implements ISecondaryEntitySetListi
         }
     }
 
+    private static class SecondaryEntitySetListingQueryChunked implements
+            ISecondaryEntitySetListingQuery
+    {
+        private final ISecondaryEntityListingQuery query;
+
+        private final int chunkSize;
+
+        public SecondaryEntitySetListingQueryChunked(ISecondaryEntityListingQuery query,
+                int chunkSize)
+        {
+            this.query = query;
+            this.chunkSize = chunkSize;
+        }
+
+        public Iterable<SampleReferenceRecord> getSamples(final LongSet sampleIds)
+        {
+            return new ChunkedSetListingIterable<SampleReferenceRecord>(sampleIds, chunkSize)
+                {
+                    @Override
+                    protected Iterator<SampleReferenceRecord> getRecords(long fromId, long toId)
+                    {
+                        return query.getSamplesInIdRange(fromId, toId);
+                    }
+
+                    @Override
+                    protected long getId(SampleReferenceRecord sample)
+                    {
+                        return sample.id;
+                    }
+                };
+        }
+    }
+
     private static class SecondaryEntitySetListingQueryFullTableScan implements
             ISecondaryEntitySetListingQuery
     {
@@ -16,7 +16,7 @@
 
 package ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister;
 
-import static org.apache.commons.lang.StringEscapeUtils.escapeHtml;
+import static ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils.escapeHtml;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
@@ -24,9 +24,8 @@ import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
 import ch.rinn.restrictions.Friend;
 import ch.systemsx.cisd.common.types.BooleanOrUnknown;
@@ -34,6 +33,8 @@ import ch.systemsx.cisd.openbis.generic.server.business.bo.common.CodeRecord;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.EntityPropertiesEnricher;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertiesEnricher;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertiesHolderResolver;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ReferenceDataCache;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VersionedCachedValue;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
 import ch.systemsx.cisd.openbis.generic.shared.basic.PermlinkUtilities;
@@ -50,13 +51,15 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.IEntityProperty;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Invalidation;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LocatorType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Sample;
+import ch.systemsx.cisd.openbis.generic.shared.dto.SimpleDataSetInformationDTO;
 import ch.systemsx.cisd.openbis.generic.shared.translator.DataStoreTranslator;
 
 /**
  * @author Tomasz Pylak
  */
 @Friend(toClasses =
-    { DatasetRecord.class, DataStoreRecord.class, IDatasetListingQuery.class })
+    { DatasetRecord.class, DataStoreRecord.class, SimpleDatasetRecord.class,
+            IDatasetListingQuery.class })
 public class DatasetLister implements IDatasetLister
 {
     //
@@ -79,62 +82,80 @@ public class DatasetLister implements IDatasetLister
 
     private final IDatasetSetListingQuery setQuery;
 
+    private final IDatasetDescendantListingQuery descendantQueryOrNull;
+
     private final IEntityPropertiesEnricher propertiesEnricher;
 
     private final SecondaryEntityDAO referencedEntityDAO;
 
+    private final ReferenceDataCache referenceDataCache;
+
     //
     // Working data structures
     //
 
-    private final Long2ObjectMap<DataSetType> dataSetTypes =
-            new Long2ObjectOpenHashMap<DataSetType>();
+    private Long2ObjectMap<DataSetType> dataSetTypes;
 
     private final Long2ObjectMap<DataStore> dataStores = new Long2ObjectOpenHashMap<DataStore>();
 
-    private final Map<Long, FileFormatType> fileFormatTypes = new HashMap<Long, FileFormatType>();
+    private Long2ObjectMap<FileFormatType> fileFormatTypes;
 
-    private final Map<Long, LocatorType> locatorTypes = new HashMap<Long, LocatorType>();
+    private Long2ObjectMap<LocatorType> locatorTypes;
 
     public static IDatasetLister create(IDAOFactory daoFactory, String baseIndexURL,
-            String defaultDataStoreBaseURL)
+            String defaultDataStoreBaseURL, ReferenceDataCache referenceDataCache)
     {
         DatasetListerDAO dao = DatasetListerDAO.create(daoFactory);
         SecondaryEntityDAO referencedEntityDAO = SecondaryEntityDAO.create(daoFactory);
 
-        return create(dao, referencedEntityDAO, baseIndexURL, defaultDataStoreBaseURL);
+        return create(dao, referencedEntityDAO, baseIndexURL, defaultDataStoreBaseURL,
+                referenceDataCache);
     }
 
     static IDatasetLister create(DatasetListerDAO dao, SecondaryEntityDAO referencedEntityDAO,
             String baseIndexURL, String defaultDataStoreBaseURL)
+    {
+        return create(dao, referencedEntityDAO, baseIndexURL, defaultDataStoreBaseURL,
+                ReferenceDataCache.createUncached());
+    }
+
+    static IDatasetLister create(DatasetListerDAO dao, SecondaryEntityDAO referencedEntityDAO,
+            String baseIndexURL, String defaultDataStoreBaseURL,
+            ReferenceDataCache referenceDataCache)
     {
         IDatasetListingQuery query = dao.getQuery();
         IDatasetSetListingQuery setQuery = dao.getIdSetQuery();
         EntityPropertiesEnricher propertiesEnricher =
-                new EntityPropertiesEnricher(query, dao.getPropertySetQuery());
+                new EntityPropertiesEnricher(query, dao.getPropertySetQuery(), dao
+                        .tryGetPropertySetQueryFactory(), referenceDataCache);
         return new DatasetLister(dao.getDatabaseInstanceId(), dao.getDatabaseInstance(), query,
-                setQuery, propertiesEnricher, referencedEntityDAO, baseIndexURL,
-                defaultDataStoreBaseURL);
+                setQuery, dao.tryGetDescendantQuery(), propertiesEnricher, referencedEntityDAO,
+                baseIndexURL, defaultDataStoreBaseURL, referenceDataCache);
     }
 
     // For unit tests
     DatasetLister(final long databaseInstanceId, final DatabaseInstance databaseInstance,
             final IDatasetListingQuery query, final IDatasetSetListingQuery setQuery,
+            final IDatasetDescendantListingQuery descendantQueryOrNull,
             IEntityPropertiesEnricher propertiesEnricher, SecondaryEntityDAO referencedEntityDAO,
-            String baseIndexURL, String defaultDataStoreBaseURL)
+            String baseIndexURL, String defaultDataStoreBaseURL,
+            ReferenceDataCache referenceDataCache)
     {
         assert databaseInstance != null;
         assert query != null;
         assert setQuery != null;
+        assert referenceDataCache != null;
 
         this.databaseInstanceId = databaseInstanceId;
         this.databaseInstance = databaseInstance;
         this.query = query;
         this.setQuery = setQuery;
+        this.descendantQueryOrNull = descendantQueryOrNull;
         this.propertiesEnricher = propertiesEnricher;
         this.referencedEntityDAO = referencedEntityDAO;
         this.baseIndexURL = baseIndexURL;
         this.defaultDataStoreBaseURL = defaultDataStoreBaseURL;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public List<ExternalData> listBySampleTechId(TechId sampleId, boolean showOnlyDirectlyConnected)
@@ -142,6 +163,10 @@ public class DatasetLister implements IDatasetLister
         if (showOnlyDirectlyConnected)
         {
             return enrichDatasets(query.getDatasetsForSample(sampleId.getId()));
+        } else if (descendantQueryOrNull != null)
+        {
+            return enrichDatasets(descendantQueryOrNull
+                    .getDatasetsForSampleWithDescendants(sampleId.getId()));
         } else
         {
             // first get directly connected datasets, then go layer by layer into children datasets
@@ -180,6 +205,41 @@ public class DatasetLister implements IDatasetLister
         return enrichDatasets(setQuery.getDatasets(new LongOpenHashSet(datasetIds)));
     }
 
+    public List<SimpleDataSetInformationDTO> listByDataStore(long dataStoreId,
+            Long lastSeenDatasetIdOrNull, Date modifiedSinceOrNull, int maxResults)
+    {
+        assert maxResults > 0 : "Maximal number of results has to be positive: " + maxResults;
+        // Technical ids are positive and all timestamps are after the epoch.
+        final long lastSeenDatasetId =
+                (lastSeenDatasetIdOrNull == null) ? 0 : lastSeenDatasetIdOrNull.longValue();
+        final Date modifiedSince =
+                (modifiedSinceOrNull == null) ? new Date(0) : modifiedSinceOrNull;
+        final List<SimpleDataSetInformationDTO> result =
+                new ArrayList<SimpleDataSetInformationDTO>();
+        for (SimpleDatasetRecord record : query.getDatasetsForDataStore(dataStoreId,
+                lastSeenDatasetId, modifiedSince, maxResults))
+        {
+            result.add(createSimpleDataset(record));
+        }
+        return result;
+    }
+
+    // Data store servers get the codes as they are stored, without HTML escaping.
+    private static SimpleDataSetInformationDTO createSimpleDataset(SimpleDatasetRecord record)
+    {
+        final SimpleDataSetInformationDTO result = new SimpleDataSetInformationDTO();
+        result.setDataSetId(record.id);
+        result.setDataSetCode(record.code);
+        result.setDataSetLocation(record.location);
+        result.setDataSetType(record.data_set_type_code);
+        result.setSampleCode(record.sample_code);
+        result.setExperimentCode(record.experiment_code);
+        result.setProjectCode(record.project_code);
+        result.setGroupCode(record.group_code);
+        result.setDatabaseInstanceCode(record.database_instance_code);
+        return result;
+    }
+
     private List<ExternalData> enrichDatasets(Iterable<DatasetRecord> datasets)
     {
         loadSmallConnectedTables();
@@ -348,29 +408,76 @@ public class DatasetLister implements IDatasetLister
 
     private void loadSmallConnectedTables()
     {
-        dataSetTypes.clear();
-        for (CodeRecord code : query.getDatasetTypes(databaseInstanceId))
+        dataSetTypes =
+                referenceDataCache.getDataSetTypes().get(
+                        new VersionedCachedValue.ILoader<Long2ObjectMap<DataSetType>>()
+                            {
+                                public Long2ObjectMap<DataSetType> load()
+                                {
+                                    return loadDataSetTypes();
+                                }
+                            });
+        fileFormatTypes =
+                referenceDataCache.getFileFormatTypes().get(
+                        new VersionedCachedValue.ILoader<Long2ObjectMap<FileFormatType>>()
+                            {
+                                public Long2ObjectMap<FileFormatType> load()
+                                {
+                                    return loadFileFormatTypes();
+                                }
+                            });
+        locatorTypes =
+                referenceDataCache.getLocatorTypes().get(
+                        new VersionedCachedValue.ILoader<Long2ObjectMap<LocatorType>>()
+                            {
+                                public Long2ObjectMap<LocatorType> load()
+                                {
+                                    return loadLocatorTypes();
+                                }
+                            });
+
+        // The data stores are not cached as they are registered without notification.
+        dataStores.clear();
+        for (DataStoreRecord code : query.getDataStores(databaseInstanceId))
         {
-            dataSetTypes.put(code.id, createDataSetType(code));
+            dataStores.put(code.id, createDataStore(code, defaultDataStoreBaseURL));
         }
+    }
 
-        fileFormatTypes.clear();
-        for (CodeRecord code : query.getFileFormatTypes(databaseInstanceId))
+    private Long2ObjectMap<DataSetType> loadDataSetTypes()
+    {
+        final Long2ObjectOpenHashMap<DataSetType> result =
+                new Long2ObjectOpenHashMap<DataSetType>();
+        for (CodeRecord code : query.getDatasetTypes(databaseInstanceId))
         {
-            fileFormatTypes.put(code.id, createFileFormatType(code));
+            result.put(code.id, createDataSetType(code));
         }
+        result.trim();
+        return result;
+    }
 
-        locatorTypes.clear();
-        for (CodeRecord code : query.getLocatorTypes())
+    private Long2ObjectMap<FileFormatType> loadFileFormatTypes()
+    {
+        final Long2ObjectOpenHashMap<FileFormatType> result =
+                new Long2ObjectOpenHashMap<FileFormatType>();
+        for (CodeRecord code : query.getFileFormatTypes(databaseInstanceId))
         {
-            locatorTypes.put(code.id, createLocatorType(code));
+            result.put(code.id, createFileFormatType(code));
         }
+        result.trim();
+        return result;
+    }
 
-        dataStores.clear();
-        for (DataStoreRecord code : query.getDataStores(databaseInstanceId))
+    private Long2ObjectMap<LocatorType> loadLocatorTypes()
+    {
+        final Long2ObjectOpenHashMap<LocatorType> result =
+                new Long2ObjectOpenHashMap<LocatorType>();
+        for (CodeRecord code : query.getLocatorTypes())
         {
-            dataStores.put(code.id, createDataStore(code, defaultDataStoreBaseURL));
+            result.put(code.id, createLocatorType(code));
         }
+        result.trim();
+        return result;
     }
 
     private static void setCode(Code<?> codeHolder, CodeRecord codeRecord)
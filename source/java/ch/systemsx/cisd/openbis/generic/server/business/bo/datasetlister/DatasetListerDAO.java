@@ -26,10 +26,13 @@ import net.lemnik.eodsql.QueryTool;
 import ch.rinn.restrictions.Friend;
 import ch.rinn.restrictions.Private;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.AbstractDAO;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ConnectedEntitiesCountProvider;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ConnectedEntityPropertySetListingQuery;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.DatabaseContextUtils;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.GenericEntityPropertyRecord;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertyListingQuery;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertySetListingQuery;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertySetListingQueryFactory;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.MaterialEntityPropertyRecord;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.PropertiesSetListingQueryFallback;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser;
@@ -58,7 +61,13 @@ public final class DatasetListerDAO extends AbstractDAO
         Connection connection = DatabaseContextUtils.getConnection(daoFactory);
         IDatasetListingFullQuery query =
                 QueryTool.getQuery(connection, IDatasetListingFullQuery.class);
-        return create(daoFactory, query);
+        final boolean supportsSetQuery = DatabaseContextUtils.isSupportingSetQueries(daoFactory);
+        DatabaseInstancePE homeDatabaseInstance = daoFactory.getHomeDatabaseInstance();
+        // Properties are fetched concurrently only with set queries.
+        IEntityPropertySetListingQueryFactory propertySetQueryFactoryOrNull =
+                supportsSetQuery ? createPropertySetQueryFactory(daoFactory) : null;
+        return new DatasetListerDAO(supportsSetQuery, query, homeDatabaseInstance,
+                createCountProvider(daoFactory), propertySetQueryFactoryOrNull);
     }
 
     @Private
@@ -67,25 +76,35 @@ public final class DatasetListerDAO extends AbstractDAO
     {
         final boolean supportsSetQuery = DatabaseContextUtils.isSupportingSetQueries(daoFactory);
         DatabaseInstancePE homeDatabaseInstance = daoFactory.getHomeDatabaseInstance();
-        return new DatasetListerDAO(supportsSetQuery, query, homeDatabaseInstance);
+        return new DatasetListerDAO(supportsSetQuery, query, homeDatabaseInstance,
+                createCountProvider(daoFactory), null);
     }
 
     private final IDatasetListingFullQuery query;
 
     private final IDatasetSetListingQuery setQuery;
 
+    private final IDatasetDescendantListingQuery descendantQueryOrNull;
+
     private final IEntityPropertySetListingQuery propertySetQuery;
 
     private final QueryStrategyChooser strategyChooser;
 
+    private final IEntityPropertySetListingQueryFactory propertySetQueryFactoryOrNull;
+
     DatasetListerDAO(final boolean supportsSetQuery, IDatasetListingFullQuery query,
-            final DatabaseInstancePE databaseInstance)
+            final DatabaseInstancePE databaseInstance,
+            final IEntitiesCountProvider countProvider,
+            final IEntityPropertySetListingQueryFactory propertySetQueryFactoryOrNull)
     {
         super(databaseInstance);
         this.query = query;
-        this.strategyChooser = createStrategyChooser(query);
+        this.propertySetQueryFactoryOrNull = propertySetQueryFactoryOrNull;
+        this.strategyChooser = new QueryStrategyChooser("data", countProvider);
         this.setQuery =
                 createIdSetQuery(supportsSetQuery, query, strategyChooser, getDatabaseInstanceId());
+        this.descendantQueryOrNull =
+                supportsSetQuery ? asDatasetDescendantListingQuery(query) : null;
         this.propertySetQuery =
                 createSetPropertyQuery(supportsSetQuery, query, strategyChooser,
                         getDatabaseInstanceId());
@@ -101,20 +120,42 @@ public final class DatasetListerDAO extends AbstractDAO
         return setQuery;
     }
 
+    /**
+     * Returns the query for datasets together with their descendants, or <code>null</code> if the
+     * database engine does not support recursive queries. As with set queries, only H2 is known
+     * not to support them. In this case the descendants have to be fetched layer by layer with the
+     * {@link #getIdSetQuery()}.
+     */
+    IDatasetDescendantListingQuery tryGetDescendantQuery()
+    {
+        return descendantQueryOrNull;
+    }
+
     IEntityPropertySetListingQuery getPropertySetQuery()
     {
         return propertySetQuery;
     }
 
-    private static QueryStrategyChooser createStrategyChooser(final IDatasetListingFullQuery query)
+    /**
+     * Returns the factory of property set queries working on their own connections, or
+     * <code>null</code> if properties should not be fetched concurrently.
+     */
+    IEntityPropertySetListingQueryFactory tryGetPropertySetQueryFactory()
     {
-        return new QueryStrategyChooser(new IEntitiesCountProvider()
+        return propertySetQueryFactoryOrNull;
+    }
+
+    private static IEntitiesCountProvider createCountProvider(final IDAOFactory daoFactory)
+    {
+        return new ConnectedEntitiesCountProvider<IDatasetListingFullQuery>(daoFactory,
+                IDatasetListingFullQuery.class)
             {
-                public long count()
+                @Override
+                protected long count(IDatasetListingFullQuery query)
                 {
                     return query.getDatasetCount();
                 }
-            });
+            };
     }
 
     private static IEntityPropertySetListingQuery createSetPropertyQuery(boolean supportsSetQuery,
@@ -171,6 +212,23 @@ public final class DatasetListerDAO extends AbstractDAO
             };
     }
 
+    private static IEntityPropertySetListingQueryFactory createPropertySetQueryFactory(
+            final IDAOFactory daoFactory)
+    {
+        return new IEntityPropertySetListingQueryFactory()
+            {
+                public ConnectedEntityPropertySetListingQuery createQuery()
+                {
+                    final Connection connection =
+                            DatabaseContextUtils.createReadOnlyConnection(daoFactory);
+                    final IDatasetListingFullQuery query =
+                            QueryTool.getQuery(connection, IDatasetListingFullQuery.class);
+                    return new ConnectedEntityPropertySetListingQuery(
+                            asEntitySetPropertyListingQuery(query), connection);
+                }
+            };
+    }
+
     private static IEntityPropertySetListingQuery asEntitySetPropertyListingQuery(
             final IDatasetListingFullQuery query)
     {
@@ -226,4 +284,15 @@ public final class DatasetListerDAO extends AbstractDAO
             };
     }
 
+    private static IDatasetDescendantListingQuery asDatasetDescendantListingQuery(
+            final IDatasetListingFullQuery query)
+    {
+        return new IDatasetDescendantListingQuery()
+            {
+                public Iterable<DatasetRecord> getDatasetsForSampleWithDescendants(long sampleId)
+                {
+                    return query.getDatasetsForSampleWithDescendants(sampleId);
+                }
+            };
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.Iterator;
+
+import net.lemnik.eodsql.DataIterator;
+
+import ch.rinn.restrictions.Friend;
+import ch.systemsx.cisd.common.exceptions.NotImplementedException;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ChunkedSetListingIterable;
+
+/**
+ * An implementation of {@link IDatasetSetListingQuery} which gets the datasets in chunks of close
+ * dataset ids with one range query per chunk. This needs much less queries than getting the
+ * datasets one by one (as {@link DatasetSetListingQueryOneByOne} does) without reading the whole
+ * table (as {@link DatasetSetListingQueryFullTableScan} does).
+ * 
+ * @author agent
+ */
+@Friend(toClasses =
+    { DatasetRecord.class, IDatasetListingQuery.class })
+class DatasetSetListingQueryChunked implements IDatasetSetListingQuery
+{
+    private final IDatasetListingQuery query;
+
+    private final int chunkSize;
+
+    public DatasetSetListingQueryChunked(final IDatasetListingQuery query, final int chunkSize)
+    {
+        this.query = query;
+        this.chunkSize = chunkSize;
+    }
+
+    public Iterable<DatasetRecord> getDatasets(final LongSet datasetIds)
+    {
+        return new ChunkedSetListingIterable<DatasetRecord>(datasetIds, chunkSize)
+            {
+                @Override
+                protected Iterator<DatasetRecord> getRecords(long fromId, long toId)
+                {
+                    return query.getDatasetsInIdRange(fromId, toId);
+                }
+
+                @Override
+                protected long getId(DatasetRecord dataset)
+                {
+                    return dataset.id;
+                }
+            };
+    }
+
+    public DataIterator<Long> getDatasetChildrenIds(LongSet entityIds)
+    {
+        throw new NotImplementedException();
+    }
+
+}
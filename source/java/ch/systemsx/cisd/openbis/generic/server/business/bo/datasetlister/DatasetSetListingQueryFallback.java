@@ -22,6 +22,7 @@ import net.lemnik.eodsql.DataIterator;
 import ch.rinn.restrictions.Friend;
 import ch.systemsx.cisd.common.exceptions.NotImplementedException;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.QueryStrategy;
 
 /**
  * A fallback implementation of {@link IDatasetSetListingQuery} for database engines who don't
@@ -35,6 +36,8 @@ class DatasetSetListingQueryFallback implements IDatasetSetListingQuery
 {
     private final IDatasetSetListingQuery oneByOneDelegate;
 
+    private final IDatasetSetListingQuery chunkedDelegate;
+
     private final IDatasetSetListingQuery fullTableScanDelegate;
 
     private final QueryStrategyChooser strategyChooser;
@@ -44,18 +47,29 @@ class DatasetSetListingQueryFallback implements IDatasetSetListingQuery
     {
         this.strategyChooser = strategyChooser;
         this.oneByOneDelegate = new DatasetSetListingQueryOneByOne(query);
+        this.chunkedDelegate =
+                new DatasetSetListingQueryChunked(query, strategyChooser.getChunkSize());
         this.fullTableScanDelegate =
                 new DatasetSetListingQueryFullTableScan(query, databaseInstanceId);
     }
 
     public Iterable<DatasetRecord> getDatasets(final LongSet sampleIds)
     {
-        if (strategyChooser.useFullTableScan(sampleIds))
-        {
-            return fullTableScanDelegate.getDatasets(sampleIds);
-        } else
+        final QueryStrategy strategy = strategyChooser.chooseStrategy(sampleIds);
+        return strategyChooser.observe(strategy, sampleIds, getDatasets(strategy, sampleIds));
+    }
+
+    private Iterable<DatasetRecord> getDatasets(final QueryStrategy strategy,
+            final LongSet sampleIds)
+    {
+        switch (strategy)
         {
-            return oneByOneDelegate.getDatasets(sampleIds);
+            case FULL_TABLE_SCAN:
+                return fullTableScanDelegate.getDatasets(sampleIds);
+            case CHUNKED:
+                return chunkedDelegate.getDatasets(sampleIds);
+            default:
+                return oneByOneDelegate.getDatasets(sampleIds);
         }
     }
 
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister;
+
+/**
+ * A DAO query interface for obtaining the datasets of a sample together with all their descendants
+ * (children, children of children and so on) with one query.
+ * <p>
+ * Needs support for recursive queries, so it is not available for all database engines.
+ * 
+ * @author agent
+ */
+interface IDatasetDescendantListingQuery
+{
+    /**
+     * Returns the datasets directly connected to the sample with given <var>sampleId</var> and all
+     * their descendants.
+     */
+    public Iterable<DatasetRecord> getDatasetsForSampleWithDescendants(long sampleId);
+}
@@ -17,10 +17,12 @@
 package ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import ch.systemsx.cisd.openbis.generic.shared.basic.TechId;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ExternalData;
+import ch.systemsx.cisd.openbis.generic.shared.dto.SimpleDataSetInformationDTO;
 
 /**
  * A class for fast dataset listing.
@@ -49,4 +51,15 @@ public interface IDatasetLister
 
     /** @return datasets with given ids */
     List<ExternalData> listByDatasetIds(Collection<Long> datasetIds);
+
+    /**
+     * @return at most <var>maxResults</var> datasets of the data store with the specified id in a
+     *         simple form, ordered by their ids
+     * @param lastSeenDatasetIdOrNull if specified, only datasets with a greater id are returned,
+     *            so that the id of the last dataset of a page can be used to request the next page
+     * @param modifiedSinceOrNull if specified, only datasets modified (or registered) at or after
+     *            this time are returned
+     */
+    List<SimpleDataSetInformationDTO> listByDataStore(long dataStoreId,
+            Long lastSeenDatasetIdOrNull, Date modifiedSinceOrNull, int maxResults);
 }
@@ -38,7 +38,8 @@ import ch.systemsx.cisd.openbis.generic.server.dataaccess.db.LongSetMapper;
  * @author Tomasz Pylak
  */
 @Friend(toClasses =
-    { IDatasetListingQuery.class, IDatasetSetListingQuery.class })
+    { IDatasetListingQuery.class, IDatasetSetListingQuery.class,
+            IDatasetDescendantListingQuery.class })
 @Private
 public interface IDatasetListingFullQuery extends IDatasetListingQuery
 {
@@ -52,6 +53,21 @@ public interface IDatasetListingFullQuery extends IDatasetListingQuery
         { LongSetMapper.class }, fetchSize = FETCH_SIZE)
     public DataIterator<DatasetRecord> getDatasets(LongSet entityIds);
 
+    /**
+     * Returns the datasets directly connected to the sample with given <var>sampleId</var> and all
+     * their descendants, resolved with one recursive query.
+     * <p>
+     * <em>Do not call directly, call via {@link IDatasetDescendantListingQuery}</em>
+     */
+    @Select(sql = "with recursive descendants(id) as ("
+            + "       select id from data where samp_id=?{1}"
+            + "     union"
+            + "       select r.data_id_child from data_set_relationships r"
+            + "         join descendants d on r.data_id_parent = d.id)"
+            + " select * from data join external_data on data.id = external_data.data_id"
+            + "   where data.id in (select id from descendants)", fetchSize = FETCH_SIZE)
+    public DataIterator<DatasetRecord> getDatasetsForSampleWithDescendants(long sampleId);
+
     /**
      * Returns the children dataset ids of the specified datasets.
      * <p>
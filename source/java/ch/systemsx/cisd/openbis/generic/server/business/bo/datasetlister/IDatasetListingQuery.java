@@ -16,6 +16,8 @@
 
 package ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister;
 
+import java.util.Date;
+
 import net.lemnik.eodsql.DataIterator;
 import net.lemnik.eodsql.Select;
 import net.lemnik.eodsql.TransactionQuery;
@@ -82,6 +84,14 @@ public interface IDatasetListingQuery extends TransactionQuery, IPropertyListing
     @Select("select * from data d join external_data e on d.id = e.data_id" + " where d.id=?{1}")
     public DatasetRecord getDataset(long datasetId);
 
+    /**
+     * Returns the datasets with ids between <var>fromDatasetId</var> and <var>toDatasetId</var>
+     * (inclusive).
+     */
+    @Select(sql = "select * from data d join external_data e on d.id = e.data_id"
+            + "     where d.id between ?{1} and ?{2}", fetchSize = FETCH_SIZE)
+    public DataIterator<DatasetRecord> getDatasetsInIdRange(long fromDatasetId, long toDatasetId);
+
     /**
      * Returns all datasets in the database.
      */
@@ -89,6 +99,27 @@ public interface IDatasetListingQuery extends TransactionQuery, IPropertyListing
             + "     where (select dbin_id from data_set_types t where t.id = d.dsty_id) = ?{1}", fetchSize = FETCH_SIZE)
     public DataIterator<DatasetRecord> getDatasets(long dbInstanceId);
 
+    /**
+     * Returns at most <var>maxResults</var> datasets of the data store with given id, ordered by
+     * their ids, which have an id greater than <var>lastSeenDatasetId</var> and have been modified
+     * (or registered, if they have never been modified) at or after <var>modifiedSince</var>.
+     */
+    @Select(sql = "select d.id, d.code, e.location, t.code as data_set_type_code,"
+            + "           s.code as sample_code, x.code as experiment_code, p.code as project_code,"
+            + "           g.code as group_code, i.code as database_instance_code"
+            + "      from data d join external_data e on d.id = e.data_id"
+            + "           join data_set_types t on d.dsty_id = t.id"
+            + "           join experiments x on d.expe_id = x.id"
+            + "           join projects p on x.proj_id = p.id"
+            + "           join groups g on p.grou_id = g.id"
+            + "           join database_instances i on g.dbin_id = i.id"
+            + "           left outer join samples s on d.samp_id = s.id"
+            + "     where d.dast_id = ?{1} and d.id > ?{2}"
+            + "           and coalesce(d.modification_timestamp, d.registration_timestamp) >= ?{3}"
+            + "  order by d.id limit ?{4}", fetchSize = FETCH_SIZE)
+    public DataIterator<SimpleDatasetRecord> getDatasetsForDataStore(long dataStoreId,
+            long lastSeenDatasetId, Date modifiedSince, int maxResults);
+
     @Select(sql = "select id, code from data_set_types where dbin_id=?{1}")
     public CodeRecord[] getDatasetTypes(long databaseInstanceId);
 
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister;
+
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.CodeRecord;
+
+/**
+ * A record object representing one row of the dataset table together with the codes of the
+ * entities it is connected to. Used for listing the data sets of a data store page by page.
+ * 
+ * @author agent
+ */
+@Private
+public class SimpleDatasetRecord extends CodeRecord
+{
+    // --- from external_data table
+
+    public String location;
+
+    // --- codes of connected entities
+
+    public String data_set_type_code;
+
+    public String sample_code;
+
+    public String experiment_code;
+
+    public String project_code;
+
+    public String group_code;
+
+    public String database_instance_code;
+}
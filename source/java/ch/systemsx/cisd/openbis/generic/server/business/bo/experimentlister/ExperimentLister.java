@@ -0,0 +1,358 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister;
+
+import static ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils.escapeHtml;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import ch.rinn.restrictions.Friend;
+import ch.systemsx.cisd.common.exceptions.UserFailureException;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.EntityPropertiesEnricher;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertiesEnricher;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertiesHolderResolver;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ReferenceDataCache;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VersionedCachedValue;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
+import ch.systemsx.cisd.openbis.generic.shared.basic.PermlinkUtilities;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Attachment;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseInstance;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Experiment;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ExperimentType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Group;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.IEntityProperty;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Invalidation;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Person;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Project;
+import ch.systemsx.cisd.openbis.generic.shared.dto.CodeConverter;
+import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.ExperimentIdentifier;
+import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.ProjectIdentifier;
+
+/**
+ * A business object for providing lists of experiments of one project for the purpose of showing
+ * them and browsing through them. It is optimized for speed, using JDBC queries instead of
+ * Hibernate.
+ * <p>
+ * The registrators of the experiments and of the project are fetched with one set query, the
+ * properties of the experiments are fetched by a {@link IEntityPropertiesEnricher}. Experiment
+ * types and groups are taken from the {@link ReferenceDataCache}.
+ * </p>
+ * 
+ * @author agent
+ */
+@Friend(toClasses =
+    { ExperimentRecord.class, ExperimentTypeRecord.class, ProjectRecord.class,
+            IExperimentListingQuery.class })
+public class ExperimentLister implements IExperimentLister
+{
+    //
+    // Input
+    //
+
+    private final long databaseInstanceId;
+
+    private final DatabaseInstance databaseInstance;
+
+    private final String baseIndexURL;
+
+    private final String homeGroupCodeOrNull;
+
+    //
+    // Working interfaces
+    //
+
+    private final IExperimentListingQuery query;
+
+    private final IEntityPropertiesEnricher propertiesEnricher;
+
+    private final SecondaryEntityDAO referencedEntityDAO;
+
+    private final ReferenceDataCache referenceDataCache;
+
+    public static IExperimentLister create(IDAOFactory daoFactory, String baseIndexURL,
+            String homeGroupCodeOrNull, ReferenceDataCache referenceDataCache)
+    {
+        ExperimentListerDAO dao = ExperimentListerDAO.create(daoFactory);
+        SecondaryEntityDAO referencedEntityDAO = SecondaryEntityDAO.create(daoFactory);
+        return create(dao, referencedEntityDAO, baseIndexURL, homeGroupCodeOrNull,
+                referenceDataCache);
+    }
+
+    static IExperimentLister create(ExperimentListerDAO dao,
+            SecondaryEntityDAO referencedEntityDAO, String baseIndexURL,
+            String homeGroupCodeOrNull, ReferenceDataCache referenceDataCache)
+    {
+        IExperimentListingQuery query = dao.getQuery();
+        EntityPropertiesEnricher propertiesEnricher =
+                new EntityPropertiesEnricher(query, dao.getPropertySetQuery(), dao
+                        .tryGetPropertySetQueryFactory(), referenceDataCache);
+        return new ExperimentLister(dao.getDatabaseInstanceId(), dao.getDatabaseInstance(),
+                query, propertiesEnricher, referencedEntityDAO, baseIndexURL,
+                homeGroupCodeOrNull, referenceDataCache);
+    }
+
+    // For unit tests
+    ExperimentLister(final long databaseInstanceId, final DatabaseInstance databaseInstance,
+            final IExperimentListingQuery query, IEntityPropertiesEnricher propertiesEnricher,
+            SecondaryEntityDAO referencedEntityDAO, String baseIndexURL,
+            String homeGroupCodeOrNull, ReferenceDataCache referenceDataCache)
+    {
+        assert databaseInstance != null;
+        assert query != null;
+        assert referenceDataCache != null;
+
+        this.databaseInstanceId = databaseInstanceId;
+        this.databaseInstance = databaseInstance;
+        this.query = query;
+        this.propertiesEnricher = propertiesEnricher;
+        this.referencedEntityDAO = referencedEntityDAO;
+        this.baseIndexURL = baseIndexURL;
+        this.homeGroupCodeOrNull = homeGroupCodeOrNull;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    public List<Experiment> list(String experimentTypeCode, ProjectIdentifier projectIdentifier)
+    {
+        assert experimentTypeCode != null : "Unspecified experiment type.";
+        assert projectIdentifier != null : "Unspecified project.";
+
+        final Long2ObjectMap<ExperimentType> experimentTypes = getExperimentTypes();
+        final Group group = findGroup(projectIdentifier);
+        final ProjectRecord projectRecord =
+                query.tryGetProject(group.getId(), CodeConverter.tryToDatabase(projectIdentifier
+                        .getProjectCode()));
+        if (projectRecord == null)
+        {
+            throw new UserFailureException("Project '" + projectIdentifier + "' unknown.");
+        }
+        final Iterable<ExperimentRecord> records;
+        if (EntityType.isAllTypesCode(experimentTypeCode))
+        {
+            records = query.getExperimentsForProject(projectRecord.id);
+        } else
+        {
+            final long experimentTypeId = findExperimentTypeId(experimentTypes, experimentTypeCode);
+            records = query.getExperimentsForProjectAndType(projectRecord.id, experimentTypeId);
+        }
+        final List<ExperimentRecord> experimentRecords = asList(records);
+
+        final Long2ObjectMap<Person> persons =
+                referencedEntityDAO.getPersons(extractPersonIds(projectRecord, experimentRecords));
+        // Projects of the home database instance are identified without instance code.
+        final ProjectIdentifier identifier =
+                new ProjectIdentifier(null, group.getCode(), projectRecord.code);
+        final Project project = createProject(projectRecord, identifier, group, persons);
+        final Long2ObjectMap<Experiment> experimentMap =
+                new Long2ObjectOpenHashMap<Experiment>(experimentRecords.size());
+        for (ExperimentRecord record : experimentRecords)
+        {
+            experimentMap.put(record.id, createExperiment(record, project, identifier,
+                    experimentTypes, persons));
+        }
+        enrichWithProperties(experimentMap);
+
+        final List<Experiment> result = new ArrayList<Experiment>(experimentMap.values());
+        Collections.sort(result);
+        return result;
+    }
+
+    private Group findGroup(ProjectIdentifier projectIdentifier)
+    {
+        final String databaseInstanceCodeOrNull = projectIdentifier.getDatabaseInstanceCode();
+        if (StringUtils.isBlank(databaseInstanceCodeOrNull) == false
+                && CodeConverter.tryToDatabase(databaseInstanceCodeOrNull).equals(
+                        databaseInstance.getCode()) == false)
+        {
+            throw new UserFailureException("Project '" + projectIdentifier + "' unknown.");
+        }
+        String groupCodeOrNull = projectIdentifier.getGroupCode();
+        if (StringUtils.isBlank(groupCodeOrNull))
+        {
+            groupCodeOrNull = homeGroupCodeOrNull;
+        }
+        if (groupCodeOrNull != null)
+        {
+            final String groupCode = CodeConverter.tryToDatabase(groupCodeOrNull);
+            for (Group group : getGroups().values())
+            {
+                if (group.getCode().equals(groupCode))
+                {
+                    return group;
+                }
+            }
+        }
+        throw new UserFailureException("Unknown group '" + projectIdentifier + "'.");
+    }
+
+    private static long findExperimentTypeId(Long2ObjectMap<ExperimentType> experimentTypes,
+            String experimentTypeCode)
+    {
+        final String escapedCode = escapeHtml(CodeConverter.tryToDatabase(experimentTypeCode));
+        for (Long2ObjectMap.Entry<ExperimentType> entry : experimentTypes.long2ObjectEntrySet())
+        {
+            if (entry.getValue().getCode().equals(escapedCode))
+            {
+                return entry.getLongKey();
+            }
+        }
+        throw new UserFailureException("Unknown experiment type '" + experimentTypeCode + "'.");
+    }
+
+    private static LongSet extractPersonIds(ProjectRecord projectRecord,
+            List<ExperimentRecord> experimentRecords)
+    {
+        final LongSet ids = new LongOpenHashSet();
+        ids.add(projectRecord.pers_id_registerer);
+        if (projectRecord.pers_id_leader != null)
+        {
+            ids.add(projectRecord.pers_id_leader);
+        }
+        for (ExperimentRecord record : experimentRecords)
+        {
+            ids.add(record.pers_id_registerer);
+        }
+        return ids;
+    }
+
+    private void enrichWithProperties(final Long2ObjectMap<Experiment> experimentMap)
+    {
+        propertiesEnricher.enrich(experimentMap.keySet(), new IEntityPropertiesHolderResolver()
+            {
+                public Experiment get(long id)
+                {
+                    return experimentMap.get(id);
+                }
+            });
+    }
+
+    private static <T> List<T> asList(Iterable<T> items)
+    {
+        List<T> result = new ArrayList<T>();
+        for (T item : items)
+        {
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static Project createProject(ProjectRecord record, ProjectIdentifier identifier,
+            Group group, Long2ObjectMap<Person> persons)
+    {
+        final Project project = new Project();
+        project.setId(record.id);
+        project.setModificationDate(record.modification_timestamp);
+        project.setCode(escapeHtml(record.code));
+        project.setDescription(escapeHtml(record.description));
+        project.setGroup(group);
+        if (record.pers_id_leader != null)
+        {
+            project.setProjectLeader(persons.get(record.pers_id_leader));
+        }
+        project.setRegistrator(persons.get(record.pers_id_registerer));
+        project.setRegistrationDate(record.registration_timestamp);
+        project.setIdentifier(escapeHtml(identifier.toString()));
+        project.setAttachments(new ArrayList<Attachment>());
+        return project;
+    }
+
+    private Experiment createExperiment(ExperimentRecord record, Project project,
+            ProjectIdentifier projectIdentifier, Long2ObjectMap<ExperimentType> experimentTypes,
+            Long2ObjectMap<Person> persons)
+    {
+        final Experiment experiment = new Experiment();
+        experiment.setId(record.id);
+        experiment.setModificationDate(record.modification_timestamp);
+        experiment.setCode(escapeHtml(record.code));
+        experiment.setPermId(escapeHtml(record.perm_id));
+        experiment.setPermlink(PermlinkUtilities.createPermlinkURL(baseIndexURL,
+                EntityKind.EXPERIMENT, record.perm_id));
+        experiment.setExperimentType(experimentTypes.get(record.exty_id));
+        experiment.setIdentifier(escapeHtml(new ExperimentIdentifier(projectIdentifier,
+                record.code).toString()));
+        experiment.setProject(project);
+        experiment.setRegistrationDate(record.registration_timestamp);
+        experiment.setRegistrator(persons.get(record.pers_id_registerer));
+        if (record.inva_id != null)
+        {
+            experiment.setInvalidation(new Invalidation());
+        }
+        experiment.setProperties(new ArrayList<IEntityProperty>());
+        return experiment;
+    }
+
+    private Long2ObjectMap<ExperimentType> getExperimentTypes()
+    {
+        return referenceDataCache.getExperimentTypes().get(
+                new VersionedCachedValue.ILoader<Long2ObjectMap<ExperimentType>>()
+                    {
+                        public Long2ObjectMap<ExperimentType> load()
+                        {
+                            return loadExperimentTypes();
+                        }
+                    });
+    }
+
+    private Long2ObjectMap<ExperimentType> loadExperimentTypes()
+    {
+        final Long2ObjectOpenHashMap<ExperimentType> result =
+                new Long2ObjectOpenHashMap<ExperimentType>();
+        for (ExperimentTypeRecord record : query.getExperimentTypes(databaseInstanceId))
+        {
+            final ExperimentType experimentType = new ExperimentType();
+            experimentType.setCode(escapeHtml(record.code));
+            experimentType.setDescription(escapeHtml(record.description));
+            experimentType.setDatabaseInstance(databaseInstance);
+            result.put(record.id, experimentType);
+        }
+        result.trim();
+        return result;
+    }
+
+    private Long2ObjectMap<Group> getGroups()
+    {
+        return referenceDataCache.getGroups().get(
+                new VersionedCachedValue.ILoader<Long2ObjectMap<Group>>()
+                    {
+                        public Long2ObjectMap<Group> load()
+                        {
+                            final Group[] groups =
+                                    referencedEntityDAO.getAllGroups(databaseInstanceId);
+                            final Long2ObjectOpenHashMap<Group> result =
+                                    new Long2ObjectOpenHashMap<Group>(groups.length);
+                            for (Group group : groups)
+                            {
+                                group.setInstance(databaseInstance);
+                                result.put(group.getId(), group);
+                            }
+                            result.trim();
+                            return result;
+                        }
+                    });
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import net.lemnik.eodsql.DataIterator;
+
+import ch.rinn.restrictions.Friend;
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.AbstractEntityListerDAO;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.GenericEntityPropertyRecord;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertyListingQuery;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertySetListingQuery;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.MaterialEntityPropertyRecord;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VocabularyTermRecord;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.PersistencyResources;
+import ch.systemsx.cisd.openbis.generic.shared.dto.DatabaseInstancePE;
+
+/**
+ * The DAO for business objects implementing {@link IExperimentLister}. Note: Even though this class
+ * is public its constructors and instance methods have to be package protected.
+ * 
+ * @author agent
+ */
+@Friend(toClasses =
+    { IExperimentListingFullQuery.class, IEntityPropertyListingQuery.class })
+public final class ExperimentListerDAO extends AbstractEntityListerDAO<IExperimentListingFullQuery>
+{
+    private static final EntityQueries<IExperimentListingFullQuery> QUERIES =
+            new EntityQueries<IExperimentListingFullQuery>(IExperimentListingFullQuery.class,
+                    "experiments")
+                {
+                    @Override
+                    protected long count(IExperimentListingFullQuery query)
+                    {
+                        return query.getExperimentCount();
+                    }
+
+                    @Override
+                    protected IEntityPropertyListingQuery asEntityPropertyListingQuery(
+                            IExperimentListingFullQuery query, long databaseInstanceId)
+                    {
+                        return ExperimentListerDAO.asEntityPropertyListingQuery(query,
+                                databaseInstanceId);
+                    }
+
+                    @Override
+                    protected IEntityPropertySetListingQuery asEntityPropertySetListingQuery(
+                            IExperimentListingFullQuery query)
+                    {
+                        return ExperimentListerDAO.asEntityPropertySetListingQuery(query);
+                    }
+                };
+
+    /**
+     * Creates a new instance based on {@link PersistencyResources} and home
+     * {@link DatabaseInstancePE} of specified DAO factory.
+     */
+    public static ExperimentListerDAO create(IDAOFactory daoFactory)
+    {
+        return new ExperimentListerDAO(daoFactory, createQuery(daoFactory, QUERIES), true);
+    }
+
+    @Private
+    // only for tests
+    static ExperimentListerDAO create(IDAOFactory daoFactory, IExperimentListingFullQuery query)
+    {
+        return new ExperimentListerDAO(daoFactory, query, false);
+    }
+
+    private ExperimentListerDAO(final IDAOFactory daoFactory,
+            final IExperimentListingFullQuery query, final boolean fetchPropertiesConcurrently)
+    {
+        super(QUERIES, daoFactory, query, fetchPropertiesConcurrently);
+    }
+
+    IExperimentListingQuery getQuery()
+    {
+        return getFullQuery();
+    }
+
+    private static IEntityPropertyListingQuery asEntityPropertyListingQuery(
+            final IExperimentListingFullQuery query, final long databaseInstanceId)
+    {
+        return new IEntityPropertyListingQuery()
+            {
+                public DataIterator<GenericEntityPropertyRecord> getEntityPropertyGenericValues()
+                {
+                    return query.getAllEntityPropertyGenericValues(databaseInstanceId);
+                }
+
+                public DataIterator<GenericEntityPropertyRecord> getEntityPropertyGenericValues(
+                        long entityId)
+                {
+                    return query.getEntityPropertyGenericValues(entityId);
+                }
+
+                public DataIterator<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues()
+                {
+                    return query.getAllEntityPropertyMaterialValues(databaseInstanceId);
+                }
+
+                public DataIterator<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(
+                        long entityId)
+                {
+                    return query.getEntityPropertyMaterialValues(entityId);
+                }
+
+                public DataIterator<VocabularyTermRecord> getEntityPropertyVocabularyTermValues()
+                {
+                    return query.getAllEntityPropertyVocabularyTermValues(databaseInstanceId);
+                }
+
+                public DataIterator<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(
+                        long entityId)
+                {
+                    return query.getEntityPropertyVocabularyTermValues(entityId);
+                }
+            };
+    }
+
+    private static IEntityPropertySetListingQuery asEntityPropertySetListingQuery(
+            final IExperimentListingFullQuery query)
+    {
+        return new IEntityPropertySetListingQuery()
+            {
+                public Iterable<GenericEntityPropertyRecord> getEntityPropertyGenericValues(
+                        LongSet entityIDs)
+                {
+                    return query.getEntityPropertyGenericValues(entityIDs);
+                }
+
+                public Iterable<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(
+                        LongSet entityIDs)
+                {
+                    return query.getEntityPropertyMaterialValues(entityIDs);
+                }
+
+                public Iterable<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(
+                        LongSet entityIDs)
+                {
+                    return query.getEntityPropertyVocabularyTermValues(entityIDs);
+                }
+            };
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister;
+
+import java.util.List;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Experiment;
+import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.ProjectIdentifier;
+
+/**
+ * A class for fast experiment listing.
+ * 
+ * @author agent
+ */
+public interface IExperimentLister
+{
+    /**
+     * Returns the experiments of the specified project sorted by their identifiers. The
+     * experiments are enriched with their properties.
+     * 
+     * @param experimentTypeCode the code of the experiment type or
+     *            {@link EntityType#ALL_TYPES_CODE} for experiments of all types.
+     * @param projectIdentifier the identifier of the project. If it has no group code the home
+     *            group of the user is taken.
+     */
+    public List<Experiment> list(String experimentTypeCode, ProjectIdentifier projectIdentifier);
+}
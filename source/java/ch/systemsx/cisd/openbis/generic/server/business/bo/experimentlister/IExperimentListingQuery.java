@@ -0,0 +1,133 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister;
+
+import net.lemnik.eodsql.DataIterator;
+import net.lemnik.eodsql.Select;
+import net.lemnik.eodsql.TransactionQuery;
+
+import ch.rinn.restrictions.Friend;
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.GenericEntityPropertyRecord;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IPropertyListingQuery;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.MaterialEntityPropertyRecord;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VocabularyTermRecord;
+
+/**
+ * A {@link TransactionQuery} interface for obtaining large sets of experiment-related entities from
+ * the database.
+ * <p>
+ * This interface is intended to be used only in this package. The <code>public</code> modifier is
+ * needed for creating a dynamic proxy by the EOD SQL library.
+ * 
+ * @author agent
+ */
+@Private
+@Friend(toClasses =
+    { ExperimentRecord.class, ExperimentTypeRecord.class, ProjectRecord.class })
+public interface IExperimentListingQuery extends TransactionQuery, IPropertyListingQuery
+{
+    public static final int FETCH_SIZE = 1000;
+
+    /**
+     * Returns the experiments of the project with given <var>projectId</var>.
+     */
+    @Select(sql = "select * from experiments where proj_id=?{1}", fetchSize = FETCH_SIZE)
+    public DataIterator<ExperimentRecord> getExperimentsForProject(long projectId);
+
+    /**
+     * Returns the experiments of given <var>experimentTypeId</var> of the project with given
+     * <var>projectId</var>.
+     */
+    @Select(sql = "select * from experiments where proj_id=?{1} and exty_id=?{2}", fetchSize = FETCH_SIZE)
+    public DataIterator<ExperimentRecord> getExperimentsForProjectAndType(long projectId,
+            long experimentTypeId);
+
+    /**
+     * Returns the project with given <var>projectCode</var> of the group with given
+     * <var>groupId</var>, or <code>null</code>, if there is no such project.
+     */
+    @Select("select * from projects where grou_id=?{1} and code=?{2}")
+    public ProjectRecord tryGetProject(long groupId, String projectCode);
+
+    @Select(sql = "select id, code, description from experiment_types where dbin_id=?{1}")
+    public ExperimentTypeRecord[] getExperimentTypes(long databaseInstanceId);
+
+    // ------------- Properties
+
+    /**
+     * Returns all generic property values of the experiment with <var>entityId</var>.
+     */
+    @Select("select pr.expe_id as entity_id, etpt.prty_id, pr.value from experiment_properties pr"
+            + "      join experiment_type_property_types etpt on pr.etpt_id=etpt.id"
+            + "   where pr.value is not null and pr.expe_id=?{1}")
+    public DataIterator<GenericEntityPropertyRecord> getEntityPropertyGenericValues(long entityId);
+
+    /**
+     * Returns all generic property values of all experiments.
+     */
+    @Select(sql = "select pr.expe_id as entity_id, etpt.prty_id, pr.value from experiment_properties pr"
+            + "      join experiment_type_property_types etpt on pr.etpt_id=etpt.id"
+            + "      join property_types pt on etpt.prty_id=pt.id"
+            + "   where pr.value is not null and pt.dbin_id=?{1}", fetchSize = FETCH_SIZE)
+    public DataIterator<GenericEntityPropertyRecord> getAllEntityPropertyGenericValues(
+            long dbInstanceId);
+
+    /**
+     * Returns all controlled vocabulary property values of the experiment with
+     * <var>entityId</var>.
+     */
+    @Select("select pr.expe_id as entity_id, etpt.prty_id, cvte.id, cvte.covo_id, cvte.code, cvte.label"
+            + "      from experiment_properties pr"
+            + "      join experiment_type_property_types etpt on pr.etpt_id=etpt.id"
+            + "      join controlled_vocabulary_terms cvte on pr.cvte_id=cvte.id"
+            + "   where pr.expe_id=?{1}")
+    public DataIterator<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(long entityId);
+
+    /**
+     * Returns all controlled vocabulary property values of all experiments.
+     */
+    @Select(sql = "select pr.expe_id as entity_id, etpt.prty_id, cvte.id, cvte.covo_id, cvte.code, cvte.label"
+            + "      from experiment_properties pr"
+            + "      join experiment_type_property_types etpt on pr.etpt_id=etpt.id"
+            + "      join controlled_vocabulary_terms cvte on pr.cvte_id=cvte.id"
+            + "      join property_types pt on etpt.prty_id=pt.id"
+            + "    where pt.dbin_id=?{1}", fetchSize = FETCH_SIZE)
+    public DataIterator<VocabularyTermRecord> getAllEntityPropertyVocabularyTermValues(
+            long dbInstanceId);
+
+    /**
+     * Returns all material-type property values of the experiment with <var>entityId</var>
+     */
+    @Select("select pr.expe_id as entity_id, etpt.prty_id, m.id, m.code, m.maty_id"
+            + "      from experiment_properties pr"
+            + "      join experiment_type_property_types etpt on pr.etpt_id=etpt.id"
+            + "      join materials m on pr.mate_prop_id=m.id where pr.expe_id=?{1}")
+    public DataIterator<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(long entityId);
+
+    /**
+     * Returns all material-type property values of all experiments.
+     */
+    @Select(sql = "select pr.expe_id as entity_id, etpt.prty_id, m.id, m.code, m.maty_id"
+            + "      from experiment_properties pr"
+            + "      join experiment_type_property_types etpt on pr.etpt_id=etpt.id"
+            + "      join materials m on pr.mate_prop_id=m.id"
+            + "      join property_types pt on etpt.prty_id=pt.id"
+            + "    where pt.dbin_id=?{1}", fetchSize = FETCH_SIZE)
+    public DataIterator<MaterialEntityPropertyRecord> getAllEntityPropertyMaterialValues(
+            long dbInstanceId);
+}
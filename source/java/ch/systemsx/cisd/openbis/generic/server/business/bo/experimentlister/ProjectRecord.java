@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister;
+
+import java.util.Date;
+
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.CodeRecord;
+
+/**
+ * A record object representing one row of the project table.
+ */
+// CREATE TABLE PROJECTS (
+// ID TECH_ID NOT NULL,
+// CODE CODE NOT NULL,
+// GROU_ID TECH_ID NOT NULL,
+// PERS_ID_LEADER TECH_ID,
+// DESCRIPTION DESCRIPTION_1000,
+// PERS_ID_REGISTERER TECH_ID NOT NULL,
+// REGISTRATION_TIMESTAMP TIME_STAMP_DFL NOT NULL DEFAULT CURRENT_TIMESTAMP,
+// MODIFICATION_TIMESTAMP TIME_STAMP DEFAULT CURRENT_TIMESTAMP);
+@Private
+public class ProjectRecord extends CodeRecord
+{
+    public long grou_id;
+
+    public Long pers_id_leader;
+
+    public String description;
+
+    public long pers_id_registerer;
+
+    public Date registration_timestamp;
+
+    public Date modification_timestamp;
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister;
+
+import net.lemnik.eodsql.DataIterator;
+import net.lemnik.eodsql.Select;
+import net.lemnik.eodsql.TransactionQuery;
+
+import ch.rinn.restrictions.Friend;
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.GenericEntityPropertyRecord;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IPropertyListingQuery;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.MaterialEntityPropertyRecord;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VocabularyTermRecord;
+
+/**
+ * A {@link TransactionQuery} interface for obtaining large sets of material-related entities from
+ * the database.
+ * <p>
+ * This interface is intended to be used only in this package. The <code>public</code> modifier is
+ * needed for creating a dynamic proxy by the EOD SQL library.
+ * 
+ * @author agent
+ */
+@Private
+@Friend(toClasses =
+    { MaterialRecord.class, MaterialTypeRecord.class })
+public interface IMaterialListingQuery extends TransactionQuery, IPropertyListingQuery
+{
+    public static final int FETCH_SIZE = 1000;
+
+    /**
+     * Returns the materials of the material type with given <var>materialTypeId</var>.
+     */
+    @Select(sql = "select id, code, maty_id, pers_id_registerer, registration_timestamp, modification_timestamp"
+            + "      from materials where maty_id=?{1}", fetchSize = FETCH_SIZE)
+    public DataIterator<MaterialRecord> getMaterialsForMaterialType(long materialTypeId);
+
+    /**
+     * Returns the material type with given <var>code</var> of the database instance with given
+     * <var>databaseInstanceId</var>, or <code>null</code>, if there is no such material type.
+     */
+    @Select("select id, code, description from material_types where code=?{1} and dbin_id=?{2}")
+    public MaterialTypeRecord tryGetMaterialType(String code, long databaseInstanceId);
+
+    // ------------- Properties
+
+    /**
+     * Returns all generic property values of the material with <var>entityId</var>.
+     */
+    @Select("select pr.mate_id as entity_id, etpt.prty_id, pr.value from material_properties pr"
+            + "      join material_type_property_types etpt on pr.mtpt_id=etpt.id"
+            + "   where pr.value is not null and pr.mate_id=?{1}")
+    public DataIterator<GenericEntityPropertyRecord> getEntityPropertyGenericValues(long entityId);
+
+    /**
+     * Returns all generic property values of all materials.
+     */
+    @Select(sql = "select pr.mate_id as entity_id, etpt.prty_id, pr.value from material_properties pr"
+            + "      join material_type_property_types etpt on pr.mtpt_id=etpt.id"
+            + "      join property_types pt on etpt.prty_id=pt.id"
+            + "   where pr.value is not null and pt.dbin_id=?{1}", fetchSize = FETCH_SIZE)
+    public DataIterator<GenericEntityPropertyRecord> getAllEntityPropertyGenericValues(
+            long dbInstanceId);
+
+    /**
+     * Returns all controlled vocabulary property values of the material with
+     * <var>entityId</var>.
+     */
+    @Select("select pr.mate_id as entity_id, etpt.prty_id, cvte.id, cvte.covo_id, cvte.code, cvte.label"
+            + "      from material_properties pr"
+            + "      join material_type_property_types etpt on pr.mtpt_id=etpt.id"
+            + "      join controlled_vocabulary_terms cvte on pr.cvte_id=cvte.id"
+            + "   where pr.mate_id=?{1}")
+    public DataIterator<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(long entityId);
+
+    /**
+     * Returns all controlled vocabulary property values of all materials.
+     */
+    @Select(sql = "select pr.mate_id as entity_id, etpt.prty_id, cvte.id, cvte.covo_id, cvte.code, cvte.label"
+            + "      from material_properties pr"
+            + "      join material_type_property_types etpt on pr.mtpt_id=etpt.id"
+            + "      join controlled_vocabulary_terms cvte on pr.cvte_id=cvte.id"
+            + "      join property_types pt on etpt.prty_id=pt.id"
+            + "    where pt.dbin_id=?{1}", fetchSize = FETCH_SIZE)
+    public DataIterator<VocabularyTermRecord> getAllEntityPropertyVocabularyTermValues(
+            long dbInstanceId);
+
+    /**
+     * Returns all material-type property values of the material with <var>entityId</var>
+     */
+    @Select("select pr.mate_id as entity_id, etpt.prty_id, m.id, m.code, m.maty_id"
+            + "      from material_properties pr"
+            + "      join material_type_property_types etpt on pr.mtpt_id=etpt.id"
+            + "      join materials m on pr.mate_prop_id=m.id where pr.mate_id=?{1}")
+    public DataIterator<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(long entityId);
+
+    /**
+     * Returns all material-type property values of all materials.
+     */
+    @Select(sql = "select pr.mate_id as entity_id, etpt.prty_id, m.id, m.code, m.maty_id"
+            + "      from material_properties pr"
+            + "      join material_type_property_types etpt on pr.mtpt_id=etpt.id"
+            + "      join materials m on pr.mate_prop_id=m.id"
+            + "      join property_types pt on etpt.prty_id=pt.id"
+            + "    where pt.dbin_id=?{1}", fetchSize = FETCH_SIZE)
+    public DataIterator<MaterialEntityPropertyRecord> getAllEntityPropertyMaterialValues(
+            long dbInstanceId);
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister;
+
+import static ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils.escapeHtml;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import ch.rinn.restrictions.Friend;
+import ch.systemsx.cisd.common.exceptions.UserFailureException;
+import ch.systemsx.cisd.common.logging.LogCategory;
+import ch.systemsx.cisd.common.logging.LogFactory;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.EntityPropertiesEnricher;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertiesEnricher;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertiesHolderResolver;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ReferenceDataCache;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseInstance;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.IEntityProperty;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Material;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.MaterialType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Person;
+import ch.systemsx.cisd.openbis.generic.shared.dto.CodeConverter;
+
+/**
+ * A business object for providing lists of materials of one material type for the purpose of
+ * showing them and browsing through them. It is optimized for speed, using JDBC queries instead of
+ * Hibernate, so that catalogues of hundreds of thousands of materials can be listed.
+ * <p>
+ * The material records are streamed from the database and grouped by their registrators, which are
+ * fetched afterwards with one set query. The properties of the materials are fetched by a
+ * {@link IEntityPropertiesEnricher}.
+ * </p>
+ * 
+ * @author agent
+ */
+@Friend(toClasses =
+    { MaterialRecord.class, MaterialTypeRecord.class, IMaterialListingQuery.class })
+public class MaterialLister implements IMaterialLister
+{
+    private final static Logger operationLog =
+            LogFactory.getLogger(LogCategory.OPERATION, MaterialLister.class);
+
+    //
+    // Input
+    //
+
+    private final long databaseInstanceId;
+
+    private final DatabaseInstance databaseInstance;
+
+    //
+    // Working interfaces
+    //
+
+    private final IMaterialListingQuery query;
+
+    private final IEntityPropertiesEnricher propertiesEnricher;
+
+    private final SecondaryEntityDAO referencedEntityDAO;
+
+    public static IMaterialLister create(IDAOFactory daoFactory,
+            ReferenceDataCache referenceDataCache)
+    {
+        MaterialListerDAO dao = MaterialListerDAO.create(daoFactory);
+        SecondaryEntityDAO referencedEntityDAO = SecondaryEntityDAO.create(daoFactory);
+        return create(dao, referencedEntityDAO, referenceDataCache);
+    }
+
+    static IMaterialLister create(MaterialListerDAO dao, SecondaryEntityDAO referencedEntityDAO,
+            ReferenceDataCache referenceDataCache)
+    {
+        IMaterialListingQuery query = dao.getQuery();
+        EntityPropertiesEnricher propertiesEnricher =
+                new EntityPropertiesEnricher(query, dao.getPropertySetQuery(), dao
+                        .tryGetPropertySetQueryFactory(), referenceDataCache);
+        return new MaterialLister(dao.getDatabaseInstanceId(), dao.getDatabaseInstance(), query,
+                propertiesEnricher, referencedEntityDAO);
+    }
+
+    // For unit tests
+    MaterialLister(final long databaseInstanceId, final DatabaseInstance databaseInstance,
+            final IMaterialListingQuery query, IEntityPropertiesEnricher propertiesEnricher,
+            SecondaryEntityDAO referencedEntityDAO)
+    {
+        assert databaseInstance != null;
+        assert query != null;
+
+        this.databaseInstanceId = databaseInstanceId;
+        this.databaseInstance = databaseInstance;
+        this.query = query;
+        this.propertiesEnricher = propertiesEnricher;
+        this.referencedEntityDAO = referencedEntityDAO;
+    }
+
+    public List<Material> list(String materialTypeCode)
+    {
+        assert materialTypeCode != null : "Unspecified material type.";
+
+        final MaterialTypeRecord materialTypeRecord =
+                query.tryGetMaterialType(CodeConverter.tryToDatabase(materialTypeCode),
+                        databaseInstanceId);
+        if (materialTypeRecord == null)
+        {
+            throw new UserFailureException("Unknown material type '" + materialTypeCode + "'.");
+        }
+        final MaterialType materialType = createMaterialType(materialTypeRecord);
+
+        final Long2ObjectMap<Material> materialMap = new Long2ObjectOpenHashMap<Material>();
+        final Long2ObjectMap<List<Material>> materialsByRegistratorId =
+                new Long2ObjectOpenHashMap<List<Material>>();
+        for (MaterialRecord record : query.getMaterialsForMaterialType(materialTypeRecord.id))
+        {
+            final Material material = createMaterial(record, materialType);
+            materialMap.put(record.id, material);
+            List<Material> registeredMaterials =
+                    materialsByRegistratorId.get(record.pers_id_registerer);
+            if (registeredMaterials == null)
+            {
+                registeredMaterials = new ArrayList<Material>();
+                materialsByRegistratorId.put(record.pers_id_registerer, registeredMaterials);
+            }
+            registeredMaterials.add(material);
+        }
+        resolveRegistrators(materialsByRegistratorId);
+        enrichWithProperties(materialMap);
+
+        final List<Material> result = new ArrayList<Material>(materialMap.values());
+        Collections.sort(result);
+        if (operationLog.isDebugEnabled())
+        {
+            operationLog.debug(String.format("%d materials have been found for material type '%s'.",
+                    result.size(), materialTypeCode));
+        }
+        return result;
+    }
+
+    /**
+     * Fetches the registrators of the materials at once and assigns them to the materials.
+     */
+    private void resolveRegistrators(Long2ObjectMap<List<Material>> materialsByRegistratorId)
+    {
+        final Long2ObjectMap<Person> persons =
+                referencedEntityDAO.getPersons(materialsByRegistratorId.keySet());
+        for (Long2ObjectMap.Entry<List<Material>> entry : materialsByRegistratorId
+                .long2ObjectEntrySet())
+        {
+            final Person registrator = persons.get(entry.getLongKey());
+            for (Material material : entry.getValue())
+            {
+                material.setRegistrator(registrator);
+            }
+        }
+    }
+
+    private void enrichWithProperties(final Long2ObjectMap<Material> materialMap)
+    {
+        propertiesEnricher.enrich(materialMap.keySet(), new IEntityPropertiesHolderResolver()
+            {
+                public Material get(long id)
+                {
+                    return materialMap.get(id);
+                }
+            });
+    }
+
+    private Material createMaterial(MaterialRecord record, MaterialType materialType)
+    {
+        final Material material = new Material();
+        material.setId(record.id);
+        material.setCode(escapeHtml(record.code));
+        material.setModificationDate(record.modification_timestamp);
+        material.setMaterialType(materialType);
+        material.setDatabaseInstance(databaseInstance);
+        material.setRegistrationDate(record.registration_timestamp);
+        material.setProperties(new ArrayList<IEntityProperty>());
+        return material;
+    }
+
+    private MaterialType createMaterialType(MaterialTypeRecord record)
+    {
+        final MaterialType materialType = new MaterialType();
+        materialType.setCode(escapeHtml(record.code));
+        materialType.setDescription(escapeHtml(record.description));
+        materialType.setDatabaseInstance(databaseInstance);
+        return materialType;
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import net.lemnik.eodsql.DataIterator;
+
+import ch.rinn.restrictions.Friend;
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.AbstractEntityListerDAO;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.GenericEntityPropertyRecord;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertyListingQuery;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertySetListingQuery;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.MaterialEntityPropertyRecord;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VocabularyTermRecord;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.PersistencyResources;
+import ch.systemsx.cisd.openbis.generic.shared.dto.DatabaseInstancePE;
+
+/**
+ * The DAO for business objects implementing {@link IMaterialLister}. Note: Even though this class
+ * is public its constructors and instance methods have to be package protected.
+ * 
+ * @author agent
+ */
+@Friend(toClasses =
+    { IMaterialListingFullQuery.class, IEntityPropertyListingQuery.class })
+public final class MaterialListerDAO extends AbstractEntityListerDAO<IMaterialListingFullQuery>
+{
+    private static final EntityQueries<IMaterialListingFullQuery> QUERIES =
+            new EntityQueries<IMaterialListingFullQuery>(IMaterialListingFullQuery.class,
+                    "materials")
+                {
+                    @Override
+                    protected long count(IMaterialListingFullQuery query)
+                    {
+                        return query.getMaterialCount();
+                    }
+
+                    @Override
+                    protected IEntityPropertyListingQuery asEntityPropertyListingQuery(
+                            IMaterialListingFullQuery query, long databaseInstanceId)
+                    {
+                        return MaterialListerDAO.asEntityPropertyListingQuery(query,
+                                databaseInstanceId);
+                    }
+
+                    @Override
+                    protected IEntityPropertySetListingQuery asEntityPropertySetListingQuery(
+                            IMaterialListingFullQuery query)
+                    {
+                        return MaterialListerDAO.asEntityPropertySetListingQuery(query);
+                    }
+                };
+
+    /**
+     * Creates a new instance based on {@link PersistencyResources} and home
+     * {@link DatabaseInstancePE} of specified DAO factory.
+     */
+    public static MaterialListerDAO create(IDAOFactory daoFactory)
+    {
+        return new MaterialListerDAO(daoFactory, createQuery(daoFactory, QUERIES), true);
+    }
+
+    @Private
+    // only for tests
+    static MaterialListerDAO create(IDAOFactory daoFactory, IMaterialListingFullQuery query)
+    {
+        return new MaterialListerDAO(daoFactory, query, false);
+    }
+
+    private MaterialListerDAO(final IDAOFactory daoFactory,
+            final IMaterialListingFullQuery query, final boolean fetchPropertiesConcurrently)
+    {
+        super(QUERIES, daoFactory, query, fetchPropertiesConcurrently);
+    }
+
+    IMaterialListingQuery getQuery()
+    {
+        return getFullQuery();
+    }
+
+    private static IEntityPropertyListingQuery asEntityPropertyListingQuery(
+            final IMaterialListingFullQuery query, final long databaseInstanceId)
+    {
+        return new IEntityPropertyListingQuery()
+            {
+                public DataIterator<GenericEntityPropertyRecord> getEntityPropertyGenericValues()
+                {
+                    return query.getAllEntityPropertyGenericValues(databaseInstanceId);
+                }
+
+                public DataIterator<GenericEntityPropertyRecord> getEntityPropertyGenericValues(
+                        long entityId)
+                {
+                    return query.getEntityPropertyGenericValues(entityId);
+                }
+
+                public DataIterator<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues()
+                {
+                    return query.getAllEntityPropertyMaterialValues(databaseInstanceId);
+                }
+
+                public DataIterator<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(
+                        long entityId)
+                {
+                    return query.getEntityPropertyMaterialValues(entityId);
+                }
+
+                public DataIterator<VocabularyTermRecord> getEntityPropertyVocabularyTermValues()
+                {
+                    return query.getAllEntityPropertyVocabularyTermValues(databaseInstanceId);
+                }
+
+                public DataIterator<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(
+                        long entityId)
+                {
+                    return query.getEntityPropertyVocabularyTermValues(entityId);
+                }
+            };
+    }
+
+    private static IEntityPropertySetListingQuery asEntityPropertySetListingQuery(
+            final IMaterialListingFullQuery query)
+    {
+        return new IEntityPropertySetListingQuery()
+            {
+                public Iterable<GenericEntityPropertyRecord> getEntityPropertyGenericValues(
+                        LongSet entityIDs)
+                {
+                    return query.getEntityPropertyGenericValues(entityIDs);
+                }
+
+                public Iterable<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(
+                        LongSet entityIDs)
+                {
+                    return query.getEntityPropertyMaterialValues(entityIDs);
+                }
+
+                public Iterable<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(
+                        LongSet entityIDs)
+                {
+                    return query.getEntityPropertyVocabularyTermValues(entityIDs);
+                }
+            };
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister;
+
+import java.util.Date;
+
+import ch.rinn.restrictions.Private;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.CodeRecord;
+
+/**
+ * A record object representing one row of the material table.
+ */
+// CREATE TABLE MATERIALS (
+// ID TECH_ID NOT NULL,
+// CODE CODE NOT NULL,
+// MATY_ID TECH_ID NOT NULL,
+// PERS_ID_REGISTERER TECH_ID NOT NULL,
+// REGISTRATION_TIMESTAMP TIME_STAMP_DFL NOT NULL DEFAULT CURRENT_TIMESTAMP,
+// MODIFICATION_TIMESTAMP TIME_STAMP DEFAULT CURRENT_TIMESTAMP,
+// DBIN_ID TECH_ID NOT NULL);
+@Private
+public class MaterialRecord extends CodeRecord
+{
+    public long maty_id;
+
+    public long pers_id_registerer;
+
+    public Date registration_timestamp;
+
+    public Date modification_timestamp;
+}
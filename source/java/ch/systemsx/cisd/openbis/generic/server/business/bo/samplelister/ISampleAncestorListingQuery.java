@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+/**
+ * A DAO query interface for obtaining samples together with their ancestors, that is their parents
+ * and containers up to a given depth, with one query.
+ * <p>
+ * Needs support for recursive queries and querying for identifier sets, so it is not available for
+ * all database engines.
+ * 
+ * @author agent
+ */
+interface ISampleAncestorListingQuery
+{
+    /**
+     * Returns the samples for the given <var>parentIds</var> and <var>containerIds</var> and their
+     * ancestors. The ancestors of a sample are followed as long as its remaining depth is larger
+     * than 1. The remaining depth of the samples specified by <var>parentIds</var> is
+     * <var>parentDepth</var>, the one of the samples specified by <var>containerIds</var> is
+     * <var>containerDepth</var>, and the one of an ancestor is the remaining depth of its child
+     * minus 1. Parents are only followed if <var>parentDepth</var> is positive, containers only if
+     * <var>containerDepth</var> is positive.
+     */
+    public Iterable<SampleRecord> getSamplesWithAncestors(LongSet parentIds, int parentDepth,
+            LongSet containerIds, int containerDepth);
+}
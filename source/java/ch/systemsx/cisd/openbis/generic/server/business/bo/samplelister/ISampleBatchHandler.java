@@ -0,0 +1,37 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister;
+
+import java.util.List;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ListOrSearchSampleCriteria;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Sample;
+
+/**
+ * A handler of the batches of {@link Sample}s listed by
+ * {@link ISampleLister#list(ListOrSearchSampleCriteria, int, ISampleBatchHandler)}.
+ * 
+ * @author agent
+ */
+public interface ISampleBatchHandler
+{
+    /**
+     * Handles given batch of samples. The list is not used by the lister afterwards, so the handler
+     * may keep it.
+     */
+    public void handle(List<Sample> samples);
+}
@@ -34,4 +34,13 @@ public interface ISampleLister
      */
     public List<Sample> list(ListOrSearchSampleCriteria criteria);
 
+    /**
+     * Passes the {@link Sample}s that match given criteria to given <var>handler</var> in batches
+     * of at most <var>maxBatchSize</var> samples. The samples of each batch are completed with
+     * properties, parents and containers before the batch is handed over, and only one batch is
+     * held in memory at a time. The samples are not sorted.
+     */
+    public void list(ListOrSearchSampleCriteria criteria, int maxBatchSize,
+            ISampleBatchHandler handler);
+
 }
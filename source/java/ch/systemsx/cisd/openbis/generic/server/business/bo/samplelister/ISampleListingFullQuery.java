@@ -37,7 +37,7 @@ import ch.systemsx.cisd.openbis.generic.server.dataaccess.db.LongSetMapper;
  * 
  * @author Bernd Rinn
  */
-@Friend(toClasses={ISampleListingQuery.class, ISampleSetListingQuery.class})
+@Friend(toClasses={ISampleListingQuery.class, ISampleSetListingQuery.class, ISampleAncestorListingQuery.class})
 @Private
 public interface ISampleListingFullQuery extends ISampleListingQuery
 {
@@ -58,6 +58,34 @@ public interface ISampleListingFullQuery extends ISampleListingQuery
         { LongSetMapper.class }, fetchSize = FETCH_SIZE)
     public DataIterator<SampleRecord> getSamples(LongSet sampleIds);
 
+    /**
+     * Returns the samples for the given <var>parentIds</var> and <var>containerIds</var> together
+     * with their ancestors, resolved with one recursive query. See
+     * {@link ISampleAncestorListingQuery#getSamplesWithAncestors(LongSet, int, LongSet, int)} for
+     * the meaning of the parameters.
+     * <p>
+     * <em>Do not call directly, call via {@link ISampleAncestorListingQuery}</em>
+     */
+    @Select(sql = "with recursive ancestors(id, samp_id_generated_from, samp_id_part_of, depth) as ("
+            + "       select id, samp_id_generated_from, samp_id_part_of, ?{2} from samples"
+            + "         where id = any(?{1})"
+            + "     union"
+            + "       select id, samp_id_generated_from, samp_id_part_of, ?{4} from samples"
+            + "         where id = any(?{3})"
+            + "     union"
+            + "       select s.id, s.samp_id_generated_from, s.samp_id_part_of, a.depth - 1"
+            + "         from ancestors a join samples s"
+            + "           on (s.id = a.samp_id_generated_from and ?{2} > 0)"
+            + "           or (s.id = a.samp_id_part_of and ?{4} > 0)"
+            + "         where a.depth > 1)"
+            + " select s.id, s.perm_id, s.code, s.expe_id, s.grou_id, "
+            + "       s.registration_timestamp, s.pers_id_registerer, "
+            + "       s.samp_id_generated_from, s.samp_id_part_of, s.saty_id, s.inva_id "
+            + "   from samples s where s.id in (select id from ancestors)", parameterBindings =
+        { LongSetMapper.class }, fetchSize = FETCH_SIZE)
+    public DataIterator<SampleRecord> getSamplesWithAncestors(LongSet parentIds, int parentDepth,
+            LongSet containerIds, int containerDepth);
+
     //
     // Sample Properties
     //
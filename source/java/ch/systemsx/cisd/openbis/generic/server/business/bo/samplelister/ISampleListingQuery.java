@@ -25,8 +25,6 @@ import net.lemnik.eodsql.Select;
 import net.lemnik.eodsql.TransactionQuery;
 import net.lemnik.eodsql.spi.util.NonUpdateCapableDataObjectBinding;
 
-import org.apache.commons.lang.StringEscapeUtils;
-
 import ch.rinn.restrictions.Friend;
 import ch.rinn.restrictions.Private;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.GenericEntityPropertyRecord;
@@ -35,6 +33,7 @@ import ch.systemsx.cisd.openbis.generic.server.business.bo.common.MaterialEntity
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VocabularyTermRecord;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.ExperimentProjectGroupCodeRecord;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SampleType;
+import ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils;
 
 /**
  * A {@link TransactionQuery} interface for obtaining large sets of sample-related entities from the
@@ -68,6 +67,16 @@ public interface ISampleListingQuery extends TransactionQuery, IPropertyListingQ
             + "   from samples s where s.id=?{1}")
     public SampleRecord getSample(long sampleId);
 
+    /**
+     * Returns the samples with ids between <var>fromSampleId</var> and <var>toSampleId</var>
+     * (inclusive).
+     */
+    @Select(sql = "select s.id, s.perm_id, s.code, s.expe_id, s.grou_id, "
+            + "       s.registration_timestamp, s.pers_id_registerer, "
+            + "       s.samp_id_generated_from, s.samp_id_part_of, s.saty_id, s.inva_id "
+            + "   from samples s where s.id between ?{1} and ?{2}", fetchSize = FETCH_SIZE)
+    public DataIterator<SampleRecord> getSamplesInIdRange(long fromSampleId, long toSampleId);
+
     /**
      * Returns all samples in the database.
      */
@@ -192,7 +201,7 @@ public interface ISampleListingQuery extends TransactionQuery, IPropertyListingQ
         public void unmarshall(ResultSet row, SampleType into) throws SQLException, EoDException
         {
             into.setId(row.getLong("id"));
-            into.setCode(StringEscapeUtils.escapeHtml(row.getString("code")));
+            into.setCode(HtmlEscapeUtils.escapeHtml(row.getString("code")));
             into.setGeneratedFromHierarchyDepth(row.getInt("generated_from_depth"));
             into.setShowContainer(row.getInt("part_of_depth") > 0);
         }
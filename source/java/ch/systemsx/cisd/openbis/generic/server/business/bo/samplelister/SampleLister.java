@@ -18,6 +18,7 @@ package ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister;
 
 import java.util.List;
 
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ReferenceDataCache;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ListOrSearchSampleCriteria;
@@ -38,24 +39,37 @@ public class SampleLister implements ISampleLister
 
     private final String baseIndexURL;
 
-    public static SampleLister create(IDAOFactory daoFactory, String baseIndexURL)
+    private final ReferenceDataCache referenceDataCache;
+
+    public static SampleLister create(IDAOFactory daoFactory, String baseIndexURL,
+            ReferenceDataCache referenceDataCache)
     {
         SampleListerDAO sampleListerDAO = SampleListerDAO.create(daoFactory);
         SecondaryEntityDAO referencedEntityDAO = SecondaryEntityDAO.create(daoFactory);
-        return new SampleLister(baseIndexURL, sampleListerDAO, referencedEntityDAO);
+        return new SampleLister(baseIndexURL, sampleListerDAO, referencedEntityDAO,
+                referenceDataCache);
     }
 
     private SampleLister(String baseIndexURL, SampleListerDAO dao,
-            SecondaryEntityDAO referencedEntityDAO)
+            SecondaryEntityDAO referencedEntityDAO, ReferenceDataCache referenceDataCache)
     {
         this.baseIndexURL = baseIndexURL;
         this.dao = dao;
         this.referencedEntityDAO = referencedEntityDAO;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public List<Sample> list(final ListOrSearchSampleCriteria criteria)
     {
-        return SampleListingWorker.create(criteria, baseIndexURL, dao, referencedEntityDAO).load();
+        return SampleListingWorker.create(criteria, baseIndexURL, dao, referencedEntityDAO,
+                referenceDataCache).load();
+    }
+
+    public void list(final ListOrSearchSampleCriteria criteria, final int maxBatchSize,
+            final ISampleBatchHandler handler)
+    {
+        SampleListingWorker.create(criteria, baseIndexURL, dao, referencedEntityDAO,
+                referenceDataCache).load(maxBatchSize, handler);
     }
 
 }
@@ -26,10 +26,13 @@ import net.lemnik.eodsql.QueryTool;
 import ch.rinn.restrictions.Friend;
 import ch.rinn.restrictions.Private;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.AbstractDAO;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ConnectedEntitiesCountProvider;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ConnectedEntityPropertySetListingQuery;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.DatabaseContextUtils;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.GenericEntityPropertyRecord;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertyListingQuery;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertySetListingQuery;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertySetListingQueryFactory;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.MaterialEntityPropertyRecord;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.PropertiesSetListingQueryFallback;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser;
@@ -58,7 +61,14 @@ public final class SampleListerDAO extends AbstractDAO
         Connection connection = DatabaseContextUtils.getConnection(daoFactory);
         ISampleListingFullQuery query =
                 QueryTool.getQuery(connection, ISampleListingFullQuery.class);
-        return create(daoFactory, query);
+        final boolean supportsSetQuery = DatabaseContextUtils.isSupportingSetQueries(daoFactory);
+        DatabaseInstancePE homeDatabaseInstance = daoFactory.getHomeDatabaseInstance();
+        // Properties are fetched concurrently only with set queries.
+        IEntityPropertySetListingQueryFactory propertySetQueryFactoryOrNull =
+                supportsSetQuery ? createPropertySetQueryFactory(daoFactory) : null;
+        return new SampleListerDAO(supportsSetQuery, query, homeDatabaseInstance,
+                createCountProvider(daoFactory, homeDatabaseInstance.getId()),
+                propertySetQueryFactoryOrNull);
     }
 
     @Private
@@ -66,25 +76,34 @@ public final class SampleListerDAO extends AbstractDAO
     {
         final boolean supportsSetQuery = DatabaseContextUtils.isSupportingSetQueries(daoFactory);
         DatabaseInstancePE homeDatabaseInstance = daoFactory.getHomeDatabaseInstance();
-        return new SampleListerDAO(supportsSetQuery, query, homeDatabaseInstance);
+        return new SampleListerDAO(supportsSetQuery, query, homeDatabaseInstance,
+                createCountProvider(daoFactory, homeDatabaseInstance.getId()), null);
     }
 
     private final ISampleListingFullQuery query;
 
     private final ISampleSetListingQuery setQuery;
 
+    private final ISampleAncestorListingQuery ancestorQueryOrNull;
+
     private final IEntityPropertySetListingQuery propertySetQuery;
 
     private final QueryStrategyChooser strategyChooser;
 
+    private final IEntityPropertySetListingQueryFactory propertySetQueryFactoryOrNull;
+
     SampleListerDAO(final boolean supportsSetQuery, ISampleListingFullQuery query,
-            final DatabaseInstancePE databaseInstance)
+            final DatabaseInstancePE databaseInstance,
+            final IEntitiesCountProvider countProvider,
+            final IEntityPropertySetListingQueryFactory propertySetQueryFactoryOrNull)
     {
         super(databaseInstance);
         this.query = query;
-        this.strategyChooser = createStrategyChooser(query, databaseInstance.getId());
+        this.propertySetQueryFactoryOrNull = propertySetQueryFactoryOrNull;
+        this.strategyChooser = new QueryStrategyChooser("samples", countProvider);
         this.setQuery =
                 createIdSetQuery(supportsSetQuery, query, strategyChooser, databaseInstance.getId());
+        this.ancestorQueryOrNull = supportsSetQuery ? asSampleAncestorListingQuery(query) : null;
         this.propertySetQuery =
                 createSetPropertyQuery(supportsSetQuery, query, strategyChooser, databaseInstance
                         .getId());
@@ -100,21 +119,42 @@ public final class SampleListerDAO extends AbstractDAO
         return setQuery;
     }
 
+    /**
+     * Returns the query for samples together with their ancestors, or <code>null</code> if the
+     * database engine does not support it. In this case the ancestors have to be fetched level by
+     * level with the {@link #getIdSetQuery()}.
+     */
+    ISampleAncestorListingQuery tryGetAncestorQuery()
+    {
+        return ancestorQueryOrNull;
+    }
+
     IEntityPropertySetListingQuery getPropertySetQuery()
     {
         return propertySetQuery;
     }
 
-    private static QueryStrategyChooser createStrategyChooser(final ISampleListingFullQuery query,
+    /**
+     * Returns the factory of property set queries working on their own connections, or
+     * <code>null</code> if properties should not be fetched concurrently.
+     */
+    IEntityPropertySetListingQueryFactory tryGetPropertySetQueryFactory()
+    {
+        return propertySetQueryFactoryOrNull;
+    }
+
+    private static IEntitiesCountProvider createCountProvider(final IDAOFactory daoFactory,
             final long databaseInstanceId)
     {
-        return new QueryStrategyChooser(new IEntitiesCountProvider()
+        return new ConnectedEntitiesCountProvider<ISampleListingFullQuery>(daoFactory,
+                ISampleListingFullQuery.class)
             {
-                public long count()
+                @Override
+                protected long count(ISampleListingFullQuery query)
                 {
                     return query.getSampleCount(databaseInstanceId);
                 }
-            });
+            };
     }
 
     private static IEntityPropertySetListingQuery createSetPropertyQuery(boolean supportsSetQuery,
@@ -171,6 +211,23 @@ public final class SampleListerDAO extends AbstractDAO
             };
     }
 
+    private static IEntityPropertySetListingQueryFactory createPropertySetQueryFactory(
+            final IDAOFactory daoFactory)
+    {
+        return new IEntityPropertySetListingQueryFactory()
+            {
+                public ConnectedEntityPropertySetListingQuery createQuery()
+                {
+                    final Connection connection =
+                            DatabaseContextUtils.createReadOnlyConnection(daoFactory);
+                    final ISampleListingFullQuery query =
+                            QueryTool.getQuery(connection, ISampleListingFullQuery.class);
+                    return new ConnectedEntityPropertySetListingQuery(
+                            asEntityPropertySetListingQuery(query), connection);
+                }
+            };
+    }
+
     private static IEntityPropertySetListingQuery asEntityPropertySetListingQuery(
             final ISampleListingFullQuery query)
     {
@@ -220,4 +277,18 @@ public final class SampleListerDAO extends AbstractDAO
                 }
             };
     }
+
+    private static ISampleAncestorListingQuery asSampleAncestorListingQuery(
+            final ISampleListingFullQuery query)
+    {
+        return new ISampleAncestorListingQuery()
+            {
+                public Iterable<SampleRecord> getSamplesWithAncestors(LongSet parentIds,
+                        int parentDepth, LongSet containerIds, int containerDepth)
+                {
+                    return query.getSamplesWithAncestors(parentIds, parentDepth, containerIds,
+                            containerDepth);
+                }
+            };
+    }
 }
@@ -21,12 +21,14 @@ import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.time.StopWatch;
 import org.apache.log4j.Logger;
 
@@ -36,12 +38,12 @@ import ch.systemsx.cisd.common.logging.LogFactory;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.EntityPropertiesEnricher;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertiesEnricher;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.IEntityPropertiesHolderResolver;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ReferenceDataCache;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.VersionedCachedValue;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.ExperimentProjectGroupCodeRecord;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO;
-import ch.systemsx.cisd.openbis.generic.shared.basic.PermlinkUtilities;
 import ch.systemsx.cisd.openbis.generic.shared.basic.TechId;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseInstance;
-import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Experiment;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Group;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.IEntityProperty;
@@ -54,11 +56,12 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SampleType;
 import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.DatabaseInstanceIdentifier;
 import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.GroupIdentifier;
 import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.IdentifierHelper;
-import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.SampleIdentifier;
+import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.SampleOwnerIdentifier;
+import ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils;
 
 /**
- * A business worker object for fast sample listing. It has only one interface method, which is
- * {@link #load()}. This method deals with
+ * A business worker object for fast sample listing. It has two interface methods, {@link #load()}
+ * and {@link #load(int, ISampleBatchHandler)}, which deal with
  * <ul>
  * <li>information stored in the sample table</li>
  * <li>sample type information</li>
@@ -70,6 +73,12 @@ import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.SampleIdentifier;
  * by the {@link ListSampleCriteria}, the <i>primary samples</i>, should be enriched with properties
  * (as only primary samples are shown in a separate row of the list). From <i>dependent samples</i>,
  * only basic information is obtained.
+ * <p>
+ * The experiments and registrators of the primary samples are collected while the samples are
+ * retrieved and fetched afterwards with one set query each.
+ * <p>
+ * When loading in batches, the primary samples are completed and handed over batch by batch, and
+ * all working data structures which grow with the number of samples are cleared after each batch.
  * 
  * @author Bernd Rinn
  */
@@ -96,7 +105,11 @@ final class SampleListingWorker
     // Output
     //
 
-    private final List<Sample> sampleList = new ArrayList<Sample>(ISampleListingQuery.FETCH_SIZE);
+    private List<Sample> sampleList = new ArrayList<Sample>(ISampleListingQuery.FETCH_SIZE);
+
+    private ISampleBatchHandler batchHandlerOrNull;
+
+    private int batchSize;
 
     //
     // Working interfaces
@@ -106,10 +119,14 @@ final class SampleListingWorker
 
     private final ISampleSetListingQuery setQuery;
 
+    private final ISampleAncestorListingQuery ancestorQueryOrNull;
+
     private final IEntityPropertiesEnricher samplePropertiesEnricherOrNull;
 
     private final SecondaryEntityDAO referencedEntityDAO;
 
+    private final ReferenceDataCache referenceDataCache;
+
     //
     // Working data structures
     //
@@ -130,6 +147,22 @@ final class SampleListingWorker
         }
     }
 
+    /**
+     * A record for storing a sample and the id of a related experiment or registrator.
+     */
+    private static class RelatedEntityRecord
+    {
+        Sample sample;
+
+        long relatedEntityId;
+
+        RelatedEntityRecord(Sample sample, long relatedEntityId)
+        {
+            this.sample = sample;
+            this.relatedEntityId = relatedEntityId;
+        }
+    }
+
     private final Long2ObjectOpenHashMap<SampleType> sampleTypes =
             new Long2ObjectOpenHashMap<SampleType>();
 
@@ -143,6 +176,12 @@ final class SampleListingWorker
     private final Long2ObjectMap<RelatedSampleRecord> samplesAwaitingContainerResolution =
             new Long2ObjectOpenHashMap<RelatedSampleRecord>();
 
+    private final List<RelatedEntityRecord> samplesAwaitingExperimentResolution =
+            new ArrayList<RelatedEntityRecord>();
+
+    private final List<RelatedEntityRecord> samplesAwaitingRegistratorResolution =
+            new ArrayList<RelatedEntityRecord>();
+
     private final Long2IntMap requestedSamples = new Long2IntOpenHashMap();
 
     private boolean singleSampleTypeMode;
@@ -155,15 +194,33 @@ final class SampleListingWorker
     
     private final Long2ObjectMap<Group> groupMap = new Long2ObjectOpenHashMap<Group>();
 
+    /** The identifiers of the groups owning samples, by group code. */
+    private final Map<String, String> groupIdentifiers = new HashMap<String, String>();
+
+    private String databaseInstanceIdentifierOrNull;
+
+    private final StopWatch watch = new StopWatch();
+
     public static SampleListingWorker create(ListOrSearchSampleCriteria criteria,
             String baseIndexURL, SampleListerDAO dao, SecondaryEntityDAO referencedEntityDAO)
+    {
+        return create(criteria, baseIndexURL, dao, referencedEntityDAO, ReferenceDataCache
+                .createUncached());
+    }
+
+    public static SampleListingWorker create(ListOrSearchSampleCriteria criteria,
+            String baseIndexURL, SampleListerDAO dao, SecondaryEntityDAO referencedEntityDAO,
+            ReferenceDataCache referenceDataCache)
     {
         ISampleListingQuery query = dao.getQuery();
         ISampleSetListingQuery setQuery = dao.getIdSetQuery();
+        ISampleAncestorListingQuery ancestorQueryOrNull = dao.tryGetAncestorQuery();
         EntityPropertiesEnricher propertiesEnricher =
-                new EntityPropertiesEnricher(query, dao.getPropertySetQuery());
+                new EntityPropertiesEnricher(query, dao.getPropertySetQuery(), dao
+                        .tryGetPropertySetQueryFactory(), referenceDataCache);
         return new SampleListingWorker(criteria, baseIndexURL, dao.getDatabaseInstanceId(), dao
-                .getDatabaseInstance(), query, setQuery, propertiesEnricher, referencedEntityDAO);
+                .getDatabaseInstance(), query, setQuery, ancestorQueryOrNull, propertiesEnricher,
+                referencedEntityDAO, referenceDataCache);
     }
 
     //
@@ -174,14 +231,16 @@ final class SampleListingWorker
     SampleListingWorker(final ListOrSearchSampleCriteria criteria, final String baseIndexURL,
             final long databaseInstanceId, final DatabaseInstance databaseInstance,
             final ISampleListingQuery query, final ISampleSetListingQuery setQuery,
+            final ISampleAncestorListingQuery ancestorQueryOrNull,
             IEntityPropertiesEnricher samplePropertiesEnricherOrNull,
-            SecondaryEntityDAO referencedEntityDAO)
+            SecondaryEntityDAO referencedEntityDAO, ReferenceDataCache referenceDataCache)
     {
         assert criteria != null;
         assert baseIndexURL != null;
         assert databaseInstance != null;
         assert query != null;
         assert setQuery != null;
+        assert referenceDataCache != null;
 
         this.criteria = criteria;
         this.baseIndexURL = baseIndexURL;
@@ -189,8 +248,10 @@ final class SampleListingWorker
         this.databaseInstance = databaseInstance;
         this.query = query;
         this.setQuery = setQuery;
+        this.ancestorQueryOrNull = ancestorQueryOrNull;
         this.samplePropertiesEnricherOrNull = samplePropertiesEnricherOrNull;
         this.referencedEntityDAO = referencedEntityDAO;
+        this.referenceDataCache = referenceDataCache;
     }
 
     //
@@ -203,20 +264,49 @@ final class SampleListingWorker
      */
     public List<Sample> load()
     {
-        final StopWatch watch = new StopWatch();
         watch.start();
+        retrievePrimaryBasicSamples();
+        completeBatch();
+        return sampleList;
+    }
+
+    /**
+     * Load the samples defined by the criteria given to the constructor in batches of at most
+     * <var>maxBatchSize</var> samples and pass each batch to given <var>handler</var>. The samples
+     * of each batch will be enriched with sample properties and dependencies to parents and
+     * container will be resolved before the batch is handed over. Only the samples of one batch
+     * are held in memory at a time.
+     * <p>
+     * Contrary to {@link #load()}, a parent or container is a primary sample only if it belongs to
+     * the same batch, otherwise it has been fetched as a dependent sample without properties.
+     */
+    public void load(final int maxBatchSize, final ISampleBatchHandler handler)
+    {
+        assert maxBatchSize > 0 : "Batch size has to be positive: " + maxBatchSize;
+        assert handler != null : "Unspecified handler.";
+        this.batchSize = maxBatchSize;
+        this.batchHandlerOrNull = handler;
+        watch.start();
+        retrievePrimaryBasicSamples();
+        if (sampleList.isEmpty() == false)
+        {
+            handleBatch();
+        }
+    }
+
+    //
+    // Private worker methods
+    //
+
+    private void retrievePrimaryBasicSamples()
+    {
         final Experiment expOrNull = tryLoadExperiment();
         final boolean oneGroupPerSample = isOneGroupPerSamples();
         final Group groupOrNull;
         if (oneGroupPerSample)
         {
             groupOrNull = null;
-            final Group[] groups = referencedEntityDAO.getAllGroups(databaseInstanceId);
-            for (Group group : groups)
-            {
-                group.setInstance(databaseInstance);
-                groupMap.put(group.getId(), group);
-            }
+            groupMap.putAll(getAllGroups());
         } else
         {
             groupOrNull = tryLoadGroup(expOrNull);
@@ -235,6 +325,16 @@ final class SampleListingWorker
                 oneGroupPerSample);
         retrievePrimaryBasicSamples(tryGetIteratorForContainedSamples(), groupOrNull,
                 oneGroupPerSample);
+    }
+
+    /**
+     * Completes the primary samples retrieved so far with their experiments, registrators,
+     * properties, parents and containers.
+     */
+    private void completeBatch()
+    {
+        resolveExperiments();
+        resolveRegistrators();
         if (operationLog.isDebugEnabled())
         {
             watch.stop();
@@ -256,6 +356,7 @@ final class SampleListingWorker
                                 return sampleMap.get(id);
                             }
                         });
+            trimProperties();
             if (operationLog.isDebugEnabled())
             {
                 watch.stop();
@@ -264,16 +365,50 @@ final class SampleListingWorker
             }
         }
 
-        retrieveDependentSamplesRecursively();
+        retrieveDependentSamples();
         resolveParents();
         resolveContainers();
+    }
 
-        return sampleList;
+    /**
+     * Completes the current batch of primary samples, clears the working data structures and
+     * hands the batch over to the batch handler.
+     */
+    private void handleBatch()
+    {
+        completeBatch();
+        final List<Sample> batch = sampleList;
+        sampleList = new ArrayList<Sample>(Math.min(batchSize, ISampleListingQuery.FETCH_SIZE));
+        sampleMap.clear();
+        samplesAwaitingParentResolution.clear();
+        samplesAwaitingContainerResolution.clear();
+        requestedSamples.clear();
+        batchHandlerOrNull.handle(batch);
+        watch.reset();
+        watch.start();
     }
 
-    //
-    // Private worker methods
-    //
+    private Long2ObjectMap<Group> getAllGroups()
+    {
+        return referenceDataCache.getGroups().get(
+                new VersionedCachedValue.ILoader<Long2ObjectMap<Group>>()
+                    {
+                        public Long2ObjectMap<Group> load()
+                        {
+                            final Group[] groups =
+                                    referencedEntityDAO.getAllGroups(databaseInstanceId);
+                            final Long2ObjectOpenHashMap<Group> result =
+                                    new Long2ObjectOpenHashMap<Group>(groups.length);
+                            for (Group group : groups)
+                            {
+                                group.setInstance(databaseInstance);
+                                result.put(group.getId(), group);
+                            }
+                            result.trim();
+                            return result;
+                        }
+                    });
+    }
 
     private Experiment tryLoadExperiment()
     {
@@ -306,7 +441,7 @@ final class SampleListingWorker
         if (criteria.getGroupCode() != null)
         {
             final Group group = new Group();
-            group.setCode(StringEscapeUtils.escapeHtml(criteria.getGroupCode()));
+            group.setCode(HtmlEscapeUtils.escapeHtml(criteria.getGroupCode()));
             group.setInstance(databaseInstance);
             group.setId(referencedEntityDAO.getGroupIdForCode(group.getCode()));
             return group;
@@ -325,16 +460,25 @@ final class SampleListingWorker
     {
         final String sampleTypeCodeOrNull = tryGetSampleTypeCode();
         this.singleSampleTypeMode = (sampleTypeCodeOrNull != null);
+        final SampleType[] allSampleTypes =
+                referenceDataCache.getSampleTypes().get(
+                        new VersionedCachedValue.ILoader<SampleType[]>()
+                            {
+                                public SampleType[] load()
+                                {
+                                    return query.getSampleTypes(databaseInstanceId);
+                                }
+                            });
         if (singleSampleTypeMode)
         {
             final SampleType sampleType =
-                    query.getSampleType(databaseInstanceId, sampleTypeCodeOrNull);
+                    findSampleType(allSampleTypes, sampleTypeCodeOrNull);
             sampleTypes.put(sampleType.getId(), sampleType);
             this.maxSampleParentResolutionDepth = sampleType.getGeneratedFromHierarchyDepth();
             this.maxSampleContainerResolutionDepth = sampleType.getContainerHierarchyDepth();
         } else
         {
-            for (SampleType type : query.getSampleTypes(databaseInstanceId))
+            for (SampleType type : allSampleTypes)
             {
                 sampleTypes.put(type.getId(), type);
                 maxSampleContainerResolutionDepth =
@@ -348,6 +492,20 @@ final class SampleListingWorker
         }
     }
 
+    private SampleType findSampleType(final SampleType[] allSampleTypes,
+            final String sampleTypeCode)
+    {
+        for (SampleType type : allSampleTypes)
+        {
+            if (HtmlEscapeUtils.escapeHtml(sampleTypeCode).equals(type.getCode()))
+            {
+                return type;
+            }
+        }
+        // The cached sample types might not contain a sample type registered just now.
+        return query.getSampleType(databaseInstanceId, sampleTypeCode);
+    }
+
     private String tryGetSampleTypeCode()
     {
         final SampleType sampleTypeOrNull = criteria.getSampleType();
@@ -439,35 +597,40 @@ final class SampleListingWorker
     private void retrievePrimaryBasicSamples(final Iterable<SampleRecord> sampleIteratorOrNull,
             final Group groupOrNull, final boolean oneGroupPerSample)
     {
-        assert sampleList != null;
-
-        retrieveBasicSamples(sampleIteratorOrNull, groupOrNull, baseIndexURL, sampleList,
+        retrieveBasicSamples(sampleIteratorOrNull, groupOrNull, baseIndexURL, true,
                 oneGroupPerSample);
     }
 
     private void retrieveDependentBasicSamples(final Iterable<SampleRecord> sampleIteratorOrNull)
     {
-        retrieveBasicSamples(sampleIteratorOrNull, null, null, null, true);
+        retrieveBasicSamples(sampleIteratorOrNull, null, null, false, true);
     }
 
     private void retrieveBasicSamples(final Iterable<SampleRecord> sampleIteratorOrNull,
             final Group groupOrNull, final String baseIndexURLOrNull,
-            final List<Sample> sampleListOrNull, final boolean oneGroupPerSample)
+            final boolean primarySample, final boolean oneGroupPerSample)
     {
         if (sampleIteratorOrNull == null)
         {
             return;
         }
-        final boolean primarySample = (sampleListOrNull != null);
         for (SampleRecord row : sampleIteratorOrNull)
         {
+            if (primarySample == false && sampleMap.containsKey(row.id))
+            {
+                continue;
+            }
             final Sample sample =
                     createSample(row, groupOrNull, oneGroupPerSample, baseIndexURLOrNull,
                             primarySample);
             sampleMap.put(sample.getId(), sample);
-            if (sampleListOrNull != null)
+            if (primarySample)
             {
-                sampleListOrNull.add(sample);
+                sampleList.add(sample);
+                if (batchHandlerOrNull != null && sampleList.size() >= batchSize)
+                {
+                    handleBatch();
+                }
             }
         }
     }
@@ -478,8 +641,10 @@ final class SampleListingWorker
     {
         final Sample sample = new Sample();
         sample.setId(row.id);
-        sample.setCode(IdentifierHelper.convertCode(row.code, null));
-        sample.setSubCode(IdentifierHelper.convertSubCode(row.code));
+        // Without container the code equals the sub code, so both share one string.
+        final String subCode = IdentifierHelper.convertSubCode(row.code);
+        sample.setCode(subCode);
+        sample.setSubCode(subCode);
         sample.setSampleType(sampleTypes.get(row.saty_id));
         if (oneGroupPerSample)
         {
@@ -500,9 +665,9 @@ final class SampleListingWorker
         }
         if (primarySample)
         {
-            sample.setPermId(StringEscapeUtils.escapeHtml(row.perm_id));
-            sample.setPermlink(PermlinkUtilities.createPermlinkURL(baseIndexURLOrNull,
-                    EntityKind.SAMPLE, row.perm_id));
+            sample.setPermId(HtmlEscapeUtils.escapeHtml(row.perm_id));
+            // The permlink is derived on demand from the shared base URL.
+            sample.setBaseIndexURL(baseIndexURLOrNull);
             sample.setRegistrationDate(row.registration_timestamp);
             sample.setProperties(new ArrayList<IEntityProperty>());
             if (row.inva_id != null)
@@ -510,10 +675,12 @@ final class SampleListingWorker
                 final Invalidation invalidation = new Invalidation();
                 sample.setInvalidation(invalidation);
             }
-            sample.setRegistrator(getOrCreateRegistrator(row));
+            samplesAwaitingRegistratorResolution.add(new RelatedEntityRecord(sample,
+                    row.pers_id_registerer));
             if (row.expe_id != null)
             {
-                sample.setExperiment(getOrCreateExperiment(row, groupOrNull));
+                samplesAwaitingExperimentResolution.add(new RelatedEntityRecord(sample,
+                        row.expe_id));
             }
         }
         if (row.samp_id_generated_from != null & maxSampleParentResolutionDepth > 0)
@@ -539,22 +706,49 @@ final class SampleListingWorker
         return sample;
     }
 
+    /**
+     * Trims the property lists of the primary samples to their sizes, as they are kept as long as
+     * the listing is cached.
+     */
+    private void trimProperties()
+    {
+        for (Sample sample : sampleList)
+        {
+            final List<IEntityProperty> properties = sample.getProperties();
+            if (properties instanceof ArrayList)
+            {
+                ((ArrayList<IEntityProperty>) properties).trimToSize();
+            }
+        }
+    }
+
+    // The identifier of a sample is the identifier of its owner followed by its code (see
+    // SampleIdentifier.toString()). The owner identifiers are built once per owner.
+
     private void setGroup(final Sample sample, final Group group)
     {
         sample.setGroup(group);
-        final GroupIdentifier groupId =
-                new GroupIdentifier(databaseInstance.getCode(), group.getCode());
-        sample
-                .setIdentifier(new SampleIdentifier(groupId, sample.getCode())
-                        .toString());
+        String groupIdentifier = groupIdentifiers.get(group.getCode());
+        if (groupIdentifier == null)
+        {
+            final GroupIdentifier groupId =
+                    new GroupIdentifier(databaseInstance.getCode(), group.getCode());
+            groupIdentifier = new SampleOwnerIdentifier(groupId).toString();
+            groupIdentifiers.put(group.getCode(), groupIdentifier);
+        }
+        sample.setIdentifier(groupIdentifier + sample.getCode());
     }
 
     private void setDatabaseInstance(final Sample sample)
     {
         sample.setDatabaseInstance(databaseInstance);
-        final DatabaseInstanceIdentifier dbId =
-                new DatabaseInstanceIdentifier(databaseInstance.getCode());
-        sample.setIdentifier(new SampleIdentifier(dbId, sample.getCode()).toString());
+        if (databaseInstanceIdentifierOrNull == null)
+        {
+            final DatabaseInstanceIdentifier dbId =
+                    new DatabaseInstanceIdentifier(databaseInstance.getCode());
+            databaseInstanceIdentifierOrNull = new SampleOwnerIdentifier(dbId).toString();
+        }
+        sample.setIdentifier(databaseInstanceIdentifierOrNull + sample.getCode());
     }
 
     private void addToRequested(long newId, long oldId, int initialDepth, boolean primarySample)
@@ -572,30 +766,84 @@ final class SampleListingWorker
         }
     }
 
-    private Experiment getOrCreateExperiment(SampleRecord row, final Group groupOrNull)
+    /**
+     * Fetches the experiments of the primary samples which have not been fetched yet at once and
+     * assigns them to the samples.
+     */
+    private void resolveExperiments()
     {
-        Experiment experiment = experiments.get(row.expe_id);
-        if (experiment == null)
+        final LongSet missingIds = getMissingIds(samplesAwaitingExperimentResolution, experiments);
+        experiments.putAll(referencedEntityDAO.getExperiments(missingIds));
+        for (RelatedEntityRecord record : samplesAwaitingExperimentResolution)
         {
-            experiment = createAndSaveExperiment(row.expe_id, groupOrNull);
+            record.sample.setExperiment(experiments.get(record.relatedEntityId));
         }
-        return experiment;
+        samplesAwaitingExperimentResolution.clear();
+    }
+
+    /**
+     * Fetches the registrators of the primary samples which have not been fetched yet at once and
+     * assigns them to the samples.
+     */
+    private void resolveRegistrators()
+    {
+        final LongSet missingIds = getMissingIds(samplesAwaitingRegistratorResolution, persons);
+        persons.putAll(referencedEntityDAO.getPersons(missingIds));
+        for (RelatedEntityRecord record : samplesAwaitingRegistratorResolution)
+        {
+            record.sample.setRegistrator(persons.get(record.relatedEntityId));
+        }
+        samplesAwaitingRegistratorResolution.clear();
     }
 
-    private Person getOrCreateRegistrator(SampleRecord row)
+    private static LongSet getMissingIds(final List<RelatedEntityRecord> records,
+            final Long2ObjectMap<?> resolved)
     {
-        return getOrCreateRegistrator(row.pers_id_registerer);
+        final LongSet missingIds = new LongOpenHashSet();
+        for (RelatedEntityRecord record : records)
+        {
+            if (resolved.containsKey(record.relatedEntityId) == false)
+            {
+                missingIds.add(record.relatedEntityId);
+            }
+        }
+        return missingIds;
     }
 
-    private Person getOrCreateRegistrator(long personId)
+    /**
+     * Fetches the parents and containers of the primary samples up to the maximal resolution
+     * depths. If supported by the database engine, this is done with one recursive query,
+     * otherwise with one query per level.
+     */
+    private void retrieveDependentSamples()
     {
-        Person registrator = persons.get(personId);
-        if (registrator == null)
+        if (ancestorQueryOrNull == null)
+        {
+            retrieveDependentSamplesRecursively();
+            return;
+        }
+        if (requestedSamples.size() == 0)
         {
-            registrator = referencedEntityDAO.getPerson(personId);
-            persons.put(personId, registrator);
+            return;
+        }
+        // Up to now only the primary samples have requested samples, either parents with the
+        // maximal parent resolution depth or containers with the maximal container resolution
+        // depth.
+        final LongSet parentIds = new LongOpenHashSet();
+        final LongSet containerIds = new LongOpenHashSet();
+        for (Long2IntMap.Entry e : requestedSamples.long2IntEntrySet())
+        {
+            if (e.getIntValue() == maxSampleParentResolutionDepth)
+            {
+                parentIds.add(e.getLongKey());
+            } else
+            {
+                containerIds.add(e.getLongKey());
+            }
         }
-        return registrator;
+        requestedSamples.clear();
+        retrieveDependentBasicSamples(ancestorQueryOrNull.getSamplesWithAncestors(parentIds,
+                maxSampleParentResolutionDepth, containerIds, maxSampleContainerResolutionDepth));
     }
 
     private void retrieveDependentSamplesRecursively()
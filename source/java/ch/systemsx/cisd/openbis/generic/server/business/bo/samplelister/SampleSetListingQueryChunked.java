@@ -0,0 +1,66 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.Iterator;
+
+import ch.rinn.restrictions.Friend;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ChunkedSetListingIterable;
+
+/**
+ * An implementation of {@link ISampleSetListingQuery} which gets the samples in chunks of close
+ * sample ids with one range query per chunk. This needs much less queries than getting the samples
+ * one by one (as {@link SampleSetListingQueryOneByOne} does) without reading the whole table (as
+ * {@link SampleSetListingQueryFullTableScan} does).
+ * 
+ * @author agent
+ */
+@Friend(toClasses =
+    { SampleRecord.class, ISampleListingQuery.class })
+class SampleSetListingQueryChunked implements ISampleSetListingQuery
+{
+    private final ISampleListingQuery query;
+
+    private final int chunkSize;
+
+    public SampleSetListingQueryChunked(final ISampleListingQuery query, final int chunkSize)
+    {
+        this.query = query;
+        this.chunkSize = chunkSize;
+    }
+
+    public Iterable<SampleRecord> getSamples(final LongSet sampleIds)
+    {
+        return new ChunkedSetListingIterable<SampleRecord>(sampleIds, chunkSize)
+            {
+                @Override
+                protected Iterator<SampleRecord> getRecords(long fromId, long toId)
+                {
+                    return query.getSamplesInIdRange(fromId, toId);
+                }
+
+                @Override
+                protected long getId(SampleRecord sample)
+                {
+                    return sample.id;
+                }
+            };
+    }
+
+}
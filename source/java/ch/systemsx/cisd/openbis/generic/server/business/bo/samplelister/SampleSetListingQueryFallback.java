@@ -20,6 +20,7 @@ import it.unimi.dsi.fastutil.longs.LongSet;
 
 import ch.rinn.restrictions.Friend;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.QueryStrategy;
 
 /**
  * A fallback implementation of {@link ISampleSetListingQuery} for database engines who don't
@@ -32,6 +33,8 @@ class SampleSetListingQueryFallback implements ISampleSetListingQuery
 {
     private final ISampleSetListingQuery oneByOneDelegate;
 
+    private final ISampleSetListingQuery chunkedDelegate;
+
     private final ISampleSetListingQuery fullTableScanDelegate;
 
     private final QueryStrategyChooser strategyChooser;
@@ -41,18 +44,28 @@ class SampleSetListingQueryFallback implements ISampleSetListingQuery
     {
         this.strategyChooser = strategyChooser;
         this.oneByOneDelegate = new SampleSetListingQueryOneByOne(query);
+        this.chunkedDelegate =
+                new SampleSetListingQueryChunked(query, strategyChooser.getChunkSize());
         this.fullTableScanDelegate =
                 new SampleSetListingQueryFullTableScan(query, databaseInstanceId);
     }
 
     public Iterable<SampleRecord> getSamples(final LongSet sampleIds)
     {
-        if (strategyChooser.useFullTableScan(sampleIds))
-        {
-            return fullTableScanDelegate.getSamples(sampleIds);
-        } else
+        final QueryStrategy strategy = strategyChooser.chooseStrategy(sampleIds);
+        return strategyChooser.observe(strategy, sampleIds, getSamples(strategy, sampleIds));
+    }
+
+    private Iterable<SampleRecord> getSamples(final QueryStrategy strategy, final LongSet sampleIds)
+    {
+        switch (strategy)
         {
-            return oneByOneDelegate.getSamples(sampleIds);
+            case FULL_TABLE_SCAN:
+                return fullTableScanDelegate.getSamples(sampleIds);
+            case CHUNKED:
+                return chunkedDelegate.getSamples(sampleIds);
+            default:
+                return oneByOneDelegate.getSamples(sampleIds);
         }
     }
 }
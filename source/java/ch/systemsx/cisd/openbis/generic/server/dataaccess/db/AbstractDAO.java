@@ -29,6 +29,8 @@ import org.hibernate.Query;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.validator.ClassValidator;
 import org.hibernate.validator.InvalidValue;
 import org.springframework.dao.DataAccessException;
@@ -56,6 +58,15 @@ public abstract class AbstractDAO extends HibernateDaoSupport
     /** The original source database instance. */
     private DatabaseInstancePE databaseInstance;
 
+    private final SequenceBlockAllocator.ISequenceValueReserver sequenceValueReserver =
+            new SequenceBlockAllocator.ISequenceValueReserver()
+                {
+                    public long[] reserve(String sequenceName, int count)
+                    {
+                        return getNextSequenceIds(sequenceName, count);
+                    }
+                };
+
     protected AbstractDAO(final SessionFactory sessionFactory,
             final DatabaseInstancePE databaseInstance)
     {
@@ -266,4 +277,49 @@ public abstract class AbstractDAO extends HibernateDaoSupport
         return Hibernate3SequenceGenerator.nextval(sequenceName, getSession(true));
     }
 
+    /**
+     * Returns the next value of the sequence handled by given <var>allocator</var>. A new block of
+     * values is reserved if the values reserved before are used up.
+     */
+    protected final long getNextSequenceId(SequenceBlockAllocator allocator)
+    {
+        return allocator.next(sequenceValueReserver);
+    }
+
+    /**
+     * Returns <var>count</var> new values of given sequence in increasing order. On
+     * <i>PostgreSQL</i> all values are fetched with one query.
+     */
+    protected final long[] getNextSequenceIds(String sequenceName, int count)
+    {
+        final long[] ids = new long[count];
+        final Session session = getSession(true);
+        if (count > 1 && isPostgreSQL(session))
+        {
+            final List<?> values =
+                    session.createSQLQuery(
+                            String.format("select nextval('%s') from generate_series(1, %d)",
+                                    sequenceName, count)).list();
+            for (int i = 0; i < count; i++)
+            {
+                ids[i] = ((Number) values.get(i)).longValue();
+            }
+            Arrays.sort(ids);
+        } else
+        {
+            for (int i = 0; i < count; i++)
+            {
+                ids[i] = Hibernate3SequenceGenerator.nextval(sequenceName, session);
+            }
+        }
+        return ids;
+    }
+
+    private final static boolean isPostgreSQL(final Session session)
+    {
+        final SessionFactoryImplementor sessionFactory =
+                (SessionFactoryImplementor) session.getSessionFactory();
+        return sessionFactory.getDialect() instanceof PostgreSQLDialect;
+    }
+
 }
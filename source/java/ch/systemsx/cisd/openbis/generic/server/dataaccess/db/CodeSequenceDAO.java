@@ -29,15 +29,26 @@ import ch.systemsx.cisd.openbis.generic.shared.dto.SequenceNames;
 public class CodeSequenceDAO extends AbstractDAO implements ICodeSequenceDAO
 {
 
+    private final SequenceBlockAllocator codeAllocator =
+            new SequenceBlockAllocator(SequenceNames.CODE_SEQUENCE);
+
     protected CodeSequenceDAO(final SessionFactory sessionFactory,
             final DatabaseInstancePE databaseInstance)
     {
         super(sessionFactory, databaseInstance);
     }
 
+    /**
+     * Sets the number of sequence values reserved with one database query.
+     */
+    public final void setBlockSize(int blockSize)
+    {
+        codeAllocator.setBlockSize(blockSize);
+    }
+
     public long getNextCodeSequenceId()
     {
-        return getNextSequenceId(SequenceNames.CODE_SEQUENCE);
+        return getNextSequenceId(codeAllocator);
     }
 
 }
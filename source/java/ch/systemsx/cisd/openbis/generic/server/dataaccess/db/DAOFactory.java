@@ -76,11 +76,11 @@ public final class DAOFactory extends AuthorizationDAOFactory implements IDAOFac
 
     private final IMaterialDAO materialDAO;
 
-    private final ICodeSequenceDAO codeSequenceDAO;
+    private final CodeSequenceDAO codeSequenceDAO;
 
     private final IDataStoreDAO dataStoreDAO;
 
-    private final IPermIdDAO permIdDAO;
+    private final PermIdDAO permIdDAO;
 
     private final IEventDAO eventDAO;
 
@@ -120,6 +120,22 @@ public final class DAOFactory extends AuthorizationDAOFactory implements IDAOFac
         }
     }
 
+    /**
+     * Sets the number of permanent identifiers reserved with one database query.
+     */
+    public final void setPermIdBlockSize(final int blockSize)
+    {
+        permIdDAO.setBlockSize(blockSize);
+    }
+
+    /**
+     * Sets the number of code sequence values reserved with one database query.
+     */
+    public final void setCodeSequenceBlockSize(final int blockSize)
+    {
+        codeSequenceDAO.setBlockSize(blockSize);
+    }
+
     //
     // IDAOFactory
     //
@@ -20,8 +20,11 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
@@ -31,7 +34,11 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexReader.FieldOption;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.highlight.Formatter;
 import org.apache.lucene.search.highlight.Highlighter;
 import org.apache.lucene.search.highlight.QueryScorer;
@@ -54,6 +61,7 @@ import org.springframework.jdbc.support.JdbcAccessor;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
 
+import ch.systemsx.cisd.base.exceptions.CheckedExceptionTunnel;
 import ch.systemsx.cisd.common.exceptions.UserFailureException;
 import ch.systemsx.cisd.common.logging.LogCategory;
 import ch.systemsx.cisd.common.logging.LogFactory;
@@ -139,14 +147,27 @@ final class HibernateSearchDAO extends HibernateDaoSupport implements IHibernate
 
         try
         {
+            IndexReader indexReader = indexProvider.getReader();
+            IndexSearcher searcher = new IndexSearcher(indexReader);
+            String[] fieldNames = indexProvider.getIndexedFields();
+            MatchingField[] fields = new MatchingField[fieldNames.length];
+            BooleanQuery query = new BooleanQuery();
+            for (int i = 0; i < fieldNames.length; i++)
+            {
+                Query fieldQuery =
+                        LuceneQueryBuilder.parseQuery(fieldNames[i], searchQuery, analyzer);
+                fieldQuery = rewriteQuery(indexReader, fieldQuery);
+                fields[i] = new MatchingField(fieldNames[i], fieldQuery, searcher, analyzer);
+                query.add(fieldQuery, Occur.SHOULD);
+            }
+            MatchingEntityResultTransformer hits =
+                    searchTermInFields(fullTextSession, query, searchableEntity, dataProvider);
+            int[] documentIds = hits.getDocumentIds();
+            // the hits are listed field by field, ordered by relevance for each field
             List<MatchingEntity> result = new ArrayList<MatchingEntity>();
-            String[] fields = indexProvider.getIndexedFields();
-            for (String fieldName : fields)
+            for (MatchingField field : fields)
             {
-                List<MatchingEntity> hits =
-                        searchTermInField(fullTextSession, fieldName, searchQuery,
-                                searchableEntity, analyzer, indexProvider.getReader(), dataProvider);
-                result.addAll(hits);
+                result.addAll(hits.createMatchingEntities(field, documentIds));
             }
             return result;
         } finally
@@ -155,14 +176,15 @@ final class HibernateSearchDAO extends HibernateDaoSupport implements IHibernate
         }
     }
 
-    private final List<MatchingEntity> searchTermInField(final FullTextSession fullTextSession,
-            final String fieldName, final String searchTerm,
-            final SearchableEntity searchableEntity, Analyzer analyzer, IndexReader indexReader,
-            final HibernateSearchDataProvider dataProvider) throws DataAccessException,
-            UserFailureException
+    /**
+     * Executes given <var>query</var> of all fields once. Returns the transformer which has
+     * collected the hits.
+     */
+    private final MatchingEntityResultTransformer searchTermInFields(
+            final FullTextSession fullTextSession, final Query query,
+            final SearchableEntity searchableEntity,
+            final HibernateSearchDataProvider dataProvider) throws DataAccessException
     {
-        Query query = LuceneQueryBuilder.parseQuery(fieldName, searchTerm, analyzer);
-        query = rewriteQuery(indexReader, query);
         final FullTextQuery hibernateQuery =
                 fullTextSession.createFullTextQuery(query, searchableEntity
                         .getMatchingEntityClass());
@@ -171,11 +193,11 @@ final class HibernateSearchDAO extends HibernateDaoSupport implements IHibernate
         hibernateQuery.setProjection(FullTextQuery.DOCUMENT_ID, FullTextQuery.DOCUMENT);
         hibernateQuery.setReadOnly(true);
 
-        MyHighlighter highlighter = new MyHighlighter(query, indexReader, analyzer);
-        hibernateQuery.setResultTransformer(new MatchingEntityResultTransformer(searchableEntity,
-                fieldName, highlighter, dataProvider));
-        final List<MatchingEntity> result = AbstractDAO.cast(hibernateQuery.list());
-        return filterNulls(result);
+        final MatchingEntityResultTransformer transformer =
+                new MatchingEntityResultTransformer(searchableEntity, dataProvider);
+        hibernateQuery.setResultTransformer(transformer);
+        hibernateQuery.list();
+        return transformer;
     }
 
     // we need this for higlighter when wildcards are used
@@ -253,25 +275,25 @@ final class HibernateSearchDAO extends HibernateDaoSupport implements IHibernate
 
     }
 
+    /**
+     * Collects the documents of the hits of the query of all fields and creates the
+     * {@link MatchingEntity} objects of the fields they match.
+     */
     private static class MatchingEntityResultTransformer implements ResultTransformer
     {
         private final SearchableEntity searchableEntity;
 
-        private final String fieldName;
-
-        private final MyHighlighter highlighter;
-
         private final HibernateSearchDataProvider dataProvider;
 
+        private final SortedMap<Integer, Document> documentsById =
+                new TreeMap<Integer, Document>();
+
         private static final long serialVersionUID = 1L;
 
         public MatchingEntityResultTransformer(final SearchableEntity searchableEntity,
-                final String fieldName, final MyHighlighter highlighter,
                 final HibernateSearchDataProvider dataProvider)
         {
             this.searchableEntity = searchableEntity;
-            this.fieldName = fieldName;
-            this.highlighter = highlighter;
             this.dataProvider = dataProvider;
         }
 
@@ -286,7 +308,44 @@ final class HibernateSearchDAO extends HibernateDaoSupport implements IHibernate
             final int documentId = (Integer) tuple[0];
             final Document doc = (Document) tuple[1];
 
-            String matchingText = null;
+            documentsById.put(documentId, doc);
+            // the hits are collected by this transformer
+            return null;
+        }
+
+        /** Returns the ids of the documents of all hits in ascending order. */
+        public int[] getDocumentIds()
+        {
+            final int[] result = new int[documentsById.size()];
+            int i = 0;
+            for (Integer documentId : documentsById.keySet())
+            {
+                result[i++] = documentId;
+            }
+            return result;
+        }
+
+        /**
+         * Creates the matching entities of the hits with given ascending <var>documentIds</var>
+         * which match given <var>field</var>, ordered by their relevance for the field.
+         */
+        public List<MatchingEntity> createMatchingEntities(final MatchingField field,
+                final int[] documentIds)
+        {
+            final List<MatchingEntity> result = new ArrayList<MatchingEntity>();
+            for (MatchingFieldHit hit : field.scoreHits(documentIds))
+            {
+                final Document doc = documentsById.get(hit.documentId);
+                final String matchingText = tryGetMatchingText(doc, hit.documentId, field);
+                result.add(createMatchingEntity(doc, field.getFieldName(), matchingText));
+            }
+            return result;
+        }
+
+        private String tryGetMatchingText(final Document doc, final int documentId,
+                final MatchingField field)
+        {
+            final String fieldName = field.getFieldName();
             try
             {
                 String content = doc.get(fieldName);
@@ -294,20 +353,22 @@ final class HibernateSearchDAO extends HibernateDaoSupport implements IHibernate
                 {
                     // NOTE: this may be imprecise if there are multiple fields with the
                     // same code. The first value will be taken.
-                    matchingText = highlighter.getBestFragment(content, fieldName, documentId);
+                    return field.getHighlighter().getBestFragment(content, fieldName,
+                            documentId);
                 } else
                 {
                     // in some cases (e.g. attachments) we do not store content in the index
-                    matchingText = "[content]";
+                    return "[content]";
                 }
             } catch (IOException ex)
             {
                 logSearchHighlightingError(ex);
+                return null;
             }
-            return createMatchingEntity(doc, matchingText);
         }
 
-        private MatchingEntity createMatchingEntity(final Document doc, final String matchingText)
+        private MatchingEntity createMatchingEntity(final Document doc, final String fieldName,
+                final String matchingText)
         {
             final MatchingEntity result = new MatchingEntity();
 
@@ -393,6 +454,102 @@ final class HibernateSearchDAO extends HibernateDaoSupport implements IHibernate
         operationLog.error("error during search result highlighting: " + ex.getMessage());
     }
 
+    /**
+     * A field searched by the query of all fields. Scores the hits of the query of all fields with
+     * the query of this field.
+     */
+    private static final class MatchingField
+    {
+        private final String fieldName;
+
+        private final Query query;
+
+        private final IndexSearcher searcher;
+
+        private final MyHighlighter highlighter;
+
+        public MatchingField(String fieldName, Query query, IndexSearcher searcher,
+                Analyzer analyzer)
+        {
+            this.fieldName = fieldName;
+            this.query = query;
+            this.searcher = searcher;
+            this.highlighter = new MyHighlighter(query, searcher.getIndexReader(), analyzer);
+        }
+
+        public String getFieldName()
+        {
+            return fieldName;
+        }
+
+        public MyHighlighter getHighlighter()
+        {
+            return highlighter;
+        }
+
+        /**
+         * Returns the documents with given ascending <var>documentIds</var> which match the query
+         * of this field, in the order of a search with this query: by descending score and by
+         * document id for the same score. One scorer skips through the documents, so the postings
+         * of the query are read at most once.
+         */
+        public List<MatchingFieldHit> scoreHits(int[] documentIds)
+        {
+            final List<MatchingFieldHit> hits = new ArrayList<MatchingFieldHit>();
+            try
+            {
+                final Scorer scorerOrNull =
+                        query.weight(searcher).scorer(searcher.getIndexReader());
+                if (scorerOrNull != null)
+                {
+                    int currentDocumentId = -1;
+                    for (int documentId : documentIds)
+                    {
+                        if (currentDocumentId < documentId)
+                        {
+                            if (scorerOrNull.skipTo(documentId) == false)
+                            {
+                                break;
+                            }
+                            currentDocumentId = scorerOrNull.doc();
+                        }
+                        if (currentDocumentId == documentId)
+                        {
+                            hits.add(new MatchingFieldHit(documentId, scorerOrNull.score()));
+                        }
+                    }
+                }
+            } catch (IOException ex)
+            {
+                throw CheckedExceptionTunnel.wrapIfNecessary(ex);
+            }
+            Collections.sort(hits);
+            return hits;
+        }
+    }
+
+    private static final class MatchingFieldHit implements Comparable<MatchingFieldHit>
+    {
+        private final int documentId;
+
+        private final float score;
+
+        public MatchingFieldHit(int documentId, float score)
+        {
+            this.documentId = documentId;
+            this.score = score;
+        }
+
+        public int compareTo(MatchingFieldHit other)
+        {
+            if (score != other.score)
+            {
+                return score > other.score ? -1 : 1;
+            }
+            return documentId < other.documentId ? -1 : (documentId == other.documentId ? 0 : 1);
+        }
+    }
+
     private static final class MyHighlighter
     {
         private final IndexReader indexReader;
@@ -35,13 +35,30 @@ public class HibernateSearchDataProvider
     private Map<String, Group> groupsById;
 
     public HibernateSearchDataProvider(IDAOFactory factory)
+    {
+        this(loadGroupsById(factory));
+    }
+
+    /**
+     * Creates an instance for groups loaded with {@link #loadGroupsById(IDAOFactory)} before.
+     */
+    public HibernateSearchDataProvider(Map<String, Group> groupsById)
+    {
+        this.groupsById = groupsById;
+    }
+
+    /**
+     * Loads all groups and maps them by their id.
+     */
+    public static Map<String, Group> loadGroupsById(IDAOFactory factory)
     {
         List<GroupPE> groups = factory.getGroupDAO().listGroups();
-        groupsById = new HashMap<String, Group>();
+        Map<String, Group> groupsById = new HashMap<String, Group>();
         for (GroupPE group : groups)
         {
             groupsById.put(group.getId().toString(), GroupTranslator.translate(group));
         }
+        return groupsById;
     }
 
     public Map<String, Group> getGroupsById()
@@ -45,6 +45,9 @@ public class PermIdDAO extends AbstractDAO implements IPermIdDAO
 
     private final static String PERM_ID_DATE_FORMAT_PATTERN = "yyyyMMddHHmmssSSS";
 
+    private final SequenceBlockAllocator permIdAllocator =
+            new SequenceBlockAllocator(SequenceNames.PERM_ID_SEQUENCE);
+
     protected PermIdDAO(final SessionFactory sessionFactory,
             final DatabaseInstancePE databaseInstance)
     {
@@ -53,11 +56,19 @@ public class PermIdDAO extends AbstractDAO implements IPermIdDAO
 
     public String createPermId()
     {
-        long id = getNextSequenceId(SequenceNames.PERM_ID_SEQUENCE);
+        long id = getNextSequenceId(permIdAllocator);
         return DateFormatUtils.format(new Date(), PERM_ID_DATE_FORMAT_PATTERN) + "-"
                 + Long.toString(id);
     }
 
+    /**
+     * Sets the number of permanent identifiers reserved with one database query.
+     */
+    public final void setBlockSize(int blockSize)
+    {
+        permIdAllocator.setBlockSize(blockSize);
+    }
+
     public IEntityInformationHolderDTO tryToFindByPermId(String permId, EntityKind entityKind)
     {
         assert permId != null : "Unspecified permId";
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.dataaccess.db;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the values of a database sequence which are reserved in blocks, so that only one out
+ * of <var>blockSize</var> values costs a round trip to the database.
+ * <p>
+ * Values are taken from the current block without locking. Only the thread which finds the block
+ * exhausted reserves the next one. As the values of a block are drawn from the database sequence
+ * itself, they are unique even if several servers share one database. Values which have been
+ * reserved but not handed out are lost when the server is stopped, leaving gaps in the sequence.
+ * </p>
+ *
+ * @author agent
+ */
+final class SequenceBlockAllocator
+{
+    /**
+     * Reserves values of a database sequence.
+     */
+    static interface ISequenceValueReserver
+    {
+        /**
+         * Returns <var>count</var> new values of given sequence in increasing order.
+         */
+        public long[] reserve(String sequenceName, int count);
+    }
+
+    private static final class Block
+    {
+        private final long[] values;
+
+        private final AtomicInteger nextIndex = new AtomicInteger();
+
+        Block(final long[] values)
+        {
+            this.values = values;
+        }
+    }
+
+    private final String sequenceName;
+
+    private volatile int blockSize = 1;
+
+    private volatile Block currentBlock = new Block(new long[0]);
+
+    SequenceBlockAllocator(final String sequenceName)
+    {
+        assert sequenceName != null : "Unspecified sequence name.";
+        this.sequenceName = sequenceName;
+    }
+
+    /**
+     * Sets the number of values reserved at once. The current block is used up first.
+     */
+    final void setBlockSize(final int blockSize)
+    {
+        assert blockSize > 0 : "Block size has to be positive: " + blockSize;
+        this.blockSize = blockSize;
+    }
+
+    final String getSequenceName()
+    {
+        return sequenceName;
+    }
+
+    /**
+     * Returns the next value of the sequence, reserving a new block with given <var>reserver</var>
+     * if the current block is exhausted.
+     */
+    final long next(final ISequenceValueReserver reserver)
+    {
+        while (true)
+        {
+            final Block block = currentBlock;
+            final int index = block.nextIndex.getAndIncrement();
+            if (index < block.values.length)
+            {
+                return block.values[index];
+            }
+            synchronized (this)
+            {
+                // Another thread might have replaced the block in the meantime.
+                if (currentBlock == block)
+                {
+                    currentBlock = new Block(reserver.reserve(sequenceName, blockSize));
+                }
+            }
+        }
+    }
+}
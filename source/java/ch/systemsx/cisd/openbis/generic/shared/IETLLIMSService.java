@@ -16,6 +16,7 @@
 
 package ch.systemsx.cisd.openbis.generic.shared;
 
+import java.util.Date;
 import java.util.List;
 
 import org.springframework.transaction.annotation.Transactional;
@@ -176,6 +177,19 @@ public interface IETLLIMSService extends IServer, ISessionProvider
     public List<SimpleDataSetInformationDTO> listDataSets(final String sessionToken,
             String dataStore) throws UserFailureException;
 
+    /**
+     * Lists at most <var>maxResults</var> data sets belonging to chosen data store, ordered by
+     * their technical ids. Only data sets with a technical id greater than
+     * <var>lastSeenDataSetIdOrNull</var> are listed, so that the id of the last data set of a page
+     * can be used to request the next page. If <var>modifiedSinceOrNull</var> is specified, only
+     * data sets modified (or registered) since then are listed.
+     */
+    @Transactional(readOnly = true)
+    @RolesAllowed(RoleSet.ETL_SERVER)
+    public List<SimpleDataSetInformationDTO> listDataSetsPage(final String sessionToken,
+            String dataStore, Long lastSeenDataSetIdOrNull, Date modifiedSinceOrNull,
+            int maxResults) throws UserFailureException;
+
     /**
      * List data sets deleted after specified date.
      */
@@ -27,6 +27,11 @@ import com.google.gwt.user.client.rpc.IsSerializable;
 /**
  * Stores information about the time and kind of the last modification, separately for each kind of
  * database object.
+ * <p>
+ * Additionally each kind of modification has a version which is increased with each registered
+ * modification. Unlike the timestamps, which are taken before the modification is made, the
+ * versions tell reliably whether a modification has been registered since a version has been seen.
+ * </p>
  * 
  * @author Tomasz Pylak
  */
@@ -36,18 +41,22 @@ public class LastModificationState implements IsSerializable, Serializable
 
     private Map<DatabaseModificationKind, Long/* timestamp */> state;
 
+    private Map<DatabaseModificationKind, Long/* version */> versions;
+
     private long initializationTimestamp;
 
     /** Creates a state marking all */
     public LastModificationState()
     {
         this.state = new HashMap<DatabaseModificationKind, Long>();
+        this.versions = new HashMap<DatabaseModificationKind, Long>();
         this.initializationTimestamp = new Date().getTime();
     }
 
     public synchronized void registerModification(DatabaseModificationKind kind,
             long currentTimestamp)
     {
+        versions.put(kind, getVersion(kind) + 1);
         Long prev = state.get(kind);
         if (prev != null && prev > currentTimestamp)
         {
@@ -64,7 +73,7 @@ public class LastModificationState implements IsSerializable, Serializable
      * 
      * @return The last registered time of the specified kind of database modification.
      */
-    public long getLastModificationTime(DatabaseModificationKind kind)
+    public synchronized long getLastModificationTime(DatabaseModificationKind kind)
     {
         Long lastModification = state.get(kind);
         if (lastModification == null)
@@ -76,6 +85,27 @@ public class LastModificationState implements IsSerializable, Serializable
         }
     }
 
+    /**
+     * @return The number of registered modifications of the specified kind.
+     */
+    public synchronized long getVersion(DatabaseModificationKind kind)
+    {
+        Long version = versions.get(kind);
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Creates a copy of this state which is not affected by later modifications.
+     */
+    public synchronized LastModificationState createSnapshot()
+    {
+        LastModificationState snapshot = new LastModificationState();
+        snapshot.state.putAll(state);
+        snapshot.versions.putAll(versions);
+        snapshot.initializationTimestamp = initializationTimestamp;
+        return snapshot;
+    }
+
     @Override
     public String toString()
     {
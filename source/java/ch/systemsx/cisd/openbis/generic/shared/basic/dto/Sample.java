@@ -26,6 +26,7 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.IEntityInformationHolder;
 import ch.systemsx.cisd.openbis.generic.shared.basic.IIdentifiable;
 import ch.systemsx.cisd.openbis.generic.shared.basic.IInvalidationProvider;
 import ch.systemsx.cisd.openbis.generic.shared.basic.IPermIdHolder;
+import ch.systemsx.cisd.openbis.generic.shared.basic.PermlinkUtilities;
 
 /**
  * <i>Java Bean</i> which contain information about <i>sample</i>.
@@ -68,6 +69,8 @@ public final class Sample extends CodeWithRegistration<Sample> implements IInval
 
     private String permlink;
 
+    private String baseIndexURL;
+
     private String subCode;
 
     public String getSubCode()
@@ -82,9 +85,22 @@ public final class Sample extends CodeWithRegistration<Sample> implements IInval
 
     public String getPermlink()
     {
+        if (permlink == null && baseIndexURL != null)
+        {
+            return PermlinkUtilities.createPermlinkURL(baseIndexURL, EntityKind.SAMPLE, permId);
+        }
         return permlink;
     }
 
+    /**
+     * Sets the URL of the index page the permlink is derived from if no permlink has been set. The
+     * URL is shared by all samples of a listing, so no permlink string is kept per sample.
+     */
+    public void setBaseIndexURL(String baseIndexURL)
+    {
+        this.baseIndexURL = baseIndexURL;
+    }
+
     public void setPermlink(String permlink)
     {
         this.permlink = permlink;
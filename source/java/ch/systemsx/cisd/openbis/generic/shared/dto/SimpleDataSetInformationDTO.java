@@ -29,6 +29,8 @@ public class SimpleDataSetInformationDTO implements Serializable
 {
     private static final long serialVersionUID = ServiceVersionHolder.VERSION;
 
+    Long dataSetId;
+
     String dataSetCode;
 
     String dataSetLocation;
@@ -55,6 +57,17 @@ public class SimpleDataSetInformationDTO implements Serializable
         this.dataSetType = dataSetType;
     }
 
+    /** The technical id, which can be used to request the next page of a paged listing. */
+    public Long getDataSetId()
+    {
+        return dataSetId;
+    }
+
+    public void setDataSetId(Long dataSetId)
+    {
+        this.dataSetId = dataSetId;
+    }
+
     public String getDataSetCode()
     {
         return dataSetCode;
@@ -19,7 +19,6 @@ package ch.systemsx.cisd.openbis.generic.shared.dto.identifier;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.lang.StringEscapeUtils;
 
 import ch.systemsx.cisd.common.exceptions.UserFailureException;
 import ch.systemsx.cisd.openbis.generic.shared.dto.DatabaseInstancePE;
@@ -28,6 +27,7 @@ import ch.systemsx.cisd.openbis.generic.shared.dto.GroupPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.ProjectPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.SamplePE;
 import ch.systemsx.cisd.openbis.generic.shared.util.HibernateUtils;
+import ch.systemsx.cisd.openbis.generic.shared.util.HtmlEscapeUtils;
 
 /**
  * Some useful methods around identifiers.
@@ -91,7 +91,7 @@ public final class IdentifierHelper
      */
     public final static String extractSubCode(SamplePE samplePE)
     {
-        return StringEscapeUtils.escapeHtml(samplePE.getCode());
+        return HtmlEscapeUtils.escapeHtml(samplePE.getCode());
     }
 
     /**
@@ -100,7 +100,7 @@ public final class IdentifierHelper
      */
     public final static String convertSubCode(String sampleCode)
     {
-        return StringEscapeUtils.escapeHtml(sampleCode);
+        return HtmlEscapeUtils.escapeHtml(sampleCode);
     }
 
     /**
@@ -117,7 +117,7 @@ public final class IdentifierHelper
                 && HibernateUtils.isInitialized(samplePE.getContainer()))
         {
             final String containerCode =
-                    StringEscapeUtils.escapeHtml(samplePE.getContainer().getCode());
+                    HtmlEscapeUtils.escapeHtml(samplePE.getContainer().getCode());
             code = containerCode + ":" + subCode;
         } else
         {
@@ -140,7 +140,7 @@ public final class IdentifierHelper
         final String code;
         if (containerCodeOrNull != null)
         {
-            final String containerCode = StringEscapeUtils.escapeHtml(containerCodeOrNull);
+            final String containerCode = HtmlEscapeUtils.escapeHtml(containerCodeOrNull);
             code = containerCode + ":" + subCode;
         } else
         {
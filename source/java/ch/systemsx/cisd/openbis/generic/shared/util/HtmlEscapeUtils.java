@@ -0,0 +1,72 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.shared.util;
+
+import org.apache.commons.lang.StringEscapeUtils;
+
+/**
+ * HTML escaping for values which are escaped on the server side before being sent to the web
+ * client.
+ * <p>
+ * {@link StringEscapeUtils#escapeHtml(String)} creates a new string even if nothing has to be
+ * escaped. Most codes, identifiers and property values contain only printable ASCII characters
+ * without HTML special characters, so this class returns those strings unchanged without any
+ * allocation and escapes all other strings exactly like {@link StringEscapeUtils}.
+ * </p>
+ * 
+ * @author agent
+ */
+public final class HtmlEscapeUtils
+{
+    private HtmlEscapeUtils()
+    {
+        // Can not be instantiated.
+    }
+
+    /**
+     * Escapes the characters of given <var>strOrNull</var> using HTML entities.
+     * 
+     * @return <var>strOrNull</var> itself if it contains no character which has to be escaped.
+     */
+    public static String escapeHtml(final String strOrNull)
+    {
+        if (strOrNull == null || needsEscaping(strOrNull) == false)
+        {
+            return strOrNull;
+        }
+        return StringEscapeUtils.escapeHtml(strOrNull);
+    }
+
+    /**
+     * Returns <code>true</code> if given <var>str</var> contains a character which is escaped by
+     * {@link StringEscapeUtils#escapeHtml(String)}: an HTML special character or a non-ASCII
+     * character.
+     */
+    static boolean needsEscaping(final String str)
+    {
+        final int length = str.length();
+        for (int i = 0; i < length; i++)
+        {
+            final char c = str.charAt(i);
+            if (c > 0x7F || c == '&' || c == '<' || c == '>' || c == '"')
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
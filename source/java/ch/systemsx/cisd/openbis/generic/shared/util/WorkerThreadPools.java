@@ -0,0 +1,73 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.shared.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the pools of worker threads which are shared by all requests of the server.
+ * <p>
+ * The threads of a pool are named <code>&lt;name&gt;-&lt;number&gt;</code>. They are daemon
+ * threads and terminate after having been idle for {@link #IDLE_TIMEOUT_SECONDS}. Thus the pools
+ * are never shut down: they neither keep the JVM alive nor hold threads while there is no work.
+ * Tasks which find all threads busy are queued.
+ * </p>
+ * 
+ * @author agent
+ */
+public final class WorkerThreadPools
+{
+    /** The time after which an idle worker thread terminates. */
+    public static final int IDLE_TIMEOUT_SECONDS = 60;
+
+    private WorkerThreadPools()
+    {
+        // Can not be instantiated.
+    }
+
+    /**
+     * Creates a pool of at most <var>threadCount</var> worker threads named after given
+     * <var>name</var>.
+     */
+    public static ExecutorService create(final String name, final int threadCount)
+    {
+        assert name != null : "Unspecified name.";
+        assert threadCount > 0 : "Thread count has to be positive: " + threadCount;
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(threadCount, threadCount, IDLE_TIMEOUT_SECONDS,
+                        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+                            {
+                                private final AtomicInteger count = new AtomicInteger();
+
+                                public Thread newThread(final Runnable runnable)
+                                {
+                                    final Thread thread =
+                                            new Thread(runnable, name + "-"
+                                                    + count.incrementAndGet());
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
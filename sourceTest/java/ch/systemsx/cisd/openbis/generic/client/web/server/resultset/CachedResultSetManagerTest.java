@@ -19,11 +19,17 @@ package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.jmock.Expectations;
@@ -33,9 +39,14 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import ch.rinn.restrictions.Friend;
+import ch.systemsx.cisd.openbis.generic.client.web.client.dto.DefaultResultSetConfig;
 import ch.systemsx.cisd.openbis.generic.client.web.client.dto.IResultSetConfig;
 import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.CacheManager.TokenBasedResultSetKeyGenerator;
+import ch.systemsx.cisd.openbis.generic.shared.basic.IColumnDefinition;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind.ObjectKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.GridFilterInfo;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Sample;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SortInfo;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.SortInfo.SortDir;
@@ -52,7 +63,9 @@ public final class CachedResultSetManagerTest
 
     private IOriginalDataProvider<String> originalDataProvider;
 
-    private IResultSetManager<String> resultSetManager;
+    private CachedResultSetManager<String> resultSetManager;
+
+    private ResultSetCache<String> resultSetCache;
 
     private Mockery context;
 
@@ -76,6 +89,9 @@ public final class CachedResultSetManagerTest
 
         expectations.one(resultSetConfig).tryGetCustomFilterInfo();
         expectations.will(Expectations.returnValue(null));
+
+        expectations.one(resultSetConfig).tryGetRelevantModifications();
+        expectations.will(Expectations.returnValue(null));
     }
 
     private final static List<Sample> createSampleList()
@@ -98,14 +114,17 @@ public final class CachedResultSetManagerTest
         context = new Mockery();
         resultSetConfig = context.mock(IResultSetConfig.class);
         originalDataProvider = context.mock(IOriginalDataProvider.class);
-        resultSetManager = createResultSetManager();
+        resultSetCache = new ResultSetCache<String>();
+        resultSetManager = createResultSetManager(resultSetCache);
     }
 
-    private final static IResultSetManager<String> createResultSetManager()
+    private final static CachedResultSetManager<String> createResultSetManager(
+            final ResultSetCache<String> cache)
     {
         final CachedResultSetManager<String> resultSetManager =
-                new CachedResultSetManager<String>(new TokenBasedResultSetKeyGenerator());
-        resultSetManager.results.put("1", createSampleList());
+                new CachedResultSetManager<String>(new TokenBasedResultSetKeyGenerator(), cache,
+                        "user");
+        resultSetManager.putResultSet("1", new CachedResultSet<Sample>(createSampleList()));
         return resultSetManager;
     }
 
@@ -224,6 +243,332 @@ public final class CachedResultSetManagerTest
         context.assertIsSatisfied();
     }
 
+    @Test
+    public final void testGetResultWithEvictedData()
+    {
+        resultSetCache.remove("1");
+        context.checking(new Expectations()
+            {
+                {
+                    one(resultSetConfig).getResultSetKey();
+                    will(returnValue("1"));
+
+                    one(originalDataProvider).getOriginalData();
+                    will(returnValue(Collections.singletonList("value")));
+
+                    allowResultSetCreation(this);
+                }
+            });
+        final IResultSet<String, ?> resultSet =
+                resultSetManager.getResultSet(resultSetConfig, originalDataProvider);
+        assertEquals(1, resultSet.getTotalLength());
+        assertEquals("1", resultSet.getResultSetKey());
+        assertNotNull(resultSetCache.tryGet("1"));
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public final void testRemoveAllResultSets()
+    {
+        context.checking(new Expectations()
+            {
+                {
+                    one(resultSetConfig).getResultSetKey();
+                    will(returnValue(null));
+
+                    one(originalDataProvider).getOriginalData();
+                    will(returnValue(Collections.singletonList("value")));
+
+                    allowResultSetCreation(this);
+                }
+            });
+        resultSetCache.put("3", "other", new CachedResultSet<String>(Arrays.asList("a")));
+        final IResultSet<String, ?> resultSet =
+                resultSetManager.getResultSet(resultSetConfig, originalDataProvider);
+        resultSetManager.removeAllResultSets();
+        assertNull(resultSetCache.tryGet(resultSet.getResultSetKey()));
+        assertNull(resultSetCache.tryGet("1"));
+        // Result sets which have not been created by this manager are kept.
+        assertNotNull(resultSetCache.tryGet("3"));
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public final void testResultSetOfOtherOwnerIsNotAccessible()
+    {
+        resultSetCache.put("3", "other", new CachedResultSet<String>(Arrays.asList("secret")));
+        context.checking(new Expectations()
+            {
+                {
+                    one(resultSetConfig).getResultSetKey();
+                    will(returnValue("3"));
+
+                    one(originalDataProvider).getOriginalData();
+                    will(returnValue(Collections.singletonList("value")));
+
+                    allowResultSetCreation(this);
+                }
+            });
+        final IResultSet<String, ?> resultSet =
+                resultSetManager.getResultSet(resultSetConfig, originalDataProvider);
+        assertEquals(1, resultSet.getTotalLength());
+        assertFalse("3".equals(resultSet.getResultSetKey()));
+
+        resultSetManager.removeResultSet("3");
+        assertNotNull(resultSetCache.tryGet("3"));
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public final void testConcurrentRetrievalOfSameKeyIsDoneOnce() throws Exception
+    {
+        resultSetCache.remove("1");
+        final CountDownLatch retrievalStarted = new CountDownLatch(1);
+        final CountDownLatch retrievalReleased = new CountDownLatch(1);
+        final AtomicInteger retrievalCount = new AtomicInteger();
+        final IOriginalDataProvider<String> slowProvider = new IOriginalDataProvider<String>()
+            {
+                public List<String> getOriginalData()
+                {
+                    retrievalCount.incrementAndGet();
+                    retrievalStarted.countDown();
+                    try
+                    {
+                        retrievalReleased.await(5, TimeUnit.SECONDS);
+                    } catch (final InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Collections.singletonList("value");
+                }
+            };
+        final DefaultResultSetConfig<String, String> config =
+                DefaultResultSetConfig.createFetchAll();
+        config.setResultSetKey("1");
+        final List<IResultSet<String, String>> resultSets =
+                Collections.synchronizedList(new ArrayList<IResultSet<String, String>>());
+        final Runnable request = new Runnable()
+            {
+                public void run()
+                {
+                    resultSets.add(resultSetManager.getResultSet(config, slowProvider));
+                }
+            };
+        final Thread first = new Thread(request);
+        first.start();
+        assertTrue(retrievalStarted.await(5, TimeUnit.SECONDS));
+        final Thread second = new Thread(request);
+        second.start();
+        // Give the second request the chance to find the running retrieval.
+        Thread.sleep(100);
+        retrievalReleased.countDown();
+        first.join(5000);
+        second.join(5000);
+
+        assertEquals(1, retrievalCount.get());
+        assertEquals(2, resultSets.size());
+        for (final IResultSet<String, String> resultSet : resultSets)
+        {
+            assertEquals(1, resultSet.getTotalLength());
+            assertEquals("value", resultSet.getList().get(0));
+        }
+        context.assertIsSatisfied();
+    }
+
+    /** A column of strings which counts how often values are extracted. */
+    private static final class CountingColumnDefinition implements IColumnDefinition<String>
+    {
+        private int valueExtractionCount;
+
+        public String getValue(String rowModel)
+        {
+            valueExtractionCount++;
+            return rowModel;
+        }
+
+        public Comparable<?> getComparableValue(String rowModel)
+        {
+            return getValue(rowModel);
+        }
+
+        public String getHeader()
+        {
+            return "Value";
+        }
+
+        public String getIdentifier()
+        {
+            return "VALUE";
+        }
+    }
+
+    private final static DefaultResultSetConfig<String, String> createPageConfig(
+            final String resultSetKey, final int offset, final IColumnDefinition<String> column,
+            final SortDir sortDir, final String filterOrNull)
+    {
+        final DefaultResultSetConfig<String, String> config =
+                DefaultResultSetConfig.createFetchAll();
+        config.setResultSetKey(resultSetKey);
+        config.setOffset(offset);
+        config.setLimit(2);
+        final SortInfo<String> sortInfo = new SortInfo<String>();
+        sortInfo.setSortField(column);
+        sortInfo.setSortDir(sortDir);
+        config.setSortInfo(sortInfo);
+        if (filterOrNull != null)
+        {
+            config.getFilterInfos().add(new GridFilterInfo<String>(column, filterOrNull));
+        }
+        return config;
+    }
+
+    @Test
+    public final void testPagingUsesCachedView()
+    {
+        final CountingColumnDefinition column = new CountingColumnDefinition();
+        resultSetManager.putResultSet("2", new CachedResultSet<String>(Arrays.asList("d", "b", "a",
+                "c", "ab")));
+
+        IResultSet<String, String> page =
+                resultSetManager.getResultSet(createPageConfig("2", 0, column, SortDir.ASC, "a"),
+                        originalDataProvider);
+        assertEquals("[a, ab]", page.getList().toString());
+        assertEquals(2, page.getTotalLength());
+        final int extractionCount = column.valueExtractionCount;
+
+        page =
+                resultSetManager.getResultSet(createPageConfig("2", 1, column, SortDir.ASC, "a"),
+                        originalDataProvider);
+        assertEquals("[ab]", page.getList().toString());
+        assertEquals(extractionCount, column.valueExtractionCount);
+
+        page =
+                resultSetManager.getResultSet(createPageConfig("2", 0, column, SortDir.DESC, null),
+                        originalDataProvider);
+        assertEquals("[d, c]", page.getList().toString());
+        // The column values are extracted only once for all views.
+        assertEquals(extractionCount, column.valueExtractionCount);
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public final void testFirstPagesOfLargeViewMatchFullSort()
+    {
+        final CountingColumnDefinition column = new CountingColumnDefinition();
+        final List<String> rows = new ArrayList<String>();
+        for (int i = 0; i < 100; i++)
+        {
+            rows.add("v" + (i * 7) % 10);
+        }
+        resultSetManager.putResultSet("2", new CachedResultSet<String>(rows));
+        final List<String> sorted = new ArrayList<String>(rows);
+        Collections.sort(sorted);
+        Collections.reverse(sorted);
+
+        for (int offset = 0; offset < 100; offset += 2)
+        {
+            final IResultSet<String, String> page =
+                    resultSetManager.getResultSet(createPageConfig("2", offset, column,
+                            SortDir.DESC, null), originalDataProvider);
+            assertEquals(sorted.subList(offset, offset + 2), page.getList());
+            assertEquals(100, page.getTotalLength());
+        }
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public final void testColumnValuesAreExtractedOncePerRow()
+    {
+        final CountingColumnDefinition column = new CountingColumnDefinition();
+        resultSetManager.putResultSet("2", new CachedResultSet<String>(Arrays.asList("Bc", "ab",
+                "B", "a")));
+
+        IResultSet<String, String> page =
+                resultSetManager.getResultSet(createPageConfig("2", 0, column, SortDir.ASC, "b"),
+                        originalDataProvider);
+        assertEquals("[B, Bc]", page.getList().toString());
+        assertEquals(3, page.getTotalLength());
+        // once for filtering and once for sorting
+        assertEquals(8, column.valueExtractionCount);
+
+        page =
+                resultSetManager.getResultSet(createPageConfig("2", 0, column, SortDir.DESC, "A"),
+                        originalDataProvider);
+        assertEquals("[ab, a]", page.getList().toString());
+        assertEquals(8, column.valueExtractionCount);
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public final void testViewsAreDroppedWithReplacedResultSet()
+    {
+        final CountingColumnDefinition column = new CountingColumnDefinition();
+        resultSetManager.putResultSet("2", new CachedResultSet<String>(Arrays.asList("b", "a")));
+        IResultSet<String, String> page =
+                resultSetManager.getResultSet(createPageConfig("2", 0, column, SortDir.ASC, null),
+                        originalDataProvider);
+        assertEquals("[a, b]", page.getList().toString());
+
+        resultSetManager.putResultSet("2", new CachedResultSet<String>(Arrays.asList("z", "y")));
+        page =
+                resultSetManager.getResultSet(createPageConfig("2", 0, column, SortDir.ASC, null),
+                        originalDataProvider);
+        assertEquals("[y, z]", page.getList().toString());
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public final void testOutOfDateResultSetIsRetrievedAgain()
+    {
+        final LastModificationState modificationState = new LastModificationState();
+        resultSetCache.setLastModificationState(modificationState);
+        final DatabaseModificationKind sampleEdit = DatabaseModificationKind.edit(ObjectKind.SAMPLE);
+        final HashSet<DatabaseModificationKind> modifications =
+                new HashSet<DatabaseModificationKind>(Arrays.asList(sampleEdit));
+        modificationState.registerModification(sampleEdit, 0);
+        resultSetManager.putResultSet("2", new CachedResultSet<String>(Arrays.asList("b", "a"),
+                CachedResultSet.tryGetModificationVersions(modifications, modificationState)));
+        final CountingColumnDefinition column = new CountingColumnDefinition();
+        final DefaultResultSetConfig<String, String> config =
+                createPageConfig("2", 0, column, SortDir.ASC, null);
+        config.setRelevantModifications(modifications);
+
+        IResultSet<String, String> page =
+                resultSetManager.getResultSet(config, originalDataProvider);
+        assertEquals("[a, b]", page.getList().toString());
+
+        // modifications of other kinds are irrelevant
+        modificationState.registerModification(DatabaseModificationKind.edit(ObjectKind.MATERIAL),
+                1);
+        page = resultSetManager.getResultSet(config, originalDataProvider);
+        assertEquals("[a, b]", page.getList().toString());
+
+        // a modification registered after the data have been cached makes them out of date, even
+        // if its timestamp (taken before the modification has been made) is not newer
+        modificationState.registerModification(sampleEdit, 0);
+        // an export does not state relevant modifications and uses the displayed data
+        page =
+                resultSetManager.getResultSet(createPageConfig("2", 0, column, SortDir.ASC, null),
+                        originalDataProvider);
+        assertEquals("[a, b]", page.getList().toString());
+
+        context.checking(new Expectations()
+            {
+                {
+                    one(originalDataProvider).getOriginalData();
+                    will(returnValue(Arrays.asList("c", "b", "a")));
+                }
+            });
+        page = resultSetManager.getResultSet(config, originalDataProvider);
+        assertEquals("2", page.getResultSetKey());
+        assertEquals("[a, b]", page.getList().toString());
+        assertEquals(3, page.getTotalLength());
+        // the refreshed data are up to date
+        page = resultSetManager.getResultSet(config, originalDataProvider);
+        assertEquals(3, page.getTotalLength());
+        context.assertIsSatisfied();
+    }
+
     @Test
     public final void testRemoveData()
     {
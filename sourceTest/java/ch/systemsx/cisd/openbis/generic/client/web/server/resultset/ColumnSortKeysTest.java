@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.IColumnDefinition;
+
+/**
+ * Test cases for corresponding {@link ColumnSortKeys} class.
+ * 
+ * @author agent
+ */
+public final class ColumnSortKeysTest
+{
+    private static final class ComparableColumnDefinition implements
+            IColumnDefinition<Comparable<?>>
+    {
+        public String getValue(Comparable<?> rowModel)
+        {
+            return String.valueOf(rowModel);
+        }
+
+        public Comparable<?> getComparableValue(Comparable<?> rowModel)
+        {
+            return rowModel;
+        }
+
+        public String getHeader()
+        {
+            return "Value";
+        }
+
+        public String getIdentifier()
+        {
+            return "VALUE";
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final static void assertSameOrderAsCompareTo(final List<Comparable<?>> values)
+    {
+        final ColumnSortKeys keys =
+                ColumnSortKeys.create(values, new ComparableColumnDefinition());
+        for (int i = 0; i < values.size(); i++)
+        {
+            for (int j = 0; j < values.size(); j++)
+            {
+                final int expected = ((Comparable) values.get(i)).compareTo(values.get(j));
+                assertEquals(values.get(i) + " vs. " + values.get(j), Integer.signum(expected),
+                        Integer.signum(keys.compare(i, j)));
+            }
+        }
+    }
+
+    @Test
+    public final void testIntegralNumbers()
+    {
+        assertSameOrderAsCompareTo(Arrays.<Comparable<?>> asList(3L, -1L, Long.MAX_VALUE,
+                Long.MIN_VALUE, 3L));
+        assertSameOrderAsCompareTo(Arrays.<Comparable<?>> asList(7, 0, -7));
+    }
+
+    @Test
+    public final void testFloatingPointNumbers()
+    {
+        assertSameOrderAsCompareTo(Arrays.<Comparable<?>> asList(1.5, -0.0, 0.0, Double.NaN,
+                Double.NEGATIVE_INFINITY, 1.5));
+    }
+
+    @Test
+    public final void testDates()
+    {
+        assertSameOrderAsCompareTo(Arrays.<Comparable<?>> asList(new Date(2000), new Date(1000),
+                new Date(2000)));
+    }
+
+    @Test
+    public final void testStrings()
+    {
+        assertSameOrderAsCompareTo(Arrays.<Comparable<?>> asList("b", "a", "B", "", "b"));
+    }
+
+    @Test
+    public final void testCanonicalize()
+    {
+        final Map<String, String> canonicalValues = new HashMap<String, String>();
+        final String first = new String("term");
+        final String second = new String("term");
+
+        assertSame(first, ColumnSortKeys.canonicalize(first, canonicalValues));
+        assertSame(first, ColumnSortKeys.canonicalize(second, canonicalValues));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test cases for corresponding {@link ParallelSorter} class.
+ * 
+ * @author agent
+ */
+public final class ParallelSorterTest
+{
+    private final static IntComparator createComparator(final int[] keys)
+    {
+        return new AbstractIntComparator()
+            {
+                public int compare(int i1, int i2)
+                {
+                    return keys[i1] < keys[i2] ? -1 : (keys[i1] == keys[i2] ? 0 : 1);
+                }
+            };
+    }
+
+    private final static int[] createRows(final int size)
+    {
+        final int[] rows = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    private final static int[] createKeys(final int size)
+    {
+        final Random random = new Random(size);
+        final int[] keys = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            keys[i] = random.nextInt(50);
+        }
+        return keys;
+    }
+
+    @Test
+    public final void testSortInParallelIsStable()
+    {
+        for (final int size : new int[]
+            { 2, 3, 10, 1001 })
+        {
+            final IntComparator comparator = createComparator(createKeys(size));
+            final int[] expected = createRows(size);
+            IntArrays.mergeSort(expected, comparator);
+            for (int runCount = 2; runCount <= Math.min(size, 7); runCount++)
+            {
+                final int[] rows = createRows(size);
+                ParallelSorter.sortInParallel(rows, comparator, runCount);
+                assertEquals("size=" + size + ", runs=" + runCount, Arrays.toString(expected),
+                        Arrays.toString(rows));
+            }
+        }
+    }
+
+    @Test
+    public final void testSort()
+    {
+        final IntComparator comparator = createComparator(createKeys(500));
+        final int[] expected = createRows(500);
+        IntArrays.mergeSort(expected, comparator);
+        for (final int threshold : new int[]
+            { -1, 0, 100, 1000 })
+        {
+            final int[] rows = createRows(500);
+            ParallelSorter.sort(rows, comparator, threshold);
+            assertEquals(Arrays.toString(expected), Arrays.toString(rows));
+        }
+    }
+}
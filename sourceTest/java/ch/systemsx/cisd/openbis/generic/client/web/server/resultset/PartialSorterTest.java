@@ -0,0 +1,93 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test cases for corresponding {@link PartialSorter} class.
+ * 
+ * @author agent
+ */
+public final class PartialSorterTest
+{
+    private final static IntComparator createComparator(final int[] keys)
+    {
+        return new AbstractIntComparator()
+            {
+                public int compare(int i1, int i2)
+                {
+                    return keys[i1] < keys[i2] ? -1 : (keys[i1] == keys[i2] ? 0 : 1);
+                }
+            };
+    }
+
+    private final static int[] createRows(final int size)
+    {
+        final int[] rows = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    @Test
+    public final void testSelectFirstIsPrefixOfStableSort()
+    {
+        final Random random = new Random(42);
+        final int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = random.nextInt(20);
+        }
+        final IntComparator comparator = createComparator(keys);
+        final int[] sorted = createRows(keys.length);
+        IntArrays.mergeSort(sorted, comparator);
+        for (final int count : new int[]
+            { 0, 1, 2, 50, 999, 1000, 2000 })
+        {
+            final int[] rows = createRows(keys.length);
+            final int[] first = PartialSorter.selectFirst(rows, count, comparator);
+
+            final int expectedLength = Math.min(count, keys.length);
+            assertEquals(Arrays.toString(Arrays.copyOf(sorted, expectedLength)), Arrays
+                    .toString(first));
+            assertEquals(Arrays.toString(createRows(keys.length)), Arrays.toString(rows));
+        }
+    }
+
+    @Test
+    public final void testSelectFirstOfFilteredRows()
+    {
+        final int[] keys = new int[]
+            { 5, 1, 4, 1, 3, 0 };
+        final int[] first =
+                PartialSorter.selectFirst(new int[]
+                    { 0, 1, 2, 3 }, 3, createComparator(keys));
+        assertEquals("[1, 3, 2]", Arrays.toString(first));
+    }
+}
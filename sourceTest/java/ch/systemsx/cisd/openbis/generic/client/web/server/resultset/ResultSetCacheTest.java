@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.resultset;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.openbis.generic.client.web.server.resultset.ResultSetCache.EvictionPolicy;
+
+/**
+ * Test cases for corresponding {@link ResultSetCache} class.
+ *
+ * @author agent
+ */
+public final class ResultSetCacheTest
+{
+    private ResultSetCache<String> cache;
+
+    @BeforeMethod
+    public final void setUp()
+    {
+        cache = new ResultSetCache<String>();
+    }
+
+    private final static CachedResultSet<String> createRows(final int size)
+    {
+        final List<String> rows = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++)
+        {
+            rows.add("row" + i);
+        }
+        return new CachedResultSet<String>(rows);
+    }
+
+    @Test
+    public final void testPutGetAndRemove()
+    {
+        final CachedResultSet<String> rows = createRows(3);
+        cache.put("a", "user", rows);
+
+        assertSame(rows, cache.tryGet("a"));
+        assertNull(cache.tryGet("b"));
+        assertEquals(3, cache.getCachedRowCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        assertTrue(cache.remove("a"));
+        assertFalse(cache.remove("a"));
+        assertNull(cache.tryGet("a"));
+        assertEquals(0, cache.getCachedRowCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public final void testReplaceUpdatesRowCount()
+    {
+        cache.put("a", "user", createRows(3));
+        cache.put("a", "user", createRows(5));
+
+        assertEquals(5, cache.getCachedRowCount());
+        assertEquals(1, cache.getCachedResultSetCount());
+    }
+
+    @Test
+    public final void testGlobalBudgetEvictsLeastRecentlyUsed() throws InterruptedException
+    {
+        cache.setMaxRows(10);
+        cache.put("a", "user1", createRows(4));
+        Thread.sleep(5);
+        cache.put("b", "user2", createRows(4));
+        Thread.sleep(5);
+        assertNotNull(cache.tryGet("a"));
+
+        cache.put("c", "user3", createRows(4));
+
+        assertNotNull(cache.tryGet("a"));
+        assertNull(cache.tryGet("b"));
+        assertNotNull(cache.tryGet("c"));
+        assertEquals(8, cache.getCachedRowCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public final void testGlobalBudgetEvictsLeastFrequentlyUsed() throws InterruptedException
+    {
+        cache.setMaxRows(10);
+        cache.setEvictionPolicy(EvictionPolicy.LFU);
+        cache.put("a", "user1", createRows(4));
+        cache.put("b", "user2", createRows(4));
+        cache.tryGet("a");
+        cache.tryGet("a");
+        Thread.sleep(5);
+        cache.tryGet("b");
+
+        cache.put("c", "user3", createRows(4));
+
+        assertNotNull(cache.tryGet("a"));
+        assertNull(cache.tryGet("b"));
+        assertNotNull(cache.tryGet("c"));
+    }
+
+    @Test
+    public final void testUserQuotaEvictsOnlyOwnResultSets()
+    {
+        cache.setMaxRowsPerUser(5);
+        cache.put("a", "user1", createRows(3));
+        cache.put("b", "user2", createRows(3));
+
+        cache.put("c", "user1", createRows(3));
+
+        assertNull(cache.tryGet("a"));
+        assertNotNull(cache.tryGet("b"));
+        assertNotNull(cache.tryGet("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public final void testJustAddedResultSetIsNeverEvicted()
+    {
+        cache.setMaxRows(2);
+        cache.put("a", "user", createRows(5));
+
+        assertNotNull(cache.tryGet("a"));
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public final void testDerivedViewsAreChargedToTheBudget()
+    {
+        cache.setMaxRows(10);
+        final CachedResultSet<String> rows = createRows(4);
+        cache.put("a", "user1", createRows(4));
+        cache.put("b", "user2", rows);
+        rows.putView("view", new int[]
+            { 3, 2, 1 });
+
+        cache.updateWeight("b", rows);
+
+        assertNull(cache.tryGet("a"));
+        assertSame(rows, cache.tryGet("b"));
+        assertEquals(7, cache.getCachedRowCount());
+        assertEquals(1, cache.getEvictionCount());
+
+        rows.putView("view", new int[]
+            { 3 });
+        cache.updateWeight("b", rows);
+
+        assertEquals(5, cache.getCachedRowCount());
+    }
+
+    @Test
+    public final void testIdleTimeout() throws InterruptedException
+    {
+        cache.setIdleTimeoutMillis(10);
+        cache.put("a", "user", createRows(2));
+        Thread.sleep(50);
+
+        assertNull(cache.tryGet("a"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.getCachedRowCount());
+    }
+}
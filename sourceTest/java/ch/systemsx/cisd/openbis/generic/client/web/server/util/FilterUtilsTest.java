@@ -0,0 +1,123 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.client.web.server.util;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.common.evaluator.EvaluatorException;
+import ch.systemsx.cisd.openbis.generic.client.web.client.dto.CustomFilterInfo;
+import ch.systemsx.cisd.openbis.generic.client.web.client.dto.ParameterWithValue;
+import ch.systemsx.cisd.openbis.generic.shared.basic.IColumnDefinition;
+
+/**
+ * Tests of {@link FilterUtils}
+ * 
+ * @author agent
+ */
+public class FilterUtilsTest
+{
+    @Test
+    public void testApplyCustomFilter()
+    {
+        IntArrayList filtered = new IntArrayList();
+        FilterUtils.applyCustomFilter(createRows(10), createFilterInfo(
+                "int(row.get('NUMBER')) % ${divisor} == 0", "divisor", "3"), filtered);
+        AssertJUnit.assertEquals("[0, 3, 6, 9]", filtered.toString());
+    }
+
+    @Test
+    public void testApplyCustomFilterInChunks()
+    {
+        IntArrayList filtered = new IntArrayList();
+        FilterUtils.applyCustomFilter(createRows(100), createFilterInfo(
+                "int(row.get('NUMBER')) % ${divisor} == 0", "divisor", "7"), filtered, 10);
+        IntArrayList expected = new IntArrayList();
+        for (int i = 0; i < 100; i += 7)
+        {
+            expected.add(i);
+        }
+        AssertJUnit.assertEquals(expected, filtered);
+    }
+
+    @Test
+    public void testUnknownColumnIsNone()
+    {
+        IntArrayList filtered = new IntArrayList();
+        FilterUtils.applyCustomFilter(createRows(3), createFilterInfo(
+                "row.get('UNKNOWN') is None", "p", "v"), filtered);
+        AssertJUnit.assertEquals("[0, 1, 2]", filtered.toString());
+    }
+
+    @Test(expectedExceptions = EvaluatorException.class)
+    public void testFailingExpressionInChunk()
+    {
+        FilterUtils.applyCustomFilter(createRows(100), createFilterInfo(
+                "1 / (int(row.get('NUMBER')) - 77) > ${p}", "p", "0"), new IntArrayList(), 10);
+    }
+
+    private static List<String> createRows(int size)
+    {
+        List<String> rows = new ArrayList<String>();
+        for (int i = 0; i < size; i++)
+        {
+            rows.add(Integer.toString(i));
+        }
+        return rows;
+    }
+
+    private static CustomFilterInfo<String> createFilterInfo(String expression,
+            String parameter, String value)
+    {
+        CustomFilterInfo<String> filterInfo = new CustomFilterInfo<String>();
+        filterInfo.setExpression(expression);
+        filterInfo.setParameters(new HashSet<ParameterWithValue>(Arrays
+                .asList(new ParameterWithValue(parameter, value))));
+        List<IColumnDefinition<String>> columns = new ArrayList<IColumnDefinition<String>>();
+        columns.add(new IColumnDefinition<String>()
+            {
+                public String getHeader()
+                {
+                    return "Number";
+                }
+
+                public String getIdentifier()
+                {
+                    return "NUMBER";
+                }
+
+                public String getValue(String rowModel)
+                {
+                    return rowModel;
+                }
+
+                public Comparable<?> getComparableValue(String rowModel)
+                {
+                    return getValue(rowModel);
+                }
+            });
+        filterInfo.setColumns(columns);
+        return filterInfo;
+    }
+}
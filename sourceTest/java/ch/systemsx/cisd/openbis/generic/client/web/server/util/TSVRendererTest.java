@@ -16,6 +16,8 @@
 
 package ch.systemsx.cisd.openbis.generic.client.web.server.util;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -45,6 +47,20 @@ public class TSVRendererTest
         Assert.assertEquals("h0\th1#x\ty#a\tb#", content);
     }
 
+    @Test
+    public void testWriteTable() throws IOException
+    {
+        List<IColumnDefinition<String[]>> columnDefs = createColumnDefs(2);
+        List<String[]> entities = new ArrayList<String[]>();
+        entities.add(new String[]
+            { "x", "y  z" });
+        entities.add(new String[]
+            { "a", "b" });
+        StringWriter writer = new StringWriter();
+        TSVRenderer.writeTable(entities, columnDefs, "#", writer);
+        Assert.assertEquals("h0\th1#x\ty z#a\tb#", writer.toString());
+    }
+
     private static List<IColumnDefinition<String[]>> createColumnDefs(int colNum)
     {
         List<IColumnDefinition<String[]>> columnDefs = new ArrayList<IColumnDefinition<String[]>>();
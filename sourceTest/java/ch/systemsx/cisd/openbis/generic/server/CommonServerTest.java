@@ -42,11 +42,13 @@ import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataTypeCode;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DisplaySettings;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Experiment;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ExperimentType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ExternalData;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.FileFormatType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Group;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Material;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.MaterialType;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.NewVocabulary;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Person;
@@ -64,7 +66,6 @@ import ch.systemsx.cisd.openbis.generic.shared.dto.DataTypePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.DatabaseInstancePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.EntityPropertyPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.EntityTypePE;
-import ch.systemsx.cisd.openbis.generic.shared.dto.ExperimentPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.ExperimentPropertyPE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.ExperimentTypePE;
 import ch.systemsx.cisd.openbis.generic.shared.dto.ExperimentTypePropertyTypePE;
@@ -592,16 +593,16 @@ public final class CommonServerTest extends AbstractServerTestCase
         context.checking(new Expectations()
             {
                 {
-                    one(commonBusinessObjectFactory).createExperimentTable(SESSION);
-                    will(returnValue(experimentTable));
+                    one(commonBusinessObjectFactory).createExperimentLister(SESSION);
+                    will(returnValue(experimentLister));
 
-                    one(experimentTable).load(experimentType.getCode(), projectIdentifier);
-
-                    one(experimentTable).getExperiments();
-                    will(returnValue(new ArrayList<ExperimentPE>()));
+                    one(experimentLister).list(experimentType.getCode(), projectIdentifier);
+                    will(returnValue(new ArrayList<Experiment>()));
                 }
             });
-        createServer().listExperiments(SESSION_TOKEN, experimentType, projectIdentifier);
+        final List<Experiment> experiments =
+                createServer().listExperiments(SESSION_TOKEN, experimentType, projectIdentifier);
+        assertEquals(0, experiments.size());
         context.assertIsSatisfied();
     }
 
@@ -1234,13 +1235,11 @@ public final class CommonServerTest extends AbstractServerTestCase
         context.checking(new Expectations()
             {
                 {
-                    one(commonBusinessObjectFactory).createMaterialTable(SESSION);
-                    will(returnValue(materialTable));
-
-                    one(materialTable).load(materialType.getCode());
+                    one(commonBusinessObjectFactory).createMaterialLister(SESSION);
+                    will(returnValue(materialLister));
 
-                    one(materialTable).getMaterials();
-                    will(returnValue(new ArrayList<MaterialTypePE>()));
+                    one(materialLister).list(materialType.getCode());
+                    will(returnValue(new ArrayList<Material>()));
                 }
             });
         createServer().listMaterials(SESSION_TOKEN, materialType);
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind.ObjectKind;
+
+/**
+ * Test cases for corresponding {@link DatabaseModificationNotifier} class.
+ *
+ * @author agent
+ */
+public final class DatabaseModificationNotifierTest
+{
+    private static final DatabaseModificationKind SAMPLE_EDIT =
+            DatabaseModificationKind.edit(ObjectKind.SAMPLE);
+
+    private static final DatabaseModificationKind MATERIAL_EDIT =
+            DatabaseModificationKind.edit(ObjectKind.MATERIAL);
+
+    private static final Set<DatabaseModificationKind> SAMPLE_EDITS =
+            Collections.singleton(SAMPLE_EDIT);
+
+    private LastModificationState state;
+
+    private DatabaseModificationNotifier notifier;
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public final void setUp()
+    {
+        state = new LastModificationState();
+        state.registerModification(SAMPLE_EDIT, 1);
+        notifier = new DatabaseModificationNotifier(state);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public final void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public final void testUnknownStateIsAnsweredImmediately() throws Exception
+    {
+        final LastModificationState answer =
+                notifier.waitForModification(SAMPLE_EDITS, null, 60000);
+
+        assertNotSame(state, answer);
+        assertEquals(1, answer.getLastModificationTime(SAMPLE_EDIT));
+    }
+
+    @Test
+    public final void testTimeoutWithoutModification() throws Exception
+    {
+        final LastModificationState lastSeen = state.createSnapshot();
+        final long start = System.currentTimeMillis();
+
+        final LastModificationState answer =
+                notifier.waitForModification(SAMPLE_EDITS, lastSeen, 100);
+
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals(1, answer.getLastModificationTime(SAMPLE_EDIT));
+    }
+
+    @Test
+    public final void testRelevantModificationWakesUpWaitingClient() throws Exception
+    {
+        final LastModificationState lastSeen = state.createSnapshot();
+        final Future<LastModificationState> answer =
+                executor.submit(new Callable<LastModificationState>()
+                    {
+                        public LastModificationState call() throws Exception
+                        {
+                            return notifier.waitForModification(SAMPLE_EDITS, lastSeen, 60000);
+                        }
+                    });
+        Thread.sleep(100);
+        // irrelevant for the client
+        notifier.registerModification(MATERIAL_EDIT, 2);
+        Thread.sleep(100);
+        assertEquals(false, answer.isDone());
+
+        notifier.registerModification(SAMPLE_EDIT, 3);
+
+        assertEquals(3, answer.get(10, TimeUnit.SECONDS).getLastModificationTime(SAMPLE_EDIT));
+    }
+
+    @Test
+    public final void testModificationBeforeWaitingIsAnsweredImmediately() throws Exception
+    {
+        final LastModificationState lastSeen = state.createSnapshot();
+        notifier.registerModification(SAMPLE_EDIT, 2);
+
+        final LastModificationState answer =
+                notifier.waitForModification(SAMPLE_EDITS, lastSeen, 60000);
+
+        assertEquals(2, answer.getLastModificationTime(SAMPLE_EDIT));
+        assertEquals(1, lastSeen.getLastModificationTime(SAMPLE_EDIT));
+    }
+
+    @Test
+    public final void testClientExceedingMaxWaitingClientsGetsNoAnswer() throws Exception
+    {
+        notifier.setMaxWaitingClients(1);
+        final LastModificationState lastSeen = state.createSnapshot();
+        final Future<LastModificationState> waitingAnswer =
+                executor.submit(new Callable<LastModificationState>()
+                    {
+                        public LastModificationState call() throws Exception
+                        {
+                            return notifier.waitForModification(SAMPLE_EDITS, lastSeen, 60000);
+                        }
+                    });
+        Thread.sleep(100);
+
+        assertNull(notifier.waitForModification(SAMPLE_EDITS, lastSeen, 60000));
+        // a client which has not seen any state does not wait
+        assertNotNull(notifier.waitForModification(SAMPLE_EDITS, null, 60000));
+
+        notifier.registerModification(SAMPLE_EDIT, 2);
+        assertNotNull(waitingAnswer.get(10, TimeUnit.SECONDS));
+        // the waiting client has left
+        assertNotNull(notifier.waitForModification(SAMPLE_EDITS, lastSeen, 60000));
+    }
+
+    @Test
+    public final void testModificationWithOlderTimestampIsAnsweredImmediately() throws Exception
+    {
+        final LastModificationState lastSeen = state.createSnapshot();
+        // committed after the last seen state, but started before
+        notifier.registerModification(SAMPLE_EDIT, 0);
+
+        final LastModificationState answer =
+                notifier.waitForModification(SAMPLE_EDITS, lastSeen, 60000);
+
+        assertEquals(lastSeen.getVersion(SAMPLE_EDIT) + 1, answer.getVersion(SAMPLE_EDIT));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import static org.testng.AssertJUnit.assertEquals;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test cases for corresponding {@link ChunkedSetListingIterable} class.
+ * 
+ * @author agent
+ */
+public final class ChunkedSetListingIterableTest
+{
+    /** Lists the ids of a table containing all ids from 1 to 1000 and records the queries. */
+    private static final class TableIterable extends ChunkedSetListingIterable<Long>
+    {
+        private final List<String> queries = new ArrayList<String>();
+
+        TableIterable(LongSet ids, int chunkSize)
+        {
+            super(ids, chunkSize);
+        }
+
+        @Override
+        protected Iterator<Long> getRecords(long fromId, long toId)
+        {
+            queries.add(fromId + "-" + toId);
+            final List<Long> records = new ArrayList<Long>();
+            for (long id = Math.max(1, fromId); id <= Math.min(1000, toId); id++)
+            {
+                records.add(id);
+            }
+            return records.iterator();
+        }
+
+        @Override
+        protected long getId(Long record)
+        {
+            return record;
+        }
+    }
+
+    private static LongSet createSet(long... ids)
+    {
+        return new LongOpenHashSet(ids);
+    }
+
+    private static List<Long> list(Iterable<Long> iterable)
+    {
+        final List<Long> result = new ArrayList<Long>();
+        for (Long id : iterable)
+        {
+            result.add(id);
+        }
+        return result;
+    }
+
+    @Test
+    public final void testDenseIdsAreFetchedInChunks()
+    {
+        final LongSet ids = new LongOpenHashSet();
+        for (long id = 10; id < 20; id++)
+        {
+            ids.add(id);
+        }
+        final TableIterable iterable = new TableIterable(ids, 4);
+
+        final List<Long> result = list(iterable);
+
+        assertEquals("[10, 11, 12, 13, 14, 15, 16, 17, 18, 19]", result.toString());
+        assertEquals("[10-13, 14-17, 18-19]", iterable.queries.toString());
+    }
+
+    @Test
+    public final void testRecordsInRangeWhichAreNotRequestedAreFilteredOut()
+    {
+        final TableIterable iterable = new TableIterable(createSet(7, 1, 3, 5), 10);
+
+        final List<Long> result = list(iterable);
+
+        assertEquals("[1, 3, 5, 7]", result.toString());
+        assertEquals("[1-7]", iterable.queries.toString());
+    }
+
+    @Test
+    public final void testSparseIdsAreFetchedSeparately()
+    {
+        final TableIterable iterable = new TableIterable(createSet(1, 100, 101, 500), 10);
+
+        final List<Long> result = list(iterable);
+
+        assertEquals("[1, 100, 101, 500]", result.toString());
+        assertEquals("[1-1, 100-101, 500-500]", iterable.queries.toString());
+    }
+
+    @Test
+    public final void testMissingRecordsAreSkipped()
+    {
+        final TableIterable iterable = new TableIterable(createSet(999, 1000, 1001, 1002), 2);
+
+        final List<Long> result = list(iterable);
+
+        assertEquals("[999, 1000]", result.toString());
+        assertEquals("[999-1000, 1001-1002]", iterable.queries.toString());
+    }
+
+    @Test
+    public final void testChunksAreFetchedLazily()
+    {
+        final TableIterable iterable = new TableIterable(createSet(1, 2, 3), 1);
+
+        final Iterator<Long> iterator = iterable.iterator();
+        assertEquals(0, iterable.queries.size());
+        assertEquals(1L, iterator.next().longValue());
+        assertEquals(1, iterable.queries.size());
+    }
+
+    @Test
+    public final void testCountChunks()
+    {
+        final LongSet ids = createSet(1, 2, 3, 4, 5, 100, 101, 500);
+
+        final TableIterable iterable = new TableIterable(ids, 3);
+        list(iterable);
+
+        assertEquals(iterable.queries.size(), ChunkedSetListingIterable.countChunks(ids, 3));
+        assertEquals(4, ChunkedSetListingIterable.countChunks(ids, 3));
+        assertEquals(0, ChunkedSetListingIterable.countChunks(createSet(), 3));
+    }
+
+    @Test
+    public final void testNoIds()
+    {
+        final TableIterable iterable = new TableIterable(createSet(), 10);
+
+        assertEquals(0, list(iterable).size());
+        assertEquals(0, iterable.queries.size());
+    }
+}
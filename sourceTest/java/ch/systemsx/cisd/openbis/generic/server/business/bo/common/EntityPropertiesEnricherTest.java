@@ -0,0 +1,394 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import static org.testng.AssertJUnit.assertEquals;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DataTypeCode;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.IEntityPropertiesHolder;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.IEntityProperty;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.PropertyType;
+
+/**
+ * Test cases for corresponding {@link EntityPropertiesEnricher} class.
+ * 
+ * @author agent
+ */
+public final class EntityPropertiesEnricherTest
+{
+    private static final long VARCHAR_PROPERTY_TYPE_ID = 41;
+
+    private static final long VOCABULARY_PROPERTY_TYPE_ID = 42;
+
+    private static final long MATERIAL_PROPERTY_TYPE_ID = 43;
+
+    /** Returns one property of each kind for entities 1 and 2. */
+    private static class PropertyQuery implements IPropertyListingQuery,
+            IEntityPropertySetListingQuery
+    {
+        public PropertyType[] getPropertyTypes()
+        {
+            return new PropertyType[]
+                { createPropertyType(VARCHAR_PROPERTY_TYPE_ID, DataTypeCode.VARCHAR),
+                        createPropertyType(VOCABULARY_PROPERTY_TYPE_ID,
+                                DataTypeCode.CONTROLLEDVOCABULARY),
+                        createPropertyType(MATERIAL_PROPERTY_TYPE_ID, DataTypeCode.MATERIAL) };
+        }
+
+        private static PropertyType createPropertyType(long id, DataTypeCode dataTypeCode)
+        {
+            final PropertyType propertyType = new PropertyType();
+            propertyType.setId(id);
+            propertyType.setSimpleCode(dataTypeCode.name());
+            propertyType.setDataType(new DataType(dataTypeCode));
+            return propertyType;
+        }
+
+        public CodeRecord[] getVocabularyURLTemplates()
+        {
+            final CodeRecord vocabulary = new CodeRecord();
+            vocabulary.id = 7;
+            vocabulary.code = "http://vocabulary/$term$";
+            return new CodeRecord[]
+                { vocabulary };
+        }
+
+        public CodeRecord[] getMaterialTypes()
+        {
+            final CodeRecord materialType = new CodeRecord();
+            materialType.id = 3;
+            materialType.code = "GENE";
+            return new CodeRecord[]
+                { materialType };
+        }
+
+        public Iterable<GenericEntityPropertyRecord> getEntityPropertyGenericValues(
+                LongSet entityIDs)
+        {
+            final List<GenericEntityPropertyRecord> records =
+                    new ArrayList<GenericEntityPropertyRecord>();
+            for (long entityId : sorted(entityIDs))
+            {
+                final GenericEntityPropertyRecord record = new GenericEntityPropertyRecord();
+                record.entity_id = entityId;
+                record.prty_id = VARCHAR_PROPERTY_TYPE_ID;
+                record.value = "value-" + entityId;
+                records.add(record);
+            }
+            return records;
+        }
+
+        public Iterable<VocabularyTermRecord> getEntityPropertyVocabularyTermValues(
+                LongSet entityIDs)
+        {
+            final List<VocabularyTermRecord> records = new ArrayList<VocabularyTermRecord>();
+            for (long entityId : sorted(entityIDs))
+            {
+                final VocabularyTermRecord record = new VocabularyTermRecord();
+                record.entity_id = entityId;
+                record.prty_id = VOCABULARY_PROPERTY_TYPE_ID;
+                record.id = 100 + entityId;
+                record.covo_id = 7;
+                record.code = "TERM-" + entityId;
+                records.add(record);
+            }
+            return records;
+        }
+
+        public Iterable<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(
+                LongSet entityIDs)
+        {
+            final List<MaterialEntityPropertyRecord> records =
+                    new ArrayList<MaterialEntityPropertyRecord>();
+            for (long entityId : sorted(entityIDs))
+            {
+                final MaterialEntityPropertyRecord record = new MaterialEntityPropertyRecord();
+                record.entity_id = entityId;
+                record.prty_id = MATERIAL_PROPERTY_TYPE_ID;
+                record.id = 200 + entityId;
+                record.maty_id = 3;
+                record.code = "MAT-" + entityId;
+                records.add(record);
+            }
+            return records;
+        }
+
+        private static List<Long> sorted(LongSet entityIDs)
+        {
+            final List<Long> ids = new ArrayList<Long>(entityIDs);
+            Collections.sort(ids);
+            return ids;
+        }
+    }
+
+    /** Fails to return material property values. */
+    private static final class BrokenMaterialPropertyQuery extends PropertyQuery
+    {
+        @Override
+        public Iterable<MaterialEntityPropertyRecord> getEntityPropertyMaterialValues(
+                LongSet entityIDs)
+        {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    private static final class Entity implements IEntityPropertiesHolder
+    {
+        private final long id;
+
+        private final List<IEntityProperty> properties = new ArrayList<IEntityProperty>();
+
+        Entity(long id)
+        {
+            this.id = id;
+        }
+
+        public Long getId()
+        {
+            return id;
+        }
+
+        public List<IEntityProperty> getProperties()
+        {
+            return properties;
+        }
+    }
+
+    private PropertyQuery query;
+
+    private Entity[] entities;
+
+    private Thread resolvingThread;
+
+    private IEntityPropertiesHolderResolver resolver;
+
+    private AtomicInteger closedConnections;
+
+    @BeforeMethod
+    public final void setUp()
+    {
+        query = new PropertyQuery();
+        entities = new Entity[]
+            { new Entity(1), new Entity(2) };
+        resolvingThread = Thread.currentThread();
+        resolver = new IEntityPropertiesHolderResolver()
+            {
+                public IEntityPropertiesHolder get(long id)
+                {
+                    // the resolver must only be used by the calling thread
+                    assertEquals(resolvingThread, Thread.currentThread());
+                    return entities[(int) id - 1];
+                }
+            };
+        closedConnections = new AtomicInteger();
+    }
+
+    private IEntityPropertySetListingQueryFactory createQueryFactory()
+    {
+        return new IEntityPropertySetListingQueryFactory()
+            {
+                public ConnectedEntityPropertySetListingQuery createQuery()
+                {
+                    return new ConnectedEntityPropertySetListingQuery(new PropertyQuery(),
+                            createConnection());
+                }
+            };
+    }
+
+    private Connection createConnection()
+    {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]
+            { Connection.class }, new InvocationHandler()
+            {
+                public Object invoke(Object proxy, Method method, Object[] args)
+                {
+                    if (method.getName().equals("close"))
+                    {
+                        closedConnections.incrementAndGet();
+                    }
+                    return null;
+                }
+            });
+    }
+
+    private static String render(Entity entity)
+    {
+        final List<String> values = new ArrayList<String>();
+        for (IEntityProperty property : entity.getProperties())
+        {
+            final String type = property.getPropertyType().getSimpleCode();
+            if (property.getVocabularyTerm() != null)
+            {
+                values.add(type + ":" + property.getVocabularyTerm().getCode() + "@"
+                        + property.getVocabularyTerm().getUrl());
+            } else if (property.getMaterial() != null)
+            {
+                values.add(type + ":" + property.getMaterial().getCode() + " ("
+                        + property.getMaterial().getMaterialType().getCode() + ")");
+            } else
+            {
+                values.add(type + ":" + property.getValue());
+            }
+        }
+        return values.toString();
+    }
+
+    @Test
+    public final void testEnrichSequentially()
+    {
+        new EntityPropertiesEnricher(query, query).enrich(new LongOpenHashSet(new long[]
+            { 1, 2 }), resolver);
+
+        assertEquals("[VARCHAR:value-1, CONTROLLEDVOCABULARY:TERM-1@http://vocabulary/TERM-1, "
+                + "MATERIAL:MAT-1 (GENE)]",
+                render(entities[0]));
+        assertEquals("[VARCHAR:value-2, CONTROLLEDVOCABULARY:TERM-2@http://vocabulary/TERM-2, "
+                + "MATERIAL:MAT-2 (GENE)]",
+                render(entities[1]));
+    }
+
+    @Test
+    public final void testEnrichConcurrently()
+    {
+        final EntityPropertiesEnricher enricher =
+                new EntityPropertiesEnricher(query, query, createQueryFactory());
+        for (int i = 0; i < 10; i++)
+        {
+            entities[0].getProperties().clear();
+            entities[1].getProperties().clear();
+
+            enricher.enrich(new LongOpenHashSet(new long[]
+                { 1, 2 }), resolver);
+
+            assertEquals("[VARCHAR:value-1, CONTROLLEDVOCABULARY:TERM-1@http://vocabulary/TERM-1, "
+                + "MATERIAL:MAT-1 (GENE)]",
+                    render(entities[0]));
+            assertEquals("[VARCHAR:value-2, CONTROLLEDVOCABULARY:TERM-2@http://vocabulary/TERM-2, "
+                + "MATERIAL:MAT-2 (GENE)]",
+                    render(entities[1]));
+        }
+        assertEquals(20, closedConnections.get());
+    }
+
+    @Test
+    public final void testConnectionsAreClosedIfFetchingFails()
+    {
+        final IEntityPropertySetListingQueryFactory factory =
+                new IEntityPropertySetListingQueryFactory()
+                    {
+                        public ConnectedEntityPropertySetListingQuery createQuery()
+                        {
+                            return new ConnectedEntityPropertySetListingQuery(
+                                    new BrokenMaterialPropertyQuery(), createConnection());
+                        }
+                    };
+        try
+        {
+            new EntityPropertiesEnricher(query, query, factory).enrich(new LongOpenHashSet(
+                    Arrays.asList(1L, 2L)), resolver);
+            throw new AssertionError("IllegalStateException expected");
+        } catch (IllegalStateException ex)
+        {
+            assertEquals("broken", ex.getMessage());
+        }
+        assertEquals(2, closedConnections.get());
+    }
+
+    @Test
+    public final void testConnectionIsClosedIfSecondConnectionCanNotBeCreated()
+    {
+        final AtomicInteger createdConnections = new AtomicInteger();
+        final IEntityPropertySetListingQueryFactory factory =
+                new IEntityPropertySetListingQueryFactory()
+                    {
+                        public ConnectedEntityPropertySetListingQuery createQuery()
+                        {
+                            if (createdConnections.incrementAndGet() > 1)
+                            {
+                                throw new IllegalStateException("no connection");
+                            }
+                            return new ConnectedEntityPropertySetListingQuery(
+                                    new PropertyQuery(), createConnection());
+                        }
+                    };
+        try
+        {
+            new EntityPropertiesEnricher(query, query, factory).enrich(new LongOpenHashSet(
+                    Arrays.asList(1L, 2L)), resolver);
+            throw new AssertionError("IllegalStateException expected");
+        } catch (IllegalStateException ex)
+        {
+            assertEquals("no connection", ex.getMessage());
+        }
+        assertEquals(1, closedConnections.get());
+    }
+
+    @Test
+    public final void testConnectionPermitsAreReleasedIfSecondConnectionCanNotBeCreated()
+    {
+        final AtomicInteger createdConnections = new AtomicInteger();
+        final IEntityPropertySetListingQueryFactory factory =
+                new IEntityPropertySetListingQueryFactory()
+                    {
+                        public ConnectedEntityPropertySetListingQuery createQuery()
+                        {
+                            // The second connection of the first five enrichments fails.
+                            final int count = createdConnections.incrementAndGet();
+                            if (count <= 10 && count % 2 == 0)
+                            {
+                                throw new IllegalStateException("no connection");
+                            }
+                            return new ConnectedEntityPropertySetListingQuery(
+                                    new PropertyQuery(), createConnection());
+                        }
+                    };
+        final EntityPropertiesEnricher enricher =
+                new EntityPropertiesEnricher(query, query, factory);
+        for (int i = 0; i < 5; i++)
+        {
+            try
+            {
+                enricher.enrich(new LongOpenHashSet(Arrays.asList(1L, 2L)), resolver);
+                throw new AssertionError("IllegalStateException expected");
+            } catch (IllegalStateException ex)
+            {
+                assertEquals("no connection", ex.getMessage());
+            }
+        }
+        // Leaked permits would make the enricher fall back to the connection of the session.
+        enricher.enrich(new LongOpenHashSet(Arrays.asList(1L, 2L)), resolver);
+
+        assertEquals(12, createdConnections.get());
+        assertEquals(7, closedConnections.get());
+    }
+}
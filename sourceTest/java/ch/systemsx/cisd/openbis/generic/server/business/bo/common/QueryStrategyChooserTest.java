@@ -0,0 +1,281 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.IEntitiesCountProvider;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.QueryStatistics;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.QueryStrategy;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.QueryStrategyChooser.TableStatistics;
+
+/**
+ * Test cases for corresponding {@link QueryStrategyChooser} class.
+ *
+ * @author agent
+ */
+public final class QueryStrategyChooserTest
+{
+    /** A count provider which returns a fixed number and counts its invocations. */
+    private static final class FixedCountProvider implements IEntitiesCountProvider
+    {
+        private final long numberOfEntities;
+
+        private int invocations;
+
+        FixedCountProvider(final long numberOfEntities)
+        {
+            this.numberOfEntities = numberOfEntities;
+        }
+
+        public long count()
+        {
+            invocations++;
+            return numberOfEntities;
+        }
+    }
+
+    /** An executor which collects the tasks and runs them on request. */
+    private static final class ManualExecutor implements Executor
+    {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(final Runnable task)
+        {
+            tasks.add(task);
+        }
+
+        void runAll()
+        {
+            for (final Runnable task : tasks)
+            {
+                task.run();
+            }
+            tasks.clear();
+        }
+    }
+
+    private TableStatistics tableStatistics;
+
+    private QueryStatistics statistics;
+
+    private ManualExecutor executor;
+
+    @BeforeMethod
+    public final void setUp()
+    {
+        tableStatistics = new TableStatistics();
+        statistics = tableStatistics.getQueryStatistics(QueryStrategyChooser.ITEMS_QUERY_NAME);
+        executor = new ManualExecutor();
+    }
+
+    private QueryStrategyChooser createChooser(final IEntitiesCountProvider countProvider)
+    {
+        return new QueryStrategyChooser(tableStatistics, statistics, countProvider,
+                QueryStrategyChooser.DEFAULT_CHUNK_SIZE, executor);
+    }
+
+    private static LongSet createIds(final int size)
+    {
+        final LongSet ids = new LongOpenHashSet();
+        for (long id = 1; id <= size; id++)
+        {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    @Test
+    public final void testFullTableScanIsNotChosenBeforeEntitiesAreCounted()
+    {
+        final FixedCountProvider countProvider = new FixedCountProvider(100);
+        final QueryStrategyChooser chooser = createChooser(countProvider);
+
+        assertEquals(QueryStrategy.CHUNKED, chooser.chooseStrategy(createIds(100)));
+        assertFalse(chooser.useFullTableScan(createIds(100)));
+        // the counting is only scheduled, not run by the request
+        assertEquals(0, countProvider.invocations);
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+
+        assertEquals(1, countProvider.invocations);
+        assertEquals(QueryStrategy.FULL_TABLE_SCAN, chooser.chooseStrategy(createIds(100)));
+        assertTrue(chooser.useFullTableScan(createIds(100)));
+    }
+
+    @Test
+    public final void testEntitiesAreCountedOnlyOnceWithinUpdateInterval()
+    {
+        final FixedCountProvider countProvider = new FixedCountProvider(1000);
+        final QueryStrategyChooser chooser = createChooser(countProvider);
+
+        chooser.chooseStrategy(createIds(10));
+        chooser.chooseStrategy(createIds(10));
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        chooser.chooseStrategy(createIds(10));
+        createChooser(countProvider).chooseStrategy(createIds(10));
+
+        assertEquals(0, executor.tasks.size());
+        assertEquals(1, countProvider.invocations);
+    }
+
+    @Test
+    public final void testFailedCountingIsNotRetriedWithinUpdateInterval()
+    {
+        final QueryStrategyChooser chooser = createChooser(new IEntitiesCountProvider()
+            {
+                public long count()
+                {
+                    throw new IllegalStateException("Database is down.");
+                }
+            });
+
+        chooser.chooseStrategy(createIds(10));
+        executor.runAll();
+
+        assertEquals(QueryStrategy.CHUNKED, chooser.chooseStrategy(createIds(10)));
+        assertEquals(0, executor.tasks.size());
+    }
+
+    @Test
+    public final void testStrategiesWithDefaultCosts()
+    {
+        final QueryStrategyChooser chooser = createChooser(new FixedCountProvider(100000));
+        chooser.chooseStrategy(createIds(1));
+        executor.runAll();
+
+        assertEquals(QueryStrategy.ONE_BY_ONE, chooser.chooseStrategy(createIds(1)));
+        assertEquals(QueryStrategy.CHUNKED, chooser.chooseStrategy(createIds(1000)));
+        assertEquals(QueryStrategy.FULL_TABLE_SCAN, chooser.chooseStrategy(createIds(30000)));
+    }
+
+    @Test
+    public final void testSlowFullTableScansAreAvoided()
+    {
+        final QueryStrategyChooser chooser = createChooser(new FixedCountProvider(100000));
+        chooser.chooseStrategy(createIds(1));
+        executor.runAll();
+        assertEquals(QueryStrategy.FULL_TABLE_SCAN, chooser.chooseStrategy(createIds(30000)));
+
+        for (int i = 0; i < 20; i++)
+        {
+            chooser.observe(QueryStrategy.FULL_TABLE_SCAN, 30000, 0, 10000.0);
+        }
+
+        assertEquals(QueryStrategy.CHUNKED, chooser.chooseStrategy(createIds(30000)));
+    }
+
+    @Test
+    public final void testSlowChunkedQueriesAreAvoided()
+    {
+        // chunks of sparse identifiers are slow as they are fetched with one query per identifier
+        final QueryStrategyChooser chooser = createChooser(new FixedCountProvider(100000));
+        assertEquals(QueryStrategy.CHUNKED, chooser.chooseStrategy(createIds(10)));
+
+        for (int i = 0; i < 20; i++)
+        {
+            chooser.observe(QueryStrategy.CHUNKED, 10, 1, 100.0);
+        }
+
+        assertEquals(QueryStrategy.ONE_BY_ONE, chooser.chooseStrategy(createIds(10)));
+    }
+
+    @Test
+    public final void testSparseIdsAreNotChunked()
+    {
+        final QueryStrategyChooser chooser = createChooser(new FixedCountProvider(100000));
+        final LongSet sparseIds = new LongOpenHashSet();
+        for (long id = 1; id <= 10; id++)
+        {
+            sparseIds.add(id * 1000);
+        }
+
+        assertEquals(QueryStrategy.CHUNKED, chooser.chooseStrategy(createIds(10)));
+        assertEquals(QueryStrategy.ONE_BY_ONE, chooser.chooseStrategy(sparseIds));
+    }
+
+    @Test
+    public final void testObservedIterableReturnsAllRecords()
+    {
+        final QueryStrategyChooser chooser = createChooser(new FixedCountProvider(10));
+        final List<String> records = Arrays.asList("a", "b", "c");
+
+        final List<String> result = new ArrayList<String>();
+        for (final String record : chooser.observe(QueryStrategy.ONE_BY_ONE, createIds(3),
+                records))
+        {
+            result.add(record);
+        }
+
+        assertEquals(records, result);
+        // the iteration took much less than the default cost of three queries
+        assertTrue(statistics.getQueryCost() < QueryStrategyChooser.DEFAULT_QUERY_COST);
+    }
+
+    @Test
+    public final void testTimeOfConsumerIsNotObserved() throws InterruptedException
+    {
+        final QueryStrategyChooser chooser = createChooser(new FixedCountProvider(10));
+
+        final Iterator<String> iterator =
+                chooser.observe(QueryStrategy.ONE_BY_ONE, createIds(3),
+                        Arrays.asList("a", "b", "c")).iterator();
+        while (iterator.hasNext())
+        {
+            iterator.next();
+            Thread.sleep(50);
+        }
+
+        assertTrue(statistics.getQueryCost() < QueryStrategyChooser.DEFAULT_QUERY_COST);
+    }
+
+    @Test
+    public final void testOtherQueryOfSameTableSharesOnlyNumberOfEntities()
+    {
+        final FixedCountProvider countProvider = new FixedCountProvider(100000);
+        final QueryStrategyChooser chooser = createChooser(countProvider);
+        final QueryStrategyChooser propertiesChooser = chooser.forQuery("properties");
+        chooser.chooseStrategy(createIds(1));
+        executor.runAll();
+
+        for (int i = 0; i < 20; i++)
+        {
+            propertiesChooser.observe(QueryStrategy.FULL_TABLE_SCAN, 30000, 0, 10000.0);
+        }
+
+        assertEquals(QueryStrategy.FULL_TABLE_SCAN, chooser.chooseStrategy(createIds(30000)));
+        assertEquals(QueryStrategy.CHUNKED, propertiesChooser.chooseStrategy(createIds(30000)));
+        assertEquals(0, executor.tasks.size());
+        assertEquals(1, countProvider.invocations);
+    }
+}
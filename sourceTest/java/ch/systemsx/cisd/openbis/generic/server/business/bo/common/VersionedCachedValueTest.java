@@ -0,0 +1,160 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.common;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.LastModificationState;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.DatabaseModificationKind.ObjectKind;
+
+/**
+ * Test cases for corresponding {@link VersionedCachedValue} class.
+ *
+ * @author agent
+ */
+public final class VersionedCachedValueTest
+{
+    /** A loader which returns the number of its invocations. */
+    private static final class CountingLoader implements VersionedCachedValue.ILoader<Integer>
+    {
+        private int count;
+
+        public Integer load()
+        {
+            return ++count;
+        }
+    }
+
+    private LastModificationState state;
+
+    private CountingLoader loader;
+
+    @BeforeMethod
+    public final void setUp()
+    {
+        state = new LastModificationState();
+        loader = new CountingLoader();
+    }
+
+    @Test
+    public final void testValueIsLoadedOnlyOnceWithoutModification()
+    {
+        final VersionedCachedValue<Integer> value =
+                new VersionedCachedValue<Integer>(state, ObjectKind.SAMPLE_TYPE);
+
+        assertEquals(1, value.get(loader).intValue());
+        assertEquals(1, value.get(loader).intValue());
+        assertEquals(1, loader.count);
+    }
+
+    @Test
+    public final void testModificationOfDependencyReloadsValue()
+    {
+        final VersionedCachedValue<Integer> value =
+                new VersionedCachedValue<Integer>(state, ObjectKind.SAMPLE_TYPE,
+                        ObjectKind.GROUP);
+        value.get(loader);
+
+        state.registerModification(DatabaseModificationKind.edit(ObjectKind.GROUP), System
+                .currentTimeMillis() + 1000);
+
+        assertEquals(2, value.get(loader).intValue());
+        assertEquals(2, value.get(loader).intValue());
+
+        state.registerModification(DatabaseModificationKind.createOrDelete(ObjectKind.SAMPLE_TYPE),
+                System.currentTimeMillis() + 1000);
+
+        assertEquals(3, value.get(loader).intValue());
+    }
+
+    @Test
+    public final void testModificationOfOtherKindIsIgnored()
+    {
+        final VersionedCachedValue<Integer> value =
+                new VersionedCachedValue<Integer>(state, ObjectKind.SAMPLE_TYPE);
+        value.get(loader);
+
+        state.registerModification(DatabaseModificationKind.edit(ObjectKind.SAMPLE), System
+                .currentTimeMillis() + 1000);
+
+        assertEquals(1, value.get(loader).intValue());
+    }
+
+    @Test
+    public final void testModificationRegisteredWithEarlierTimestampReloadsValue()
+    {
+        // The timestamp of a modification is taken before the modification is made, so it
+        // might be older than the timestamp of a modification of another kind registered before.
+        final VersionedCachedValue<Integer> value =
+                new VersionedCachedValue<Integer>(state, ObjectKind.SAMPLE_TYPE,
+                        ObjectKind.GROUP);
+        state.registerModification(DatabaseModificationKind.edit(ObjectKind.GROUP), System
+                .currentTimeMillis() + 2000);
+        value.get(loader);
+
+        state.registerModification(DatabaseModificationKind.edit(ObjectKind.SAMPLE_TYPE), System
+                .currentTimeMillis() + 1000);
+
+        assertEquals(2, value.get(loader).intValue());
+    }
+
+    @Test
+    public final void testModificationRegisteredWithSameTimestampReloadsValue()
+    {
+        // Loaded while the modification has not been committed yet, but after its timestamp has
+        // been taken.
+        final VersionedCachedValue<Integer> value =
+                new VersionedCachedValue<Integer>(state, ObjectKind.GROUP);
+        final long timestamp = System.currentTimeMillis() + 1000;
+        state.registerModification(DatabaseModificationKind.edit(ObjectKind.GROUP), timestamp);
+        value.get(loader);
+
+        state.registerModification(DatabaseModificationKind.createOrDelete(ObjectKind.GROUP),
+                timestamp);
+        state.registerModification(DatabaseModificationKind.edit(ObjectKind.GROUP), timestamp);
+
+        assertEquals(2, value.get(loader).intValue());
+    }
+
+    @Test
+    public final void testValueWithoutStateIsLoadedEachTime()
+    {
+        final VersionedCachedValue<Integer> value =
+                new VersionedCachedValue<Integer>(null, ObjectKind.SAMPLE_TYPE);
+
+        value.get(loader);
+        value.get(loader);
+
+        assertEquals(2, loader.count);
+    }
+
+    @Test
+    public final void testValueWithoutDependenciesIsLoadedOnce()
+    {
+        final VersionedCachedValue<Integer> value = new VersionedCachedValue<Integer>(state);
+        value.get(loader);
+
+        state.registerModification(DatabaseModificationKind.edit(ObjectKind.GROUP), System
+                .currentTimeMillis() + 1000);
+
+        assertEquals(1, value.get(loader).intValue());
+    }
+}
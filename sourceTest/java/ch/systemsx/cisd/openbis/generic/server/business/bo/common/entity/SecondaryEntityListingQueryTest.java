@@ -79,6 +79,17 @@ public class SecondaryEntityListingQueryTest extends AbstractDAOTest
         assertEquals(firstExperiment.getEntityType().getCode(), expFull.getEntityType().getCode());
     }
 
+    @Test
+    public void testGetExperiments()
+    {
+        Long2ObjectMap<Experiment> experiments =
+                dao.getExperiments(EntityListingTestUtils.createSet(firstExperiment.getId()));
+        assertEquals(1, experiments.size());
+        Experiment expFull = experiments.get(firstExperiment.getId());
+        assertEquals(firstExperiment.getCode(), expFull.getCode());
+        assertEquals(firstExperiment.getProject().getCode(), expFull.getProject().getCode());
+    }
+
     @Test
     public void testPerson()
     {
@@ -86,6 +97,15 @@ public class SecondaryEntityListingQueryTest extends AbstractDAOTest
         assertEquals(firstPerson.getFirstName(), person.getFirstName());
     }
 
+    @Test
+    public void testPersons()
+    {
+        Long2ObjectMap<Person> persons =
+                dao.getPersons(EntityListingTestUtils.createSet(firstPerson.getId()));
+        assertEquals(1, persons.size());
+        assertEquals(firstPerson.getFirstName(), persons.get(firstPerson.getId()).getFirstName());
+    }
+
     @Test
     public void testSamples()
     {
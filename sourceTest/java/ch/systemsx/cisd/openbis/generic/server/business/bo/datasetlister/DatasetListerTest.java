@@ -18,8 +18,12 @@ package ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 
 import org.testng.AssertJUnit;
@@ -33,6 +37,7 @@ import ch.systemsx.cisd.openbis.generic.server.dataaccess.db.AbstractDAOTest;
 import ch.systemsx.cisd.openbis.generic.shared.basic.TechId;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ExternalData;
 import ch.systemsx.cisd.openbis.generic.shared.dto.SamplePE;
+import ch.systemsx.cisd.openbis.generic.shared.dto.SimpleDataSetInformationDTO;
 
 /**
  * @author Tomasz Pylak
@@ -47,6 +52,8 @@ public class DatasetListerTest extends AbstractDAOTest
 
     private long sampleId;
 
+    private long dataStoreId;
+
     @BeforeClass(alwaysRun = true)
     public void init() throws SQLException
     {
@@ -59,6 +66,8 @@ public class DatasetListerTest extends AbstractDAOTest
                 DatasetListingQueryTest.getSample("CISD", "CP-TEST-1", datasetListerDAO
                         .getDatabaseInstanceId(), daoFactory);
         sampleId = sample.getId();
+        long datasetId = lister.listBySampleTechId(new TechId(sampleId), true).get(0).getId();
+        dataStoreId = datasetListerDAO.getQuery().getDataset(datasetId).dast_id;
     }
 
     @Test
@@ -72,4 +81,71 @@ public class DatasetListerTest extends AbstractDAOTest
         AssertJUnit.assertNotNull(externalData.getExperiment());
     }
 
+    @Test
+    public void testListBySampleTechIdWithDescendants()
+    {
+        List<ExternalData> directlyConnected = lister.listBySampleTechId(new TechId(sampleId), true);
+        List<ExternalData> datasets = lister.listBySampleTechId(new TechId(sampleId), false);
+
+        LongSet directlyConnectedIds = getIds(directlyConnected);
+        LongSet ids = getIds(datasets);
+        assertEquals(datasets.size(), ids.size());
+        assertTrue(ids.containsAll(directlyConnectedIds));
+        for (ExternalData dataset : datasets)
+        {
+            if (directlyConnectedIds.contains(dataset.getId()) == false)
+            {
+                LongSet parentIds = getIds(lister.listByChildTechId(new TechId(dataset.getId())));
+                parentIds.retainAll(ids);
+                assertFalse(parentIds.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testListByDataStoreInPages()
+    {
+        List<SimpleDataSetInformationDTO> all =
+                lister.listByDataStore(dataStoreId, null, null, Integer.MAX_VALUE);
+        assertEqualsOrGreater(2, all.size());
+
+        List<SimpleDataSetInformationDTO> firstPage =
+                lister.listByDataStore(dataStoreId, null, null, 1);
+        List<SimpleDataSetInformationDTO> nextPage =
+                lister.listByDataStore(dataStoreId, firstPage.get(0).getDataSetId(), null,
+                        all.size());
+
+        assertEquals(1, firstPage.size());
+        assertEquals(all.get(0).getDataSetCode(), firstPage.get(0).getDataSetCode());
+        assertEquals(all.size() - 1, nextPage.size());
+        for (int i = 0; i < nextPage.size(); i++)
+        {
+            assertEquals(all.get(i + 1).getDataSetCode(), nextPage.get(i).getDataSetCode());
+        }
+        for (SimpleDataSetInformationDTO dataset : all)
+        {
+            AssertJUnit.assertNotNull(dataset.getDataSetLocation());
+            AssertJUnit.assertNotNull(dataset.getExperimentCode());
+            AssertJUnit.assertNotNull(dataset.getDatabaseInstanceCode());
+        }
+    }
+
+    @Test
+    public void testListByDataStoreModifiedSince()
+    {
+        Date future = new Date(System.currentTimeMillis() + 24 * 60 * 60 * 1000L);
+        assertEquals(0, lister.listByDataStore(dataStoreId, null, future, 10).size());
+        assertEquals(1, lister.listByDataStore(dataStoreId, null, new Date(0), 1).size());
+    }
+
+    private static LongSet getIds(List<ExternalData> datasets)
+    {
+        LongSet ids = new LongOpenHashSet();
+        for (ExternalData dataset : datasets)
+        {
+            ids.add(dataset.getId());
+        }
+        return ids;
+    }
+
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.common.exceptions.UserFailureException;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.EntityListingTestUtils;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ReferenceDataCache;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityListingQueryTest;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.db.AbstractDAOTest;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityType;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Experiment;
+import ch.systemsx.cisd.openbis.generic.shared.dto.ExperimentPE;
+import ch.systemsx.cisd.openbis.generic.shared.dto.ProjectPE;
+import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.ProjectIdentifier;
+
+/**
+ * Test cases for {@link ExperimentLister}.
+ * 
+ * @author agent
+ */
+@Test(groups =
+    { "db", "experiment" })
+public class ExperimentListerTest extends AbstractDAOTest
+{
+    private IExperimentLister lister;
+
+    @BeforeClass(alwaysRun = true)
+    public void init()
+    {
+        IExperimentListingFullQuery query =
+                EntityListingTestUtils.createQuery(daoFactory, IExperimentListingFullQuery.class);
+        ExperimentListerDAO dao = ExperimentListerDAO.create(daoFactory, query);
+        SecondaryEntityDAO secondaryEntityDAO =
+                SecondaryEntityListingQueryTest.createSecondaryEntityDAO(daoFactory);
+        lister =
+                ExperimentLister.create(dao, secondaryEntityDAO, "url", "CISD", ReferenceDataCache
+                        .createUncached());
+    }
+
+    @Test
+    public void testListAllTypesLikeHibernate()
+    {
+        List<Experiment> experiments =
+                lister.list(EntityType.ALL_TYPES_CODE, new ProjectIdentifier("CISD", "NEMO"));
+
+        ProjectPE project = daoFactory.getProjectDAO().tryFindProject(null, "CISD", "NEMO");
+        List<ExperimentPE> expected =
+                daoFactory.getExperimentDAO().listExperimentsWithProperties(project);
+        Collections.sort(expected);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), experiments.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            ExperimentPE experimentPE = expected.get(i);
+            Experiment experiment = experiments.get(i);
+            assertEquals(experimentPE.getId(), experiment.getId());
+            assertEquals(experimentPE.getIdentifier(), experiment.getIdentifier());
+            assertEquals(experimentPE.getPermId(), experiment.getPermId());
+            assertEquals(experimentPE.getExperimentType().getCode(), experiment
+                    .getExperimentType().getCode());
+            assertEquals("NEMO", experiment.getProject().getCode());
+            assertEquals("CISD", experiment.getProject().getGroup().getCode());
+            assertEquals(experimentPE.getRegistrator().getUserId(), experiment.getRegistrator()
+                    .getUserId());
+            assertEquals(experimentPE.getInvalidation() != null,
+                    experiment.getInvalidation() != null);
+            assertEquals(experimentPE.getProperties().size(), experiment.getProperties().size());
+        }
+    }
+
+    @Test
+    public void testListOfTypeInHomeGroup()
+    {
+        List<Experiment> experiments =
+                lister.list("SIRNA_HCS", new ProjectIdentifier(null, null, "NEMO"));
+
+        assertFalse(experiments.isEmpty());
+        for (Experiment experiment : experiments)
+        {
+            assertEquals("SIRNA_HCS", experiment.getExperimentType().getCode());
+            assertEquals("/CISD/NEMO", experiment.getProject().getIdentifier());
+        }
+    }
+
+    @Test(expectedExceptions = UserFailureException.class)
+    public void testListOfUnknownType()
+    {
+        lister.list("UNKNOWN", new ProjectIdentifier("CISD", "NEMO"));
+    }
+
+    @Test(expectedExceptions = UserFailureException.class)
+    public void testListOfUnknownProject()
+    {
+        lister.list(EntityType.ALL_TYPES_CODE, new ProjectIdentifier("CISD", "UNKNOWN"));
+    }
+}
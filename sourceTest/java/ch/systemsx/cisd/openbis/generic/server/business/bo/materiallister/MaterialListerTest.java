@@ -0,0 +1,96 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.common.exceptions.UserFailureException;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.EntityListingTestUtils;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.ReferenceDataCache;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityListingQueryTest;
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.db.AbstractDAOTest;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Material;
+import ch.systemsx.cisd.openbis.generic.shared.dto.MaterialPE;
+import ch.systemsx.cisd.openbis.generic.shared.dto.MaterialTypePE;
+import ch.systemsx.cisd.openbis.generic.shared.dto.properties.EntityKind;
+
+/**
+ * Test cases for {@link MaterialLister}.
+ * 
+ * @author agent
+ */
+@Test(groups =
+    { "db", "material" })
+public class MaterialListerTest extends AbstractDAOTest
+{
+    private static final String BACTERIUM = "BACTERIUM";
+
+    private IMaterialLister lister;
+
+    @BeforeClass(alwaysRun = true)
+    public void init()
+    {
+        IMaterialListingFullQuery query =
+                EntityListingTestUtils.createQuery(daoFactory, IMaterialListingFullQuery.class);
+        MaterialListerDAO dao = MaterialListerDAO.create(daoFactory, query);
+        SecondaryEntityDAO secondaryEntityDAO =
+                SecondaryEntityListingQueryTest.createSecondaryEntityDAO(daoFactory);
+        lister =
+                MaterialLister.create(dao, secondaryEntityDAO, ReferenceDataCache
+                        .createUncached());
+    }
+
+    @Test
+    public void testListLikeHibernate()
+    {
+        List<Material> materials = lister.list(BACTERIUM);
+
+        MaterialTypePE type =
+                (MaterialTypePE) daoFactory.getEntityTypeDAO(EntityKind.MATERIAL)
+                        .tryToFindEntityTypeByCode(BACTERIUM);
+        List<MaterialPE> expected =
+                daoFactory.getMaterialDAO().listMaterialsWithPropertiesAndInhibitor(type);
+        Collections.sort(expected);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), materials.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            MaterialPE materialPE = expected.get(i);
+            Material material = materials.get(i);
+            assertEquals(materialPE.getId(), material.getId());
+            assertEquals(materialPE.getCode(), material.getCode());
+            assertEquals(BACTERIUM, material.getMaterialType().getCode());
+            assertEquals(materialPE.getRegistrator().getUserId(), material.getRegistrator()
+                    .getUserId());
+            assertEquals(materialPE.getProperties().size(), material.getProperties().size());
+        }
+    }
+
+    @Test(expectedExceptions = UserFailureException.class)
+    public void testListOfUnknownType()
+    {
+        lister.list("UNKNOWN");
+    }
+}
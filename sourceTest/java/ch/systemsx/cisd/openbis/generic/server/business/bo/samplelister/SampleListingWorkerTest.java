@@ -19,18 +19,25 @@ package ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import ch.systemsx.cisd.openbis.generic.server.business.bo.common.entity.SecondaryEntityDAO;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.db.AbstractDAOTest;
+import ch.systemsx.cisd.openbis.generic.shared.basic.PermlinkUtilities;
 import ch.systemsx.cisd.openbis.generic.shared.basic.TechId;
+import ch.systemsx.cisd.openbis.generic.shared.basic.dto.EntityKind;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ListOrSearchSampleCriteria;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.ListSampleCriteria;
 import ch.systemsx.cisd.openbis.generic.shared.basic.dto.Sample;
+import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.GroupIdentifier;
+import ch.systemsx.cisd.openbis.generic.shared.dto.identifier.SampleIdentifier;
 
 import static org.testng.AssertJUnit.*;
 
@@ -69,6 +76,13 @@ public class SampleListingWorkerTest extends AbstractDAOTest
         {
             assertNotNull("ID:" + s.getId(), s.getGroup());
             assertNotNull("ID:" + s.getId(), s.getGroup().getInstance());
+            assertEquals(PermlinkUtilities.createPermlinkURL(BASE_INDEX_URL, EntityKind.SAMPLE, s
+                    .getPermId()), s.getPermlink());
+            final GroupIdentifier groupId =
+                    new GroupIdentifier(s.getGroup().getInstance().getCode(), s.getGroup()
+                            .getCode());
+            assertEquals(new SampleIdentifier(groupId, s.getCode()).toString(), s
+                    .getIdentifier());
         }
     }
 
@@ -105,4 +119,45 @@ public class SampleListingWorkerTest extends AbstractDAOTest
             assertNotNull("ID:" + s.getId(), s.getGroup().getInstance());
         }
     }
+
+    @Test
+    public void testListSamplesForExperimentInBatches()
+    {
+        final ListSampleCriteria baseCriteria =
+                ListSampleCriteria.createForExperiment(new TechId(2L));
+        final ListOrSearchSampleCriteria criteria = new ListOrSearchSampleCriteria(baseCriteria);
+        final List<Sample> expected =
+                SampleListingWorker.create(criteria, BASE_INDEX_URL, sampleListerDAO, secondaryDAO)
+                        .load();
+        assertTrue(expected.size() > 0);
+        final List<List<Sample>> batches = new ArrayList<List<Sample>>();
+
+        SampleListingWorker.create(criteria, BASE_INDEX_URL, sampleListerDAO, secondaryDAO).load(
+                1, new ISampleBatchHandler()
+                    {
+                        public void handle(List<Sample> samples)
+                        {
+                            batches.add(samples);
+                        }
+                    });
+
+        assertEquals(expected.size(), batches.size());
+        final Set<String> expectedIdentifiers = new HashSet<String>();
+        for (Sample s : expected)
+        {
+            expectedIdentifiers.add(s.getIdentifier());
+        }
+        final Set<String> identifiers = new HashSet<String>();
+        for (List<Sample> batch : batches)
+        {
+            assertEquals(1, batch.size());
+            for (Sample s : batch)
+            {
+                assertNotNull("ID:" + s.getId(), s.getRegistrator());
+                assertNotNull("ID:" + s.getId(), s.getProperties());
+                identifiers.add(s.getIdentifier());
+            }
+        }
+        assertEquals(expectedIdentifiers, identifiers);
+    }
 }
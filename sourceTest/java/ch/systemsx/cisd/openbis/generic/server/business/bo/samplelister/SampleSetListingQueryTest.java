@@ -19,6 +19,7 @@ package ch.systemsx.cisd.openbis.generic.server.business.bo.samplelister;
 import static ch.systemsx.cisd.openbis.generic.server.business.bo.common.EntityListingTestUtils.asList;
 import static ch.systemsx.cisd.openbis.generic.server.business.bo.common.EntityListingTestUtils.createSet;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
@@ -81,6 +82,8 @@ public class SampleSetListingQueryTest extends AbstractDAOTest
 
     private ISampleSetListingQuery setQuery;
 
+    private ISampleAncestorListingQuery ancestorQuery;
+
     private ISampleListingQuery query;
 
     @BeforeClass(alwaysRun = true)
@@ -112,6 +115,7 @@ public class SampleSetListingQueryTest extends AbstractDAOTest
             cellPlateIds.add(sample.getId());
         }
         setQuery = sampleListerDAO.getIdSetQuery();
+        ancestorQuery = sampleListerDAO.tryGetAncestorQuery();
         query = sampleListerDAO.getQuery();
         propertySetQuery = sampleListerDAO.getPropertySetQuery();
     }
@@ -130,6 +134,22 @@ public class SampleSetListingQueryTest extends AbstractDAOTest
         }
     }
 
+    @Test
+    public void testQuerySamplesWithAncestors()
+    {
+        SampleRecord cellPlate = query.getSample(CELL_PLATE_ID_CP_TEST_1);
+        assertNotNull(cellPlate.samp_id_generated_from);
+        List<SampleRecord> samples =
+                asList(ancestorQuery.getSamplesWithAncestors(createSet(CELL_PLATE_ID_CP_TEST_1), 2,
+                        new LongOpenHashSet(), 0));
+        LongSet ids = new LongOpenHashSet();
+        for (SampleRecord sample : samples)
+        {
+            ids.add(sample.id);
+        }
+        assertEquals(createSet(CELL_PLATE_ID_CP_TEST_1, cellPlate.samp_id_generated_from), ids);
+    }
+
     @Test
     public void testSamplePropertyGenericValues()
     {
@@ -173,6 +173,31 @@ public final class HibernateSearchDAOTest extends AbstractDAOTest
         }
     }
 
+    @Test
+    public final void testSearchEntitiesByTermListsHitsFieldByField()
+    {
+        final IHibernateSearchDAO hibernateSearchDAO = daoFactory.getHibernateSearchDAO();
+        final List<MatchingEntity> hits =
+                hibernateSearchDAO.searchEntitiesByTerm(SearchableEntity.SAMPLE, "cp*",
+                        createDataProvider());
+        assertTrue(hits.size() > 0);
+        final Set<String> finishedFields = new HashSet<String>();
+        final Set<String> entityFields = new HashSet<String>();
+        String currentField = null;
+        for (MatchingEntity matchingEntity : hits)
+        {
+            final String field = matchingEntity.getFieldDescription();
+            if (field.equals(currentField) == false)
+            {
+                assertTrue("Hits of field " + field + " are not listed together", finishedFields
+                        .add(field));
+                currentField = field;
+            }
+            final String entityField = matchingEntity.getId() + ":" + field;
+            assertTrue("Entity listed twice for field " + field, entityFields.add(entityField));
+        }
+    }
+
     @Test
     public final void testSearchEntitiesByTermForMaterial()
     {
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.server.dataaccess.db;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+import ch.systemsx.cisd.openbis.generic.server.dataaccess.db.SequenceBlockAllocator.ISequenceValueReserver;
+
+/**
+ * Test cases for corresponding {@link SequenceBlockAllocator} class.
+ *
+ * @author agent
+ */
+public final class SequenceBlockAllocatorTest
+{
+    /** A sequence in memory which counts the reservations. */
+    private static final class Sequence implements ISequenceValueReserver
+    {
+        private final AtomicLong lastValue = new AtomicLong();
+
+        private final AtomicInteger reservationCount = new AtomicInteger();
+
+        public long[] reserve(String sequenceName, int count)
+        {
+            assertEquals("MY_SEQ", sequenceName);
+            reservationCount.incrementAndGet();
+            final long[] values = new long[count];
+            for (int i = 0; i < count; i++)
+            {
+                values[i] = lastValue.incrementAndGet();
+            }
+            return values;
+        }
+    }
+
+    @Test
+    public final void testDefaultBlockSizeReservesEachValue()
+    {
+        final Sequence sequence = new Sequence();
+        final SequenceBlockAllocator allocator = new SequenceBlockAllocator("MY_SEQ");
+
+        assertEquals(1, allocator.next(sequence));
+        assertEquals(2, allocator.next(sequence));
+        assertEquals(2, sequence.reservationCount.get());
+    }
+
+    @Test
+    public final void testValuesAreReservedInBlocks()
+    {
+        final Sequence sequence = new Sequence();
+        final SequenceBlockAllocator allocator = new SequenceBlockAllocator("MY_SEQ");
+        allocator.setBlockSize(10);
+
+        for (int i = 1; i <= 25; i++)
+        {
+            assertEquals(i, allocator.next(sequence));
+        }
+        assertEquals(3, sequence.reservationCount.get());
+    }
+
+    @Test
+    public final void testAllocatorsSharingTheSequenceGetDisjointValues()
+    {
+        // like two servers using the same database
+        final Sequence sequence = new Sequence();
+        final SequenceBlockAllocator allocator1 = new SequenceBlockAllocator("MY_SEQ");
+        allocator1.setBlockSize(3);
+        final SequenceBlockAllocator allocator2 = new SequenceBlockAllocator("MY_SEQ");
+        allocator2.setBlockSize(5);
+
+        final Set<Long> values = new HashSet<Long>();
+        for (int i = 0; i < 20; i++)
+        {
+            values.add(allocator1.next(sequence));
+            values.add(allocator2.next(sequence));
+        }
+        assertEquals(40, values.size());
+    }
+
+    @Test
+    public final void testConcurrentAllocation() throws Exception
+    {
+        final Sequence sequence = new Sequence();
+        final SequenceBlockAllocator allocator = new SequenceBlockAllocator("MY_SEQ");
+        allocator.setBlockSize(7);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            final List<Future<List<Long>>> futures = new ArrayList<Future<List<Long>>>();
+            for (int t = 0; t < 4; t++)
+            {
+                futures.add(executor.submit(new Callable<List<Long>>()
+                    {
+                        public List<Long> call()
+                        {
+                            final List<Long> values = new ArrayList<Long>();
+                            for (int i = 0; i < 1000; i++)
+                            {
+                                values.add(allocator.next(sequence));
+                            }
+                            return values;
+                        }
+                    }));
+            }
+            final Set<Long> values = new HashSet<Long>();
+            for (final Future<List<Long>> future : futures)
+            {
+                values.addAll(future.get());
+            }
+            assertEquals(4000, values.size());
+            // 4000 / 7 rounded up
+            assertEquals(572, sequence.reservationCount.get());
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+}
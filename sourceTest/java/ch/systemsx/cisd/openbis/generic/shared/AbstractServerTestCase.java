@@ -42,6 +42,8 @@ import ch.systemsx.cisd.openbis.generic.server.business.bo.IPropertyTypeTable;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.ISampleBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.IVocabularyBO;
 import ch.systemsx.cisd.openbis.generic.server.business.bo.datasetlister.IDatasetLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.experimentlister.IExperimentLister;
+import ch.systemsx.cisd.openbis.generic.server.business.bo.materiallister.IMaterialLister;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IAttachmentDAO;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDAOFactory;
 import ch.systemsx.cisd.openbis.generic.server.dataaccess.IDataSetTypeDAO;
@@ -154,6 +156,10 @@ public abstract class AbstractServerTestCase extends AssertJUnit
 
     protected IDatasetLister datasetLister;
 
+    protected IExperimentLister experimentLister;
+
+    protected IMaterialLister materialLister;
+
     @BeforeMethod
     @SuppressWarnings("unchecked")
     public void setUp()
@@ -194,6 +200,8 @@ public abstract class AbstractServerTestCase extends AssertJUnit
         // Table
         externalDataTable = context.mock(IExternalDataTable.class);
         datasetLister = context.mock(IDatasetLister.class);
+        experimentLister = context.mock(IExperimentLister.class);
+        materialLister = context.mock(IMaterialLister.class);
         experimentTable = context.mock(IExperimentTable.class);
         propertyTypeTable = context.mock(IPropertyTypeTable.class);
         materialTable = context.mock(IMaterialTable.class);
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.shared.util;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.testng.annotations.Test;
+
+/**
+ * Test cases for corresponding {@link HtmlEscapeUtils} class.
+ * 
+ * @author agent
+ */
+public final class HtmlEscapeUtilsTest
+{
+    @Test
+    public final void testStringWithoutSpecialCharactersIsReturnedUnchanged()
+    {
+        final String str = "/CISD/CP-TEST-1:A01 some 'value'";
+
+        assertSame(str, HtmlEscapeUtils.escapeHtml(str));
+    }
+
+    @Test
+    public final void testNull()
+    {
+        assertNull(HtmlEscapeUtils.escapeHtml(null));
+    }
+
+    @Test
+    public final void testEscapingLikeStringEscapeUtils()
+    {
+        final String[] strs =
+            { "a<b>c", "\"quoted\"", "a & b", "Zürich", "α-tubulin", "tab\tand\nnewline" };
+        for (String str : strs)
+        {
+            assertEquals(str, StringEscapeUtils.escapeHtml(str), HtmlEscapeUtils.escapeHtml(str));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009 ETH Zuerich, CISD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.systemsx.cisd.openbis.generic.shared.util;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test cases for corresponding {@link WorkerThreadPools} class.
+ * 
+ * @author agent
+ */
+public final class WorkerThreadPoolsTest
+{
+    @Test
+    public final void testWorkersAreNamedDaemonThreads() throws Exception
+    {
+        final ExecutorService workers = WorkerThreadPools.create("test-pool", 1);
+        final Thread worker = workers.submit(new Callable<Thread>()
+            {
+                public Thread call()
+                {
+                    return Thread.currentThread();
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+        assertEquals("test-pool-1", worker.getName());
+        assertTrue(worker.isDaemon());
+    }
+}